@@ -0,0 +1,29 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the generation scheduler turns a request away, either because the wait queue is
+ * full ({@code 429}) or because the request waited longer than its queue-time deadline ({@code 503}).
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(HttpStatus status, Duration retryAfter, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import java.time.Duration;
+
+/**
+ * Thrown when no Ollama backend could answer a request: every attempt (including the fallback
+ * model, if configured) failed, or the circuit breakers of every backend are open. Answered
+ * with {@code 503} and a Retry-After estimate.
+ */
+public class BackendUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public BackendUnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
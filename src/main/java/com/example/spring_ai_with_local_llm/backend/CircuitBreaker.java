@@ -0,0 +1,141 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.OllamaResilienceProperties;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker for one model on one backend.
+ * <p>
+ * While closed, the outcomes of the last {@code slidingWindow} calls are kept; once at least
+ * {@code minimumCalls} are recorded and the failure rate reaches the threshold, the breaker opens
+ * and rejects calls for {@code openDuration}. After that a single trial call is let through
+ * (half-open): its success closes the breaker, its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final OllamaResilienceProperties.CircuitBreaker properties;
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openUntilNanos;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(OllamaResilienceProperties.CircuitBreaker properties) {
+        this.properties = properties;
+        this.outcomes = new boolean[Math.max(1, properties.slidingWindow())];
+    }
+
+    /**
+     * Whether a call would currently be let through, without claiming the half-open trial.
+     */
+    public synchronized boolean isCallPermitted(long now) {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> now - openUntilNanos >= 0;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    /**
+     * Claims permission for a call; every granted call must end in {@link #onSuccess()},
+     * {@link #onFailure(long)} or {@link #release()}.
+     */
+    public synchronized boolean tryAcquirePermission(long now) {
+        if (state == State.OPEN && now - openUntilNanos >= 0) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(long now) {
+        if (state == State.HALF_OPEN) {
+            open(now);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= properties.minimumCalls() && failureRate() >= properties.failureRateThreshold()) {
+                open(now);
+            }
+        }
+    }
+
+    /**
+     * Ends a call whose outcome says nothing about the backend (a client error or a cancelled
+     * stream), freeing the half-open trial if it was one.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Failure rate over the calls recorded since the breaker last closed.
+     */
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    /**
+     * Time until an open breaker lets a trial call through; zero otherwise.
+     */
+    public synchronized Duration remainingOpen(long now) {
+        return state == State.OPEN && now - openUntilNanos < 0 ? Duration.ofNanos(openUntilNanos - now) : Duration.ZERO;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openUntilNanos = now + properties.openDuration().toNanos();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Actuator endpoint ({@code /actuator/circuitbreakers}) listing the circuit breaker of every
+ * backend and model that has been called.
+ */
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    private final RoutingChatModel routingChatModel;
+
+    public CircuitBreakerEndpoint(RoutingChatModel routingChatModel) {
+        this.routingChatModel = routingChatModel;
+    }
+
+    @ReadOperation
+    public List<BreakerState> circuitBreakers() {
+        long now = System.nanoTime();
+        return routingChatModel.backends().stream()
+            .flatMap(backend -> backend.breakers().entrySet().stream()
+                .map(entry -> new BreakerState(backend.baseUrl(), entry.getKey(),
+                    entry.getValue().state().name().toLowerCase(Locale.ROOT),
+                    entry.getValue().failureRate(),
+                    entry.getValue().remainingOpen(now).toMillis())))
+            .sorted(Comparator.comparing(BreakerState::backend).thenComparing(BreakerState::model))
+            .toList();
+    }
+
+    /**
+     * @param remainingOpenMillis time until an open breaker lets a trial call through
+     */
+    public record BreakerState(String backend, String model, String state, double failureRate, long remainingOpenMillis) {}
+}
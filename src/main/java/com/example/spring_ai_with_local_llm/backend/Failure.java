@@ -0,0 +1,85 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * What went wrong in a call to an Ollama backend, which decides whether it may be retried and
+ * whether it counts against the backend.
+ */
+enum Failure {
+
+    /** The connection could not be established, so Ollama never saw the request. */
+    CONNECT(true, true),
+    /** Ollama answered with a 5xx status before producing any output. */
+    SERVER_ERROR(true, true),
+    /** A stream produced nothing within the first-token timeout; only retried on another backend. */
+    FIRST_TOKEN_TIMEOUT(true, true),
+    /** The answer (or the next chunk of a stream) did not arrive within the read timeout. */
+    TIMEOUT(false, true),
+    /** Ollama rejected the request itself (4xx); another attempt would fail the same way. */
+    CLIENT_ERROR(false, false),
+    OTHER(false, true);
+
+    private final boolean retryable;
+    private final boolean countsAgainstBackend;
+
+    Failure(boolean retryable, boolean countsAgainstBackend) {
+        this.retryable = retryable;
+        this.countsAgainstBackend = countsAgainstBackend;
+    }
+
+    boolean isRetryable() {
+        return retryable;
+    }
+
+    boolean countsAgainstBackend() {
+        return countsAgainstBackend;
+    }
+
+    static Failure of(Throwable error) {
+        if (error instanceof FirstTokenTimeoutException) {
+            return FIRST_TOKEN_TIMEOUT;
+        }
+        if (error instanceof NonTransientAiException) {
+            return CLIENT_ERROR;
+        }
+        if (error instanceof TransientAiException) {
+            return SERVER_ERROR;
+        }
+        if (error instanceof WebClientResponseException e) {
+            return e.getStatusCode().is4xxClientError() ? CLIENT_ERROR : SERVER_ERROR;
+        }
+        if (error instanceof RestClientResponseException e) {
+            return e.getStatusCode().is4xxClientError() ? CLIENT_ERROR : SERVER_ERROR;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) {
+                return CONNECT;
+            }
+            if (cause instanceof HttpTimeoutException || cause instanceof TimeoutException
+                || cause instanceof ReadTimeoutException) {
+                return TIMEOUT;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * A stream that did not produce its first chunk in time.
+     */
+    static class FirstTokenTimeoutException extends TimeoutException {
+
+        FirstTokenTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
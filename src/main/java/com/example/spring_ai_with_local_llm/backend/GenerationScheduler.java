@@ -0,0 +1,233 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.SchedulerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control between the services and the model backend. At most {@code maxInFlight}
+ * generations run at once; further requests wait in a bounded queue ordered by {@link Priority}
+ * (then arrival). A full queue rejects immediately with {@code 429}, and a request that waits past
+ * its queue-time deadline is rejected with {@code 503}; both carry a Retry-After estimate.
+ */
+public class GenerationScheduler {
+
+    private static final Comparator<Waiter> ADMISSION_ORDER = Comparator
+        .comparing(Waiter::priority)
+        .thenComparingLong(Waiter::sequence);
+
+    private final SchedulerProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(ADMISSION_ORDER);
+    private final AtomicLong sequence = new AtomicLong();
+    private int inFlight;
+    /** Exponentially weighted average generation time, used for Retry-After estimates. */
+    private volatile double averageServiceMillis = 1000;
+
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedDeadline;
+
+    public GenerationScheduler(SchedulerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+
+        for (Priority priority : Priority.values()) {
+            waitTimers.put(priority, Timer.builder("llm.scheduler.wait")
+                .description("Time spent waiting for a backend slot")
+                .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        }
+        this.rejectedQueueFull = Counter.builder("llm.scheduler.rejected")
+            .description("Requests rejected by admission control")
+            .tag("reason", "queue_full")
+            .register(meterRegistry);
+        this.rejectedDeadline = Counter.builder("llm.scheduler.rejected")
+            .description("Requests rejected by admission control")
+            .tag("reason", "queue_timeout")
+            .register(meterRegistry);
+        Gauge.builder("llm.scheduler.queue.depth", this, GenerationScheduler::queueDepth)
+            .description("Requests waiting for a backend slot")
+            .register(meterRegistry);
+        Gauge.builder("llm.scheduler.in.flight", this, GenerationScheduler::inFlight)
+            .description("Generations currently running against the backend")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs a blocking generation once a slot is granted. Waiting blocks the calling thread,
+     * which is cheap on a virtual thread.
+     */
+    public <T> T execute(Priority priority, Supplier<T> generation) {
+        Permit permit = join(acquire(priority));
+        try {
+            return generation.get();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Subscribes to a streaming generation once a slot is granted and holds the slot until the
+     * stream terminates or is cancelled. Cancelling while still queued leaves the queue. The
+     * generation is deferred so that a supplier that throws also hands its slot back.
+     */
+    public <T> Flux<T> stream(Priority priority, Supplier<Flux<T>> generation) {
+        return Mono.defer(() -> {
+                CompletableFuture<Permit> grant = acquire(priority);
+                return Mono.fromFuture(grant, true)
+                    .doOnCancel(() -> {
+                        // Leave the queue, or hand back a slot that was granted as we cancelled
+                        if (!grant.cancel(false)) {
+                            grant.thenAccept(Permit::release);
+                        }
+                    });
+            })
+            .onErrorMap(CompletionException.class, e -> translate(e.getCause()))
+            .onErrorMap(TimeoutException.class, this::translate)
+            .flatMapMany(permit -> Flux.defer(generation).doFinally(signal -> permit.release()));
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CompletableFuture<Permit> acquire(Priority priority) {
+        long enqueuedAt = System.nanoTime();
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (inFlight < properties.maxInFlight() && queue.isEmpty()) {
+                inFlight++;
+                waitTimers.get(priority).record(0, TimeUnit.NANOSECONDS);
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            if (queue.size() >= properties.queueCapacity()) {
+                rejectedQueueFull.increment();
+                throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter(queue.size()),
+                    "Generation queue is full (" + properties.queueCapacity() + " waiting)");
+            }
+            waiter = new Waiter(priority, sequence.incrementAndGet(), enqueuedAt, new CompletableFuture<>());
+            queue.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        waiter.grant().orTimeout(properties.maxQueueTime().toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((permit, error) -> {
+                if (error != null) {
+                    leaveQueue(waiter);
+                    if (error instanceof TimeoutException) {
+                        rejectedDeadline.increment();
+                    }
+                } else {
+                    waitTimers.get(priority).record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        return waiter.grant();
+    }
+
+    private void leaveQueue(Waiter waiter) {
+        lock.lock();
+        try {
+            queue.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long serviceNanos) {
+        averageServiceMillis = 0.9 * averageServiceMillis + 0.1 * (serviceNanos / 1_000_000.0);
+        while (true) {
+            Waiter next;
+            lock.lock();
+            try {
+                next = queue.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Hand the slot over outside the lock, since completing the grant runs the waiter's
+            // continuation; skip waiters that timed out or were cancelled in the meantime
+            if (next.grant().complete(new Permit())) {
+                return;
+            }
+        }
+    }
+
+    private Duration retryAfter(int waiting) {
+        double millis = averageServiceMillis * (waiting + 1) / Math.max(1, properties.maxInFlight());
+        return Duration.ofSeconds(Math.max(1, (long) Math.ceil(millis / 1000)));
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            throw translate(e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    private RuntimeException translate(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfter(queueDepth()),
+                "No backend slot within " + properties.maxQueueTime());
+        }
+        return error instanceof RuntimeException runtime ? runtime : new IllegalStateException(error);
+    }
+
+    private record Waiter(Priority priority, long sequence, long enqueuedAt, CompletableFuture<Permit> grant) {}
+
+    /**
+     * A granted backend slot; releasing it hands the slot to the next waiter.
+     */
+    private final class Permit {
+
+        private final long grantedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                GenerationScheduler.this.release(System.nanoTime() - grantedAt);
+            }
+        }
+    }
+}
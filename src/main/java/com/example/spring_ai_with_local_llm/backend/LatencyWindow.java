@@ -0,0 +1,43 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * The most recent latencies of one model, in nanoseconds, for computing the hedging delay from
+ * a percentile of them. Older latencies are overwritten once the window is full.
+ */
+public class LatencyWindow {
+
+    private final long[] latencies;
+    private int recorded;
+    private int next;
+
+    public LatencyWindow(int size) {
+        this.latencies = new long[Math.max(1, size)];
+    }
+
+    public synchronized void record(long nanos) {
+        latencies[next] = nanos;
+        next = (next + 1) % latencies.length;
+        recorded = Math.min(recorded + 1, latencies.length);
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return the latency that {@code percentile} of the recorded latencies do not exceed, or empty
+     * if fewer than {@code minSamples} are recorded
+     */
+    public OptionalLong percentile(double percentile, int minSamples) {
+        long[] sorted;
+        synchronized (this) {
+            if (recorded == 0 || recorded < minSamples) {
+                return OptionalLong.empty();
+            }
+            sorted = Arrays.copyOf(latencies, recorded);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return OptionalLong.of(sorted[Math.clamp(index, 0, sorted.length - 1)]);
+    }
+}
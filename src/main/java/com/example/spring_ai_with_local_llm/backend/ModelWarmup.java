@@ -0,0 +1,316 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.OllamaResilienceProperties;
+import com.example.spring_ai_with_local_llm.config.OllamaWarmupProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.ollama.management.ModelManagementOptions;
+import org.springframework.ai.ollama.management.OllamaModelManager;
+import org.springframework.ai.ollama.management.PullModelStrategy;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Loads the models into every Ollama backend before the application reports ready, and keeps
+ * them loaded while they receive traffic.
+ * <p>
+ * At startup each backend pulls the models it is missing and loads them; the chat model also
+ * answers a one-token prompt with the tool-calling system prompt and tools, so that Ollama has
+ * evaluated that prefix before the first real request. Backends are warmed up in parallel and
+ * retried until all are warm; until then (or until the readiness timeout) the
+ * {@link ModelWarmupHealthIndicator} reports out of service.
+ * <p>
+ * Afterwards {@link #keepAlive()} runs periodically. A loaded model that has been idle for
+ * {@code idleTime} is pinged, which resets Ollama's keep-alive timer without generating
+ * anything; a model that had requests but was unloaded (e.g. Ollama restarted) is loaded again.
+ * Models without requests for longer than {@code trafficWindow} are left for Ollama to unload.
+ */
+public class ModelWarmup implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelWarmup.class);
+
+    static final String WARMUP_MESSAGE = "Hi";
+
+    enum Phase { WARMING_UP, WARM, TIMED_OUT, DISABLED }
+
+    private enum Reason { STARTUP, RELOAD, KEEP_ALIVE }
+
+    private final RoutingChatModel routingChatModel;
+    private final OllamaWarmupProperties properties;
+    private final String chatModel;
+    private final List<String> models;
+    private final String keepAlive;
+    private final String systemPrompt;
+    private final ToolCallbackProvider tools;
+    private final Map<OllamaBackend, OllamaApi> apis = new LinkedHashMap<>();
+    private final Map<OllamaBackend, Long> warmSinceNanos = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastPingNanos = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final long startedNanos = System.nanoTime();
+    private volatile boolean warm;
+    private volatile Thread warmupThread;
+
+    /**
+     * @param systemPrompt system prompt the chat model is warmed up with, together with {@code tools}
+     * @param apis         Ollama API client for a backend's base URL, used to pull and load models
+     */
+    public ModelWarmup(RoutingChatModel routingChatModel, OllamaWarmupProperties properties,
+                       OllamaResilienceProperties resilience, String systemPrompt, ToolCallbackProvider tools,
+                       Function<String, OllamaApi> apis, MeterRegistry meterRegistry) {
+        this.routingChatModel = routingChatModel;
+        this.properties = properties;
+        OllamaOptions defaults = (OllamaOptions) routingChatModel.getDefaultOptions();
+        this.chatModel = defaults.getModel();
+        this.keepAlive = defaults.getKeepAlive();
+        Set<String> models = new LinkedHashSet<>();
+        models.add(chatModel);
+        if (resilience.hasFallbackModel()) {
+            models.add(resilience.fallbackModel());
+        }
+        models.addAll(properties.models());
+        this.models = List.copyOf(models);
+        this.systemPrompt = systemPrompt;
+        this.tools = tools;
+        this.meterRegistry = meterRegistry;
+        routingChatModel.backends().forEach(backend -> this.apis.put(backend, apis.apply(backend.baseUrl())));
+    }
+
+    Phase phase() {
+        if (!properties.enabled()) {
+            return Phase.DISABLED;
+        }
+        if (warm) {
+            return Phase.WARM;
+        }
+        return System.nanoTime() - startedNanos >= properties.readinessTimeout().toNanos()
+            ? Phase.TIMED_OUT : Phase.WARMING_UP;
+    }
+
+    /**
+     * Warms up every backend, retrying those that fail, until all are warm or the application stops.
+     */
+    void warmUp() {
+        Set<OllamaBackend> pending = new LinkedHashSet<>(routingChatModel.backends());
+        boolean timedOut = false;
+        while (!pending.isEmpty()) {
+            for (OllamaBackend backend : warmUpInParallel(pending)) {
+                warmSinceNanos.put(backend, System.nanoTime());
+                pending.remove(backend);
+            }
+            if (pending.isEmpty()) {
+                break;
+            }
+            if (!timedOut && phase() == Phase.TIMED_OUT) {
+                timedOut = true;
+                log.warn("Models not warm on {} after {}; reporting ready anyway", pending, properties.readinessTimeout());
+            }
+            try {
+                Thread.sleep(properties.retryInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        warm = true;
+        log.info("Models {} warm on {} backend(s) after {} ms", models, routingChatModel.backends().size(),
+            Duration.ofNanos(System.nanoTime() - startedNanos).toMillis());
+    }
+
+    /**
+     * Pings the loaded models that are idle but still in use, and loads again the ones in use that
+     * Ollama unloaded. Backends are only looked after once their startup warm-up is over.
+     */
+    public void keepAlive() {
+        long now = System.nanoTime();
+        long trafficWindow = properties.keepAlive().trafficWindow().toNanos();
+        long idleTime = properties.keepAlive().idleTime().toNanos();
+        for (OllamaBackend backend : routingChatModel.backends()) {
+            Long warmSince = warmSinceNanos.get(backend);
+            if (warmSince == null || !backend.isHealthy()) {
+                continue;
+            }
+            for (String model : models) {
+                OptionalLong lastUsed = backend.lastUsed(model);
+                long lastTraffic = lastUsed.isPresent() && lastUsed.getAsLong() - warmSince > 0
+                    ? lastUsed.getAsLong() : warmSince;
+                if (now - lastTraffic > trafficWindow) {
+                    continue;
+                }
+                if (!backend.hasLoaded(model)) {
+                    // Only models with requests of their own: a model unloaded to make room for
+                    // another one is not loaded back and forth
+                    if (lastUsed.isPresent() && now - lastUsed.getAsLong() <= trafficWindow) {
+                        log.info("Model {} on {} was unloaded; loading it again", model, backend);
+                        load(backend, model, Reason.RELOAD);
+                    }
+                    continue;
+                }
+                Long lastPing = lastPingNanos.get(key(backend, model));
+                long lastActivity = lastPing != null && lastPing - lastTraffic > 0 ? lastPing : lastTraffic;
+                if (now - lastActivity >= idleTime) {
+                    load(backend, model, Reason.KEEP_ALIVE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Warm/cold state of every model on every backend, as last reported by the health check.
+     */
+    Map<String, Map<String, String>> modelStates() {
+        Map<String, Map<String, String>> states = new LinkedHashMap<>();
+        for (OllamaBackend backend : routingChatModel.backends()) {
+            Map<String, String> byModel = new LinkedHashMap<>();
+            models.forEach(model -> byModel.put(model, backend.hasLoaded(model) ? "warm" : "cold"));
+            states.put(backend.baseUrl(), byModel);
+        }
+        return states;
+    }
+
+    /**
+     * @return the backends that were warmed up
+     */
+    private List<OllamaBackend> warmUpInParallel(Set<OllamaBackend> backends) {
+        List<OllamaBackend> warmed = new ArrayList<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Map<OllamaBackend, Future<Boolean>> results = new LinkedHashMap<>();
+            for (OllamaBackend backend : backends) {
+                results.put(backend, executor.submit((Callable<Boolean>) () -> warmUp(backend)));
+            }
+            for (Map.Entry<OllamaBackend, Future<Boolean>> result : results.entrySet()) {
+                if (result.getValue().get()) {
+                    warmed.add(result.getKey());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // Interrupted on shutdown: abandon the warm-ups still running
+            executor.shutdownNow();
+        }
+        return warmed;
+    }
+
+    /**
+     * Loads the models one after the other, since loading several at once on one Ollama instance
+     * competes for the same memory.
+     */
+    private boolean warmUp(OllamaBackend backend) {
+        for (String model : models) {
+            if (!load(backend, model, Reason.STARTUP)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean load(OllamaBackend backend, String model, Reason reason) {
+        long start = System.nanoTime();
+        boolean loaded = false;
+        try {
+            OllamaApi api = apis.get(backend);
+            if (reason != Reason.KEEP_ALIVE && properties.pull() != PullModelStrategy.NEVER) {
+                new OllamaModelManager(api, ModelManagementOptions.builder()
+                    .timeout(properties.pullTimeout())
+                    .maxRetries(0)
+                    .build())
+                    .pullModel(model, properties.pull());
+            }
+            if (reason != Reason.KEEP_ALIVE && model.equals(chatModel)) {
+                backend.chatModel().call(warmupPrompt());
+            } else {
+                // A request without messages loads the model (or resets its keep-alive) without generating
+                api.chat(OllamaApi.ChatRequest.builder(model)
+                    .messages(List.of())
+                    .keepAlive(keepAlive)
+                    .stream(false)
+                    .build());
+            }
+            backend.markLoaded(model);
+            lastPingNanos.put(key(backend, model), System.nanoTime());
+            loaded = true;
+            if (reason != Reason.KEEP_ALIVE) {
+                log.info("Loaded {} on {} in {} ms", model, backend, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not load {} on {}: {}", model, backend, e.getMessage());
+        } finally {
+            Timer.builder("llm.model.load")
+                .description("Requests that pull and load a model, or keep it loaded")
+                .tag("backend", backend.baseUrl())
+                .tag("model", model)
+                .tag("reason", reason.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+                .tag("result", loaded ? "success" : "failure")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return loaded;
+    }
+
+    /**
+     * Same system prompt and tools as the chat requests, so that Ollama's prompt cache holds their
+     * evaluation; tool calls the model might start are not executed.
+     */
+    private Prompt warmupPrompt() {
+        return new Prompt(List.of(new SystemMessage(systemPrompt), new UserMessage(WARMUP_MESSAGE)),
+            OllamaOptions.builder()
+                .model(chatModel)
+                .numPredict(1)
+                .toolCallbacks(tools.getToolCallbacks())
+                .internalToolExecutionEnabled(false)
+                .build());
+    }
+
+    private static String key(OllamaBackend backend, String model) {
+        return backend.baseUrl() + " " + OllamaBackend.normalize(model);
+    }
+
+    @Override
+    public void start() {
+        if (properties.enabled()) {
+            warmupThread = Thread.ofVirtual().name("model-warmup").start(this::warmUp);
+        }
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = warmupThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        warmupThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return warmupThread != null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.util.Locale;
+
+/**
+ * Health of the model warm-up ({@code modelWarmup}): out of service while the models are being
+ * loaded at startup, up afterwards. The details show whether each model is warm (loaded) or cold
+ * on each backend. Part of the readiness group, so traffic only arrives once the models are loaded.
+ */
+public class ModelWarmupHealthIndicator implements HealthIndicator {
+
+    private final ModelWarmup warmup;
+
+    public ModelWarmupHealthIndicator(ModelWarmup warmup) {
+        this.warmup = warmup;
+    }
+
+    @Override
+    public Health health() {
+        ModelWarmup.Phase phase = warmup.phase();
+        Health.Builder health = phase == ModelWarmup.Phase.WARMING_UP ? Health.outOfService() : Health.up();
+        return health
+            .withDetail("phase", phase.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+            .withDetail("backends", warmup.modelStates())
+            .build();
+    }
+}
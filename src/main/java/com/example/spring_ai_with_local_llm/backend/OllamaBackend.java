@@ -0,0 +1,163 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One Ollama instance in the routing pool, with the state used for routing decisions: requests
+ * in flight, health, observed throughput, the models it currently has loaded, when each model last
+ * answered a request and a circuit breaker per model.
+ */
+public class OllamaBackend {
+
+    private final String baseUrl;
+    private final ChatModel chatModel;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final Set<String> loadedModels = ConcurrentHashMap.newKeySet();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastUsedNanos = new ConcurrentHashMap<>();
+    private volatile boolean healthy = true;
+    private volatile long ejectedUntilNanos;
+    /** Exponentially weighted completion tokens per second; 0 until the first measured response. */
+    private volatile double tokensPerSecond;
+
+    public OllamaBackend(String baseUrl, ChatModel chatModel) {
+        this.baseUrl = baseUrl;
+        this.chatModel = chatModel;
+    }
+
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    public ChatModel chatModel() {
+        return chatModel;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public double tokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public boolean hasLoaded(String model) {
+        return model != null && loadedModels.contains(normalize(model));
+    }
+
+    /**
+     * When {@code model} last answered a request on this backend ({@link System#nanoTime()}).
+     */
+    public OptionalLong lastUsed(String model) {
+        Long nanos = model != null ? lastUsedNanos.get(normalize(model)) : null;
+        return nanos != null ? OptionalLong.of(nanos) : OptionalLong.empty();
+    }
+
+    /**
+     * Circuit breakers created so far, by model.
+     */
+    public Map<String, CircuitBreaker> breakers() {
+        return Map.copyOf(breakers);
+    }
+
+    /**
+     * The breaker for {@code model}; {@code factory} creates it on first use from the normalized model name.
+     */
+    CircuitBreaker breaker(String model, Function<String, CircuitBreaker> factory) {
+        return breakers.computeIfAbsent(model != null ? normalize(model) : "", factory);
+    }
+
+    public boolean isEjected(long now) {
+        return !healthy && now - ejectedUntilNanos < 0;
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    void end() {
+        outstanding.decrementAndGet();
+    }
+
+    void recordSuccess(String model, int completionTokens, long elapsedNanos) {
+        consecutiveFailures.set(0);
+        healthy = true;
+        if (model != null) {
+            loadedModels.add(normalize(model));
+            lastUsedNanos.put(normalize(model), System.nanoTime());
+        }
+        if (completionTokens > 0 && elapsedNanos > 0) {
+            double sample = completionTokens / (elapsedNanos / 1e9);
+            tokensPerSecond = tokensPerSecond == 0 ? sample : 0.8 * tokensPerSecond + 0.2 * sample;
+        }
+    }
+
+    /**
+     * Records that {@code model} was loaded outside of a request (by the warm-up), ahead of the
+     * next health check.
+     */
+    void markLoaded(String model) {
+        loadedModels.add(normalize(model));
+    }
+
+    /**
+     * @return {@code true} if this failure ejected the backend
+     */
+    boolean recordFailure(int failureThreshold, long ejectionNanos) {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && healthy) {
+            eject(ejectionNanos);
+            return true;
+        }
+        return false;
+    }
+
+    void eject(long ejectionNanos) {
+        healthy = false;
+        ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+    }
+
+    /**
+     * Applies the result of an active health check. An ejected backend is only re-admitted once
+     * its ejection period is over.
+     */
+    void updateFromHealthCheck(boolean reachable, Set<String> models, long ejectionNanos) {
+        if (!reachable) {
+            if (healthy) {
+                eject(ejectionNanos);
+            }
+            return;
+        }
+        Set<String> normalized = models.stream().map(OllamaBackend::normalize).collect(Collectors.toSet());
+        loadedModels.retainAll(normalized);
+        loadedModels.addAll(normalized);
+        if (!healthy && !isEjected(System.nanoTime())) {
+            consecutiveFailures.set(0);
+            healthy = true;
+        }
+    }
+
+    /**
+     * Ollama reports models with their tag; an untagged name refers to {@code :latest}.
+     */
+    static String normalize(String model) {
+        return model.contains(":") ? model : model + ":latest";
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Locale;
+
+/**
+ * Priority class of a generation request. Waiting requests are admitted in this order.
+ */
+public enum Priority {
+
+    INTERACTIVE,
+    STANDARD,
+    BATCH;
+
+    public static final String HEADER = "X-Request-Priority";
+
+    /**
+     * Resolves the priority of the current HTTP request: GET requests (browser/UI callers) are
+     * interactive and everything else is standard; a {@value #HEADER} header can only lower that.
+     * Outside a request (e.g. scheduled jobs) the priority is {@link #BATCH}.
+     */
+    public static Priority fromCurrentRequest() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return BATCH;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        return of(request.getMethod(), request.getHeader(HEADER));
+    }
+
+    /**
+     * Resolves the priority of a request from its method and {@value #HEADER} header, as
+     * {@link #fromCurrentRequest()} does; for callers without a servlet request, such as the
+     * reactive controllers. The header is sent by unauthenticated clients, so a value above the
+     * default of the method is ignored.
+     */
+    public static Priority of(String method, String header) {
+        Priority priority = "GET".equals(method) ? INTERACTIVE : STANDARD;
+        if (header != null) {
+            try {
+                Priority requested = valueOf(header.trim().toUpperCase(Locale.ROOT));
+                if (requested.compareTo(priority) > 0) {
+                    priority = requested;
+                }
+            } catch (IllegalArgumentException e) {
+                // unknown value, keep the method-based default
+            }
+        }
+        return priority;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+/**
+ * Caps retries to a share of the request rate, so that retries cannot multiply the load on a
+ * backend that is already failing. Every request deposits {@code ratio} tokens and every retry
+ * withdraws one; {@code minPerSecond} tokens are added per second on top, so that retries remain
+ * possible at low traffic. At most {@link #MAX_BALANCE} tokens are saved up.
+ */
+public class RetryBudget {
+
+    static final double MAX_BALANCE = 10;
+
+    private final double ratio;
+    private final double minPerSecond;
+    private double balance;
+    private long lastRefillNanos;
+
+    public RetryBudget(double ratio, double minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.balance = Math.min(MAX_BALANCE, minPerSecond);
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public synchronized void onRequest() {
+        balance = Math.min(MAX_BALANCE, balance + ratio);
+    }
+
+    /**
+     * @return {@code true} if a retry may be made, in which case it is paid for
+     */
+    public synchronized boolean tryRetry(long now) {
+        balance = Math.min(MAX_BALANCE, balance + (now - lastRefillNanos) / 1e9 * minPerSecond);
+        lastRefillNanos = now;
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+}
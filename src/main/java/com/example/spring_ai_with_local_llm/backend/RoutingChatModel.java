@@ -0,0 +1,600 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.OllamaResilienceProperties;
+import com.example.spring_ai_with_local_llm.config.OllamaRoutingProperties;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.MessageAggregator;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ChatModel} that spreads requests over a pool of Ollama instances.
+ * <p>
+ * Each request goes to the healthy backend with the fewest requests in flight (optionally weighted
+ * by observed throughput), preferring backends that already have the requested model loaded so
+ * that a cold model load is only paid when the warm ones are busier. Backends are ejected after consecutive request
+ * failures or a failed active health check, and re-admitted by the health check once the ejection
+ * period is over. If every backend is ejected, requests are spread over all of them rather than
+ * rejected outright.
+ * <p>
+ * Each call is also guarded by the resilience settings:
+ * <ul>
+ *     <li>a circuit breaker per backend and model, which stops sending a model to a backend where
+ *     it keeps failing; when the breakers of every backend are open the call fails fast;</li>
+ *     <li>retries, only for failures where Ollama produced nothing (connection refused, 5xx, no
+ *     first chunk in time), preferably on another backend, with jittered backoff and limited by a
+ *     {@link RetryBudget};</li>
+ *     <li>a fallback model: when the requested model cannot answer, the smaller fallback model
+ *     answers instead, without tools (small models often cannot call them);</li>
+ *     <li>optionally, hedging: a request whose first chunk takes longer than a percentile of the
+ *     model's recent first-chunk latencies is also sent to another backend. Whichever starts
+ *     answering first is used and the other is cancelled. Hedges are limited by their own
+ *     {@link RetryBudget}. Non-streamed calls are then streamed and collected, since only a
+ *     stream shows when the first chunk arrives.</li>
+ * </ul>
+ * A stream that already produced output is never retried or switched to the fallback model.
+ * Failures that remain are reported as {@link BackendUnavailableException}, except for requests
+ * Ollama rejects as invalid (4xx), which are passed through.
+ */
+public class RoutingChatModel implements ChatModel {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingChatModel.class);
+
+    private final List<OllamaBackend> backends;
+    private final OllamaRoutingProperties properties;
+    private final OllamaResilienceProperties resilience;
+    private final RestClient healthClient;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final RetryBudget retryBudget;
+    private final MeterRegistry meterRegistry;
+    private final Counter retries;
+    private final Counter retriesDenied;
+    private final RetryBudget hedgeBudget;
+    private final Map<String, LatencyWindow> firstChunkLatencies = new ConcurrentHashMap<>();
+    private final Counter hedgesWon;
+    private final Counter hedgesLost;
+    private final Counter hedgesDenied;
+
+    public RoutingChatModel(List<OllamaBackend> backends, OllamaRoutingProperties properties,
+                            OllamaResilienceProperties resilience, MeterRegistry meterRegistry) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one Ollama backend is required");
+        }
+        this.backends = List.copyOf(backends);
+        this.properties = properties;
+        this.resilience = resilience;
+        this.retryBudget = new RetryBudget(resilience.retry().budgetRatio(), resilience.retry().minRetriesPerSecond());
+        this.meterRegistry = meterRegistry;
+        this.retries = Counter.builder("llm.backend.retries")
+            .description("Failed Ollama calls that were retried, or not retried because the retry budget was spent")
+            .tag("result", "retried")
+            .register(meterRegistry);
+        this.retriesDenied = Counter.builder("llm.backend.retries")
+            .description("Failed Ollama calls that were retried, or not retried because the retry budget was spent")
+            .tag("result", "budget_exhausted")
+            .register(meterRegistry);
+        // Hedges are not retries of failed calls, so they spend a separate budget that is not
+        // topped up over time: at most budget-ratio hedges per request
+        this.hedgeBudget = new RetryBudget(resilience.hedging().budgetRatio(), 0);
+        this.hedgesWon = hedgeCounter(meterRegistry, "won");
+        this.hedgesLost = hedgeCounter(meterRegistry, "lost");
+        this.hedgesDenied = hedgeCounter(meterRegistry, "budget_exhausted");
+        this.healthClient = RestClient.builder()
+            .requestFactory(healthCheckRequestFactory(properties))
+            .build();
+
+        for (OllamaBackend backend : this.backends) {
+            Gauge.builder("llm.backend.outstanding", backend, OllamaBackend::outstanding)
+                .description("Requests in flight to the Ollama backend")
+                .tag("backend", backend.baseUrl())
+                .register(meterRegistry);
+            Gauge.builder("llm.backend.healthy", backend, b -> b.isHealthy() ? 1 : 0)
+                .description("Whether the Ollama backend receives traffic")
+                .tag("backend", backend.baseUrl())
+                .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (resilience.hedging().enabled()) {
+            return collect(stream(prompt), modelOf(prompt));
+        }
+        String model = modelOf(prompt);
+        retryBudget.onRequest();
+        try {
+            return callWithRetries(prompt, model);
+        } catch (RuntimeException e) {
+            if (!canFallBack(model, e)) {
+                throw unavailable(model, e);
+            }
+            Prompt fallback = fallbackPrompt(prompt, e);
+            try {
+                return callWithRetries(fallback, resilience.fallbackModel());
+            } catch (RuntimeException fallbackError) {
+                e.addSuppressed(fallbackError);
+                throw unavailable(model, e);
+            }
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            String model = modelOf(prompt);
+            retryBudget.onRequest();
+            AtomicBoolean emitted = new AtomicBoolean();
+            return hedged(prompt, model)
+                .doOnNext(response -> emitted.set(true))
+                .onErrorResume(e -> {
+                    if (emitted.get()) {
+                        return Flux.error(e);
+                    }
+                    if (!canFallBack(model, e)) {
+                        return Flux.error(unavailable(model, e));
+                    }
+                    AtomicBoolean fallbackEmitted = new AtomicBoolean();
+                    return streamWithRetries(fallbackPrompt(prompt, e), resilience.fallbackModel(), new HashSet<>(), 1)
+                        .doOnNext(response -> fallbackEmitted.set(true))
+                        .onErrorMap(fallbackError -> !fallbackEmitted.get(), fallbackError -> {
+                            e.addSuppressed(fallbackError);
+                            return unavailable(model, e);
+                        });
+                });
+        });
+    }
+
+    /**
+     * The stream with retries. With hedging enabled, if no chunk arrived within the hedging delay,
+     * the prompt is also sent to a backend not tried yet; the first of the two to produce a chunk
+     * answers and the other is cancelled. The hedge itself is not retried.
+     */
+    private Flux<ChatResponse> hedged(Prompt prompt, String model) {
+        Set<OllamaBackend> tried = ConcurrentHashMap.newKeySet();
+        if (!resilience.hedging().enabled()) {
+            return streamWithRetries(prompt, model, tried, 1);
+        }
+        hedgeBudget.onRequest();
+        Sinks.One<Boolean> primaryAnswered = Sinks.one();
+        AtomicReference<Throwable> primaryError = new AtomicReference<>();
+        AtomicReference<String> winner = new AtomicReference<>();
+        AtomicBoolean hedgeSent = new AtomicBoolean();
+
+        Flux<ChatResponse> primary = streamWithRetries(prompt, model, tried, 1)
+            .doOnNext(response -> {
+                winner.compareAndSet(null, "primary");
+                primaryAnswered.tryEmitValue(true);
+            })
+            .doOnError(e -> {
+                primaryError.set(e);
+                primaryAnswered.tryEmitValue(true);
+            });
+        Flux<ChatResponse> hedge = Mono.delay(hedgeDelay(model))
+            .takeUntilOther(primaryAnswered.asMono())
+            .filter(tick -> canHedge(model, tried))
+            .flatMapMany(tick -> {
+                hedgeSent.set(true);
+                return streamWithRetries(prompt, model, tried, resilience.retry().maxAttempts())
+                    .doOnNext(response -> winner.compareAndSet(null, "hedge"));
+            });
+
+        Runnable countHedge = () -> {
+            if (hedgeSent.get()) {
+                ("hedge".equals(winner.get()) ? hedgesWon : hedgesLost).increment();
+            }
+        };
+        return Flux.firstWithValue(primary, hedge)
+            // Neither produced a chunk: report the primary's failure, not the hedge's
+            .onErrorResume(NoSuchElementException.class, e -> primaryError.get() != null
+                ? Flux.error(primaryError.get()) : Flux.empty())
+            .doOnTerminate(countHedge)
+            .doOnCancel(countHedge);
+    }
+
+    /**
+     * The configured percentile of the model's recent first-chunk latencies, within the minimum
+     * and maximum delay.
+     */
+    private Duration hedgeDelay(String model) {
+        OllamaResilienceProperties.Hedging hedging = resilience.hedging();
+        LatencyWindow latencies = firstChunkLatencies.get(latencyKey(model));
+        long nanos = latencies != null
+            ? latencies.percentile(hedging.percentile(), hedging.minSamples()).orElse(hedging.maxDelay().toNanos())
+            : hedging.maxDelay().toNanos();
+        return Duration.ofNanos(Math.clamp(nanos, hedging.minDelay().toNanos(), hedging.maxDelay().toNanos()));
+    }
+
+    private boolean canHedge(String model, Set<OllamaBackend> tried) {
+        if (!hasUntried(model, tried)) {
+            return false;
+        }
+        if (!hedgeBudget.tryRetry(System.nanoTime())) {
+            hedgesDenied.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void onFirstChunk(String model, long latencyNanos) {
+        if (resilience.hedging().enabled()) {
+            firstChunkLatencies.computeIfAbsent(latencyKey(model), key -> new LatencyWindow(resilience.hedging().window()))
+                .record(latencyNanos);
+        }
+    }
+
+    private static String latencyKey(String model) {
+        return model != null ? OllamaBackend.normalize(model) : "";
+    }
+
+    /**
+     * @throws BackendUnavailableException if the stream ended without a single chunk
+     */
+    private ChatResponse collect(Flux<ChatResponse> chunks, String model) {
+        AtomicReference<ChatResponse> response = new AtomicReference<>();
+        Flux<ChatResponse> nonEmpty = chunks.switchIfEmpty(Flux.error(() -> new BackendUnavailableException(
+            "Ollama returned no response for model " + model, retryAfter(model), null)));
+        new MessageAggregator().aggregate(nonEmpty, response::set).blockLast();
+        return response.get();
+    }
+
+    private ChatResponse callWithRetries(Prompt prompt, String model) {
+        Set<OllamaBackend> tried = new HashSet<>();
+        for (int attempt = 1; ; attempt++) {
+            Attempt current = acquire(model, tried);
+            long start = System.nanoTime();
+            current.backend().begin();
+            try {
+                ChatResponse response = current.backend().chatModel().call(prompt);
+                onSuccess(current, response, start);
+                return response;
+            } catch (RuntimeException e) {
+                if (!shouldRetry(onFailure(current, e), attempt, model, tried)) {
+                    throw e;
+                }
+            } finally {
+                current.backend().end();
+            }
+            sleep(backoff(attempt));
+        }
+    }
+
+    /**
+     * One attempt of a stream on the selected backend; retried with a new attempt if it fails
+     * before producing anything.
+     */
+    private Flux<ChatResponse> streamWithRetries(Prompt prompt, String model, Set<OllamaBackend> tried, int attempt) {
+        return Flux.defer(() -> {
+            Attempt current = acquire(model, tried);
+            long start = System.nanoTime();
+            AtomicReference<ChatResponse> last = new AtomicReference<>();
+            current.backend().begin();
+            return current.backend().chatModel().stream(prompt)
+                .timeout(Mono.delay(resilience.firstTokenTimeout()), response -> Mono.never(),
+                    Flux.error(() -> new Failure.FirstTokenTimeoutException("No response from Ollama backend "
+                        + current.backend() + " within " + resilience.firstTokenTimeout())))
+                .doOnNext(response -> {
+                    if (last.getAndSet(response) == null) {
+                        onFirstChunk(model, System.nanoTime() - start);
+                    }
+                })
+                .doOnComplete(() -> onSuccess(current, last.get(), start))
+                .doOnError(e -> onFailure(current, e))
+                .doOnCancel(current.breaker()::release)
+                .doFinally(signal -> current.backend().end())
+                .onErrorResume(e -> last.get() == null && shouldRetry(Failure.of(e), attempt, model, tried)
+                    ? Mono.delay(backoff(attempt)).thenMany(streamWithRetries(prompt, model, tried, attempt + 1))
+                    : Flux.error(e));
+        });
+    }
+
+    /**
+     * Selects a backend whose breaker lets the call through, preferring backends not tried yet.
+     *
+     * @throws BackendUnavailableException if the breaker of every backend is open
+     */
+    private Attempt acquire(String model, Set<OllamaBackend> tried) {
+        Set<OllamaBackend> refused = new HashSet<>();
+        while (true) {
+            OllamaBackend backend = select(model, tried, refused);
+            if (backend == null) {
+                throw new BackendUnavailableException("Ollama is unavailable for model " + model
+                    + ": the circuit breaker of every backend is open", retryAfter(model), null);
+            }
+            CircuitBreaker breaker = breaker(backend, model);
+            if (breaker.tryAcquirePermission(System.nanoTime())) {
+                tried.add(backend);
+                return new Attempt(backend, breaker, model);
+            }
+            // Lost the race for a half-open trial call
+            refused.add(backend);
+        }
+    }
+
+    private void onSuccess(Attempt attempt, ChatResponse response, long start) {
+        attempt.breaker().onSuccess();
+        attempt.backend().recordSuccess(attempt.model(), completionTokens(response), System.nanoTime() - start);
+    }
+
+    private Failure onFailure(Attempt attempt, Throwable error) {
+        Failure failure = Failure.of(error);
+        Counter.builder("llm.backend.failures")
+            .description("Failed calls to an Ollama backend")
+            .tag("backend", attempt.backend().baseUrl())
+            .tag("type", failure.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .increment();
+        if (!failure.countsAgainstBackend()) {
+            attempt.breaker().release();
+            return failure;
+        }
+        CircuitBreaker.State before = attempt.breaker().state();
+        attempt.breaker().onFailure(System.nanoTime());
+        if (before != CircuitBreaker.State.OPEN && attempt.breaker().state() == CircuitBreaker.State.OPEN) {
+            log.warn("Circuit breaker for model {} on Ollama backend {} opened for {}: {}", attempt.model(),
+                attempt.backend(), resilience.circuitBreaker().openDuration(), error.getMessage());
+        }
+        if (attempt.backend().recordFailure(properties.failureThreshold(), properties.ejectionDuration().toNanos())) {
+            log.warn("Ollama backend {} ejected for {} after {} consecutive failures: {}",
+                attempt.backend(), properties.ejectionDuration(), properties.failureThreshold(), error.getMessage());
+        }
+        return failure;
+    }
+
+    private boolean shouldRetry(Failure failure, int attempt, String model, Set<OllamaBackend> tried) {
+        if (!failure.isRetryable() || attempt >= resilience.retry().maxAttempts()) {
+            return false;
+        }
+        // The backend may just be slow (e.g. loading the model): give another backend a go, but
+        // do not pile a second request onto the same one
+        if (failure == Failure.FIRST_TOKEN_TIMEOUT && !hasUntried(model, tried)) {
+            return false;
+        }
+        if (!retryBudget.tryRetry(System.nanoTime())) {
+            retriesDenied.increment();
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    private boolean hasUntried(String model, Set<OllamaBackend> tried) {
+        long now = System.nanoTime();
+        return backends.stream().anyMatch(backend -> !tried.contains(backend) && breaker(backend, model).isCallPermitted(now));
+    }
+
+    /**
+     * Exponential backoff with full jitter, so retries of concurrent requests do not arrive together.
+     */
+    private Duration backoff(int attempt) {
+        long max = resilience.retry().backoff().toNanos() << Math.min(attempt - 1, 16);
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(max + 1));
+    }
+
+    private boolean canFallBack(String model, Throwable error) {
+        return resilience.hasFallbackModel()
+            && (model == null || !OllamaBackend.normalize(model).equals(OllamaBackend.normalize(resilience.fallbackModel())))
+            && (error instanceof BackendUnavailableException || Failure.of(error).countsAgainstBackend());
+    }
+
+    /**
+     * The same prompt for the fallback model. Tools are left out, as small models often cannot call them.
+     */
+    private Prompt fallbackPrompt(Prompt prompt, Throwable error) {
+        log.warn("Answering with fallback model {}: {}", resilience.fallbackModel(), error.getMessage());
+        Counter.builder("llm.backend.fallbacks")
+            .description("Requests answered by the fallback model")
+            .tag("model", resilience.fallbackModel())
+            .register(meterRegistry)
+            .increment();
+        OllamaOptions options = prompt.getOptions() instanceof OllamaOptions ollamaOptions
+            ? ollamaOptions.copy()
+            : OllamaOptions.builder().build();
+        options.setModel(resilience.fallbackModel());
+        options.setToolCallbacks(List.of());
+        options.setToolNames(Set.of());
+        return prompt.mutate().chatOptions(options).build();
+    }
+
+    private RuntimeException unavailable(String model, Throwable error) {
+        if (error instanceof BackendUnavailableException unavailable) {
+            return unavailable;
+        }
+        if (!Failure.of(error).countsAgainstBackend() && error instanceof RuntimeException clientError) {
+            return clientError;
+        }
+        return new BackendUnavailableException("Ollama could not answer with model " + model + ": " + error.getMessage(),
+            retryAfter(model), error);
+    }
+
+    /**
+     * Until the first breaker for the model lets a trial call through, or a second if none is open.
+     */
+    private Duration retryAfter(String model) {
+        long now = System.nanoTime();
+        return backends.stream()
+            .map(backend -> breaker(backend, model).remainingOpen(now))
+            .filter(Duration::isPositive)
+            .min(Comparator.naturalOrder())
+            .map(remaining -> Duration.ofSeconds(Math.max(1, (remaining.toMillis() + 999) / 1000)))
+            .orElse(Duration.ofSeconds(1));
+    }
+
+    private CircuitBreaker breaker(OllamaBackend backend, String model) {
+        return backend.breaker(model, normalizedModel -> {
+            CircuitBreaker breaker = new CircuitBreaker(resilience.circuitBreaker());
+            Gauge.builder("llm.backend.circuit.state", breaker, b -> b.state().ordinal())
+                .description("Circuit breaker state per backend and model: 0 closed, 1 open, 2 half-open")
+                .tag("backend", backend.baseUrl())
+                .tag("model", normalizedModel)
+                .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("llm.backend.hedges")
+            .description("Hedged requests, by whether the hedge answered first, and hedges not sent because the hedge budget was spent")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return backends.get(0).chatModel().getDefaultOptions();
+    }
+
+    public List<OllamaBackend> backends() {
+        return backends;
+    }
+
+    /**
+     * Active health check: asks every backend which models it has loaded ({@code /api/ps}).
+     * A backend that does not answer is ejected; a healthy answer re-admits an ejected backend
+     * once its ejection period is over and refreshes its model affinity.
+     */
+    public void checkHealth() {
+        long ejectionNanos = properties.ejectionDuration().toNanos();
+        for (OllamaBackend backend : backends) {
+            try {
+                RunningModels running = healthClient.get()
+                    .uri(backend.baseUrl() + "/api/ps")
+                    .retrieve()
+                    .body(RunningModels.class);
+                Set<String> models = running != null && running.models() != null
+                    ? running.models().stream().map(RunningModel::name).collect(Collectors.toSet())
+                    : Set.of();
+                boolean wasHealthy = backend.isHealthy();
+                backend.updateFromHealthCheck(true, models, ejectionNanos);
+                if (!wasHealthy && backend.isHealthy()) {
+                    log.info("Ollama backend {} re-admitted", backend);
+                }
+            } catch (RuntimeException e) {
+                if (backend.isHealthy()) {
+                    log.warn("Ollama backend {} failed its health check and is ejected: {}", backend, e.getMessage());
+                }
+                backend.updateFromHealthCheck(false, Set.of(), ejectionNanos);
+            }
+        }
+    }
+
+    /**
+     * Picks among the backends whose breaker for the model lets calls through, preferring (in
+     * this order) healthy backends not tried yet, any healthy backend, then any backend; within
+     * that, the one with the lowest expected cost.
+     *
+     * @return {@code null} if the breaker of every backend (other than {@code refused}) is open
+     */
+    private OllamaBackend select(String model, Set<OllamaBackend> tried, Set<OllamaBackend> refused) {
+        long now = System.nanoTime();
+        List<OllamaBackend> permitted = backends.stream()
+            .filter(backend -> !refused.contains(backend) && breaker(backend, model).isCallPermitted(now))
+            .toList();
+        List<OllamaBackend> healthy = permitted.stream()
+            .filter(backend -> backend.isHealthy() || !backend.isEjected(now))
+            .toList();
+        List<OllamaBackend> healthyUntried = healthy.stream()
+            .filter(backend -> !tried.contains(backend))
+            .toList();
+        for (List<OllamaBackend> candidates : List.of(healthyUntried, healthy, permitted)) {
+            if (!candidates.isEmpty()) {
+                return cheapest(candidates, model);
+            }
+        }
+        return null;
+    }
+
+    private OllamaBackend cheapest(List<OllamaBackend> candidates, String model) {
+        // Rotate the starting point so ties do not all land on the first backend
+        int offset = Math.floorMod(roundRobin.getAndIncrement(), candidates.size());
+        List<OllamaBackend> rotated = new ArrayList<>(candidates.subList(offset, candidates.size()));
+        rotated.addAll(candidates.subList(0, offset));
+        return rotated.stream().min(Comparator.comparingDouble(backend -> cost(backend, model))).orElseThrow();
+    }
+
+    /**
+     * Expected cost of sending one more request to a backend. A backend without the model loaded
+     * is charged one extra request for the cold load, so affinity wins until the warm backends
+     * are busier than the cold ones.
+     */
+    private double cost(OllamaBackend backend, String model) {
+        double queued = backend.outstanding() + 1 + (backend.hasLoaded(model) ? 0 : 1);
+        if (properties.strategy() == OllamaRoutingProperties.Strategy.THROUGHPUT) {
+            // Queued work divided by speed; unmeasured backends count as average
+            double average = backends.stream().mapToDouble(OllamaBackend::tokensPerSecond).filter(t -> t > 0).average().orElse(1);
+            return queued / (backend.tokensPerSecond() > 0 ? backend.tokensPerSecond() : average);
+        }
+        return queued;
+    }
+
+    private String modelOf(Prompt prompt) {
+        if (prompt.getOptions() != null && prompt.getOptions().getModel() != null) {
+            return prompt.getOptions().getModel();
+        }
+        ChatOptions defaults = getDefaultOptions();
+        return defaults != null ? defaults.getModel() : null;
+    }
+
+    private static int completionTokens(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null) {
+            return 0;
+        }
+        Integer tokens = response.getMetadata().getUsage().getCompletionTokens();
+        return tokens != null ? tokens : 0;
+    }
+
+    private static JdkClientHttpRequestFactory healthCheckRequestFactory(OllamaRoutingProperties properties) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(properties.healthCheckInterval())
+            .build());
+        factory.setReadTimeout(properties.healthCheckInterval());
+        return factory;
+    }
+
+    private record Attempt(OllamaBackend backend, CircuitBreaker breaker, String model) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RunningModels(List<RunningModel> models) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RunningModel(String name) {}
+}
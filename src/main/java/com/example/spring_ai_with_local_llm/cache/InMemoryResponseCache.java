@@ -0,0 +1,327 @@
+package com.example.spring_ai_with_local_llm.cache;
+
+import com.example.spring_ai_with_local_llm.config.ResponseCacheProperties;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Size- and TTL-bounded LRU response cache with two tiers:
+ * <ul>
+ *     <li>exact match on the {@link ResponseCacheKey} (normalized message);</li>
+ *     <li>optionally, embedding similarity: a miss is embedded and compared against cached
+ *     messages of the same scope, and the closest one is served if its cosine similarity
+ *     reaches the configured threshold.</li>
+ * </ul>
+ * Time-sensitive entries only take part in the exact tier and use their own (short) TTL.
+ * <p>
+ * Expired entries are kept for the {@code stale-if-error} period: if generating a fresh answer
+ * fails (Ollama down, overloaded or rejecting the request), the stale answer is served instead.
+ * Answers produced by another model than the key's (the fallback model) are not cached, so they
+ * are not served once the requested model is back.
+ */
+public class InMemoryResponseCache implements ResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryResponseCache.class);
+
+    private final ResponseCacheProperties properties;
+    private final EmbeddingModel embeddingModel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<ResponseCacheKey, Entry> entries;
+
+    private final Counter exactHits;
+    private final Counter semanticHits;
+    private final Counter misses;
+    private final Counter staleHits;
+
+    /**
+     * @param embeddingModel used for the similarity tier, or {@code null} to use exact matching only
+     */
+    public InMemoryResponseCache(ResponseCacheProperties properties, EmbeddingModel embeddingModel, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.embeddingModel = embeddingModel;
+        int maxEntries = properties.maxEntries();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ResponseCacheKey, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.exactHits = Counter.builder("llm.cache.requests")
+            .description("Response cache lookups")
+            .tag("result", "hit").tag("tier", "exact")
+            .register(meterRegistry);
+        this.semanticHits = Counter.builder("llm.cache.requests")
+            .description("Response cache lookups")
+            .tag("result", "hit").tag("tier", "semantic")
+            .register(meterRegistry);
+        this.misses = Counter.builder("llm.cache.requests")
+            .description("Response cache lookups")
+            .tag("result", "miss").tag("tier", "none")
+            .register(meterRegistry);
+        this.staleHits = Counter.builder("llm.cache.requests")
+            .description("Response cache lookups")
+            .tag("result", "stale").tag("tier", "exact")
+            .register(meterRegistry);
+        Gauge.builder("llm.cache.size", this, InMemoryResponseCache::size)
+            .description("Number of cached responses")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public ChatModelResponse getOrCompute(ResponseCacheKey key, Supplier<ChatModelResponse> loader) {
+        long now = System.nanoTime();
+
+        ChatModelResponse cached = lookupExact(key, now);
+        if (cached != null) {
+            exactHits.increment();
+            return cached;
+        }
+
+        float[] embedding = null;
+        if (useSemanticTier(key)) {
+            embedding = embed(key.message());
+            cached = lookupSimilar(key, embedding, now);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        misses.increment();
+        ChatModelResponse response;
+        try {
+            response = loader.get();
+        } catch (RuntimeException e) {
+            ChatModelResponse stale = lookupStale(key, e);
+            if (stale != null) {
+                return stale;
+            }
+            throw e;
+        }
+        store(key, response, embedding);
+        return response;
+    }
+
+    /**
+     * Exact lookups run on the caller's thread. Embedding the message for the similarity tier is
+     * a blocking call to the model, so it is moved to the bounded elastic scheduler.
+     */
+    @Override
+    public Mono<ChatModelResponse> getOrCompute(ResponseCacheKey key, Mono<ChatModelResponse> loader) {
+        return Mono.defer(() -> {
+            ChatModelResponse cached = lookupExact(key, System.nanoTime());
+            if (cached != null) {
+                exactHits.increment();
+                return Mono.just(cached);
+            }
+            if (!useSemanticTier(key)) {
+                misses.increment();
+                return orStale(key, loader.doOnNext(response -> store(key, response, null)));
+            }
+            return Mono.fromCallable(() -> Optional.ofNullable(embed(key.message())))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(embedding -> {
+                    ChatModelResponse similar = lookupSimilar(key, embedding.orElse(null), System.nanoTime());
+                    if (similar != null) {
+                        return Mono.just(similar);
+                    }
+                    misses.increment();
+                    return orStale(key, loader.doOnNext(response -> store(key, response, embedding.orElse(null))));
+                });
+        });
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ChatModelResponse lookupExact(ResponseCacheKey key, long now) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                if (entry.isStale(now)) {
+                    entries.remove(key);
+                }
+                return null;
+            }
+            return entry.response();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Mono<ChatModelResponse> orStale(ResponseCacheKey key, Mono<ChatModelResponse> loader) {
+        return loader.onErrorResume(e -> Mono.justOrEmpty(lookupStale(key, e)).switchIfEmpty(Mono.error(e)));
+    }
+
+    /**
+     * The expired, but not yet stale, answer for {@code key}, served because generating a fresh one failed.
+     */
+    private ChatModelResponse lookupStale(ResponseCacheKey key, Throwable error) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.isStale(System.nanoTime())) {
+                return null;
+            }
+            staleHits.increment();
+            log.warn("Serving a stale cached answer, a fresh one could not be generated: {}", error.getMessage());
+            return entry.response();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ChatModelResponse lookupSimilar(ResponseCacheKey key, float[] embedding, long now) {
+        if (embedding == null) {
+            return null;
+        }
+        double threshold = properties.semantic().similarityThreshold();
+        lock.lock();
+        try {
+            ResponseCacheKey bestKey = null;
+            double bestScore = threshold;
+            Iterator<Map.Entry<ResponseCacheKey, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<ResponseCacheKey, Entry> candidate = it.next();
+                Entry entry = candidate.getValue();
+                if (entry.isExpired(now)) {
+                    if (entry.isStale(now)) {
+                        it.remove();
+                    }
+                    continue;
+                }
+                if (entry.embedding() == null || !key.sameScope(candidate.getKey())) {
+                    continue;
+                }
+                double score = dot(embedding, entry.embedding());
+                if (score >= bestScore) {
+                    bestScore = score;
+                    bestKey = candidate.getKey();
+                }
+            }
+            if (bestKey == null) {
+                return null;
+            }
+            semanticHits.increment();
+            // get() rather than the iterated entry so the hit refreshes its LRU position
+            return entries.get(bestKey).response();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(ResponseCacheKey key, ChatModelResponse response, float[] embedding) {
+        Duration ttl = key.timeSensitive() ? properties.timeSensitiveTtl() : properties.ttl();
+        if (!isCacheable(key, response) || !ttl.isPositive()) {
+            return;
+        }
+        // A stale date/time answer would simply be wrong
+        Duration staleIfError = key.timeSensitive() ? Duration.ZERO : properties.staleIfError();
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        Entry entry = new Entry(response, embedding, expiresAt, expiresAt + staleIfError.toNanos());
+        lock.lock();
+        try {
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean useSemanticTier(ResponseCacheKey key) {
+        return embeddingModel != null && !key.timeSensitive() && !key.message().isEmpty();
+    }
+
+    /**
+     * Embeds and L2-normalizes the message so similarity is a plain dot product.
+     * Embedding failures degrade to an exact-only lookup.
+     */
+    private float[] embed(String message) {
+        try {
+            float[] vector = embeddingModel.embed(message);
+            double norm = 0;
+            for (float v : vector) {
+                norm += v * v;
+            }
+            if (norm == 0) {
+                return null;
+            }
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+            return vector;
+        } catch (RuntimeException e) {
+            log.warn("Embedding for semantic cache lookup failed, falling back to exact match: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static boolean isCacheable(ResponseCacheKey key, ChatModelResponse response) {
+        return response != null && response.response() != null && !response.response().isBlank()
+            && (key.model() == null || response.model() == null || untagged(key.model()).equals(untagged(response.model())));
+    }
+
+    /**
+     * Ollama reports models with their tag; an untagged name refers to {@code :latest}.
+     */
+    private static String untagged(String model) {
+        return model.endsWith(":latest") ? model.substring(0, model.length() - ":latest".length()) : model;
+    }
+
+    private record Entry(ChatModelResponse response, float[] embedding, long expiresAtNanos, long staleAtNanos) {
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+
+        boolean isStale(long now) {
+            return now - staleAtNanos >= 0;
+        }
+    }
+}
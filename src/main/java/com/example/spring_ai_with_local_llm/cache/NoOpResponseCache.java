@@ -0,0 +1,26 @@
+package com.example.spring_ai_with_local_llm.cache;
+
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Used when response caching is disabled: every request goes to the model.
+ */
+public class NoOpResponseCache implements ResponseCache {
+
+    @Override
+    public ChatModelResponse getOrCompute(ResponseCacheKey key, Supplier<ChatModelResponse> loader) {
+        return loader.get();
+    }
+
+    @Override
+    public Mono<ChatModelResponse> getOrCompute(ResponseCacheKey key, Mono<ChatModelResponse> loader) {
+        return loader;
+    }
+
+    @Override
+    public void clear() {
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.spring_ai_with_local_llm.cache;
+
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatStreamEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of identical in-flight prompts: while a generation for a
+ * {@link ResponseCacheKey} is running, further requests with the same key wait for and share
+ * its result instead of starting their own.
+ */
+@Component
+public class RequestCoalescer {
+
+    private final Map<ResponseCacheKey, CompletableFuture<ChatModelResponse>> inFlightCalls = new ConcurrentHashMap<>();
+    private final Map<ResponseCacheKey, Flux<ChatModelResponse>> inFlightReactiveCalls = new ConcurrentHashMap<>();
+    private final Map<ResponseCacheKey, Flux<ChatStreamEvent>> inFlightStreams = new ConcurrentHashMap<>();
+
+    private final Counter coalescedCalls;
+    private final Counter coalescedStreams;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.coalescedCalls = Counter.builder("llm.requests.coalesced")
+            .description("Requests served by joining an identical in-flight generation")
+            .tag("mode", "call")
+            .register(meterRegistry);
+        this.coalescedStreams = Counter.builder("llm.requests.coalesced")
+            .description("Requests served by joining an identical in-flight generation")
+            .tag("mode", "stream")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} unless an identical call is already in flight, in which case this blocks
+     * until that call finishes and returns (or rethrows) its outcome.
+     */
+    public ChatModelResponse call(ResponseCacheKey key, Supplier<ChatModelResponse> call) {
+        CompletableFuture<ChatModelResponse> own = new CompletableFuture<>();
+        CompletableFuture<ChatModelResponse> existing = inFlightCalls.putIfAbsent(key, own);
+        if (existing != null) {
+            coalescedCalls.increment();
+            return join(existing);
+        }
+
+        try {
+            ChatModelResponse response = call.get();
+            own.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, own);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #call(ResponseCacheKey, Supplier)}: concurrent subscribers
+     * with the same key share one subscription to {@code call}, which is cancelled only once every
+     * subscriber has cancelled.
+     */
+    public Mono<ChatModelResponse> call(ResponseCacheKey key, Mono<ChatModelResponse> call) {
+        return Mono.defer(() -> {
+            AtomicBoolean created = new AtomicBoolean();
+            Flux<ChatModelResponse> shared = inFlightReactiveCalls.computeIfAbsent(key, k -> {
+                created.set(true);
+                return share(k, call.flux(), inFlightReactiveCalls);
+            });
+            if (!created.get()) {
+                coalescedCalls.increment();
+            }
+            return shared.singleOrEmpty();
+        });
+    }
+
+    /**
+     * Shares one upstream stream among concurrent subscribers with the same key. Chunks are
+     * replayed, so a subscriber that joins late still receives the full response. The upstream
+     * generation is cancelled only once every subscriber has cancelled.
+     */
+    public Flux<ChatStreamEvent> stream(ResponseCacheKey key, Supplier<Flux<ChatStreamEvent>> stream) {
+        return Flux.defer(() -> {
+            AtomicBoolean created = new AtomicBoolean();
+            Flux<ChatStreamEvent> shared = inFlightStreams.computeIfAbsent(key, k -> {
+                created.set(true);
+                return share(k, stream.get(), inFlightStreams);
+            });
+            if (!created.get()) {
+                coalescedStreams.increment();
+            }
+            return shared;
+        });
+    }
+
+    private static <T> Flux<T> share(ResponseCacheKey key, Flux<T> upstream, Map<ResponseCacheKey, Flux<T>> inFlight) {
+        AtomicReference<Flux<T>> self = new AtomicReference<>();
+        self.set(upstream
+            .doFinally(signal -> inFlight.remove(key, self.get()))
+            .replay()
+            .refCount());
+        return self.get();
+    }
+
+    private static ChatModelResponse join(CompletableFuture<ChatModelResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
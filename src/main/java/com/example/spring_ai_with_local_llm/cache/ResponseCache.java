@@ -0,0 +1,26 @@
+package com.example.spring_ai_with_local_llm.cache;
+
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Cache of chat responses in front of the model backend.
+ */
+public interface ResponseCache {
+
+    /**
+     * Returns the cached response for {@code key}, or calls {@code loader} and caches its result.
+     * Exceptions thrown by the loader propagate and nothing is cached.
+     */
+    ChatModelResponse getOrCompute(ResponseCacheKey key, Supplier<ChatModelResponse> loader);
+
+    /**
+     * Non-blocking variant of {@link #getOrCompute(ResponseCacheKey, Supplier)}: {@code loader} is
+     * only subscribed to on a miss, and its result is cached when it completes.
+     */
+    Mono<ChatModelResponse> getOrCompute(ResponseCacheKey key, Mono<ChatModelResponse> loader);
+
+    void clear();
+}
@@ -0,0 +1,61 @@
+package com.example.spring_ai_with_local_llm.cache;
+
+import org.springframework.ai.chat.prompt.ChatOptions;
+
+import java.util.Objects;
+
+/**
+ * Identifies a cacheable chat response: the model and its options, the system prompt (or another
+ * scope for endpoints without one) and the user message without leading and trailing whitespace.
+ * Case and inner whitespace are kept, since the model sees them too. Time-sensitive responses
+ * (those that may depend on the date/time tools) are kept apart from regular ones and expire after
+ * a much shorter TTL.
+ */
+public record ResponseCacheKey(
+    String model,
+    String options,
+    String systemPrompt,
+    String message,
+    boolean timeSensitive
+) {
+
+    public static ResponseCacheKey of(ChatOptions options, String systemPrompt, String message, boolean timeSensitive) {
+        return new ResponseCacheKey(
+            options != null ? options.getModel() : null,
+            describe(options),
+            systemPrompt != null ? systemPrompt.strip() : "",
+            normalize(message),
+            timeSensitive);
+    }
+
+    /**
+     * Whether {@code other} was produced under the same model, options and system prompt,
+     * i.e. whether a semantically similar message may share its response.
+     */
+    public boolean sameScope(ResponseCacheKey other) {
+        return timeSensitive == other.timeSensitive
+            && Objects.equals(model, other.model)
+            && Objects.equals(options, other.options)
+            && Objects.equals(systemPrompt, other.systemPrompt);
+    }
+
+    static String normalize(String message) {
+        if (message == null) {
+            return "";
+        }
+        return message.strip();
+    }
+
+    private static String describe(ChatOptions options) {
+        if (options == null) {
+            return "";
+        }
+        return "temperature=" + options.getTemperature()
+            + ",topP=" + options.getTopP()
+            + ",topK=" + options.getTopK()
+            + ",maxTokens=" + options.getMaxTokens()
+            + ",frequencyPenalty=" + options.getFrequencyPenalty()
+            + ",presencePenalty=" + options.getPresencePenalty()
+            + ",stop=" + options.getStopSequences();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the batch chat endpoint ({@code app.batch.*}).
+ *
+ * @param maxConcurrency      items of one batch generated at once; keep it at or below {@code app.scheduler.max-in-flight}
+ * @param maxItems            largest batch accepted; bigger batches get {@code 413}
+ * @param maxAdmissionRetries times an item rejected by admission control (queue full or queue timeout) is retried
+ * @param requestTimeout      how long a batch response may stream; replaces {@code spring.mvc.async.request-timeout}
+ *                            for this endpoint since a large batch runs for hours
+ */
+@ConfigurationProperties(prefix = "app.batch")
+public record BatchProperties(
+    @DefaultValue("4") int maxConcurrency,
+    @DefaultValue("10000") int maxItems,
+    @DefaultValue("3") int maxAdmissionRetries,
+    @DefaultValue("12h") Duration requestTimeout
+) {}
@@ -0,0 +1,66 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.memory.ChatModelConversationSummarizer;
+import com.example.spring_ai_with_local_llm.memory.ConversationStore;
+import com.example.spring_ai_with_local_llm.memory.ConversationSummarizer;
+import com.example.spring_ai_with_local_llm.memory.FileConversationStore;
+import com.example.spring_ai_with_local_llm.memory.InMemoryConversationStore;
+import com.example.spring_ai_with_local_llm.memory.TokenWindowChatMemory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Conversation memory: a {@link TokenWindowChatMemory} (replacing Spring AI's message-count window)
+ * over the configured {@link ConversationStore}, with idle conversations swept out periodically.
+ */
+@Configuration
+@EnableConfigurationProperties(ConversationMemoryProperties.class)
+public class ConversationMemoryConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ConversationStore conversationStore(ConversationMemoryProperties properties, ObjectMapper objectMapper) {
+        return switch (properties.store()) {
+            case IN_MEMORY -> new InMemoryConversationStore(properties.maxConversations(), properties.ttl());
+            case FILE -> new FileConversationStore(properties.directory(), properties.ttl(), objectMapper);
+        };
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ConversationSummarizer conversationSummarizer(ChatModel chatModel, GenerationScheduler scheduler,
+                                                         ConversationMemoryProperties properties) {
+        return new ChatModelConversationSummarizer(chatModel, scheduler, properties.summaryMaxWords());
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService conversationSummaryExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public ChatMemory chatMemory(ConversationStore store, ConversationSummarizer summarizer,
+                                 ExecutorService conversationSummaryExecutor,
+                                 ConversationMemoryProperties properties, MeterRegistry meterRegistry) {
+        return new TokenWindowChatMemory(store, summarizer, new JTokkitTokenCountEstimator(), properties.tokenBudget(),
+            conversationSummaryExecutor, meterRegistry);
+    }
+
+    @Bean
+    public SchedulingConfigurer conversationEvictionScheduling(ConversationStore store) {
+        return registrar -> registrar.addFixedDelayTask(store::evictExpired, Duration.ofMinutes(1));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for conversation memory ({@code app.memory.*}).
+ *
+ * @param store            where conversations are kept
+ * @param tokenBudget      tokens of history (summary plus recent turns) sent with each request
+ * @param summaryMaxWords  length the model is asked to keep the running summary within
+ * @param maxConversations conversations kept by the in-memory store; the least recently used is dropped beyond that
+ * @param ttl              idle time after which a conversation is forgotten
+ * @param directory        where the file store keeps one JSON file per conversation
+ */
+@ConfigurationProperties(prefix = "app.memory")
+public record ConversationMemoryProperties(
+    @DefaultValue("in-memory") Store store,
+    @DefaultValue("2048") int tokenBudget,
+    @DefaultValue("150") int summaryMaxWords,
+    @DefaultValue("10000") int maxConversations,
+    @DefaultValue("30m") Duration ttl,
+    @DefaultValue("data/conversations") Path directory
+) {
+
+    public enum Store {
+        IN_MEMORY,
+        FILE
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.embedding.EmbeddingBatcher;
+import com.example.spring_ai_with_local_llm.embedding.EmbeddingCache;
+import com.example.spring_ai_with_local_llm.embedding.EmbeddingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaEmbeddingProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The embeddings API: Ollama's embedding model ({@code spring.ai.ollama.embedding.options.model})
+ * behind a micro-batcher and a vector cache.
+ */
+@Configuration
+@EnableConfigurationProperties(EmbeddingProperties.class)
+public class EmbeddingConfig {
+
+    @Bean(destroyMethod = "close")
+    public EmbeddingBatcher embeddingBatcher(EmbeddingModel embeddingModel, EmbeddingProperties properties,
+                                             MeterRegistry meterRegistry) {
+        return new EmbeddingBatcher(embeddingModel, properties.batchWindow(), properties.maxBatchSize(), meterRegistry);
+    }
+
+    @Bean
+    public EmbeddingCache embeddingCache(EmbeddingProperties properties, MeterRegistry meterRegistry) {
+        return new EmbeddingCache(properties.cacheEntries(), meterRegistry);
+    }
+
+    @Bean
+    public EmbeddingService embeddingService(EmbeddingBatcher embeddingBatcher, EmbeddingCache embeddingCache,
+                                             OllamaEmbeddingProperties ollamaProperties, EmbeddingProperties properties,
+                                             MeterRegistry meterRegistry) {
+        return new EmbeddingService(embeddingBatcher, embeddingCache, ollamaProperties.getModel(),
+            properties.maxTexts(), meterRegistry);
+    }
+}
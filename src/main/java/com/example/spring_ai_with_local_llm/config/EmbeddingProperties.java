@@ -0,0 +1,23 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * The embeddings API ({@code app.embedding.*}).
+ *
+ * @param batchWindow  how long the first text of a batch waits for others before the batch is
+ *                     embedded; {@code 0} embeds every request on its own
+ * @param maxBatchSize texts per call to the embedding model; a full batch is sent at once
+ * @param maxTexts     texts allowed in one request
+ * @param cacheEntries vectors kept in the cache; {@code 0} disables it
+ */
+@ConfigurationProperties(prefix = "app.embedding")
+public record EmbeddingProperties(
+    @DefaultValue("5ms") Duration batchWindow,
+    @DefaultValue("64") int maxBatchSize,
+    @DefaultValue("256") int maxTexts,
+    @DefaultValue("10000") int cacheEntries
+) {}
@@ -0,0 +1,15 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public LlmMetrics llmMetrics(MeterRegistry meterRegistry) {
+        return new LlmMetrics(meterRegistry);
+    }
+}
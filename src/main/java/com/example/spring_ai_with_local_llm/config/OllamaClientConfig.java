@@ -0,0 +1,32 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+
+/**
+ * Outbound HTTP client used by the Ollama API (it is built from the auto-configured
+ * {@code RestClient.Builder}).
+ */
+@Configuration
+public class OllamaClientConfig {
+
+    /**
+     * With {@code spring.threads.virtual.enabled=true}, use the JDK HTTP client on virtual threads
+     * so a blocked Ollama call parks a virtual thread instead of pinning a platform thread.
+     * Ollama speaks HTTP/1.1 only, so skip the h2c upgrade attempt on every request.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ClientHttpRequestFactoryBuilder<?> virtualThreadClientHttpRequestFactoryBuilder() {
+        return ClientHttpRequestFactoryBuilder.jdk()
+                .withHttpClientCustomizer(builder -> builder
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .executor(Executors.newVirtualThreadPerTaskExecutor()));
+    }
+}
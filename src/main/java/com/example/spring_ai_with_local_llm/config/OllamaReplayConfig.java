@@ -0,0 +1,45 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.replay.OllamaRecorder;
+import com.example.spring_ai_with_local_llm.replay.OllamaReplayServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * Record and playback of the Ollama exchanges. {@link OllamaRoutingConfig} records through the
+ * {@link OllamaRecorder}, or points the backends at the {@link OllamaReplayServer}, whichever exists.
+ */
+@Configuration
+@EnableConfigurationProperties(OllamaReplayProperties.class)
+public class OllamaReplayConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.ollama.replay", name = "mode", havingValue = "record")
+    public OllamaRecorder ollamaRecorder(OllamaReplayProperties properties, ObjectMapper objectMapper) {
+        return new OllamaRecorder(properties.file(), objectMapper);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.ollama.replay", name = "mode", havingValue = "playback")
+    public OllamaReplayServer ollamaReplayServer(OllamaReplayProperties properties, ObjectMapper objectMapper,
+                                                 MeterRegistry meterRegistry) {
+        if (!Files.exists(properties.file())) {
+            throw new IllegalStateException("No Ollama recording to play back at " + properties.file().toAbsolutePath()
+                + "; record one with app.ollama.replay.mode=record");
+        }
+        try {
+            return new OllamaReplayServer(OllamaRecorder.read(properties.file(), objectMapper), properties.timeScale(),
+                properties.strict(), objectMapper, meterRegistry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the Ollama recording " + properties.file(), e);
+        }
+    }
+}
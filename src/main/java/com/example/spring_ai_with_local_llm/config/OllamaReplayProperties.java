@@ -0,0 +1,31 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Recording the exchanges with Ollama and replaying them in its place ({@code app.ollama.replay.*}),
+ * for load and regression tests on machines without a GPU.
+ *
+ * @param mode      {@code record} appends every exchange with the backends to {@code file};
+ *                  {@code playback} answers from {@code file} instead of the backends
+ * @param file      recording file, one JSON line per exchange, gzip-compressed if it ends in {@code .gz}
+ * @param timeScale factor applied to the recorded delays on playback; {@code 1} keeps the original
+ *                  pace, {@code 0.5} is twice as fast, {@code 0} does not wait
+ * @param strict    whether a request without a recording of its own fails on playback, instead of
+ *                  getting the recorded responses of the same endpoint in turn
+ */
+@ConfigurationProperties(prefix = "app.ollama.replay")
+public record OllamaReplayProperties(
+    @DefaultValue("off") Mode mode,
+    @DefaultValue("recordings/ollama.ndjson.gz") Path file,
+    @DefaultValue("1.0") double timeScale,
+    @DefaultValue("false") boolean strict
+) {
+
+    public enum Mode {
+        OFF, RECORD, PLAYBACK
+    }
+}
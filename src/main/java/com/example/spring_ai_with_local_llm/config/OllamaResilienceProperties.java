@@ -0,0 +1,81 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Timeouts, retries, circuit breaking and fallback for calls to Ollama ({@code app.ollama.resilience.*}).
+ *
+ * @param connectTimeout    time to establish a connection to a backend
+ * @param readTimeout       for a non-streamed answer, time until the complete answer arrives; for a
+ *                          stream, the longest pause between two chunks
+ * @param firstTokenTimeout for a stream, time until the first chunk arrives (this includes loading the model)
+ * @param retry             retries of failed attempts
+ * @param circuitBreaker    per backend and model circuit breaker
+ * @param fallbackModel     smaller model that answers when the requested one cannot; empty disables the fallback
+ * @param hedging           hedged requests to a second backend when the first is slow to answer
+ */
+@ConfigurationProperties(prefix = "app.ollama.resilience")
+public record OllamaResilienceProperties(
+    @DefaultValue("2s") Duration connectTimeout,
+    @DefaultValue("2m") Duration readTimeout,
+    @DefaultValue("60s") Duration firstTokenTimeout,
+    @DefaultValue Retry retry,
+    @DefaultValue CircuitBreaker circuitBreaker,
+    @DefaultValue("") String fallbackModel,
+    @DefaultValue Hedging hedging
+) {
+
+    public boolean hasFallbackModel() {
+        return fallbackModel != null && !fallbackModel.isBlank();
+    }
+
+    /**
+     * @param maxAttempts         attempts per request, including the first one
+     * @param backoff             base delay before a retry; doubles with each retry, with full jitter
+     * @param budgetRatio         retries allowed per request on average, so retries add at most this
+     *                            share of load while Ollama is struggling
+     * @param minRetriesPerSecond retries always allowed at low traffic, regardless of the ratio
+     */
+    public record Retry(
+        @DefaultValue("3") int maxAttempts,
+        @DefaultValue("200ms") Duration backoff,
+        @DefaultValue("0.1") double budgetRatio,
+        @DefaultValue("1") double minRetriesPerSecond
+    ) {}
+
+    /**
+     * @param slidingWindow        number of most recent calls the failure rate is computed over
+     * @param minimumCalls         calls needed in the window before the breaker may open
+     * @param failureRateThreshold failure rate (0-1) at which the breaker opens
+     * @param openDuration         how long an open breaker rejects calls before letting a trial call through
+     */
+    public record CircuitBreaker(
+        @DefaultValue("20") int slidingWindow,
+        @DefaultValue("5") int minimumCalls,
+        @DefaultValue("0.5") double failureRateThreshold,
+        @DefaultValue("30s") Duration openDuration
+    ) {}
+
+    /**
+     * @param enabled     whether slow requests are hedged
+     * @param percentile  a request is hedged once it has waited for its first chunk longer than this
+     *                    percentile (0-1) of the recent first-chunk latencies of its model
+     * @param minDelay    shortest wait before hedging, however fast recent requests were
+     * @param maxDelay    longest wait before hedging; also the wait until {@code minSamples} latencies are known
+     * @param window      number of most recent first-chunk latencies per model the percentile is computed over
+     * @param minSamples  latencies needed before the percentile is used
+     * @param budgetRatio hedges allowed per request on average, so hedging adds at most this share of load
+     */
+    public record Hedging(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0.95") double percentile,
+        @DefaultValue("250ms") Duration minDelay,
+        @DefaultValue("10s") Duration maxDelay,
+        @DefaultValue("200") int window,
+        @DefaultValue("20") int minSamples,
+        @DefaultValue("0.05") double budgetRatio
+    ) {}
+}
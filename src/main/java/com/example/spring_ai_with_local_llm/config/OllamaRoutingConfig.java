@@ -0,0 +1,109 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.backend.CircuitBreakerEndpoint;
+import com.example.spring_ai_with_local_llm.backend.OllamaBackend;
+import com.example.spring_ai_with_local_llm.backend.RoutingChatModel;
+import com.example.spring_ai_with_local_llm.replay.OllamaRecorder;
+import com.example.spring_ai_with_local_llm.replay.OllamaReplayServer;
+import com.example.spring_ai_with_local_llm.replay.RecordingExchangeFilter;
+import com.example.spring_ai_with_local_llm.replay.RecordingRequestInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaChatProperties;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.boot.http.client.ClientHttpRequestFactorySettings;
+import org.springframework.boot.http.client.reactive.ClientHttpConnectorBuilder;
+import org.springframework.boot.http.client.reactive.ClientHttpConnectorSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+/**
+ * Builds one {@link OllamaChatModel} per configured Ollama instance and exposes them as a single
+ * {@link RoutingChatModel}, which is the {@code ChatModel} the services use.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({OllamaRoutingProperties.class, OllamaResilienceProperties.class})
+public class OllamaRoutingConfig {
+
+    /**
+     * The HTTP clients get the connect and read timeouts from {@code app.ollama.resilience}.
+     * Retries are left to the {@link RoutingChatModel}, which can try another backend and keeps
+     * them within a budget, so the models themselves do not retry. On playback
+     * ({@code app.ollama.replay.mode}) the replay server is the only backend.
+     */
+    @Bean
+    @Primary
+    public RoutingChatModel routingChatModel(OllamaRoutingProperties properties,
+                                             OllamaResilienceProperties resilience,
+                                             @Value("${spring.ai.ollama.base-url}") String defaultBaseUrl,
+                                             OllamaChatProperties chatProperties,
+                                             ToolCallingManager toolCallingManager,
+                                             ObjectProvider<ObservationRegistry> observationRegistry,
+                                             ObjectProvider<RestClient.Builder> restClientBuilder,
+                                             ObjectProvider<WebClient.Builder> webClientBuilder,
+                                             ObjectProvider<ClientHttpRequestFactoryBuilder<?>> requestFactoryBuilder,
+                                             ObjectProvider<ClientHttpConnectorBuilder<?>> connectorBuilder,
+                                             ObjectProvider<OllamaRecorder> recorder,
+                                             ObjectProvider<OllamaReplayServer> replayServer,
+                                             MeterRegistry meterRegistry) {
+        OllamaReplayServer replay = replayServer.getIfAvailable();
+        List<String> baseUrls = replay != null ? List.of(replay.baseUrl())
+                : properties.backends().isEmpty() ? List.of(defaultBaseUrl) : properties.backends();
+        ClientHttpRequestFactorySettings requestFactorySettings = ClientHttpRequestFactorySettings.defaults()
+                .withTimeouts(resilience.connectTimeout(), resilience.readTimeout());
+        ClientHttpConnectorSettings connectorSettings = ClientHttpConnectorSettings.defaults()
+                .withTimeouts(resilience.connectTimeout(), resilience.readTimeout());
+        RetryTemplate noRetries = RetryTemplate.builder().maxAttempts(1).build();
+
+        List<OllamaBackend> backends = baseUrls.stream()
+                .map(baseUrl -> new OllamaBackend(baseUrl, OllamaChatModel.builder()
+                        .ollamaApi(OllamaApi.builder()
+                                .baseUrl(baseUrl)
+                                .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder)
+                                        .requestFactory(requestFactoryBuilder.getIfAvailable(ClientHttpRequestFactoryBuilder::detect)
+                                                .build(requestFactorySettings))
+                                        .requestInterceptors(interceptors -> recorder.ifAvailable(
+                                                r -> interceptors.add(new RecordingRequestInterceptor(r)))))
+                                .webClientBuilder(webClientBuilder.getIfAvailable(WebClient::builder)
+                                        .clientConnector(connectorBuilder.getIfAvailable(ClientHttpConnectorBuilder::detect)
+                                                .build(connectorSettings))
+                                        .filters(filters -> recorder.ifAvailable(
+                                                r -> filters.add(new RecordingExchangeFilter(r)))))
+                                .build())
+                        .defaultOptions(chatProperties.getOptions())
+                        .toolCallingManager(toolCallingManager)
+                        .retryTemplate(noRetries)
+                        .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                        .build()))
+                .toList();
+
+        return new RoutingChatModel(backends, properties, resilience, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public CircuitBreakerEndpoint circuitBreakerEndpoint(RoutingChatModel routingChatModel) {
+        return new CircuitBreakerEndpoint(routingChatModel);
+    }
+
+    @Bean
+    public SchedulingConfigurer ollamaHealthCheckScheduling(RoutingChatModel routingChatModel, OllamaRoutingProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(routingChatModel::checkHealth, properties.healthCheckInterval());
+    }
+}
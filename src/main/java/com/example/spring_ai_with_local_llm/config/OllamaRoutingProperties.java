@@ -0,0 +1,34 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for routing chat requests across several Ollama instances ({@code app.ollama.routing.*}).
+ *
+ * @param backends            base URLs of the Ollama instances; empty means the single
+ *                            {@code spring.ai.ollama.base-url}
+ * @param strategy            how to pick among healthy backends
+ * @param healthCheckInterval interval of the active health check
+ * @param failureThreshold    consecutive failed requests after which a backend is ejected
+ * @param ejectionDuration    how long an ejected backend receives no traffic before it may be re-admitted
+ */
+@ConfigurationProperties(prefix = "app.ollama.routing")
+public record OllamaRoutingProperties(
+    @DefaultValue List<String> backends,
+    @DefaultValue("least-outstanding") Strategy strategy,
+    @DefaultValue("10s") Duration healthCheckInterval,
+    @DefaultValue("3") int failureThreshold,
+    @DefaultValue("30s") Duration ejectionDuration
+) {
+
+    public enum Strategy {
+        /** Fewest requests in flight. */
+        LEAST_OUTSTANDING,
+        /** Fewest requests in flight relative to the backend's observed tokens per second. */
+        THROUGHPUT
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.backend.ModelWarmup;
+import com.example.spring_ai_with_local_llm.backend.ModelWarmupHealthIndicator;
+import com.example.spring_ai_with_local_llm.backend.RoutingChatModel;
+import com.example.spring_ai_with_local_llm.service.ChatService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Warms up the models on every Ollama backend at startup and keeps them loaded; readiness
+ * ({@code /actuator/health/readiness}) includes the warm-up's health indicator.
+ */
+@Configuration
+@EnableConfigurationProperties(OllamaWarmupProperties.class)
+public class OllamaWarmupConfig {
+
+    /**
+     * Pulls can take minutes, so the API clients used here do not get the request timeouts of
+     * the chat models.
+     */
+    @Bean
+    public ModelWarmup modelWarmup(RoutingChatModel routingChatModel, OllamaWarmupProperties properties,
+                                   OllamaResilienceProperties resilience, ToolCallbackProvider tools,
+                                   ObjectProvider<RestClient.Builder> restClientBuilder,
+                                   ObjectProvider<WebClient.Builder> webClientBuilder,
+                                   MeterRegistry meterRegistry) {
+        return new ModelWarmup(routingChatModel, properties, resilience, ChatService.TOOLS_SYSTEM_PROMPT, tools,
+                baseUrl -> OllamaApi.builder()
+                        .baseUrl(baseUrl)
+                        .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder))
+                        .webClientBuilder(webClientBuilder.getIfAvailable(WebClient::builder))
+                        .build(),
+                meterRegistry);
+    }
+
+    @Bean
+    public ModelWarmupHealthIndicator modelWarmupHealthIndicator(ModelWarmup modelWarmup) {
+        return new ModelWarmupHealthIndicator(modelWarmup);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.ollama.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SchedulingConfigurer modelKeepAliveScheduling(ModelWarmup modelWarmup, OllamaWarmupProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(modelWarmup::keepAlive, properties.keepAlive().checkInterval());
+    }
+}
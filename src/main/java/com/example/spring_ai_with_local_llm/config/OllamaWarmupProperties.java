@@ -0,0 +1,45 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.ai.ollama.management.PullModelStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Loading the models into every Ollama backend at startup and keeping them loaded while they
+ * are used ({@code app.ollama.warmup.*}).
+ *
+ * @param enabled          whether to warm up the models; when disabled the application is ready at once
+ * @param models           models to load besides the chat model and the fallback model
+ * @param pull             when to pull a model before loading it
+ * @param pullTimeout      time a pull may take
+ * @param retryInterval    delay before warming up a backend again after it failed
+ * @param readinessTimeout the application reports ready after this time even if not every backend is warm
+ * @param keepAlive        keep-alive pings after the warm-up
+ */
+@ConfigurationProperties(prefix = "app.ollama.warmup")
+public record OllamaWarmupProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue List<String> models,
+    @DefaultValue("when-missing") PullModelStrategy pull,
+    @DefaultValue("10m") Duration pullTimeout,
+    @DefaultValue("15s") Duration retryInterval,
+    @DefaultValue("5m") Duration readinessTimeout,
+    @DefaultValue KeepAlive keepAlive
+) {
+
+    /**
+     * @param checkInterval how often the models are checked
+     * @param idleTime      a model without requests for this long is pinged, so that Ollama does not
+     *                      unload it; keep it below {@code spring.ai.ollama.chat.options.keep-alive}
+     * @param trafficWindow a model is only kept loaded while it had a request within this window
+     *                      (or the warm-up was this recent); after that Ollama may unload it
+     */
+    public record KeepAlive(
+        @DefaultValue("1m") Duration checkInterval,
+        @DefaultValue("10m") Duration idleTime,
+        @DefaultValue("2h") Duration trafficWindow
+    ) {}
+}
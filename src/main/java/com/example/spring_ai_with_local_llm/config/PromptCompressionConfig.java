@@ -0,0 +1,33 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressionAdvisor;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Context budgeting of user messages: the {@link PromptCompressor} used by {@code ChatModelService},
+ * and a {@link PromptCompressionAdvisor}, which {@code ChatService} picks up with the other advisors.
+ */
+@Configuration
+@EnableConfigurationProperties(PromptCompressionProperties.class)
+public class PromptCompressionConfig {
+
+    @Bean
+    public PromptCompressor promptCompressor(PromptCompressionProperties properties, MeterRegistry meterRegistry) {
+        return new PromptCompressor(properties, new JTokkitTokenCountEstimator(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.prompt", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public PromptCompressionAdvisor promptCompressionAdvisor(PromptCompressor promptCompressor, ChatModel chatModel) {
+        ChatOptions options = chatModel.getDefaultOptions();
+        return new PromptCompressionAdvisor(promptCompressor, options != null ? options.getModel() : null);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fitting user messages into the model's context window ({@code app.prompt.*}).
+ *
+ * @param enabled        whether messages are counted and compressed before they are sent
+ * @param contextWindow  context window in tokens of models not listed in {@code contextWindows};
+ *                       it should match the {@code num-ctx} Ollama runs the model with
+ * @param contextWindows context window by model name, e.g. {@code app.prompt.context-windows[llama3.1:8b]=8192}
+ * @param reservedTokens tokens kept free for the answer, the system prompt and retrieved context
+ * @param strategies     compression applied, in this order, to a message over its budget
+ * @param similarLines   lines of the same log pattern (lines that only differ in numbers) kept by {@code log-dedup}
+ * @param headRatio      share of the budget {@code head-tail} keeps from the start of the message; the rest is kept from the end
+ */
+@ConfigurationProperties(prefix = "app.prompt")
+public record PromptCompressionProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("4096") int contextWindow,
+    Map<String, Integer> contextWindows,
+    @DefaultValue("1024") int reservedTokens,
+    @DefaultValue({"whitespace", "duplicate-lines", "log-dedup", "head-tail"}) List<Strategy> strategies,
+    @DefaultValue("3") int similarLines,
+    @DefaultValue("0.3") double headRatio
+) {
+
+    public PromptCompressionProperties {
+        contextWindows = contextWindows != null ? Map.copyOf(contextWindows) : Map.of();
+        strategies = List.copyOf(strategies);
+    }
+
+    /**
+     * Tokens a message and the messages sent with it may take for {@code model}.
+     */
+    public int budget(String model) {
+        int window = model != null ? contextWindows.getOrDefault(model, contextWindow) : contextWindow;
+        return Math.max(1, window - reservedTokens);
+    }
+
+    public enum Strategy {
+        /** Drops trailing whitespace, collapses runs of spaces within lines and of blank lines. */
+        WHITESPACE,
+        /** Replaces consecutive repetitions of a line with a count. */
+        DUPLICATE_LINES,
+        /** Keeps only the first {@code similarLines} lines of each log pattern. */
+        LOG_DEDUP,
+        /** Keeps the start and the end of the message, within the budget. */
+        HEAD_TAIL;
+
+        public String id() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.quota.ClientQuotas;
+import com.example.spring_ai_with_local_llm.quota.QuotaFilter;
+import com.example.spring_ai_with_local_llm.quota.ReactiveQuotaFilter;
+import com.example.spring_ai_with_local_llm.quota.UsageLedger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+/**
+ * Per-client quotas on the chat endpoints, enforced by a filter of whichever web stack runs, and
+ * the usage ledger behind {@code /api/usage}. Only active with {@code app.quota.enabled=true}.
+ */
+@Configuration
+@EnableConfigurationProperties(QuotaProperties.class)
+@ConditionalOnProperty(prefix = "app.quota", name = "enabled", havingValue = "true")
+public class QuotaConfig {
+
+    @Bean(destroyMethod = "close")
+    public UsageLedger usageLedger(QuotaProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new UsageLedger(properties.ledger(), objectMapper, meterRegistry);
+    }
+
+    @Bean
+    public ClientQuotas clientQuotas(QuotaProperties properties, UsageLedger usageLedger, MeterRegistry meterRegistry) {
+        return new ClientQuotas(properties, usageLedger, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<QuotaFilter> quotaFilter(ClientQuotas clientQuotas, ObjectMapper objectMapper) {
+        FilterRegistrationBean<QuotaFilter> registration =
+            new FilterRegistrationBean<>(new QuotaFilter(clientQuotas, objectMapper));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveQuotaFilter reactiveQuotaFilter(ClientQuotas clientQuotas, ObjectMapper objectMapper) {
+        return new ReactiveQuotaFilter(clientQuotas, objectMapper);
+    }
+
+    @Bean
+    public SchedulingConfigurer usageLedgerScheduling(UsageLedger usageLedger, QuotaProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(usageLedger::flush, properties.ledger().flushInterval());
+    }
+}
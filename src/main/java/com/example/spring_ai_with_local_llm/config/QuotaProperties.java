@@ -0,0 +1,81 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-client rate limits and usage accounting for the chat API ({@code app.quota.*}).
+ *
+ * @param enabled       whether chat requests are limited and accounted per client
+ * @param header        request header carrying the client's API key; requests without one share
+ *                      the {@code anonymous} quota
+ * @param limits        limits of every client without limits of its own
+ * @param clients       known clients by name, with their API key and optional own limits
+ * @param unknownKeys   what happens to requests with an API key of no known client
+ * @param charsPerToken request characters per token, for the estimate debited before the answer
+ * @param ledger        persistence of the usage ledger
+ */
+@ConfigurationProperties(prefix = "app.quota")
+public record QuotaProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("X-API-Key") String header,
+    @DefaultValue Limits limits,
+    Map<String, Client> clients,
+    @DefaultValue("anonymous") UnknownKeys unknownKeys,
+    @DefaultValue("4") int charsPerToken,
+    @DefaultValue Ledger ledger
+) {
+
+    public QuotaProperties {
+        clients = clients != null ? Map.copyOf(clients) : Map.of();
+    }
+
+    public enum UnknownKeys {
+        /** Shares the {@code anonymous} quota, as if it had no key. */
+        ANONYMOUS,
+        /** Answered {@code 401}. */
+        REJECT
+    }
+
+    /**
+     * @param tokensPerMinute   prompt and completion tokens per minute; also the most that can be saved up
+     * @param requestsPerSecond sustained request rate
+     * @param requestBurst      requests allowed at once after a quiet period
+     */
+    public record Limits(
+        @DefaultValue("20000") long tokensPerMinute,
+        @DefaultValue("5") double requestsPerSecond,
+        @DefaultValue("10") int requestBurst
+    ) {}
+
+    /**
+     * One known client; unset limits fall back to {@link QuotaProperties#limits()}.
+     */
+    public record Client(String apiKey, Long tokensPerMinute, Double requestsPerSecond, Integer requestBurst) {
+
+        public Limits limits(Limits defaults) {
+            return new Limits(
+                tokensPerMinute != null ? tokensPerMinute : defaults.tokensPerMinute(),
+                requestsPerSecond != null ? requestsPerSecond : defaults.requestsPerSecond(),
+                requestBurst != null ? requestBurst : defaults.requestBurst());
+        }
+    }
+
+    /**
+     * @param file          NDJSON file the ledger appends one record per request to, and restores its
+     *                      totals from at startup; unset keeps the ledger in memory only
+     * @param flushInterval how often pending records are written
+     * @param batchSize     records written per write
+     * @param queueCapacity records waiting to be written; beyond that new records are only counted, not written
+     */
+    public record Ledger(
+        Path file,
+        @DefaultValue("5s") Duration flushInterval,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("10000") int queueCapacity
+    ) {}
+}
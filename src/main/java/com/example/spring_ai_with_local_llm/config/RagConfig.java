@@ -0,0 +1,63 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.cache.ResponseCache;
+import com.example.spring_ai_with_local_llm.rag.DocumentIngestionService;
+import com.example.spring_ai_with_local_llm.rag.LocalVectorStore;
+import com.example.spring_ai_with_local_llm.rag.RetrievalAdvisor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers from local documents: a {@link LocalVectorStore} fed by {@link DocumentIngestionService}
+ * and a {@link RetrievalAdvisor}, which {@code ChatService} picks up with the other advisors.
+ * Only active with {@code app.rag.enabled=true}, as it needs an embedding model in Ollama.
+ */
+@Configuration
+@EnableConfigurationProperties(RagProperties.class)
+@ConditionalOnProperty(prefix = "app.rag", name = "enabled", havingValue = "true")
+public class RagConfig {
+
+    @Bean(destroyMethod = "close")
+    public LocalVectorStore vectorStore(EmbeddingModel embeddingModel, RagProperties properties,
+                                        ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new LocalVectorStore(embeddingModel, properties.indexDirectory(), properties.index(),
+            properties.embeddingBatch(), objectMapper, meterRegistry);
+    }
+
+    @Bean
+    public DocumentIngestionService documentIngestionService(LocalVectorStore vectorStore, ResponseCache responseCache,
+                                                             RagProperties properties, ObjectMapper objectMapper,
+                                                             MeterRegistry meterRegistry) {
+        return new DocumentIngestionService(vectorStore, responseCache, properties, objectMapper, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService retrievalExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public RetrievalAdvisor retrievalAdvisor(LocalVectorStore vectorStore, RagProperties properties,
+                                             ExecutorService retrievalExecutor, MeterRegistry meterRegistry) {
+        return new RetrievalAdvisor(vectorStore, properties.topK(), properties.minSimilarity(),
+            properties.latencyBudget(), retrievalExecutor, meterRegistry);
+    }
+
+    @Bean
+    public SchedulingConfigurer documentRescanScheduling(DocumentIngestionService ingestionService, RagProperties properties) {
+        return registrar -> {
+            if (!properties.rescanInterval().isZero()) {
+                registrar.addFixedDelayTask(ingestionService::rescan, properties.rescanInterval());
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for answering from local documents ({@code app.rag.*}).
+ *
+ * @param enabled         whether documents are indexed and retrieved for {@code /api/chat}
+ * @param documents       directory of documents to index
+ * @param fileExtensions  extensions of the (plain text) files indexed
+ * @param indexDirectory  where the vector index and the ingestion manifest are kept
+ * @param rescanInterval  how often the documents directory is checked for changes; zero only ingests on request
+ * @param chunkSize       target chunk size in tokens
+ * @param embeddingBatch  chunks embedded per request to the embedding model
+ * @param concurrency     embedding requests in flight while ingesting
+ * @param topK            chunks added to a prompt
+ * @param minSimilarity   minimum cosine similarity of a retrieved chunk
+ * @param latencyBudget   how long retrieval may take before the question is answered without it
+ * @param index           graph parameters of the vector index
+ */
+@ConfigurationProperties(prefix = "app.rag")
+public record RagProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("docs") Path documents,
+    @DefaultValue({"md", "txt"}) List<String> fileExtensions,
+    @DefaultValue("data/rag") Path indexDirectory,
+    @DefaultValue("5m") Duration rescanInterval,
+    @DefaultValue("512") int chunkSize,
+    @DefaultValue("32") int embeddingBatch,
+    @DefaultValue("4") int concurrency,
+    @DefaultValue("4") int topK,
+    @DefaultValue("0.5") double minSimilarity,
+    @DefaultValue("500ms") Duration latencyBudget,
+    @DefaultValue Index index
+) {
+
+    /**
+     * @param m              links per node and layer (twice that on the bottom layer); more links raise recall and memory use
+     * @param efConstruction candidates considered when linking a new node; higher builds a better graph, slower
+     * @param efSearch       candidates considered per query; higher raises recall, slower
+     */
+    public record Index(
+        @DefaultValue("16") int m,
+        @DefaultValue("100") int efConstruction,
+        @DefaultValue("64") int efSearch
+    ) {}
+}
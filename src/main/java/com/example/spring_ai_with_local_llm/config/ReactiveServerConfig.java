@@ -0,0 +1,31 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyRouteProvider;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+
+/**
+ * Runs the reactive stack ({@code spring.main.web-application-type=reactive}) on Netty. Tomcat is
+ * on the classpath for the servlet stack, and Spring Boot would otherwise prefer it for reactive
+ * applications too.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<ReactorResourceFactory> resourceFactory,
+                                                                       ObjectProvider<NettyServerCustomizer> serverCustomizers,
+                                                                       ObjectProvider<NettyRouteProvider> routeProviders) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        resourceFactory.ifAvailable(factory::setResourceFactory);
+        factory.getServerCustomizers().addAll(serverCustomizers.orderedStream().toList());
+        routeProviders.orderedStream().forEach(factory::addRouteProviders);
+        return factory;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.cache.InMemoryResponseCache;
+import com.example.spring_ai_with_local_llm.cache.NoOpResponseCache;
+import com.example.spring_ai_with_local_llm.cache.ResponseCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCacheConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ResponseCache responseCache(ResponseCacheProperties properties,
+                                       ObjectProvider<EmbeddingModel> embeddingModel,
+                                       MeterRegistry meterRegistry) {
+        if (!properties.enabled()) {
+            return new NoOpResponseCache();
+        }
+        EmbeddingModel similarityModel = properties.semantic().enabled() ? embeddingModel.getIfAvailable() : null;
+        return new InMemoryResponseCache(properties, similarityModel, meterRegistry);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the chat response cache ({@code app.cache.*}).
+ *
+ * @param enabled          whether responses are cached at all
+ * @param maxEntries       maximum number of cached responses; least recently used ones are evicted first
+ * @param ttl              lifetime of a cached response
+ * @param timeSensitiveTtl lifetime of responses that may depend on the current date/time; zero disables caching them
+ * @param staleIfError     how long past its TTL a response is kept, to be served if a fresh one cannot be generated
+ * @param semantic         embedding-similarity tier
+ */
+@ConfigurationProperties(prefix = "app.cache")
+public record ResponseCacheProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("1000") int maxEntries,
+    @DefaultValue("10m") Duration ttl,
+    @DefaultValue("10s") Duration timeSensitiveTtl,
+    @DefaultValue("1h") Duration staleIfError,
+    @DefaultValue Semantic semantic
+) {
+
+    /**
+     * @param enabled             whether a cache miss is embedded and matched against similar cached messages
+     * @param similarityThreshold minimum cosine similarity for a semantic hit
+     */
+    public record Semantic(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0.95") double similarityThreshold
+    ) {}
+}
@@ -0,0 +1,17 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({SchedulerProperties.class, BatchProperties.class})
+public class SchedulerConfig {
+
+    @Bean
+    public GenerationScheduler generationScheduler(SchedulerProperties properties, MeterRegistry meterRegistry) {
+        return new GenerationScheduler(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for admission control in front of the model backend ({@code app.scheduler.*}).
+ *
+ * @param maxInFlight   maximum number of generations running against the backend at once
+ * @param queueCapacity maximum number of requests waiting for a slot; beyond that requests get {@code 429}
+ * @param maxQueueTime  how long a request may wait for a slot before it gets {@code 503}
+ */
+@ConfigurationProperties(prefix = "app.scheduler")
+public record SchedulerProperties(
+    @DefaultValue("4") int maxInFlight,
+    @DefaultValue("100") int queueCapacity,
+    @DefaultValue("30s") Duration maxQueueTime
+) {}
@@ -0,0 +1,17 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.structured.StructuredOutputTypes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StructuredOutputProperties.class)
+public class StructuredOutputConfig {
+
+    @Bean
+    public StructuredOutputTypes structuredOutputTypes(StructuredOutputProperties properties, ObjectMapper objectMapper) {
+        return new StructuredOutputTypes(properties.types(), objectMapper);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Structured (JSON) answers of {@code /api/chat-model/structured} ({@code app.structured.*}).
+ *
+ * @param maxAttempts generations per request of the non-streaming endpoint; an answer that stops
+ *                    matching the schema is cut short and generated again
+ * @param types       types callers may ask for by name, by class name
+ */
+@ConfigurationProperties(prefix = "app.structured")
+public record StructuredOutputProperties(
+    @DefaultValue("2") int maxAttempts,
+    Map<String, Class<?>> types
+) {
+
+    public StructuredOutputProperties {
+        types = types != null ? Map.copyOf(types) : Map.of();
+    }
+}
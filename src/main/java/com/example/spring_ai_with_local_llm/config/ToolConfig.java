@@ -0,0 +1,49 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import com.example.spring_ai_with_local_llm.tools.ParallelToolCallingManager;
+import com.example.spring_ai_with_local_llm.tools.ToolRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tool calling: a {@link ToolRegistry} of the {@code @Tool} beans, which also resolves tools by
+ * name, and a {@link ParallelToolCallingManager} replacing Spring AI's sequential one in the
+ * Ollama chat models.
+ */
+@Configuration
+@EnableConfigurationProperties(ToolProperties.class)
+public class ToolConfig {
+
+    @Bean
+    public ToolRegistry toolRegistry(ToolProperties properties, MeterRegistry meterRegistry) {
+        return new ToolRegistry(properties, meterRegistry);
+    }
+
+    @Bean
+    public SmartInitializingSingleton toolBeanRegistration(ToolRegistry toolRegistry, ListableBeanFactory beanFactory) {
+        return () -> toolRegistry.registerBeans(beanFactory);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService toolExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public ToolCallingManager toolCallingManager(ToolRegistry toolRegistry,
+                                                 ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+                                                 ToolProperties properties, ExecutorService toolExecutor,
+                                                 MeterRegistry meterRegistry) {
+        return new ParallelToolCallingManager(toolRegistry, toolExecutionExceptionProcessor, properties::timeout,
+            toolExecutor, meterRegistry);
+    }
+}
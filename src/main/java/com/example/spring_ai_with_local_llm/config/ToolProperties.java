@@ -0,0 +1,43 @@
+package com.example.spring_ai_with_local_llm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings for executing the tools the model calls ({@code app.tools.*}).
+ *
+ * @param timeout      how long a tool call may take before the model is told it timed out
+ * @param cacheTtl     how long a tool result is reused for the same arguments; {@code 0s} disables caching
+ * @param cacheEntries results cached per tool; the least recently used is dropped beyond that
+ * @param policies     per-tool overrides of {@code timeout} and {@code cache-ttl}, by tool name
+ */
+@ConfigurationProperties(prefix = "app.tools")
+public record ToolProperties(
+    @DefaultValue("10s") Duration timeout,
+    @DefaultValue("0s") Duration cacheTtl,
+    @DefaultValue("256") int cacheEntries,
+    Map<String, Policy> policies
+) {
+
+    public ToolProperties {
+        policies = policies != null ? Map.copyOf(policies) : Map.of();
+    }
+
+    public Duration timeout(String tool) {
+        Policy policy = policies.get(tool);
+        return policy != null && policy.timeout() != null ? policy.timeout() : timeout;
+    }
+
+    public Duration cacheTtl(String tool) {
+        Policy policy = policies.get(tool);
+        return policy != null && policy.cacheTtl() != null ? policy.cacheTtl() : cacheTtl;
+    }
+
+    /**
+     * Overrides for one tool; unset values fall back to the defaults above.
+     */
+    public record Policy(Duration timeout, Duration cacheTtl) {}
+}
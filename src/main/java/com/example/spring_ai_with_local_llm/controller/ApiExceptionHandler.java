@@ -0,0 +1,38 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.backend.AdmissionRejectedException;
+import com.example.spring_ai_with_local_llm.backend.BackendUnavailableException;
+import com.example.spring_ai_with_local_llm.structured.StructuredOutputException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ProblemDetail> handleAdmissionRejected(AdmissionRejectedException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(e.getStatus(), e.getMessage());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(problem);
+    }
+
+    @ExceptionHandler(BackendUnavailableException.class)
+    public ResponseEntity<ProblemDetail> handleBackendUnavailable(BackendUnavailableException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(problem);
+    }
+
+    @ExceptionHandler(StructuredOutputException.class)
+    public ResponseEntity<ProblemDetail> handleStructuredOutput(StructuredOutputException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY,
+                "The model did not answer with JSON matching the schema: " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(problem);
+    }
+}
@@ -9,9 +9,11 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/chat")
 @Tag(name = "Chat", description = "Chat API endpoints for interacting with Ollama LLM")
 public class ChatController {
@@ -35,8 +37,7 @@ public class ChatController {
         }
     )
     public ChatResponse chat(@RequestBody ChatRequest request) {
-        String response = chatService.chat(request.message());
-        return new ChatResponse(response);
+        return ChatResponse.of(chatService.chat(request.message(), request.conversationId()));
     }
 
     @GetMapping
@@ -53,9 +54,10 @@ public class ChatController {
     )
     public ChatResponse chatGet(
         @Parameter(description = "The message to send to the AI", required = true)
-        @RequestParam String message) {
-        String response = chatService.chat(message);
-        return new ChatResponse(response);
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId) {
+        return ChatResponse.of(chatService.chat(message, conversationId));
     }
 
     @PostMapping("/with-functions")
@@ -71,8 +73,7 @@ public class ChatController {
         }
     )
     public ChatResponse chatWithFunctions(@RequestBody ChatRequest request) {
-        String response = chatService.chatWithFunctions(request.message());
-        return new ChatResponse(response);
+        return ChatResponse.of(chatService.chatWithFunctions(request.message(), request.conversationId()));
     }
 
     @GetMapping("/with-functions")
@@ -89,8 +90,9 @@ public class ChatController {
     )
     public ChatResponse chatWithFunctionsGet(
         @Parameter(description = "The message to send to the AI", required = true)
-        @RequestParam String message) {
-        String response = chatService.chatWithFunctions(message);
-        return new ChatResponse(response);
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId) {
+        return ChatResponse.of(chatService.chatWithFunctions(message, conversationId));
     }
 }
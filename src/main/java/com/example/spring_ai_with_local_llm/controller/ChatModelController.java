@@ -1,26 +1,61 @@
 package com.example.spring_ai_with_local_llm.controller;
 
+import com.example.spring_ai_with_local_llm.config.BatchProperties;
+import com.example.spring_ai_with_local_llm.dto.BatchChatResult;
 import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
 import com.example.spring_ai_with_local_llm.dto.ChatRequest;
 import com.example.spring_ai_with_local_llm.dto.ChatResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatStreamEvent;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatRequest;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatResponse;
+import com.example.spring_ai_with_local_llm.dto.StructuredStreamEvent;
+import com.example.spring_ai_with_local_llm.quota.Reservation;
+import com.example.spring_ai_with_local_llm.service.BatchChatService;
 import com.example.spring_ai_with_local_llm.service.ChatModelService;
+import com.example.spring_ai_with_local_llm.service.StructuredChatService;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/chat-model")
 @Tag(name = "ChatModel", description = "Chat API endpoints using ChatModel directly with metadata")
 public class ChatModelController {
 
     private final ChatModelService chatModelService;
+    private final BatchChatService batchChatService;
+    private final BatchProperties batchProperties;
+    private final StructuredChatService structuredChatService;
 
-    public ChatModelController(ChatModelService chatModelService) {
+    public ChatModelController(ChatModelService chatModelService, BatchChatService batchChatService,
+                               BatchProperties batchProperties, StructuredChatService structuredChatService) {
         this.chatModelService = chatModelService;
+        this.batchChatService = batchChatService;
+        this.batchProperties = batchProperties;
+        this.structuredChatService = structuredChatService;
     }
 
     @PostMapping
@@ -36,7 +71,7 @@ public class ChatModelController {
         }
     )
     public ChatModelResponse chat(@RequestBody ChatRequest request) {
-        return chatModelService.chat(request.message());
+        return chatModelService.chat(request.message(), request.conversationId());
     }
 
     @GetMapping
@@ -53,8 +88,10 @@ public class ChatModelController {
     )
     public ChatModelResponse chatGet(
         @Parameter(description = "The message to send to the AI", required = true)
-        @RequestParam String message) {
-        return chatModelService.chat(message);
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId) {
+        return chatModelService.chat(message, conversationId);
     }
 
     @PostMapping("/stream")
@@ -69,9 +106,46 @@ public class ChatModelController {
             )
         }
     )
-    public ChatResponse chatStream(@RequestBody ChatRequest request) {
-        String response = chatModelService.chatStream(request.message());
-        return new ChatResponse(response);
+    public Mono<ChatResponse> chatStream(@RequestBody ChatRequest request) {
+        return chatModelService.chatStream(request.message(), request.conversationId())
+            .map(ChatResponse::new);
+    }
+
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Send a chat message and stream the response as server-sent events",
+        description = "Send a message and receive the AI response token by token as 'token' events, followed by a 'done' event with the model and token usage",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "Server-sent event stream of response tokens",
+                content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = ChatStreamEvent.class))
+            )
+        }
+    )
+    public SseEmitter chatStreamEvents(@RequestBody ChatRequest request) {
+        return toServerSentEvents(chatModelService.streamEvents(request.message(), request.conversationId()),
+            ChatStreamEvent::type);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream a chat response as server-sent events via GET",
+        description = "Send a message using query parameters and receive the AI response token by token; usable from a browser EventSource",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "Server-sent event stream of response tokens",
+                content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = ChatStreamEvent.class))
+            )
+        }
+    )
+    public SseEmitter chatStreamEventsGet(
+        @Parameter(description = "The message to send to the AI", required = true)
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId) {
+        return toServerSentEvents(chatModelService.streamEvents(message, conversationId), ChatStreamEvent::type);
     }
 
     @PostMapping("/with-functions")
@@ -87,7 +161,7 @@ public class ChatModelController {
         }
     )
     public ChatModelResponse chatWithFunctions(@RequestBody ChatRequest request) {
-        return chatModelService.chatWithFunctions(request.message());
+        return chatModelService.chatWithFunctions(request.message(), request.conversationId());
     }
 
     @GetMapping("/with-functions")
@@ -104,7 +178,155 @@ public class ChatModelController {
     )
     public ChatModelResponse chatWithFunctionsGet(
         @Parameter(description = "The message to send to the AI", required = true)
-        @RequestParam String message) {
-        return chatModelService.chatWithFunctions(message);
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId) {
+        return chatModelService.chatWithFunctions(message, conversationId);
+    }
+
+    @PostMapping("/structured")
+    @Operation(
+        summary = "Send a chat message and receive a JSON answer matching a schema",
+        description = "The answer is constrained to the given JSON schema, or the schema of a registered type, and validated while it is generated. An answer that stops matching is cut short and generated again",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "Answer matching the schema",
+                content = @Content(schema = @Schema(implementation = StructuredChatResponse.class))
+            ),
+            @ApiResponse(responseCode = "400", description = "Neither or both of schema and type, or an unknown type"),
+            @ApiResponse(responseCode = "422", description = "No generation matched the schema")
+        }
+    )
+    public Mono<StructuredChatResponse> chatStructured(@RequestBody StructuredChatRequest request) {
+        return structuredChatService.chat(request);
+    }
+
+    @PostMapping(value = "/structured/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream a JSON answer field by field as server-sent events",
+        description = "Each top-level field is sent as a 'field' event as soon as it is complete and valid, then a 'done' event carries the whole answer. If the answer stops matching the schema, the generation is stopped and an 'error' event is sent",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "Server-sent event stream of validated fields",
+                content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = StructuredStreamEvent.class))
+            )
+        }
+    )
+    public SseEmitter chatStructuredStream(@RequestBody StructuredChatRequest request) {
+        return toServerSentEvents(structuredChatService.stream(request), StructuredStreamEvent::type);
+    }
+
+    @GetMapping("/structured/types")
+    @Operation(
+        summary = "List the registered structured output types",
+        description = "Type names usable as 'type' in structured requests, with their JSON schemas"
+    )
+    public Map<String, ? extends JsonNode> structuredTypes() {
+        return structuredChatService.types();
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+        summary = "Send a batch of chat messages",
+        description = "Send a JSON array of chat requests; they are answered concurrently and each result is streamed back as one NDJSON line as soon as it completes (out of order, identified by its position). A failed item is reported with status 'error' without failing the batch",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "NDJSON stream of per-item results",
+                content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BatchChatResult.class))
+            )
+        }
+    )
+    public ResponseEntity<ResponseBodyEmitter> chatBatch(@RequestBody List<ChatRequest> requests) {
+        return toNdjson(batchChatService.chat(requests));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+        summary = "Send a batch of chat messages as NDJSON",
+        description = "Upload one chat request per line; results are streamed back as NDJSON like for the JSON array variant, a malformed line only fails its own item",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "NDJSON stream of per-item results",
+                content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BatchChatResult.class))
+            )
+        }
+    )
+    public ResponseEntity<ResponseBodyEmitter> chatBatchNdjson(@RequestBody String body) {
+        return toNdjson(batchChatService.chatNdjson(body));
+    }
+
+    /**
+     * Writes batch results as NDJSON through an emitter rather than returning the Flux, so that
+     * the stream runs under {@code app.batch.request-timeout} instead of the much shorter default
+     * async timeout. Generation stops when the client goes away.
+     */
+    private ResponseEntity<ResponseBodyEmitter> toNdjson(Flux<BatchChatResult> results) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchProperties.requestTimeout().toMillis());
+        writeTo(emitter, results.contextWrite(Reservation.captureCurrent()), result -> {
+            Set<ResponseBodyEmitter.DataWithMediaType> line = new LinkedHashSet<>();
+            line.add(new ResponseBodyEmitter.DataWithMediaType(result, MediaType.APPLICATION_JSON));
+            line.add(new ResponseBodyEmitter.DataWithMediaType("\n", MediaType.TEXT_PLAIN));
+            return line;
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    /**
+     * Sends events through an emitter rather than returning the Flux: Spring MVC cancels a returned
+     * Flux only when a write fails, so a client that went away while the model was still evaluating
+     * the prompt would keep Ollama busy until the first token. Here generation stops right away.
+     */
+    private static <T> SseEmitter toServerSentEvents(Flux<T> events, Function<T, String> name) {
+        SseEmitter emitter = new SseEmitter();
+        writeTo(emitter, events, event -> SseEmitter.event().name(name.apply(event)).data(event, MediaType.APPLICATION_JSON).build());
+        return emitter;
+    }
+
+    /**
+     * Writes the items with a demand of one, as Spring MVC does for a returned Flux: the next item
+     * is requested only once the previous one was written, and writes block a
+     * {@code boundedElastic} thread rather than the one that emitted the item (a Netty event loop
+     * for Ollama responses). The subscription is cancelled when the emitter completes, times out or
+     * fails.
+     */
+    private static <T> void writeTo(ResponseBodyEmitter emitter, Flux<T> items,
+                                    Function<T, Set<ResponseBodyEmitter.DataWithMediaType>> data) {
+        BaseSubscriber<T> subscriber = new BaseSubscriber<>() {
+
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(T item) {
+                try {
+                    emitter.send(data.apply(item));
+                } catch (IOException e) {
+                    cancel();
+                    emitter.completeWithError(e);
+                    return;
+                }
+                request(1);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                emitter.complete();
+            }
+
+            @Override
+            protected void hookOnError(Throwable error) {
+                emitter.completeWithError(error);
+            }
+        };
+        emitter.onCompletion(subscriber::dispose);
+        emitter.onTimeout(subscriber::dispose);
+        emitter.onError(error -> subscriber.dispose());
+        items.publishOn(Schedulers.boundedElastic(), 1).subscribe(subscriber);
     }
 }
@@ -0,0 +1,67 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.dto.DocumentMatch;
+import com.example.spring_ai_with_local_llm.dto.IngestionReport;
+import com.example.spring_ai_with_local_llm.rag.DocumentIngestionService;
+import com.example.spring_ai_with_local_llm.rag.LocalVectorStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/documents")
+@ConditionalOnProperty(prefix = "app.rag", name = "enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Documents", description = "Indexing and searching the local documents used to ground chat answers")
+public class DocumentController {
+
+    private final DocumentIngestionService ingestionService;
+    private final LocalVectorStore vectorStore;
+
+    public DocumentController(DocumentIngestionService ingestionService, LocalVectorStore vectorStore) {
+        this.ingestionService = ingestionService;
+        this.vectorStore = vectorStore;
+    }
+
+    @PostMapping("/ingest")
+    @Operation(
+        summary = "Index the documents directory",
+        description = "Embeds new and changed documents and removes deleted ones; unchanged documents are skipped",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "Indexing finished",
+                content = @Content(schema = @Schema(implementation = IngestionReport.class))
+            ),
+            @ApiResponse(responseCode = "409", description = "Indexing is already running")
+        }
+    )
+    public IngestionReport ingest() {
+        return ingestionService.ingest();
+    }
+
+    @GetMapping("/search")
+    @Operation(
+        summary = "Search the indexed documents",
+        description = "Returns the chunks most similar to the query, as retrieved for chat prompts"
+    )
+    public List<DocumentMatch> search(
+        @Parameter(description = "Text to search for", required = true)
+        @RequestParam String query,
+        @Parameter(description = "Number of chunks to return")
+        @RequestParam(defaultValue = "4") int topK) {
+        return vectorStore.similaritySearch(SearchRequest.builder().query(query).topK(topK).build()).stream()
+            .map(document -> new DocumentMatch(document.getId(), String.valueOf(document.getMetadata().get("source")),
+                document.getScore(), document.getText()))
+            .toList();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.dto.EmbeddingRequest;
+import com.example.spring_ai_with_local_llm.dto.EmbeddingResponse;
+import com.example.spring_ai_with_local_llm.embedding.EmbeddingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Serves both web stacks; the embeddings are awaited as a {@link CompletableFuture}, so no request
+ * thread waits for the model.
+ * <p>
+ * With {@code Accept: application/octet-stream} the vectors come as little-endian binary: the
+ * number of vectors and their dimensions as 32-bit integers, then every vector as 32-bit floats.
+ * That is about a third of the JSON and needs no parsing.
+ */
+@RestController
+@RequestMapping("/api/embeddings")
+@Tag(name = "Embeddings", description = "Embedding vectors from the local embedding model")
+public class EmbeddingController {
+
+    public static final String MODEL_HEADER = "X-Embedding-Model";
+
+    private final EmbeddingService embeddingService;
+
+    public EmbeddingController(EmbeddingService embeddingService) {
+        this.embeddingService = embeddingService;
+    }
+
+    @PostMapping
+    @Operation(
+        summary = "Embed texts",
+        description = "Returns one vector per text, as JSON or, with Accept: application/octet-stream, as binary",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "The vectors",
+                content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                        schema = @Schema(implementation = EmbeddingResponse.class)),
+                    @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                }
+            ),
+            @ApiResponse(responseCode = "400", description = "No texts, or more than app.embedding.max-texts")
+        }
+    )
+    public CompletableFuture<ResponseEntity<?>> embed(@RequestBody EmbeddingRequest request,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return embed(request.texts(), accept);
+    }
+
+    @GetMapping
+    @Operation(summary = "Embed one text via GET")
+    public CompletableFuture<ResponseEntity<?>> embedGet(
+        @Parameter(description = "The text to embed", required = true)
+        @RequestParam String text,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return embed(List.of(text), accept);
+    }
+
+    private CompletableFuture<ResponseEntity<?>> embed(List<String> texts, String accept) {
+        boolean binary = acceptsBinary(accept);
+        return embeddingService.embed(texts).thenApply(embeddings -> {
+            int dimensions = embeddings.vectors().isEmpty() ? 0 : embeddings.vectors().getFirst().length;
+            if (binary) {
+                return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(MODEL_HEADER, embeddings.model())
+                    .body(encode(embeddings.vectors(), dimensions));
+            }
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new EmbeddingResponse(embeddings.model(), dimensions, embeddings.vectors()));
+        });
+    }
+
+    /**
+     * Only an explicit {@code application/octet-stream}; wildcards get JSON.
+     */
+    private static boolean acceptsBinary(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        return MediaType.parseMediaTypes(accept).stream()
+            .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_OCTET_STREAM));
+    }
+
+    static byte[] encode(List<float[]> vectors, int dimensions) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 4 * vectors.size() * dimensions).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(vectors.size()).putInt(dimensions);
+        for (float[] vector : vectors) {
+            if (vector.length != dimensions) {
+                throw new IllegalStateException("Vectors of " + vector.length + " and " + dimensions + " dimensions");
+            }
+            for (float value : vector) {
+                buffer.putFloat(value);
+            }
+        }
+        return buffer.array();
+    }
+}
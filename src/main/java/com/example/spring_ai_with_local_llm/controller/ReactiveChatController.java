@@ -0,0 +1,80 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.backend.Priority;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatRequest;
+import com.example.spring_ai_with_local_llm.dto.ChatResponse;
+import com.example.spring_ai_with_local_llm.service.ChatService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ChatController} for the reactive stack ({@code spring.main.web-application-type=reactive}):
+ * the same endpoints, served on Netty without blocking a thread per request.
+ */
+@RestController
+@RequestMapping("/api/chat")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Tag(name = "Chat", description = "Chat API endpoints for interacting with Ollama LLM")
+public class ReactiveChatController {
+
+    private final ChatService chatService;
+
+    public ReactiveChatController(ChatService chatService) {
+        this.chatService = chatService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Send a chat message", description = "Send a message to the AI chatbot and receive a response")
+    public Mono<ChatResponse> chat(@RequestBody ChatRequest request, ServerHttpRequest httpRequest) {
+        return toChatResponse(chatService.chatReactive(request.message(), request.conversationId(), priority(httpRequest)));
+    }
+
+    @GetMapping
+    @Operation(summary = "Send a chat message via GET", description = "Send a message to the AI chatbot using query parameters")
+    public Mono<ChatResponse> chatGet(
+        @Parameter(description = "The message to send to the AI", required = true)
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId,
+        ServerHttpRequest httpRequest) {
+        return toChatResponse(chatService.chatReactive(message, conversationId, priority(httpRequest)));
+    }
+
+    @PostMapping("/with-functions")
+    @Operation(
+        summary = "Send a chat message with function calling enabled",
+        description = "Send a message to the AI chatbot with access to tools like getting current date/time"
+    )
+    public Mono<ChatResponse> chatWithFunctions(@RequestBody ChatRequest request, ServerHttpRequest httpRequest) {
+        return toChatResponse(chatService.chatWithFunctionsReactive(request.message(), request.conversationId(),
+            priority(httpRequest)));
+    }
+
+    @GetMapping("/with-functions")
+    @Operation(
+        summary = "Send a chat message via GET with function calling",
+        description = "Send a message with access to date/time functions using query parameters"
+    )
+    public Mono<ChatResponse> chatWithFunctionsGet(
+        @Parameter(description = "The message to send to the AI", required = true)
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId,
+        ServerHttpRequest httpRequest) {
+        return toChatResponse(chatService.chatWithFunctionsReactive(message, conversationId, priority(httpRequest)));
+    }
+
+    static Priority priority(ServerHttpRequest request) {
+        return Priority.of(request.getMethod().name(), request.getHeaders().getFirst(Priority.HEADER));
+    }
+
+    private static Mono<ChatResponse> toChatResponse(Mono<ChatModelResponse> response) {
+        return response.map(ChatResponse::of).defaultIfEmpty(new ChatResponse(null));
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.dto.BatchChatResult;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatRequest;
+import com.example.spring_ai_with_local_llm.dto.ChatResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatStreamEvent;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatRequest;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatResponse;
+import com.example.spring_ai_with_local_llm.dto.StructuredStreamEvent;
+import com.example.spring_ai_with_local_llm.service.BatchChatService;
+import com.example.spring_ai_with_local_llm.service.ChatModelService;
+import com.example.spring_ai_with_local_llm.service.StructuredChatService;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.example.spring_ai_with_local_llm.controller.ReactiveChatController.priority;
+
+/**
+ * {@link ChatModelController} for the reactive stack ({@code spring.main.web-application-type=reactive}).
+ * An idle streaming connection holds no thread, only its buffers.
+ */
+@RestController
+@RequestMapping("/api/chat-model")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Tag(name = "ChatModel", description = "Chat API endpoints using ChatModel directly with metadata")
+public class ReactiveChatModelController {
+
+    private final ChatModelService chatModelService;
+    private final BatchChatService batchChatService;
+    private final StructuredChatService structuredChatService;
+
+    public ReactiveChatModelController(ChatModelService chatModelService, BatchChatService batchChatService,
+                                       StructuredChatService structuredChatService) {
+        this.chatModelService = chatModelService;
+        this.batchChatService = batchChatService;
+        this.structuredChatService = structuredChatService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Send a chat message using ChatModel",
+        description = "Send a message to the AI chatbot using ChatModel directly and receive a detailed response")
+    public Mono<ChatModelResponse> chat(@RequestBody ChatRequest request, ServerHttpRequest httpRequest) {
+        return chatModelService.chatReactive(request.message(), request.conversationId(), priority(httpRequest));
+    }
+
+    @GetMapping
+    @Operation(summary = "Send a chat message via GET using ChatModel",
+        description = "Send a message to the AI chatbot using query parameters and ChatModel")
+    public Mono<ChatModelResponse> chatGet(
+        @Parameter(description = "The message to send to the AI", required = true)
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId,
+        ServerHttpRequest httpRequest) {
+        return chatModelService.chatReactive(message, conversationId, priority(httpRequest));
+    }
+
+    @PostMapping("/stream")
+    @Operation(summary = "Send a chat message with streaming response",
+        description = "Send a message and receive a streaming response from the AI")
+    public Mono<ChatResponse> chatStream(@RequestBody ChatRequest request, ServerHttpRequest httpRequest) {
+        return chatModelService.chatStream(request.message(), request.conversationId(), priority(httpRequest))
+            .map(ChatResponse::new);
+    }
+
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Send a chat message and stream the response as server-sent events",
+        description = "Send a message and receive the AI response token by token as 'token' events, followed by a 'done' event with the model and token usage")
+    public Flux<ServerSentEvent<ChatStreamEvent>> chatStreamEvents(@RequestBody ChatRequest request,
+                                                                   ServerHttpRequest httpRequest) {
+        return toServerSentEvents(chatModelService.streamEvents(request.message(), request.conversationId(),
+            priority(httpRequest)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream a chat response as server-sent events via GET",
+        description = "Send a message using query parameters and receive the AI response token by token; usable from a browser EventSource")
+    public Flux<ServerSentEvent<ChatStreamEvent>> chatStreamEventsGet(
+        @Parameter(description = "The message to send to the AI", required = true)
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId,
+        ServerHttpRequest httpRequest) {
+        return toServerSentEvents(chatModelService.streamEvents(message, conversationId, priority(httpRequest)));
+    }
+
+    @PostMapping("/with-functions")
+    @Operation(summary = "Send a chat message with function calling enabled",
+        description = "Send a message to the AI chatbot with access to tools like getting current date/time and receive detailed metadata")
+    public Mono<ChatModelResponse> chatWithFunctions(@RequestBody ChatRequest request, ServerHttpRequest httpRequest) {
+        return chatModelService.chatWithFunctionsReactive(request.message(), request.conversationId(), priority(httpRequest));
+    }
+
+    @GetMapping("/with-functions")
+    @Operation(summary = "Send a chat message via GET with function calling",
+        description = "Send a message with access to date/time functions and receive detailed metadata")
+    public Mono<ChatModelResponse> chatWithFunctionsGet(
+        @Parameter(description = "The message to send to the AI", required = true)
+        @RequestParam String message,
+        @Parameter(description = "Continues the conversation with this id; omit for a one-off question")
+        @RequestParam(required = false) String conversationId,
+        ServerHttpRequest httpRequest) {
+        return chatModelService.chatWithFunctionsReactive(message, conversationId, priority(httpRequest));
+    }
+
+    @PostMapping("/structured")
+    @Operation(summary = "Send a chat message and receive a JSON answer matching a schema",
+        description = "The answer is constrained to the given JSON schema, or the schema of a registered type, and validated while it is generated")
+    public Mono<StructuredChatResponse> chatStructured(@RequestBody StructuredChatRequest request, ServerHttpRequest httpRequest) {
+        return structuredChatService.chat(request, priority(httpRequest));
+    }
+
+    @PostMapping(value = "/structured/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream a JSON answer field by field as server-sent events",
+        description = "Each top-level field is sent as a 'field' event as soon as it is complete and valid, then a 'done' event with the whole answer, or an 'error' event if the answer stops matching the schema")
+    public Flux<ServerSentEvent<StructuredStreamEvent>> chatStructuredStream(@RequestBody StructuredChatRequest request,
+                                                                             ServerHttpRequest httpRequest) {
+        return structuredChatService.stream(request, priority(httpRequest))
+            .map(event -> ServerSentEvent.builder(event).event(event.type()).build());
+    }
+
+    @GetMapping("/structured/types")
+    @Operation(summary = "List the registered structured output types",
+        description = "Type names usable as 'type' in structured requests, with their JSON schemas")
+    public Map<String, ? extends JsonNode> structuredTypes() {
+        return structuredChatService.types();
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Send a batch of chat messages",
+        description = "Send a JSON array of chat requests; each result is streamed back as one NDJSON line as soon as it completes")
+    public Flux<BatchChatResult> chatBatch(@RequestBody List<ChatRequest> requests) {
+        return batchChatService.chat(requests);
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Send a batch of chat messages as NDJSON",
+        description = "Upload one chat request per line; results are streamed back as NDJSON")
+    public Flux<BatchChatResult> chatBatchNdjson(@RequestBody String body) {
+        return batchChatService.chatNdjson(body);
+    }
+
+    private static Flux<ServerSentEvent<ChatStreamEvent>> toServerSentEvents(Flux<ChatStreamEvent> events) {
+        return events.map(event -> ServerSentEvent.builder(event)
+            .event(event.type())
+            .build());
+    }
+}
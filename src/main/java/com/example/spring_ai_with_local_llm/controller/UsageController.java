@@ -0,0 +1,78 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.config.QuotaProperties;
+import com.example.spring_ai_with_local_llm.dto.ClientUsage;
+import com.example.spring_ai_with_local_llm.quota.ClientQuotas;
+import com.example.spring_ai_with_local_llm.quota.UsageLedger;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Serves both web stacks; it returns plain values, so nothing here blocks.
+ */
+@RestController
+@RequestMapping("/api/usage")
+@ConditionalOnProperty(prefix = "app.quota", name = "enabled", havingValue = "true")
+@Tag(name = "Usage", description = "Token usage and quotas per API client")
+public class UsageController {
+
+    private final UsageLedger ledger;
+    private final ClientQuotas quotas;
+
+    public UsageController(UsageLedger ledger, ClientQuotas quotas) {
+        this.ledger = ledger;
+        this.quotas = quotas;
+    }
+
+    @GetMapping
+    @Operation(
+        summary = "Usage of every client",
+        description = "Requests, rejections and tokens per client since the ledger was started, with each client's quota"
+    )
+    public List<ClientUsage> usage() {
+        return ledger.totals().entrySet().stream()
+            .map(entry -> toUsage(entry.getKey(), entry.getValue()))
+            .toList();
+    }
+
+    @GetMapping("/{client}")
+    @Operation(
+        summary = "Usage of one client",
+        responses = {
+            @ApiResponse(
+                responseCode = "200",
+                description = "Usage and quota of the client",
+                content = @Content(schema = @Schema(implementation = ClientUsage.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "The client has not made any request")
+        }
+    )
+    public ClientUsage usage(
+        @Parameter(description = "Client name as listed by /api/usage", required = true)
+        @PathVariable String client) {
+        UsageLedger.Totals totals = ledger.totals(client);
+        if (totals == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No usage recorded for client " + client);
+        }
+        return toUsage(client, totals);
+    }
+
+    private ClientUsage toUsage(String client, UsageLedger.Totals totals) {
+        QuotaProperties.Limits limits = quotas.limits(client);
+        return new ClientUsage(client, totals.requests(), totals.rejected(), totals.promptTokens(),
+            totals.completionTokens(), totals.promptTokens() + totals.completionTokens(), totals.estimatedTokens(),
+            totals.lastRequest() > 0 ? Instant.ofEpochMilli(totals.lastRequest()) : null,
+            limits.tokensPerMinute(), limits.requestsPerSecond(), quotas.availableTokens(client));
+    }
+}
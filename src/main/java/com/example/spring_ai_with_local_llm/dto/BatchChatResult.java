@@ -0,0 +1,33 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of one item of a batch chat request, emitted as one NDJSON line as soon as it completes")
+public record BatchChatResult(
+    @Schema(description = "Zero-based position of the item in the submitted batch", example = "0")
+    int id,
+    @Schema(description = "'ok' if the item was answered, 'error' if it failed", example = "ok")
+    String status,
+    @Schema(description = "The AI's response message (ok only)")
+    String response,
+    @Schema(description = "The model used for generating the response (ok only)")
+    String model,
+    @Schema(description = "Total tokens used in the request and response (ok only)")
+    Long totalTokens,
+    @Schema(description = "Why the item failed (error only)")
+    String error
+) {
+
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+
+    public static BatchChatResult ok(int id, ChatModelResponse response) {
+        return new BatchChatResult(id, OK, response.response(), response.model(), response.totalTokens(), null);
+    }
+
+    public static BatchChatResult error(int id, String error) {
+        return new BatchChatResult(id, ERROR, null, null, null, error);
+    }
+}
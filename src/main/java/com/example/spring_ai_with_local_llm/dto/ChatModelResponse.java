@@ -1,5 +1,6 @@
 package com.example.spring_ai_with_local_llm.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "Chat response containing the AI's reply with metadata")
@@ -9,9 +10,17 @@ public record ChatModelResponse(
     @Schema(description = "The model used for generating the response")
     String model,
     @Schema(description = "Total tokens used in the request and response")
-    Long totalTokens
-) {}
-
-
+    Long totalTokens,
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Token counts of the message before and after it was fitted into the context window")
+    PromptCompression compression
+) {
 
+    public ChatModelResponse(String response, String model, Long totalTokens) {
+        this(response, model, totalTokens, null);
+    }
 
+    public ChatModelResponse withCompression(PromptCompression compression) {
+        return new ChatModelResponse(response, model, totalTokens, compression);
+    }
+}
@@ -5,8 +5,15 @@ import io.swagger.v3.oas.annotations.media.Schema;
 @Schema(description = "Chat request containing the user message")
 public record ChatRequest(
     @Schema(description = "The message to send to the AI", example = "What is Spring Boot?")
-    String message
-) {}
+    String message,
+    @Schema(description = "Continues the conversation with this id; the AI sees its earlier turns. Omit for a one-off question", example = "3f1c9a2e")
+    String conversationId
+) {
+
+    public ChatRequest(String message) {
+        this(message, null);
+    }
+}
 
 
 
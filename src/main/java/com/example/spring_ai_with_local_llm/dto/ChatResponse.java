@@ -1,13 +1,22 @@
 package com.example.spring_ai_with_local_llm.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "Chat response containing the AI's reply")
 public record ChatResponse(
     @Schema(description = "The AI's response message")
-    String response
-) {}
-
-
+    String response,
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Token counts of the message before and after it was fitted into the context window")
+    PromptCompression compression
+) {
 
+    public ChatResponse(String response) {
+        this(response, null);
+    }
 
+    public static ChatResponse of(ChatModelResponse response) {
+        return new ChatResponse(response.response(), response.compression());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "A single server-sent event of a streaming chat response")
+public record ChatStreamEvent(
+    @Schema(description = "Event type: 'token' for a content chunk, 'done' for the final summary", example = "token")
+    String type,
+    @Schema(description = "The content chunk generated by the AI (token events only)")
+    String content,
+    @Schema(description = "The model used for generating the response (done event only)")
+    String model,
+    @Schema(description = "Tokens in the prompt (done event only)")
+    Long promptTokens,
+    @Schema(description = "Tokens in the completion (done event only)")
+    Long completionTokens,
+    @Schema(description = "Total tokens used in the request and response (done event only)")
+    Long totalTokens,
+    @Schema(description = "Token counts of the message before and after it was fitted into the context window (done event only)")
+    PromptCompression compression
+) {
+
+    public static final String TOKEN = "token";
+    public static final String DONE = "done";
+
+    public static ChatStreamEvent token(String content) {
+        return new ChatStreamEvent(TOKEN, content, null, null, null, null, null);
+    }
+
+    public static ChatStreamEvent done(String model, Long promptTokens, Long completionTokens, Long totalTokens) {
+        return new ChatStreamEvent(DONE, null, model, promptTokens, completionTokens, totalTokens, null);
+    }
+
+    public ChatStreamEvent withCompression(PromptCompression compression) {
+        return new ChatStreamEvent(type, content, model, promptTokens, completionTokens, totalTokens, compression);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Usage and quota of one API client")
+public record ClientUsage(
+    @Schema(description = "Name of a configured client, or 'anonymous'", example = "reporting")
+    String client,
+    @Schema(description = "Requests answered", example = "120")
+    long requests,
+    @Schema(description = "Requests rejected because the quota was used up", example = "3")
+    long rejected,
+    @Schema(description = "Prompt tokens reported by the model", example = "48000")
+    long promptTokens,
+    @Schema(description = "Completion tokens generated", example = "21000")
+    long completionTokens,
+    @Schema(description = "Prompt and completion tokens", example = "69000")
+    long totalTokens,
+    @Schema(description = "Tokens estimated from the requests before they were answered", example = "15000")
+    long estimatedTokens,
+    @Schema(description = "Time of the last request, if any")
+    Instant lastRequest,
+    @Schema(description = "Token quota per minute", example = "20000")
+    long tokensPerMinute,
+    @Schema(description = "Sustained requests per second", example = "5")
+    double requestsPerSecond,
+    @Schema(description = "Tokens the client may use right now; negative while a long answer is paid off", example = "18500")
+    long availableTokens
+) {}
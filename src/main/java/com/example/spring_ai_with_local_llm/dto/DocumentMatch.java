@@ -0,0 +1,15 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "A document chunk matching a search")
+public record DocumentMatch(
+    @Schema(description = "Chunk id", example = "0b6f7c1e-8d0a-3c5e-9a44-2f1d7c9b1e20")
+    String id,
+    @Schema(description = "File the chunk comes from, relative to the documents directory", example = "guides/setup.md")
+    String source,
+    @Schema(description = "Cosine similarity to the query", example = "0.82")
+    Double score,
+    @Schema(description = "Chunk text")
+    String text
+) {}
@@ -0,0 +1,11 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Texts to embed")
+public record EmbeddingRequest(
+    @Schema(description = "The texts, embedded in this order", example = "[\"Spring Boot\", \"Ollama runs models locally\"]")
+    List<String> texts
+) {}
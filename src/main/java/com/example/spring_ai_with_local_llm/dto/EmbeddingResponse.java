@@ -0,0 +1,15 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Embedding vectors of the requested texts")
+public record EmbeddingResponse(
+    @Schema(description = "The embedding model used")
+    String model,
+    @Schema(description = "Length of each vector")
+    int dimensions,
+    @Schema(description = "One vector per text, in the order of the request")
+    List<float[]> embeddings
+) {}
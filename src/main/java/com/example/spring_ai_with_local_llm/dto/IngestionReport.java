@@ -0,0 +1,19 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of indexing the documents directory")
+public record IngestionReport(
+    @Schema(description = "Files found in the documents directory", example = "42")
+    int filesScanned,
+    @Schema(description = "New or changed files that were (re-)indexed", example = "3")
+    int filesIndexed,
+    @Schema(description = "Files removed since the last run whose chunks were deleted", example = "1")
+    int filesRemoved,
+    @Schema(description = "Files that could not be indexed; they are retried on the next run", example = "0")
+    int filesFailed,
+    @Schema(description = "Chunks embedded and stored", example = "187")
+    int chunksIndexed,
+    @Schema(description = "Time taken in milliseconds", example = "5230")
+    long durationMillis
+) {}
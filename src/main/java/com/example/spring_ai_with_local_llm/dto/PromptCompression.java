@@ -0,0 +1,17 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "How the message was fitted into the model's context window")
+public record PromptCompression(
+    @Schema(description = "Tokens in the message as sent by the client", example = "48210")
+    long originalTokens,
+    @Schema(description = "Tokens in the message as sent to the model", example = "2950")
+    long compressedTokens,
+    @Schema(description = "Tokens the message was allowed for this model", example = "3072")
+    long tokenBudget,
+    @Schema(description = "Compression strategies that changed the message, in the order applied", example = "[\"whitespace\", \"log-dedup\"]")
+    List<String> strategies
+) {}
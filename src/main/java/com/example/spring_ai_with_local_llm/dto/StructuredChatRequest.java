@@ -0,0 +1,15 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Chat request whose answer must be JSON of a given shape; set either schema or type")
+public record StructuredChatRequest(
+    @Schema(description = "The message to send to the AI", example = "Extract the city and country from: I live in Lyon.")
+    String message,
+    @Schema(description = "JSON schema the answer must match",
+        example = "{\"type\":\"object\",\"properties\":{\"city\":{\"type\":\"string\"},\"country\":{\"type\":\"string\"}},\"required\":[\"city\",\"country\"],\"additionalProperties\":false}")
+    JsonNode schema,
+    @Schema(description = "Name of a registered type whose schema the answer must match, see /api/chat-model/structured/types", example = "date-time")
+    String type
+) {}
@@ -0,0 +1,18 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "JSON answer validated against the requested schema")
+public record StructuredChatResponse(
+    @Schema(description = "The answer, matching the schema")
+    JsonNode data,
+    @Schema(description = "The model used for generating the response")
+    String model,
+    @Schema(description = "Total tokens used in the request and response of the successful generation")
+    Long totalTokens,
+    @Schema(description = "Generations needed; more than 1 when an answer stopped matching the schema and was generated again", example = "1")
+    int attempts,
+    @Schema(description = "How the message was fitted into the model's context window; absent when compression is disabled")
+    PromptCompression compression
+) {}
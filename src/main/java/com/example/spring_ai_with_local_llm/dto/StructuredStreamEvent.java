@@ -0,0 +1,43 @@
+package com.example.spring_ai_with_local_llm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "A single server-sent event of a streaming structured answer")
+public record StructuredStreamEvent(
+    @Schema(description = "Event type: 'field' for a validated top-level field, 'done' for the complete answer, 'error' if the answer stopped matching the schema", example = "field")
+    String type,
+    @Schema(description = "Name of the field (field events only)", example = "city")
+    String name,
+    @Schema(description = "Value of the field (field events only)")
+    JsonNode value,
+    @Schema(description = "The complete answer (done event only)")
+    JsonNode data,
+    @Schema(description = "The model used for generating the response (done event only)")
+    String model,
+    @Schema(description = "Total tokens used in the request and response (done event only)")
+    Long totalTokens,
+    @Schema(description = "Why the answer was rejected; the generation was stopped there (error event only)")
+    String error,
+    @Schema(description = "How the message was fitted into the model's context window (done event only)")
+    PromptCompression compression
+) {
+
+    public static final String FIELD = "field";
+    public static final String DONE = "done";
+    public static final String ERROR = "error";
+
+    public static StructuredStreamEvent field(String name, JsonNode value) {
+        return new StructuredStreamEvent(FIELD, name, value, null, null, null, null, null);
+    }
+
+    public static StructuredStreamEvent done(JsonNode data, String model, Long totalTokens, PromptCompression compression) {
+        return new StructuredStreamEvent(DONE, null, null, data, model, totalTokens, null, compression);
+    }
+
+    public static StructuredStreamEvent error(String error) {
+        return new StructuredStreamEvent(ERROR, null, null, null, null, null, error, null);
+    }
+}
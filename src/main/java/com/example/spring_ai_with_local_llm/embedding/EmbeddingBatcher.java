@@ -0,0 +1,119 @@
+package com.example.spring_ai_with_local_llm.embedding;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Micro-batching of embedding requests: texts submitted within {@code window} of the first one
+ * are embedded by one call to the model, which Ollama processes far faster than one call per
+ * text. A batch is sent early once it reaches {@code maxBatchSize}.
+ */
+public class EmbeddingBatcher implements AutoCloseable {
+
+    private record Pending(String text, CompletableFuture<float[]> vector) {}
+
+    private final EmbeddingModel embeddingModel;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "embedding-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor();
+    private final DistributionSummary batchSizes;
+    private List<Pending> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public EmbeddingBatcher(EmbeddingModel embeddingModel, Duration window, int maxBatchSize, MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSizes = DistributionSummary.builder("llm.embedding.batch.size")
+            .description("Texts embedded per call to the embedding model")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return the vector of {@code text}, once its batch is embedded
+     */
+    public CompletableFuture<float[]> embed(String text) {
+        CompletableFuture<float[]> vector = new CompletableFuture<>();
+        List<Pending> full = null;
+        lock.lock();
+        try {
+            pending.add(new Pending(text, vector));
+            if (pending.size() >= maxBatchSize || windowNanos <= 0) {
+                full = take();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = timer.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            send(full);
+        }
+        return vector;
+    }
+
+    private void flush() {
+        List<Pending> batch;
+        lock.lock();
+        try {
+            batch = take();
+        } finally {
+            lock.unlock();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private List<Pending> take() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        calls.execute(() -> {
+            batchSizes.record(batch.size());
+            try {
+                List<float[]> vectors = embeddingModel.embed(batch.stream().map(Pending::text).toList());
+                if (vectors.size() != batch.size()) {
+                    throw new IllegalStateException("The embedding model returned " + vectors.size()
+                        + " vectors for " + batch.size() + " texts");
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).vector().complete(vectors.get(i));
+                }
+            } catch (RuntimeException e) {
+                batch.forEach(request -> request.vector().completeExceptionally(e));
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        calls.shutdownNow();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.spring_ai_with_local_llm.embedding;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LRU cache of embedding vectors, keyed by a hash of the model and the text. Only the 128-bit hash
+ * is kept, not the text, and vectors are kept as {@code float[]}: a 1024-dimension vector takes
+ * 4 KB, where a list of boxed floats would take about 20 KB.
+ */
+public class EmbeddingCache {
+
+    /**
+     * Identifies a text embedded by a model; the first 128 bits of the SHA-256 of both.
+     */
+    public record Key(long high, long low) {
+
+        public static Key of(String model, String text) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(String.valueOf(model).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                ByteBuffer hash = ByteBuffer.wrap(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+                return new Key(hash.getLong(), hash.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, float[]> vectors;
+    private long bytes;
+
+    public EmbeddingCache(int maxEntries, MeterRegistry meterRegistry) {
+        this.vectors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, float[]> eldest) {
+                if (size() > maxEntries) {
+                    bytes -= 4L * eldest.getValue().length;
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("llm.embedding.cache.size", this, cache -> cache.size())
+            .description("Vectors in the embedding cache")
+            .register(meterRegistry);
+        Gauge.builder("llm.embedding.cache.bytes", this, cache -> cache.bytes())
+            .description("Bytes of the vectors in the embedding cache")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return the cached vector, which must not be modified, or {@code null}
+     */
+    public float[] get(Key key) {
+        lock.lock();
+        try {
+            return vectors.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(Key key, float[] vector) {
+        lock.lock();
+        try {
+            float[] previous = vectors.put(key, vector);
+            bytes += 4L * vector.length - (previous != null ? 4L * previous.length : 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return vectors.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
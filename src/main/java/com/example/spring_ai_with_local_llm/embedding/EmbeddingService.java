@@ -0,0 +1,99 @@
+package com.example.spring_ai_with_local_llm.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embeds texts with the configured embedding model. Each text is served from the
+ * {@link EmbeddingCache} if it was embedded before, joins the request of an identical text still
+ * in flight, or else goes to the {@link EmbeddingBatcher} along with the texts of concurrent requests.
+ */
+public class EmbeddingService {
+
+    /**
+     * @param vectors one per text, in order; they must not be modified
+     */
+    public record Embeddings(String model, List<float[]> vectors) {}
+
+    private final EmbeddingBatcher batcher;
+    private final EmbeddingCache cache;
+    private final String model;
+    private final int maxTexts;
+    private final Map<EmbeddingCache.Key, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public EmbeddingService(EmbeddingBatcher batcher, EmbeddingCache cache, String model, int maxTexts,
+                            MeterRegistry meterRegistry) {
+        this.batcher = batcher;
+        this.cache = cache;
+        this.model = model;
+        this.maxTexts = maxTexts;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.coalesced = counter(meterRegistry, "coalesced");
+    }
+
+    /**
+     * @throws ResponseStatusException {@code 400} for no texts, too many, or a missing one
+     */
+    public CompletableFuture<Embeddings> embed(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No texts to embed");
+        }
+        if (texts.size() > maxTexts) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "At most " + maxTexts + " texts can be embedded per request, got " + texts.size());
+        }
+        if (texts.stream().anyMatch(Objects::isNull)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Texts must not be null");
+        }
+        List<CompletableFuture<float[]>> vectors = texts.stream().map(this::embed).toList();
+        return CompletableFuture.allOf(vectors.toArray(CompletableFuture[]::new))
+            .thenApply(done -> new Embeddings(model, vectors.stream().map(CompletableFuture::join).toList()));
+    }
+
+    private CompletableFuture<float[]> embed(String text) {
+        EmbeddingCache.Key key = EmbeddingCache.Key.of(model, text);
+        float[] cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<float[]> vector = new CompletableFuture<>();
+        CompletableFuture<float[]> pending = inFlight.putIfAbsent(key, vector);
+        if (pending != null) {
+            coalesced.increment();
+            return pending;
+        }
+        misses.increment();
+        batcher.embed(text).whenComplete((embedded, failure) -> {
+            if (failure == null) {
+                cache.put(key, embedded);
+            }
+            inFlight.remove(key, vector);
+            if (failure != null) {
+                vector.completeExceptionally(failure);
+            } else {
+                vector.complete(embedded);
+            }
+        });
+        return vector;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("llm.embedding.cache.requests")
+            .description("Texts to embed, by whether they were cached, joined an identical text in flight, or were embedded")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.backend.Priority;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+/**
+ * Asks the chat model to update the summary, at batch priority so that summarizing never delays
+ * interactive requests.
+ */
+public class ChatModelConversationSummarizer implements ConversationSummarizer {
+
+    private static final String INSTRUCTIONS = """
+            You maintain a running summary of a conversation between a user and an AI assistant. \
+            Update the summary with the new turns. Keep facts, names, numbers, decisions and open \
+            questions; drop pleasantries. Answer with the updated summary only, in at most %d words.
+            """;
+
+    private final ChatModel chatModel;
+    private final GenerationScheduler scheduler;
+    private final int maxWords;
+
+    public ChatModelConversationSummarizer(ChatModel chatModel, GenerationScheduler scheduler, int maxWords) {
+        this.chatModel = chatModel;
+        this.scheduler = scheduler;
+        this.maxWords = maxWords;
+    }
+
+    @Override
+    public String summarize(String summary, List<Conversation.Turn> turns) {
+        StringBuilder text = new StringBuilder();
+        text.append("Current summary:\n").append(summary != null ? summary : "(none)").append("\n\nNew turns:\n");
+        for (Conversation.Turn turn : turns) {
+            text.append(turn.role() == Conversation.Role.USER ? "User: " : "Assistant: ").append(turn.text()).append('\n');
+        }
+        Prompt prompt = new Prompt(List.of(new SystemMessage(INSTRUCTIONS.formatted(maxWords)), new UserMessage(text.toString())));
+        return scheduler.execute(Priority.BATCH, () -> chatModel.call(prompt)).getResult().getOutput().getText().strip();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Stored state of one conversation: a running summary of the turns that no longer fit the token
+ * budget, followed by the recent turns verbatim. Each turn carries its token count, so the window
+ * is computed without re-tokenizing the history.
+ */
+public record Conversation(
+    String summary,
+    int summaryTokens,
+    List<Turn> turns
+) {
+
+    public static final Conversation EMPTY = new Conversation(null, 0, List.of());
+
+    public Conversation {
+        turns = List.copyOf(turns);
+    }
+
+    public enum Role { USER, ASSISTANT }
+
+    /**
+     * One message of the conversation. Turns stay in memory for the whole session, so the text is
+     * held as UTF-8: a Java string takes two bytes per character as soon as one character is
+     * outside Latin-1, as the typographic quotes and dashes of model answers are. It is still
+     * written to JSON as a string.
+     */
+    public static final class Turn {
+
+        private final Role role;
+        private final byte[] text;
+        private final int tokens;
+
+        @JsonCreator
+        public Turn(@JsonProperty("role") Role role, @JsonProperty("text") String text, @JsonProperty("tokens") int tokens) {
+            this.role = role;
+            this.text = text != null ? text.getBytes(StandardCharsets.UTF_8) : null;
+            this.tokens = tokens;
+        }
+
+        @JsonProperty("role")
+        public Role role() {
+            return role;
+        }
+
+        @JsonProperty("text")
+        public String text() {
+            return text != null ? new String(text, StandardCharsets.UTF_8) : null;
+        }
+
+        @JsonProperty("tokens")
+        public int tokens() {
+            return tokens;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Turn turn && role == turn.role && tokens == turn.tokens && Arrays.equals(text, turn.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(role, Arrays.hashCode(text), tokens);
+        }
+
+        @Override
+        public String toString() {
+            return "Turn[role=" + role + ", text=" + text() + ", tokens=" + tokens + "]";
+        }
+    }
+
+    public int turnTokens() {
+        int total = 0;
+        for (Turn turn : turns) {
+            total += turn.tokens();
+        }
+        return total;
+    }
+
+    public int totalTokens() {
+        return summaryTokens + turnTokens();
+    }
+
+    public Conversation append(List<Turn> newTurns) {
+        List<Turn> all = new ArrayList<>(turns.size() + newTurns.size());
+        all.addAll(turns);
+        all.addAll(newTurns);
+        return new Conversation(summary, summaryTokens, all);
+    }
+
+    /**
+     * Replaces the oldest {@code count} turns with a new summary that covers them.
+     */
+    public Conversation summarize(int count, String newSummary, int newSummaryTokens) {
+        return new Conversation(newSummary, newSummaryTokens, turns.subList(Math.min(count, turns.size()), turns.size()));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Persistence for {@link Conversation}s, keyed by conversation id. Conversations idle for longer
+ * than the store's TTL are evicted.
+ */
+public interface ConversationStore {
+
+    Optional<Conversation> find(String conversationId);
+
+    /**
+     * Atomically applies {@code change} to the conversation (starting from
+     * {@link Conversation#EMPTY} if there is none) and stores the result.
+     */
+    Conversation update(String conversationId, UnaryOperator<Conversation> change);
+
+    void delete(String conversationId);
+
+    /**
+     * Removes conversations that have been idle for longer than the TTL.
+     *
+     * @return the number of conversations removed
+     */
+    int evictExpired();
+
+    int size();
+}
@@ -0,0 +1,17 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import java.util.List;
+
+/**
+ * Folds turns that no longer fit the token budget into a conversation's running summary.
+ */
+@FunctionalInterface
+public interface ConversationSummarizer {
+
+    /**
+     * @param summary the current summary, or {@code null} if there is none yet
+     * @param turns   the oldest turns, to be covered by the new summary from now on
+     * @return the updated summary
+     */
+    String summarize(String summary, List<Conversation.Turn> turns);
+}
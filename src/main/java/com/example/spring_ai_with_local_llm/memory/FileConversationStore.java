@@ -0,0 +1,189 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Persists each conversation as a JSON file in a directory, so sessions survive restarts and do
+ * not take heap space. Files are named after a hash of the conversation id, written atomically
+ * (temporary file, then rename) and expire by last-modified time. The number of files is counted
+ * once at startup and then kept up to date, so {@link #size()} does not list the directory.
+ */
+public class FileConversationStore implements ConversationStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileConversationStore.class);
+    private static final String SUFFIX = ".json";
+    private static final int STRIPES = 64;
+
+    private final Path directory;
+    private final Duration ttl;
+    private final ObjectMapper objectMapper;
+    /** Serializes updates of the same conversation file without one lock for the whole store. */
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    public FileConversationStore(Path directory, Duration ttl, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.ttl = ttl;
+        this.objectMapper = objectMapper;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                size.set((int) files.filter(FileConversationStore::isConversation).count());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create conversation directory " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<Conversation> find(String conversationId) {
+        Path file = fileFor(conversationId);
+        ReentrantLock lock = lockFor(file);
+        lock.lock();
+        try {
+            return Optional.ofNullable(read(file));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Conversation update(String conversationId, UnaryOperator<Conversation> change) {
+        Path file = fileFor(conversationId);
+        ReentrantLock lock = lockFor(file);
+        lock.lock();
+        try {
+            Conversation current = read(file);
+            Conversation updated = change.apply(current != null ? current : Conversation.EMPTY);
+            write(file, updated);
+            if (current == null) {
+                size.incrementAndGet();
+            }
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(String conversationId) {
+        Path file = fileFor(conversationId);
+        ReentrantLock lock = lockFor(file);
+        lock.lock();
+        try {
+            if (Files.deleteIfExists(file)) {
+                size.decrementAndGet();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int evictExpired() {
+        Instant cutoff = Instant.now().minus(ttl);
+        int evicted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(FileConversationStore::isConversation)::iterator) {
+                ReentrantLock lock = lockFor(file);
+                lock.lock();
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && Files.deleteIfExists(file)) {
+                        size.decrementAndGet();
+                        evicted++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // deleted concurrently
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not evict expired conversations from {}: {}", directory, e.getMessage());
+        }
+        return evicted;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /** Reads the conversation in {@code file}; the caller holds the file's lock. */
+    private Conversation read(Path file) {
+        try {
+            if (Files.getLastModifiedTime(file).toInstant().isBefore(Instant.now().minus(ttl))) {
+                if (Files.deleteIfExists(file)) {
+                    size.decrementAndGet();
+                }
+                return null;
+            }
+            Conversation conversation = objectMapper.readValue(file.toFile(), Conversation.class);
+            // Reading counts as activity for the TTL
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return conversation;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read conversation " + file, e);
+        }
+    }
+
+    private void write(Path file, Conversation conversation) {
+        try {
+            Path temp = Files.createTempFile(directory, "conversation", ".tmp");
+            objectMapper.writeValue(temp.toFile(), conversation);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write conversation " + file, e);
+        }
+    }
+
+    private Path fileFor(String conversationId) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(conversationId.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash, 0, 16) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ReentrantLock lockFor(Path file) {
+        return locks[Math.floorMod(file.getFileName().hashCode(), STRIPES)];
+    }
+
+    private static boolean isConversation(Path file) {
+        return file.toString().endsWith(SUFFIX);
+    }
+}
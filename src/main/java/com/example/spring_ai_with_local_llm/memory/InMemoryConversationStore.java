@@ -0,0 +1,113 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps conversations on the heap in an access-ordered map: beyond {@code maxConversations} the
+ * least recently used one is dropped, and conversations idle for longer than {@code ttl} expire.
+ */
+public class InMemoryConversationStore implements ConversationStore {
+
+    private final Duration ttl;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> conversations;
+
+    public InMemoryConversationStore(int maxConversations, Duration ttl) {
+        this.ttl = ttl;
+        this.conversations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxConversations;
+            }
+        };
+    }
+
+    @Override
+    public Optional<Conversation> find(String conversationId) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = conversations.get(conversationId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.isExpired(now, ttl)) {
+                conversations.remove(conversationId);
+                return Optional.empty();
+            }
+            conversations.put(conversationId, new Entry(entry.conversation(), now));
+            return Optional.of(entry.conversation());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Conversation update(String conversationId, UnaryOperator<Conversation> change) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = conversations.get(conversationId);
+            Conversation current = entry != null && !entry.isExpired(now, ttl) ? entry.conversation() : Conversation.EMPTY;
+            Conversation updated = change.apply(current);
+            conversations.put(conversationId, new Entry(updated, now));
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(String conversationId) {
+        lock.lock();
+        try {
+            conversations.remove(conversationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int evictExpired() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        lock.lock();
+        try {
+            // Access order: the least recently used conversations come first
+            Iterator<Entry> it = conversations.values().iterator();
+            while (it.hasNext()) {
+                if (!it.next().isExpired(now, ttl)) {
+                    break;
+                }
+                it.remove();
+                evicted++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return evicted;
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return conversations.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry(Conversation conversation, long lastAccess) {
+
+        boolean isExpired(long now, Duration ttl) {
+            return now - lastAccess > ttl.toNanos();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link ChatMemory} bounded by tokens rather than messages. {@link #get} returns the running
+ * summary followed by as many of the most recent turns as fit {@code tokenBudget}. Once a
+ * conversation outgrows the budget, its oldest turns are folded into the summary in the
+ * background, until the verbatim turns take at most half of the budget; so neither the stored
+ * history nor the prompt grows with the length of the conversation.
+ */
+public class TokenWindowChatMemory implements ChatMemory {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenWindowChatMemory.class);
+
+    private final ConversationStore store;
+    private final ConversationSummarizer summarizer;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final int tokenBudget;
+    private final Executor summarizationExecutor;
+    private final Set<String> summarizing = ConcurrentHashMap.newKeySet();
+
+    private final Counter summarizations;
+    private final Counter failedSummarizations;
+
+    public TokenWindowChatMemory(ConversationStore store, ConversationSummarizer summarizer,
+                                 TokenCountEstimator tokenCountEstimator, int tokenBudget,
+                                 Executor summarizationExecutor, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.summarizer = summarizer;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.tokenBudget = tokenBudget;
+        this.summarizationExecutor = summarizationExecutor;
+
+        this.summarizations = Counter.builder("llm.memory.summarizations")
+            .description("Old conversation turns folded into the summary")
+            .tag("outcome", "success")
+            .register(meterRegistry);
+        this.failedSummarizations = Counter.builder("llm.memory.summarizations")
+            .description("Old conversation turns folded into the summary")
+            .tag("outcome", "error")
+            .register(meterRegistry);
+        Gauge.builder("llm.memory.conversations", store, ConversationStore::size)
+            .description("Conversations held by the memory store")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Conversation.Turn> turns = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Conversation.Role role = roleOf(message.getMessageType());
+            if (role != null && message.getText() != null) {
+                turns.add(new Conversation.Turn(role, message.getText(), tokenCountEstimator.estimate(message.getText())));
+            }
+        }
+        if (turns.isEmpty()) {
+            return;
+        }
+        Conversation updated = store.update(conversationId, conversation -> conversation.append(turns));
+        if (updated.totalTokens() > tokenBudget && summarizing.add(conversationId)) {
+            summarizationExecutor.execute(() -> {
+                try {
+                    summarize(conversationId);
+                } finally {
+                    summarizing.remove(conversationId);
+                }
+            });
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Conversation conversation = store.find(conversationId).orElse(Conversation.EMPTY);
+        int available = tokenBudget - conversation.summaryTokens();
+
+        // Newest turns first, as long as they fit; a summarization still in progress is covered
+        Deque<Message> window = new ArrayDeque<>();
+        List<Conversation.Turn> turns = conversation.turns();
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            Conversation.Turn turn = turns.get(i);
+            if (turn.tokens() > available) {
+                break;
+            }
+            available -= turn.tokens();
+            window.addFirst(turn.role() == Conversation.Role.USER
+                ? new UserMessage(turn.text())
+                : new AssistantMessage(turn.text()));
+        }
+        if (conversation.summary() != null) {
+            window.addFirst(new SystemMessage("Summary of the conversation so far:\n" + conversation.summary()));
+        }
+        return List.copyOf(window);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        store.delete(conversationId);
+    }
+
+    private void summarize(String conversationId) {
+        Conversation conversation = store.find(conversationId).orElse(null);
+        if (conversation == null || conversation.totalTokens() <= tokenBudget) {
+            return;
+        }
+        // Fold the oldest turns until the verbatim ones take at most half the budget, so that
+        // summarizing happens every few turns rather than on every one
+        int remaining = conversation.turnTokens();
+        int count = 0;
+        while (count < conversation.turns().size() && remaining > tokenBudget / 2) {
+            remaining -= conversation.turns().get(count).tokens();
+            count++;
+        }
+        List<Conversation.Turn> folded = conversation.turns().subList(0, count);
+        try {
+            String summary = summarizer.summarize(conversation.summary(), folded);
+            int summaryTokens = tokenCountEstimator.estimate(summary);
+            int foldedCount = count;
+            // Turns are only ever appended meanwhile, so the oldest ones are still those summarized
+            store.update(conversationId, current -> current.turns().size() >= foldedCount
+                ? current.summarize(foldedCount, summary, summaryTokens)
+                : current);
+            summarizations.increment();
+        } catch (RuntimeException e) {
+            failedSummarizations.increment();
+            log.warn("Could not summarize conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    private static Conversation.Role roleOf(MessageType type) {
+        return switch (type) {
+            case USER -> Conversation.Role.USER;
+            case ASSISTANT -> Conversation.Role.ASSISTANT;
+            default -> null;
+        };
+    }
+}
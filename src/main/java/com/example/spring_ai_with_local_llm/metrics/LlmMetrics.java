@@ -0,0 +1,191 @@
+package com.example.spring_ai_with_local_llm.metrics;
+
+import com.example.spring_ai_with_local_llm.quota.Reservation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.publisher.Flux;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Metrics for the generations that actually reach the model (cache hits and coalesced followers
+ * are not counted here). Everything is tagged by {@code endpoint} and {@code model}:
+ * <ul>
+ *   <li>{@code llm.generation.duration} - total generation time, including tool calls, by outcome</li>
+ *   <li>{@code llm.generation.ttft} - time to first token (streaming only)</li>
+ *   <li>{@code llm.tokens} - prompt and completion tokens, by {@code type}</li>
+ *   <li>{@code llm.generation.throughput} - completion tokens per second</li>
+ *   <li>{@code llm.prompt.eval.duration} - time Ollama spent evaluating the prompt; drops when it
+ *       reuses the cached evaluation of an unchanged prompt prefix</li>
+ *   <li>{@code llm.generation.errors} - failed generations, by {@code reason} ({@code timeout} or {@code error})</li>
+ * </ul>
+ * Time spent queueing for a backend slot is reported separately by the scheduler, and tool calls
+ * by {@link MeteredToolCallback}. The token usage is also charged to the client's quota
+ * {@link Reservation}, when the request has one.
+ */
+public class LlmMetrics {
+
+    static final String UNKNOWN = "unknown";
+    /** Response metadata key under which Ollama reports its prompt evaluation time. */
+    static final String PROMPT_EVAL_DURATION = "prompt-eval-duration";
+
+    private final MeterRegistry meterRegistry;
+
+    public LlmMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Times a blocking generation.
+     */
+    public ChatResponse record(String endpoint, String model, Supplier<ChatResponse> generation) {
+        Reservation reservation = Reservation.current();
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = generation.get();
+            onSuccess(endpoint, model, response, System.nanoTime() - start, reservation);
+            return response;
+        } catch (RuntimeException e) {
+            onError(endpoint, model, e, System.nanoTime() - start, reservation);
+            throw e;
+        }
+    }
+
+    /**
+     * Times a streaming generation from subscription: the first chunk with text gives the time to
+     * first token, completion gives the total time and the token usage of the last chunk. A stream
+     * cancelled by the client is recorded as {@code outcome=cancelled}.
+     */
+    public Flux<ChatResponse> record(String endpoint, String model, Flux<ChatResponse> generation) {
+        return Flux.deferContextual(context -> {
+            Reservation reservation = Reservation.from(context);
+            long start = System.nanoTime();
+            AtomicBoolean firstToken = new AtomicBoolean();
+            AtomicReference<ChatResponse> last = new AtomicReference<>();
+            return generation
+                .doOnNext(response -> {
+                    last.set(response);
+                    if (hasText(response) && firstToken.compareAndSet(false, true)) {
+                        timer("llm.generation.ttft", "Time until the first generated token", endpoint, modelOf(response, model))
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doOnComplete(() -> onSuccess(endpoint, model, last.get(), System.nanoTime() - start, reservation))
+                .doOnError(e -> onError(endpoint, model, e, System.nanoTime() - start, reservation))
+                .doOnCancel(() -> {
+                    durationTimer(endpoint, modelOf(last.get(), model), "cancelled")
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (reservation != null) {
+                        reservation.recordUnreported();
+                    }
+                });
+        });
+    }
+
+    private void onSuccess(String endpoint, String requestedModel, ChatResponse response, long elapsedNanos,
+                           Reservation reservation) {
+        String model = modelOf(response, requestedModel);
+        durationTimer(endpoint, model, "success").record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        if (response != null && response.getMetadata() != null
+            && response.getMetadata().get(PROMPT_EVAL_DURATION) instanceof Duration promptEval) {
+            timer("llm.prompt.eval.duration", "Time the model spent evaluating the prompt", endpoint, model)
+                .record(promptEval);
+        }
+
+        Usage usage = response != null && response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        int promptTokens = usage != null && usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        int completionTokens = usage != null && usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+        if (promptTokens == 0 && completionTokens == 0) {
+            if (reservation != null) {
+                reservation.recordUnreported();
+            }
+            return;
+        }
+        tokenCounter(endpoint, model, "prompt").increment(promptTokens);
+        tokenCounter(endpoint, model, "completion").increment(completionTokens);
+        if (reservation != null) {
+            reservation.recordUsage(promptTokens, completionTokens);
+        }
+        if (completionTokens > 0 && elapsedNanos > 0) {
+            DistributionSummary.builder("llm.generation.throughput")
+                .description("Completion tokens generated per second")
+                .baseUnit("tokens/s")
+                .tags("endpoint", endpoint, "model", model)
+                .register(meterRegistry)
+                .record(completionTokens / (elapsedNanos / 1e9));
+        }
+    }
+
+    private void onError(String endpoint, String model, Throwable error, long elapsedNanos, Reservation reservation) {
+        if (reservation != null) {
+            reservation.recordUnreported();
+        }
+        String reason = isTimeout(error) ? "timeout" : "error";
+        String tagModel = model != null ? model : UNKNOWN;
+        durationTimer(endpoint, tagModel, reason).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("llm.generation.errors")
+            .description("Generations that failed")
+            .tags("endpoint", endpoint, "model", tagModel, "reason", reason, "exception", error.getClass().getSimpleName())
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private Timer durationTimer(String endpoint, String model, String outcome) {
+        return Timer.builder("llm.generation.duration")
+            .description("Total time of a generation, including tool calls")
+            .tags("endpoint", endpoint, "model", model, "outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private Timer timer(String name, String description, String endpoint, String model) {
+        return Timer.builder(name)
+            .description(description)
+            .tags("endpoint", endpoint, "model", model)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private Counter tokenCounter(String endpoint, String model, String type) {
+        return Counter.builder("llm.tokens")
+            .description("Tokens processed by the model")
+            .tags("endpoint", endpoint, "model", model, "type", type)
+            .register(meterRegistry);
+    }
+
+    private static String modelOf(ChatResponse response, String requestedModel) {
+        if (response != null && response.getMetadata() != null && response.getMetadata().getModel() != null
+            && !response.getMetadata().getModel().isEmpty()) {
+            return response.getMetadata().getModel();
+        }
+        return requestedModel != null ? requestedModel : UNKNOWN;
+    }
+
+    private static boolean hasText(ChatResponse response) {
+        return response.getResult() != null && response.getResult().getOutput() != null
+            && response.getResult().getOutput().getText() != null
+            && !response.getResult().getOutput().getText().isEmpty();
+    }
+
+    static boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException
+                || cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
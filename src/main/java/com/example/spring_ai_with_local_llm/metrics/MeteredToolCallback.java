@@ -0,0 +1,58 @@
+package com.example.spring_ai_with_local_llm.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates a {@link ToolCallback} with an {@code llm.tool.duration} timer tagged by tool name and
+ * outcome; its count is the number of tool calls.
+ */
+public class MeteredToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final MeterRegistry meterRegistry;
+
+    public MeteredToolCallback(ToolCallback delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            String result = toolContext != null ? delegate.call(toolInput, toolContext) : delegate.call(toolInput);
+            outcome = "success";
+            return result;
+        } finally {
+            Timer.builder("llm.tool.duration")
+                .description("Time spent executing a tool called by the model")
+                .tags("tool", getToolDefinition().name(), "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
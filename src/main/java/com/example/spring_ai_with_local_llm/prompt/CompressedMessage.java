@@ -0,0 +1,21 @@
+package com.example.spring_ai_with_local_llm.prompt;
+
+import com.example.spring_ai_with_local_llm.dto.PromptCompression;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * A user message as it goes to the model.
+ *
+ * @param text        the message, compressed if it was over its budget
+ * @param compression the token counts, or {@code null} when compression is disabled
+ */
+public record CompressedMessage(String text, PromptCompression compression) {
+
+    /**
+     * The same message with context added (such as the current time), which is not compressed.
+     */
+    public CompressedMessage map(UnaryOperator<String> function) {
+        return new CompressedMessage(function.apply(text), compression);
+    }
+}
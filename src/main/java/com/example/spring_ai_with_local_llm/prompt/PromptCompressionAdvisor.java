@@ -0,0 +1,83 @@
+package com.example.spring_ai_with_local_llm.prompt;
+
+import com.example.spring_ai_with_local_llm.dto.PromptCompression;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+
+import java.util.List;
+
+/**
+ * Applies the {@link PromptCompressor} to prompts sent through the {@code ChatClient}: the last
+ * user message is fitted into what the system prompt and the conversation history leave of the
+ * model's budget. It runs before document retrieval, so retrieved context is not compressed.
+ * <p>
+ * The token counts are put into the metadata of the response under {@link #PROMPT_COMPRESSION}.
+ * A caller that compressed the message itself passes its counts as that advisor parameter, and
+ * the message is left as it is.
+ */
+public class PromptCompressionAdvisor implements BaseAdvisor {
+
+    /** Context and response metadata key holding the {@link PromptCompression}. */
+    public static final String PROMPT_COMPRESSION = "prompt_compression";
+
+    private final PromptCompressor compressor;
+    private final String defaultModel;
+
+    public PromptCompressionAdvisor(PromptCompressor compressor, String defaultModel) {
+        this.compressor = compressor;
+        this.defaultModel = defaultModel;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+        if (request.context().containsKey(PROMPT_COMPRESSION)) {
+            return request;
+        }
+        List<Message> messages = request.prompt().getInstructions();
+        UserMessage userMessage = request.prompt().getUserMessage();
+        if (messages.isEmpty() || messages.getLast() != userMessage || userMessage.getText() == null) {
+            return request;
+        }
+        String model = request.prompt().getOptions() != null && request.prompt().getOptions().getModel() != null
+            ? request.prompt().getOptions().getModel() : defaultModel;
+        CompressedMessage compressed = compressor.compress(userMessage.getText(), model,
+            messages.subList(0, messages.size() - 1));
+        if (compressed.compression() == null) {
+            return request;
+        }
+        return request.mutate()
+            .prompt(request.prompt().augmentUserMessage(message -> message.mutate().text(compressed.text()).build()))
+            .context(PROMPT_COMPRESSION, compressed.compression())
+            .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+        Object compression = response.context().get(PROMPT_COMPRESSION);
+        if (compression == null || response.chatResponse() == null) {
+            return response;
+        }
+        return response.mutate()
+            .chatResponse(ChatResponse.builder().from(response.chatResponse()).metadata(PROMPT_COMPRESSION, compression).build())
+            .build();
+    }
+
+    /**
+     * @return the token counts the advisor put into {@code response}, or {@code null}
+     */
+    public static PromptCompression compressionOf(ChatResponse response) {
+        return response != null && response.getMetadata() != null
+            && response.getMetadata().get(PROMPT_COMPRESSION) instanceof PromptCompression compression ? compression : null;
+    }
+
+    @Override
+    public int getOrder() {
+        // Before RetrievalAdvisor (0)
+        return -100;
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.spring_ai_with_local_llm.prompt;
+
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties.Strategy;
+import com.example.spring_ai_with_local_llm.dto.PromptCompression;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fits a user message into the context window of the model before it is sent, so that Ollama
+ * neither truncates it silently nor spends minutes evaluating it.
+ * <p>
+ * A message whose UTF-8 length is within its budget is sent as it is without being counted: every
+ * token of a byte-level tokenizer covers at least one byte. Longer messages are counted with a
+ * local tokenizer, and a message within its budget is still sent as it is. Otherwise the line strategies (whitespace, duplicate lines, log deduplication) are applied in a
+ * single pass over the lines into one buffer. If the message is still over budget, its start and
+ * end are kept ({@code head-tail}); without that strategy it is rejected with {@code 413}.
+ */
+public class PromptCompressor {
+
+    /** Distinct log patterns remembered by {@code log-dedup}; lines of further patterns are kept. */
+    static final int MAX_PATTERNS = 100_000;
+
+    /** Messages longer than this are compressed off the subscribing thread by {@link #compressReactive}. */
+    private static final int INLINE_COMPRESSION_CHARS = 16_384;
+
+    private final PromptCompressionProperties properties;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final MeterRegistry meterRegistry;
+    private final Counter tokensRemoved;
+
+    public PromptCompressor(PromptCompressionProperties properties, TokenCountEstimator tokenCountEstimator,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.meterRegistry = meterRegistry;
+        this.tokensRemoved = Counter.builder("llm.prompt.tokens.removed")
+            .description("Tokens removed from user messages to fit them into the context window")
+            .register(meterRegistry);
+    }
+
+    public CompressedMessage compress(String message, String model) {
+        return compress(message, model, List.of());
+    }
+
+    /**
+     * @param otherMessages messages sent along (system prompt, conversation history); they take
+     *                      part of the budget, but the message keeps at least a quarter of it
+     * @throws ResponseStatusException {@code 413} if the message cannot be fitted
+     */
+    public CompressedMessage compress(String message, String model, List<Message> otherMessages) {
+        if (!properties.enabled() || message == null || message.isEmpty()) {
+            return new CompressedMessage(message, null);
+        }
+        int modelBudget = properties.budget(model);
+        long otherBytes = otherMessages.stream().mapToLong(other -> utf8Length(other.getText())).sum();
+        if (utf8Length(message) <= Math.max(modelBudget / 4, modelBudget - otherBytes)) {
+            return new CompressedMessage(message, null);
+        }
+        int otherTokens = otherMessages.stream()
+            .mapToInt(other -> other.getText() != null ? tokenCountEstimator.estimate(other.getText()) : 0)
+            .sum();
+        int budget = Math.max(modelBudget / 4, modelBudget - otherTokens);
+
+        int originalTokens = tokenCountEstimator.estimate(message);
+        if (originalTokens <= budget) {
+            return new CompressedMessage(message, new PromptCompression(originalTokens, originalTokens, budget, List.of()));
+        }
+
+        List<String> applied = new ArrayList<>();
+        String text = new LineFilter(properties).apply(message, applied);
+        int tokens = applied.isEmpty() ? originalTokens : tokenCountEstimator.estimate(text);
+        if (tokens > budget) {
+            if (!properties.strategies().contains(Strategy.HEAD_TAIL)) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "The message has " + tokens
+                    + " tokens after compression; model " + model + " allows " + budget);
+            }
+            text = headTail(text, tokens, budget);
+            tokens = tokenCountEstimator.estimate(text);
+            applied.add(Strategy.HEAD_TAIL.id());
+        }
+
+        tokensRemoved.increment(originalTokens - tokens);
+        for (String strategy : applied) {
+            Counter.builder("llm.prompt.compressions")
+                .description("User messages changed by each compression strategy")
+                .tag("strategy", strategy)
+                .register(meterRegistry)
+                .increment();
+        }
+        return new CompressedMessage(text, new PromptCompression(originalTokens, tokens, budget, List.copyOf(applied)));
+    }
+
+    /**
+     * {@link #compress(String, String, List)} on subscription. Counting the tokens of a long message
+     * takes a while, so that happens on the parallel scheduler rather than on the event loop.
+     */
+    public Mono<CompressedMessage> compressReactive(String message, String model, List<Message> otherMessages) {
+        Mono<CompressedMessage> compressed = Mono.fromCallable(() -> compress(message, model, otherMessages));
+        return message != null && message.length() > INLINE_COMPRESSION_CHARS
+            ? compressed.subscribeOn(Schedulers.parallel()) : compressed;
+    }
+
+    /**
+     * The UTF-8 length of {@code text}, an upper bound of its token count that is much cheaper to
+     * compute; a surrogate pair counts 4 bytes.
+     */
+    static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long bytes = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x800 && !Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Keeps the start and the end of {@code text} at whole lines, sized from its average characters
+     * per token, and shrinks them until the result is within {@code budget}.
+     */
+    private String headTail(String text, int tokens, int budget) {
+        double charsPerToken = (double) text.length() / tokens;
+        // Room for the marker between the two parts
+        int keep = Math.max(1, budget - 16);
+        String result = text;
+        for (int attempt = 0; attempt < 8; attempt++) {
+            int headChars = (int) (keep * properties.headRatio() * charsPerToken);
+            int tailChars = (int) (keep * (1 - properties.headRatio()) * charsPerToken);
+            result = cut(text, headChars, tailChars);
+            int resultTokens = tokenCountEstimator.estimate(result);
+            if (resultTokens <= budget) {
+                return result;
+            }
+            keep = (int) (keep * 0.9 * budget / resultTokens);
+        }
+        return result;
+    }
+
+    private static String cut(String text, int headChars, int tailChars) {
+        int headEnd = lineBoundaryBefore(text, Math.min(headChars, text.length()));
+        int tailStart = lineBoundaryAfter(text, Math.max(headEnd, text.length() - tailChars));
+        int omittedLines = 0;
+        for (int i = headEnd; i < tailStart; i++) {
+            if (text.charAt(i) == '\n') {
+                omittedLines++;
+            }
+        }
+        return new StringBuilder(headEnd + text.length() - tailStart + 64)
+            .append(text, 0, headEnd)
+            .append("\n[... ").append(omittedLines).append(" lines omitted ...]\n")
+            .append(text, tailStart, text.length())
+            .toString();
+    }
+
+    /** The end of the last whole line before {@code index}, unless that gives up more than half. */
+    private static int lineBoundaryBefore(String text, int index) {
+        int newline = text.lastIndexOf('\n', index - 1);
+        int end = newline >= index / 2 ? newline : index;
+        return end > 0 && Character.isHighSurrogate(text.charAt(end - 1)) ? end - 1 : end;
+    }
+
+    /** The start of the first whole line after {@code index}, unless that gives up more than half. */
+    private static int lineBoundaryAfter(String text, int index) {
+        int newline = text.indexOf('\n', index);
+        int start = newline >= 0 && newline + 1 - index <= (text.length() - index) / 2 ? newline + 1 : index;
+        return start < text.length() && Character.isLowSurrogate(text.charAt(start)) ? start + 1 : start;
+    }
+
+    /**
+     * One pass over the lines of a message, writing the lines that are kept into one buffer.
+     * Lines are normalized in a reusable buffer, so no string is created per line except for the
+     * pattern keys of {@code log-dedup}.
+     */
+    private static final class LineFilter {
+
+        private final boolean whitespace;
+        private final boolean duplicates;
+        private final boolean logDedup;
+        private final int similarLines;
+        private final Map<String, Integer> patterns = new HashMap<>();
+        private StringBuilder line = new StringBuilder();
+        private StringBuilder previous = new StringBuilder();
+        private StringBuilder out;
+        private boolean hasPrevious;
+        private int repeats;
+        private int omitted;
+        private boolean whitespaceChanged;
+        private boolean duplicatesChanged;
+        private boolean logDedupChanged;
+
+        LineFilter(PromptCompressionProperties properties) {
+            this.whitespace = properties.strategies().contains(Strategy.WHITESPACE);
+            this.duplicates = properties.strategies().contains(Strategy.DUPLICATE_LINES);
+            this.logDedup = properties.strategies().contains(Strategy.LOG_DEDUP);
+            this.similarLines = Math.max(1, properties.similarLines());
+        }
+
+        String apply(String text, List<String> applied) {
+            if (!whitespace && !duplicates && !logDedup) {
+                return text;
+            }
+            out = new StringBuilder(text.length());
+            int start = 0;
+            while (true) {
+                int newline = text.indexOf('\n', start);
+                int end = newline < 0 ? text.length() : newline;
+                accept(text, start, end);
+                if (newline < 0) {
+                    break;
+                }
+                start = newline + 1;
+            }
+            flushMarkers();
+
+            if (whitespaceChanged) {
+                applied.add(Strategy.WHITESPACE.id());
+            }
+            if (duplicatesChanged) {
+                applied.add(Strategy.DUPLICATE_LINES.id());
+            }
+            if (logDedupChanged) {
+                applied.add(Strategy.LOG_DEDUP.id());
+            }
+            return applied.isEmpty() ? text : out.toString();
+        }
+
+        private void accept(String text, int start, int end) {
+            line.setLength(0);
+            if (whitespace) {
+                whitespaceChanged |= normalize(text, start, end);
+            } else {
+                line.append(text, start, end);
+            }
+            boolean blank = line.isEmpty();
+
+            if (whitespace && blank && hasPrevious && previous.isEmpty()) {
+                whitespaceChanged = true;
+                return;
+            }
+            if (duplicates && !blank && hasPrevious && omitted == 0 && line.compareTo(previous) == 0) {
+                repeats++;
+                duplicatesChanged = true;
+                return;
+            }
+            if (logDedup && !blank && isOmittedPattern()) {
+                omitted++;
+                logDedupChanged = true;
+                return;
+            }
+            flushMarkers();
+            appendLine(line);
+            StringBuilder kept = previous;
+            previous = line;
+            line = kept;
+            hasPrevious = true;
+        }
+
+        /**
+         * Copies the line without trailing whitespace and with runs of spaces and tabs after the
+         * indentation collapsed to one space.
+         *
+         * @return whether anything was dropped
+         */
+        private boolean normalize(String text, int start, int end) {
+            int trimmedEnd = end;
+            while (trimmedEnd > start && Character.isWhitespace(text.charAt(trimmedEnd - 1))) {
+                trimmedEnd--;
+            }
+            int i = start;
+            while (i < trimmedEnd && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) {
+                line.append(text.charAt(i++));
+            }
+            boolean changed = trimmedEnd < end;
+            boolean inRun = false;
+            for (; i < trimmedEnd; i++) {
+                char c = text.charAt(i);
+                if (c == ' ' || c == '\t') {
+                    if (inRun) {
+                        changed = true;
+                        continue;
+                    }
+                    inRun = true;
+                    changed |= c == '\t';
+                    line.append(' ');
+                } else {
+                    inRun = false;
+                    line.append(c);
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * Counts the line's pattern (the line with each run of digits masked, so timestamps, ids and
+         * durations do not make lines differ) and tells whether enough lines of it were already kept.
+         */
+        private boolean isOmittedPattern() {
+            StringBuilder pattern = new StringBuilder(line.length());
+            boolean inNumber = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                boolean digit = Character.isDigit(c);
+                if (!digit) {
+                    pattern.append(c);
+                } else if (!inNumber) {
+                    pattern.append('#');
+                }
+                inNumber = digit;
+            }
+            String key = pattern.toString();
+            Integer seen = patterns.get(key);
+            if (seen == null) {
+                if (patterns.size() < MAX_PATTERNS) {
+                    patterns.put(key, 1);
+                }
+                return false;
+            }
+            patterns.put(key, seen + 1);
+            return seen >= similarLines;
+        }
+
+        private void flushMarkers() {
+            if (repeats > 0) {
+                appendLine("[previous line repeated " + repeats + " more times]");
+                repeats = 0;
+            }
+            if (omitted > 0) {
+                appendLine("[" + omitted + " similar lines omitted]");
+                omitted = 0;
+            }
+        }
+
+        private void appendLine(CharSequence text) {
+            if (hasPrevious || !out.isEmpty()) {
+                out.append('\n');
+            }
+            out.append(text);
+        }
+    }
+}
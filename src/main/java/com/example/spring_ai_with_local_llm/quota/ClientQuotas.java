@@ -0,0 +1,183 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import com.example.spring_ai_with_local_llm.config.QuotaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Request rate and token quotas per client, identified by API key. Each client has two
+ * {@link TokenBucket}s, one for requests and one for tokens; both are lock-free, so clients do
+ * not contend with each other or with themselves beyond a compare-and-set.
+ * <p>
+ * A request takes one request token and the estimated prompt tokens up front
+ * ({@link #reserve}); when it is over its {@link Reservation} charges the actual usage instead.
+ * <p>
+ * Only configured clients and {@value #ANONYMOUS} have a quota of their own, so a caller cannot
+ * escape its limits by sending a new API key with every request, and the quotas kept are bounded
+ * by the configuration.
+ */
+public class ClientQuotas {
+
+    public static final String ANONYMOUS = "anonymous";
+
+    private final QuotaProperties properties;
+    private final Map<String, String> clientsByKey = new HashMap<>();
+    private final Map<String, ClientState> states = new ConcurrentHashMap<>();
+    private final UsageLedger ledger;
+    private final LongSupplier nanoClock;
+    private final Counter rejectedRequests;
+    private final Counter rejectedTokens;
+
+    public ClientQuotas(QuotaProperties properties, UsageLedger ledger, MeterRegistry meterRegistry) {
+        this(properties, ledger, meterRegistry, System::nanoTime);
+    }
+
+    ClientQuotas(QuotaProperties properties, UsageLedger ledger, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.ledger = ledger;
+        this.nanoClock = nanoClock;
+        properties.clients().forEach((name, client) -> {
+            if (client.apiKey() != null && !client.apiKey().isBlank()) {
+                clientsByKey.put(client.apiKey(), name);
+            }
+        });
+        this.rejectedRequests = rejectedCounter(meterRegistry, QuotaExceededException.Limit.REQUESTS);
+        this.rejectedTokens = rejectedCounter(meterRegistry, QuotaExceededException.Limit.TOKENS);
+    }
+
+    /**
+     * The client an API key belongs to: the name of a configured client, or {@value #ANONYMOUS}
+     * without a key. Other keys are {@value #ANONYMOUS} too, or rejected with
+     * {@code app.quota.unknown-keys=reject}.
+     *
+     * @throws UnknownApiKeyException for a key of no configured client, if those are rejected
+     */
+    public String clientOf(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return ANONYMOUS;
+        }
+        String name = clientsByKey.get(apiKey);
+        if (name != null) {
+            return name;
+        }
+        if (properties.unknownKeys() == QuotaProperties.UnknownKeys.REJECT) {
+            throw new UnknownApiKeyException();
+        }
+        return ANONYMOUS;
+    }
+
+    public String header() {
+        return properties.header();
+    }
+
+    /**
+     * Estimated prompt tokens of a request: its {@code message} parameter, otherwise its body.
+     * Only the client's text is counted; the system prompt and history are settled afterwards.
+     */
+    public long estimateTokens(String message, long contentLength) {
+        long chars = message != null ? message.length() : Math.max(0, contentLength);
+        return Math.max(1, chars / Math.max(1, properties.charsPerToken()));
+    }
+
+    /**
+     * Takes one request and {@code estimatedTokens} from the client's quota.
+     *
+     * @throws QuotaExceededException if either is used up; nothing is taken then
+     */
+    public Reservation reserve(String client, long estimatedTokens) {
+        ClientState state = state(client);
+        long now = nanoClock.getAsLong();
+        long requestWait = state.requests.tryAcquire(1, now);
+        if (requestWait > 0) {
+            reject(client, estimatedTokens, rejectedRequests);
+            throw new QuotaExceededException(QuotaExceededException.Limit.REQUESTS, Duration.ofNanos(requestWait),
+                "Request rate of " + state.limits.requestsPerSecond() + "/s exceeded for client " + client);
+        }
+        long tokenWait = state.tokens.tryAcquire(estimatedTokens, now);
+        if (tokenWait > 0) {
+            state.requests.adjust(-1, now);
+            reject(client, estimatedTokens, rejectedTokens);
+            throw new QuotaExceededException(QuotaExceededException.Limit.TOKENS, Duration.ofNanos(tokenWait),
+                "Token quota of " + state.limits.tokensPerMinute() + "/min exceeded for client " + client);
+        }
+        return new Reservation(this, client, estimatedTokens);
+    }
+
+    void settle(Reservation reservation) {
+        long actual = reservation.promptTokens() + reservation.completionTokens();
+        if (reservation.hasUnreportedUsage()) {
+            actual = Math.max(actual, reservation.estimatedTokens());
+        }
+        long difference = actual - reservation.estimatedTokens();
+        if (difference != 0) {
+            state(reservation.client()).tokens.adjust(difference, nanoClock.getAsLong());
+        }
+        ledger.record(UsageLedger.UsageRecord.completed(reservation.client(), reservation.estimatedTokens(),
+            reservation.promptTokens(), reservation.completionTokens()));
+    }
+
+    public QuotaProperties.Limits limits(String client) {
+        QuotaProperties.Client configured = properties.clients().get(client);
+        return configured != null ? configured.limits(properties.limits()) : properties.limits();
+    }
+
+    /**
+     * Tokens the client may use right now; negative while it pays off a long answer.
+     */
+    public long availableTokens(String client) {
+        ClientState state = states.get(client);
+        return state != null ? state.tokens.available(nanoClock.getAsLong()) : limits(client).tokensPerMinute();
+    }
+
+    private ClientState state(String client) {
+        if (!client.equals(ANONYMOUS) && !properties.clients().containsKey(client)) {
+            throw new IllegalArgumentException("Unknown client " + client);
+        }
+        return states.computeIfAbsent(client, name -> new ClientState(limits(name), nanoClock.getAsLong()));
+    }
+
+    private void reject(String client, long estimatedTokens, Counter counter) {
+        counter.increment();
+        ledger.record(UsageLedger.UsageRecord.rejected(client, estimatedTokens));
+    }
+
+    /**
+     * Whether a request path is one of the chat endpoints, which are subject to the quotas.
+     */
+    public static boolean isChatPath(String path) {
+        return path.equals("/api/chat") || path.startsWith("/api/chat/")
+            || path.equals("/api/chat-model") || path.startsWith("/api/chat-model/");
+    }
+
+    public static long retryAfterSeconds(QuotaExceededException e) {
+        return Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, QuotaExceededException.Limit limit) {
+        return Counter.builder("llm.quota.rejected")
+            .description("Requests rejected because the client's quota was used up")
+            .tag("limit", limit.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry);
+    }
+
+
+    private static final class ClientState {
+
+        final QuotaProperties.Limits limits;
+        final TokenBucket requests;
+        final TokenBucket tokens;
+
+        ClientState(QuotaProperties.Limits limits, long now) {
+            this.limits = limits;
+            this.requests = new TokenBucket(limits.requestBurst(), limits.requestsPerSecond(), now);
+            this.tokens = new TokenBucket(limits.tokensPerMinute(), limits.tokensPerMinute() / 60.0, now);
+        }
+    }
+}
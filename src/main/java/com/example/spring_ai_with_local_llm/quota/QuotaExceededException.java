@@ -0,0 +1,28 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a client has used up its request rate or token quota; answered with {@code 429}.
+ */
+public class QuotaExceededException extends RuntimeException {
+
+    public enum Limit { REQUESTS, TOKENS }
+
+    private final Limit limit;
+    private final Duration retryAfter;
+
+    public QuotaExceededException(Limit limit, Duration retryAfter, String message) {
+        super(message);
+        this.limit = limit;
+        this.retryAfter = retryAfter;
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
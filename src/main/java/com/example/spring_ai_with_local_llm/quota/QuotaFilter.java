@@ -0,0 +1,94 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the client quotas to the chat endpoints of the servlet stack. The reservation is bound
+ * to the request thread while the request is handled, and settled when the response is complete,
+ * which for streamed and batch responses is after this filter returned.
+ */
+public class QuotaFilter extends OncePerRequestFilter {
+
+    private final ClientQuotas quotas;
+    private final ObjectMapper objectMapper;
+
+    public QuotaFilter(ClientQuotas quotas, ObjectMapper objectMapper) {
+        this.quotas = quotas;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !ClientQuotas.isChatPath(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        Reservation reservation;
+        try {
+            reservation = quotas.reserve(quotas.clientOf(request.getHeader(quotas.header())),
+                quotas.estimateTokens(request.getParameter("message"), request.getContentLengthLong()));
+        } catch (QuotaExceededException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ClientQuotas.retryAfterSeconds(e)));
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+            return;
+        } catch (UnknownApiKeyException e) {
+            reject(response, HttpStatus.UNAUTHORIZED, e.getMessage());
+            return;
+        }
+        Reservation previous = Reservation.current();
+        reservation.bind();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Reservation.restore(previous);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new SettlingListener(reservation));
+            } else {
+                reservation.settle();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String detail) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ProblemDetail.forStatusAndDetail(status, detail));
+    }
+
+    private record SettlingListener(Reservation reservation) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            reservation.settle();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            reservation.settle();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            reservation.settle();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
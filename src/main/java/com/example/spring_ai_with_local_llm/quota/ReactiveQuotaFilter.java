@@ -0,0 +1,62 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies the client quotas to the chat endpoints of the reactive stack. The reservation travels
+ * in the Reactor context of the exchange and is settled once the response is complete.
+ */
+public class ReactiveQuotaFilter implements WebFilter {
+
+    private final ClientQuotas quotas;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveQuotaFilter(ClientQuotas quotas, ObjectMapper objectMapper) {
+        this.quotas = quotas;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!ClientQuotas.isChatPath(request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        Reservation reservation;
+        try {
+            reservation = quotas.reserve(quotas.clientOf(request.getHeaders().getFirst(quotas.header())),
+                quotas.estimateTokens(request.getQueryParams().getFirst("message"), request.getHeaders().getContentLength()));
+        } catch (QuotaExceededException e) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(ClientQuotas.retryAfterSeconds(e)));
+            return reject(exchange.getResponse(), HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+        } catch (UnknownApiKeyException e) {
+            return reject(exchange.getResponse(), HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+        return chain.filter(exchange)
+            .contextWrite(context -> context.put(Reservation.class, reservation))
+            .doFinally(signal -> reservation.settle());
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, HttpStatus status, String detail) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(ProblemDetail.forStatusAndDetail(status, detail));
+        } catch (JsonProcessingException ex) {
+            return Mono.error(ex);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The tokens debited from a client for one request: the estimate taken up front, and the usage
+ * the model reported. {@link #settle()} charges the difference once the request is over, so that
+ * cache hits cost nothing and long answers cost what they generated. A generation that failed or
+ * was cancelled reports no usage, though the model may have spent minutes on it; the request then
+ * pays at least the estimate.
+ * <p>
+ * The reservation of the current request is found on the request thread for blocking calls
+ * ({@link #current()}), and in the Reactor context for streams ({@link #from(ContextView)}),
+ * since a stream may be generated on another thread.
+ */
+public final class Reservation {
+
+    private static final ThreadLocal<Reservation> CURRENT = new ThreadLocal<>();
+
+    private final ClientQuotas quotas;
+    private final String client;
+    private final long estimatedTokens;
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder completionTokens = new LongAdder();
+    private final AtomicBoolean unreported = new AtomicBoolean();
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    Reservation(ClientQuotas quotas, String client, long estimatedTokens) {
+        this.quotas = quotas;
+        this.client = client;
+        this.estimatedTokens = estimatedTokens;
+    }
+
+    public String client() {
+        return client;
+    }
+
+    public long estimatedTokens() {
+        return estimatedTokens;
+    }
+
+    public long promptTokens() {
+        return promptTokens.sum();
+    }
+
+    public long completionTokens() {
+        return completionTokens.sum();
+    }
+
+    /**
+     * Adds the usage of one generation; a request may run several (e.g. batch items).
+     */
+    public void recordUsage(long prompt, long completion) {
+        promptTokens.add(prompt);
+        completionTokens.add(completion);
+    }
+
+    /**
+     * Notes a generation that reached the model but reported no usage: it failed, was cancelled
+     * or the model did not count its tokens.
+     */
+    public void recordUnreported() {
+        unreported.set(true);
+    }
+
+    /**
+     * Whether a generation of this request reported no usage.
+     */
+    public boolean hasUnreportedUsage() {
+        return unreported.get();
+    }
+
+    /**
+     * Charges the actual usage instead of the estimate and records the request in the ledger.
+     * Only the first call counts.
+     */
+    public void settle() {
+        if (settled.compareAndSet(false, true)) {
+            quotas.settle(this);
+        }
+    }
+
+    /**
+     * Makes this the current reservation of the calling thread while {@code call} runs.
+     */
+    public <T> T bind(Supplier<T> call) {
+        Reservation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    void bind() {
+        CURRENT.set(this);
+    }
+
+    static void restore(Reservation previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @return the reservation of the request the calling thread serves, or {@code null}
+     */
+    public static Reservation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the reservation of the request a stream is generated for, or {@code null}
+     */
+    public static Reservation from(ContextView context) {
+        return context.getOrDefault(Reservation.class, null);
+    }
+
+    /**
+     * Context writer handing the calling thread's reservation on to a stream subscribed later,
+     * possibly on another thread.
+     */
+    public static Function<Context, Context> captureCurrent() {
+        Reservation reservation = current();
+        return context -> reservation != null ? context.put(Reservation.class, reservation) : context;
+    }
+}
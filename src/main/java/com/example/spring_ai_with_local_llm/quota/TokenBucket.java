@@ -0,0 +1,77 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, kept as a single "theoretical arrival time" (the generic cell rate
+ * algorithm): the bucket is full when that time is not after now, and each token taken moves it
+ * {@code nanosPerToken} into the future. A request is granted if the time stays within
+ * {@code capacity} tokens of now, which is one compare-and-set instead of a lock.
+ * <p>
+ * Debits may exceed the capacity (a request that turned out more expensive than estimated); the
+ * debt is then paid off before anything else is granted. A request larger than the whole
+ * capacity is granted once the bucket is full, so that it is not refused forever.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private final AtomicLong emptyAtNanos;
+
+    /**
+     * @param capacity        tokens the bucket holds when full
+     * @param tokensPerSecond refill rate
+     */
+    public TokenBucket(long capacity, double tokensPerSecond, long now) {
+        this.capacity = Math.max(1, capacity);
+        this.nanosPerToken = Math.max(1, (long) (1e9 / tokensPerSecond));
+        this.capacityNanos = this.capacity * nanosPerToken;
+        this.emptyAtNanos = new AtomicLong(now);
+    }
+
+    /**
+     * Takes {@code tokens} if they are available.
+     *
+     * @return 0 if granted, otherwise the nanoseconds until they would be
+     */
+    public long tryAcquire(long tokens, long now) {
+        long requiredNanos = Math.min(tokens, capacity) * nanosPerToken;
+        while (true) {
+            long current = emptyAtNanos.get();
+            long base = current - now > 0 ? current : now;
+            long waitNanos = base + requiredNanos - now - capacityNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (emptyAtNanos.compareAndSet(current, base + tokens * nanosPerToken)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Takes ({@code tokens > 0}) or gives back ({@code tokens < 0}) tokens unconditionally; the
+     * bucket never holds more than its capacity.
+     */
+    public void adjust(long tokens, long now) {
+        emptyAtNanos.getAndUpdate(current -> {
+            long base = current - now > 0 ? current : now;
+            long updated = base + tokens * nanosPerToken;
+            return updated - now > 0 ? updated : now;
+        });
+    }
+
+    /**
+     * Tokens currently available; negative while in debt.
+     */
+    public long available(long now) {
+        long current = emptyAtNanos.get();
+        long used = current - now > 0 ? current - now : 0;
+        return (capacityNanos - used) / nanosPerToken;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+/**
+ * Thrown for an API key that belongs to no configured client when
+ * {@code app.quota.unknown-keys=reject}; answered with {@code 401}.
+ */
+public class UnknownApiKeyException extends RuntimeException {
+
+    public UnknownApiKeyException() {
+        super("Unknown API key");
+    }
+}
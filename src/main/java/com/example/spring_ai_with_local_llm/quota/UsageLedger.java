@@ -0,0 +1,193 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import com.example.spring_ai_with_local_llm.config.QuotaProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage per client: totals kept in memory for {@code /api/usage}, and one record per request
+ * appended to an NDJSON file. Requests only update counters and queue their record; a scheduled
+ * {@link #flush()} writes the queued records in batches, so the request path never touches the
+ * disk. The totals are restored from the file at startup.
+ */
+public class UsageLedger implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageLedger.class);
+
+    /**
+     * One request of a client; {@code rejected} requests were turned away by its quota.
+     */
+    public record UsageRecord(String client, long timestamp, boolean rejected, long estimatedTokens,
+                              long promptTokens, long completionTokens) {
+
+        static UsageRecord completed(String client, long estimatedTokens, long promptTokens, long completionTokens) {
+            return new UsageRecord(client, System.currentTimeMillis(), false, estimatedTokens, promptTokens, completionTokens);
+        }
+
+        static UsageRecord rejected(String client, long estimatedTokens) {
+            return new UsageRecord(client, System.currentTimeMillis(), true, estimatedTokens, 0, 0);
+        }
+    }
+
+    /**
+     * Totals of one client since the ledger was started (or restored from the file).
+     */
+    public record Totals(long requests, long rejected, long estimatedTokens, long promptTokens,
+                         long completionTokens, long lastRequest) {}
+
+    private final Path file;
+    private final int batchSize;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final BlockingQueue<UsageRecord> pending;
+    private final List<UsageRecord> unwritten = new ArrayList<>();
+    private final Counter dropped;
+
+    public UsageLedger(QuotaProperties.Ledger properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.file = properties.file();
+        this.batchSize = Math.max(1, properties.batchSize());
+        this.objectMapper = objectMapper;
+        this.pending = new ArrayBlockingQueue<>(Math.max(1, properties.queueCapacity()));
+        this.dropped = Counter.builder("llm.quota.ledger.dropped")
+            .description("Usage records not written because the ledger queue was full")
+            .register(meterRegistry);
+        Gauge.builder("llm.quota.ledger.pending", pending, BlockingQueue::size)
+            .description("Usage records waiting to be written")
+            .register(meterRegistry);
+        if (file != null) {
+            restore();
+        }
+    }
+
+    public void record(UsageRecord record) {
+        counters.computeIfAbsent(record.client(), client -> new Counters()).add(record);
+        if (file != null && !pending.offer(record)) {
+            // The totals are still right; only the file misses the record
+            dropped.increment();
+        }
+    }
+
+    public Map<String, Totals> totals() {
+        Map<String, Totals> totals = new TreeMap<>();
+        counters.forEach((client, counters) -> totals.put(client, counters.totals()));
+        return totals;
+    }
+
+    public Totals totals(String client) {
+        Counters clientCounters = counters.get(client);
+        return clientCounters != null ? clientCounters.totals() : null;
+    }
+
+    /**
+     * Writes the queued records, {@code batchSize} per write. Records of a failed write are kept
+     * and written first next time.
+     */
+    public synchronized void flush() {
+        if (file == null) {
+            return;
+        }
+        while (!unwritten.isEmpty() || !pending.isEmpty()) {
+            pending.drainTo(unwritten, batchSize - unwritten.size());
+            StringBuilder batch = new StringBuilder(unwritten.size() * 128);
+            try {
+                for (UsageRecord record : unwritten) {
+                    batch.append(objectMapper.writeValueAsString(record)).append('\n');
+                }
+                Files.writeString(file, batch, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                log.warn("Could not write {} usage records to {}: {}", unwritten.size(), file, e.getMessage());
+                return;
+            }
+            unwritten.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void restore() {
+        if (!Files.exists(file)) {
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create usage ledger directory for " + file, e);
+            }
+            return;
+        }
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    UsageRecord record = objectMapper.readValue(line, UsageRecord.class);
+                    counters.computeIfAbsent(record.client(), client -> new Counters()).add(record);
+                } catch (JsonProcessingException e) {
+                    // e.g. the last line of a write cut short by a crash
+                    skipped++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read usage ledger " + file, e);
+        }
+        log.info("Restored usage of {} clients from {}{}", counters.size(), file,
+            skipped > 0 ? " (" + skipped + " unreadable records skipped)" : "");
+    }
+
+    private static final class Counters {
+
+        final LongAdder requests = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder estimatedTokens = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final AtomicLong lastRequest = new AtomicLong();
+
+        void add(UsageRecord record) {
+            if (record.rejected()) {
+                rejected.increment();
+            } else {
+                requests.increment();
+                estimatedTokens.add(record.estimatedTokens());
+                promptTokens.add(record.promptTokens());
+                completionTokens.add(record.completionTokens());
+            }
+            lastRequest.accumulateAndGet(record.timestamp(), Math::max);
+        }
+
+        Totals totals() {
+            return new Totals(requests.sum(), rejected.sum(), estimatedTokens.sum(), promptTokens.sum(),
+                completionTokens.sum(), lastRequest.get());
+        }
+    }
+}
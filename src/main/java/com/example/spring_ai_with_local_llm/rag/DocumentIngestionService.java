@@ -0,0 +1,364 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import com.example.spring_ai_with_local_llm.cache.ResponseCache;
+import com.example.spring_ai_with_local_llm.config.RagProperties;
+import com.example.spring_ai_with_local_llm.dto.IngestionReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link LocalVectorStore} in step with a directory of text documents.
+ * <p>
+ * Each run hashes every file and only re-indexes new or changed ones; chunks of removed files are
+ * deleted. Chunks of all changed files are pooled into batches for the embedding model and
+ * {@code concurrency} batches are embedded at once. A manifest of the indexed files (content hash
+ * and chunk count) is saved right after the store is flushed, every few seconds and at the end,
+ * so an interrupted run resumes with the files it had not finished. Chunk ids are derived from
+ * the file and chunk number, so re-indexing a file replaces its chunks in place. A run that
+ * changes the index clears the response cache, as cached answers were given with the old context.
+ */
+public class DocumentIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentIngestionService.class);
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(10);
+
+    private final LocalVectorStore store;
+    private final ResponseCache responseCache;
+    private final RagProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TokenTextSplitter splitter;
+    private final ReentrantLock running = new ReentrantLock();
+    private final Counter chunksIndexed;
+    private long lastCheckpoint;
+
+    public DocumentIngestionService(LocalVectorStore store, ResponseCache responseCache, RagProperties properties,
+                                    ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.responseCache = responseCache;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.splitter = TokenTextSplitter.builder()
+            .withChunkSize(properties.chunkSize())
+            .withMaxNumChunks(Integer.MAX_VALUE)
+            .build();
+        this.chunksIndexed = Counter.builder("llm.rag.ingested.chunks")
+            .description("Document chunks embedded and stored")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Brings the index up to date with the documents directory.
+     *
+     * @throws ResponseStatusException {@code 409} if an ingestion is already running
+     */
+    public IngestionReport ingest() {
+        if (!running.tryLock()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Documents are already being indexed");
+        }
+        try {
+            return run();
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Scheduled variant of {@link #ingest()}: skips the run if one is in progress, and logs
+     * instead of throwing.
+     */
+    public void rescan() {
+        if (!running.tryLock()) {
+            return;
+        }
+        try {
+            IngestionReport report = run();
+            if (report.filesIndexed() > 0 || report.filesRemoved() > 0 || report.filesFailed() > 0) {
+                log.info("Re-indexed documents: {}", report);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not index documents in {}: {}", properties.documents(), e.getMessage());
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private IngestionReport run() {
+        long start = System.nanoTime();
+        Map<String, FileEntry> manifest = new ConcurrentHashMap<>(readManifest());
+        Map<String, Path> files = listFiles();
+
+        int removed = 0;
+        for (String source : List.copyOf(manifest.keySet())) {
+            if (!files.containsKey(source)) {
+                store.delete(chunkIds(source, 0, manifest.remove(source).chunks()));
+                removed++;
+            }
+        }
+
+        AtomicInteger failedFiles = new AtomicInteger();
+        List<Changed> changed = new ArrayList<>();
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            String hash;
+            try {
+                hash = hash(file.getValue());
+            } catch (UncheckedIOException e) {
+                // Deleted or unreadable since it was listed; the next run sees it again
+                log.warn("Could not read {}: {}", file.getKey(), e.getCause().getMessage());
+                failedFiles.incrementAndGet();
+                continue;
+            }
+            FileEntry previous = manifest.get(file.getKey());
+            if (previous == null || !previous.hash().equals(hash)) {
+                changed.add(new Changed(file.getKey(), file.getValue(), hash, previous != null ? previous.chunks() : 0));
+            }
+        }
+
+        AtomicInteger indexedFiles = new AtomicInteger();
+        AtomicInteger indexedChunks = new AtomicInteger();
+        lastCheckpoint = System.nanoTime();
+        Flux.fromIterable(changed)
+            .flatMap(file -> Mono.fromCallable(() -> chunk(file)).subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("Could not read {}: {}", file.source(), e.getMessage());
+                    failedFiles.incrementAndGet();
+                    return Mono.empty();
+                }), properties.concurrency())
+            .flatMapIterable(DocumentIngestionService::pieces)
+            .buffer(properties.embeddingBatch())
+            .flatMap(batch -> Mono.fromRunnable(() -> index(batch, manifest, indexedFiles, failedFiles, indexedChunks))
+                .subscribeOn(Schedulers.boundedElastic()), properties.concurrency())
+            .blockLast();
+        checkpoint(manifest, true);
+        if (removed > 0 || indexedFiles.get() > 0 || indexedChunks.get() > 0) {
+            responseCache.clear();
+        }
+
+        return new IngestionReport(files.size(), indexedFiles.get(), removed, failedFiles.get(), indexedChunks.get(),
+            Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private Chunked chunk(Changed file) throws IOException {
+        String text = Files.readString(file.path(), StandardCharsets.UTF_8);
+        List<Document> pieces = text.isBlank() ? List.of() : splitter.apply(List.of(new Document(text)));
+        List<Document> chunks = new ArrayList<>(pieces.size());
+        for (int i = 0; i < pieces.size(); i++) {
+            chunks.add(Document.builder()
+                .id(chunkId(file.source(), i))
+                .text(pieces.get(i).getText())
+                .metadata(Map.of("source", file.source(), "chunk", i))
+                .build());
+        }
+        return new Chunked(file, chunks, new AtomicInteger(Math.max(1, chunks.size())), new AtomicBoolean());
+    }
+
+    private static List<Piece> pieces(Chunked file) {
+        if (file.chunks().isEmpty()) {
+            // Nothing to embed, but the file still completes (and drops its old chunks)
+            return List.of(new Piece(file, null));
+        }
+        return file.chunks().stream().map(chunk -> new Piece(file, chunk)).toList();
+    }
+
+    /**
+     * Embeds and stores one batch, which may hold chunks of several files, and completes the
+     * files whose last chunks it held.
+     */
+    private void index(List<Piece> batch, Map<String, FileEntry> manifest, AtomicInteger indexedFiles,
+                       AtomicInteger failedFiles, AtomicInteger indexedChunks) {
+        List<Document> chunks = new ArrayList<>(batch.size());
+        Map<Chunked, Integer> piecesByFile = new LinkedHashMap<>();
+        for (Piece piece : batch) {
+            if (piece.chunk() != null) {
+                chunks.add(piece.chunk());
+            }
+            piecesByFile.merge(piece.file(), 1, Integer::sum);
+        }
+        try {
+            store.add(chunks);
+            indexedChunks.addAndGet(chunks.size());
+            chunksIndexed.increment(chunks.size());
+        } catch (RuntimeException e) {
+            for (Chunked file : piecesByFile.keySet()) {
+                if (file.failed().compareAndSet(false, true)) {
+                    log.warn("Could not index {}: {}", file.source(), e.getMessage());
+                }
+            }
+        }
+        piecesByFile.forEach((file, pieces) -> {
+            if (file.remainingPieces().addAndGet(-pieces) == 0) {
+                if (complete(file, manifest)) {
+                    indexedFiles.incrementAndGet();
+                } else {
+                    failedFiles.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Called once every chunk of a file is stored. A file with a failed batch is left out of the
+     * manifest, so the next run tries it again.
+     */
+    private boolean complete(Chunked file, Map<String, FileEntry> manifest) {
+        if (file.failed().get()) {
+            return false;
+        }
+        int chunks = file.chunks().size();
+        if (file.changed().previousChunks() > chunks) {
+            store.delete(chunkIds(file.changed().source(), chunks, file.changed().previousChunks()));
+        }
+        manifest.put(file.changed().source(), new FileEntry(file.changed().hash(), chunks));
+        checkpoint(manifest, false);
+        return true;
+    }
+
+    /**
+     * Flushes the store, then saves the manifest, so the manifest never lists chunks the store
+     * could lose.
+     */
+    private synchronized void checkpoint(Map<String, FileEntry> manifest, boolean force) {
+        if (!force && System.nanoTime() - lastCheckpoint < CHECKPOINT_INTERVAL.toNanos()) {
+            return;
+        }
+        store.flush();
+        writeManifest(new HashMap<>(manifest));
+        lastCheckpoint = System.nanoTime();
+    }
+
+    private Map<String, Path> listFiles() {
+        Path root = properties.documents();
+        if (!Files.isDirectory(root)) {
+            return Map.of();
+        }
+        Map<String, Path> files = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(Files::isRegularFile)
+                .filter(this::isIncluded)
+                .forEach(path -> files.put(root.relativize(path).toString().replace('\\', '/'), path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list documents in " + root, e);
+        }
+        return files;
+    }
+
+    private boolean isIncluded(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && properties.fileExtensions().contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private Map<String, FileEntry> readManifest() {
+        Path file = properties.indexDirectory().resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), Manifest.class).files();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+    }
+
+    private void writeManifest(Map<String, FileEntry> files) {
+        Path file = properties.indexDirectory().resolve(MANIFEST_FILE);
+        try {
+            Path temp = Files.createTempFile(properties.indexDirectory(), "manifest", ".tmp");
+            objectMapper.writeValue(temp.toFile(), new Manifest(files));
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + file, e);
+        }
+    }
+
+    static String chunkId(String source, int chunk) {
+        return UUID.nameUUIDFromBytes((source + "#" + chunk).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static List<String> chunkIds(String source, int from, int to) {
+        List<String> ids = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            ids.add(chunkId(source, i));
+        }
+        return ids;
+    }
+
+    private static String hash(Path file) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record Manifest(Map<String, FileEntry> files) {}
+
+    record FileEntry(String hash, int chunks) {}
+
+    private record Changed(String source, Path path, String hash, int previousChunks) {}
+
+    /**
+     * Identity-based, as it is a key of the pieces of a batch.
+     */
+    private record Chunked(Changed changed, List<Document> chunks, AtomicInteger remainingPieces, AtomicBoolean failed) {
+
+        String source() {
+            return changed.source();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    /**
+     * One chunk of a file on its way into an embedding batch; {@code null} for a file without any.
+     */
+    private record Piece(Chunked file, Document chunk) {}
+}
@@ -0,0 +1,534 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Approximate nearest-neighbour index over unit vectors (cosine similarity), using a hierarchical
+ * navigable small world graph. Vectors and the bottom graph layer live in memory-mapped files, so
+ * a reopened index answers queries straight away, paging data in as it is touched. The sparse
+ * upper layers and the header are kept on the heap and written on {@link #flush()}.
+ * <p>
+ * Nodes are numbered densely in insertion order. Deleting only marks a node: it is left out of
+ * results but still used to navigate the graph. Re-indexing into a fresh directory compacts.
+ * <p>
+ * Not thread-safe: writers must be serialized, and searches may only run concurrently with each
+ * other. {@link LocalVectorStore} guards the index with a read/write lock.
+ */
+public class HnswIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x484e5357;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_RECORDS = 16_384;
+    private static final int MAX_LEVEL = 16;
+    private static final int DELETED = 1;
+    static final String HEADER_FILE = "index.meta";
+
+    private static final Comparator<Neighbour> CLOSEST_FIRST = Comparator.comparingDouble(Neighbour::similarity).reversed();
+    private static final Comparator<Neighbour> FURTHEST_FIRST = Comparator.comparingDouble(Neighbour::similarity);
+
+    private final Path directory;
+    private final int dimensions;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom();
+
+    /** {@code dimensions} floats per node. */
+    private final MappedRecordFile vectors;
+    /** Per node: level, flags, layer-0 link count, then {@code maxLinks0} links. */
+    private final MappedRecordFile nodes;
+    /** Links above layer 0, by node; entry {@code l - 1} holds the count followed by the links of layer {@code l}. */
+    private final Map<Integer, int[][]> upperLinks = new HashMap<>();
+
+    private int size;
+    private int deleted;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private HnswIndex(Path directory, int dimensions, int m, int efConstruction) {
+        this.directory = directory;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxLinks0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = new MappedRecordFile(directory.resolve("vectors.bin"), dimensions * Float.BYTES, SEGMENT_RECORDS);
+        this.nodes = new MappedRecordFile(directory.resolve("graph.bin"), (3 + maxLinks0) * Integer.BYTES, SEGMENT_RECORDS);
+    }
+
+    /**
+     * Creates an empty index in {@code directory}, replacing any index there.
+     */
+    public static HnswIndex create(Path directory, int dimensions, int m, int efConstruction) {
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(HEADER_FILE));
+            Files.deleteIfExists(directory.resolve("vectors.bin"));
+            Files.deleteIfExists(directory.resolve("graph.bin"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create index in " + directory, e);
+        }
+        HnswIndex index = new HnswIndex(directory, dimensions, m, efConstruction);
+        index.flush();
+        return index;
+    }
+
+    /**
+     * Opens the index last flushed to {@code directory}, or returns {@code null} if there is none.
+     * Nodes added after the last flush are discarded.
+     */
+    public static HnswIndex open(Path directory, int efConstruction) {
+        Path header = directory.resolve(HEADER_FILE);
+        if (!Files.exists(header)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(header)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalStateException("Unsupported index format in " + directory);
+            }
+            HnswIndex index = new HnswIndex(directory, in.readInt(), in.readInt(), efConstruction);
+            index.size = in.readInt();
+            index.deleted = in.readInt();
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            int upperNodes = in.readInt();
+            for (int i = 0; i < upperNodes; i++) {
+                int node = in.readInt();
+                int[][] levels = new int[in.readInt()][];
+                for (int l = 0; l < levels.length; l++) {
+                    levels[l] = new int[1 + index.m];
+                    int count = in.readInt();
+                    levels[l][0] = count;
+                    for (int j = 1; j <= count; j++) {
+                        levels[l][j] = in.readInt();
+                    }
+                }
+                index.upperLinks.put(node, levels);
+            }
+            index.vectors.ensureCapacity(index.size);
+            index.nodes.ensureCapacity(index.size);
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read index header in " + directory, e);
+        }
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Nodes added so far, including deleted ones.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int liveSize() {
+        return size - deleted;
+    }
+
+    public boolean isDeleted(int node) {
+        return (nodes.buffer(node).getInt(nodes.offset(node) + Integer.BYTES) & DELETED) != 0;
+    }
+
+    /**
+     * Adds a vector (normalized on the way in) and returns its node number.
+     */
+    public int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        float[] unit = normalize(vector);
+        int node = size;
+        int level = randomLevel();
+        vectors.ensureCapacity(node + 1);
+        nodes.ensureCapacity(node + 1);
+        writeVector(node, unit);
+        ByteBuffer record = nodes.buffer(node);
+        int offset = nodes.offset(node);
+        record.putInt(offset, level);
+        record.putInt(offset + Integer.BYTES, 0);
+        record.putInt(offset + 2 * Integer.BYTES, 0);
+        if (level > 0) {
+            int[][] levels = new int[level][];
+            for (int l = 0; l < level; l++) {
+                levels[l] = new int[1 + m];
+            }
+            upperLinks.put(node, levels);
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            size++;
+            return node;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(unit, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Neighbour> nearest = searchLayer(unit, current, efConstruction, l, node + 1);
+            List<Neighbour> selected = selectNeighbours(nearest, m);
+            int[] links = new int[selected.size()];
+            for (int i = 0; i < links.length; i++) {
+                links[i] = selected.get(i).node();
+            }
+            setLinks(node, l, links);
+            for (Neighbour neighbour : selected) {
+                link(neighbour.node(), node, l);
+            }
+            current = nearest.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        size++;
+        return node;
+    }
+
+    /**
+     * Marks a node as deleted. It stays in the graph for navigation.
+     */
+    public void delete(int node) {
+        ByteBuffer record = nodes.buffer(node);
+        int offset = nodes.offset(node) + Integer.BYTES;
+        int flags = record.getInt(offset);
+        if ((flags & DELETED) == 0) {
+            record.putInt(offset, flags | DELETED);
+            deleted++;
+        }
+    }
+
+    /**
+     * The {@code k} live nodes most similar to {@code query} that pass {@code filter}, closest first.
+     * {@code ef} (at least {@code k}) trades speed for recall; raise it when the filter rejects many nodes.
+     */
+    public List<Neighbour> search(float[] query, int k, int ef, IntPredicate filter) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        float[] unit = normalize(query);
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(unit, current, l);
+        }
+        List<Neighbour> results = new ArrayList<>(k);
+        for (Neighbour candidate : searchLayer(unit, current, Math.max(ef, k), 0, size)) {
+            if (!isDeleted(candidate.node()) && filter.test(candidate.node())) {
+                results.add(candidate);
+                if (results.size() == k) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Writes the mapped files to disk, then the header (atomically). An index reopened after a
+     * crash comes back as of the last flush.
+     */
+    public void flush() {
+        vectors.force();
+        nodes.force();
+        try {
+            Path temp = Files.createTempFile(directory, "index", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dimensions);
+                out.writeInt(m);
+                out.writeInt(size);
+                out.writeInt(deleted);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                out.writeInt(upperLinks.size());
+                for (Map.Entry<Integer, int[][]> entry : upperLinks.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (int[] links : entry.getValue()) {
+                        out.writeInt(links[0]);
+                        for (int j = 1; j <= links[0]; j++) {
+                            out.writeInt(links[j]);
+                        }
+                    }
+                }
+            }
+            Path header = directory.resolve(HEADER_FILE);
+            try {
+                Files.move(temp, header, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, header, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write index header in " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        vectors.close();
+        nodes.close();
+    }
+
+    /**
+     * Best-first search of one layer from {@code entry}, returning up to {@code ef} nodes closest first.
+     * Links to nodes at or beyond {@code limit} are ignored: after a crash, the mapped graph may
+     * still reference nodes that were added after the last flush.
+     */
+    private List<Neighbour> searchLayer(float[] query, int entry, int ef, int level, int limit) {
+        BitSet visited = new BitSet(limit);
+        PriorityQueue<Neighbour> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Neighbour> nearest = new PriorityQueue<>(FURTHEST_FIRST);
+        Neighbour start = new Neighbour(entry, similarity(query, entry));
+        visited.set(entry);
+        candidates.add(start);
+        nearest.add(start);
+
+        while (!candidates.isEmpty()) {
+            Neighbour candidate = candidates.poll();
+            if (nearest.size() >= ef && candidate.similarity() < nearest.peek().similarity()) {
+                break;
+            }
+            int[] links = links(candidate.node(), level);
+            for (int i = 1; i <= links[0]; i++) {
+                int next = links[i];
+                if (next >= limit || visited.get(next)) {
+                    continue;
+                }
+                visited.set(next);
+                float similarity = similarity(query, next);
+                if (nearest.size() < ef || similarity > nearest.peek().similarity()) {
+                    Neighbour neighbour = new Neighbour(next, similarity);
+                    candidates.add(neighbour);
+                    nearest.add(neighbour);
+                    if (nearest.size() > ef) {
+                        nearest.poll();
+                    }
+                }
+            }
+        }
+        List<Neighbour> result = new ArrayList<>(nearest);
+        result.sort(CLOSEST_FIRST);
+        return result;
+    }
+
+    private int greedyClosest(float[] query, int entry, int level) {
+        int current = entry;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = links(current, level);
+            for (int i = 1; i <= links[0]; i++) {
+                if (links[i] >= size) {
+                    continue;
+                }
+                float similarity = similarity(query, links[i]);
+                if (similarity > best) {
+                    best = similarity;
+                    current = links[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate is kept only if it is closer to the base than to
+     * any neighbour already kept, which spreads links over different directions. Remaining slots
+     * are filled with the closest of the skipped candidates.
+     */
+    private List<Neighbour> selectNeighbours(List<Neighbour> candidates, int max) {
+        if (candidates.size() <= max) {
+            return candidates;
+        }
+        List<Neighbour> selected = new ArrayList<>(max);
+        List<float[]> selectedVectors = new ArrayList<>(max);
+        List<Neighbour> skipped = new ArrayList<>();
+        for (Neighbour candidate : candidates) {
+            if (selected.size() == max) {
+                break;
+            }
+            float[] vector = readVector(candidate.node());
+            boolean diverse = true;
+            for (float[] kept : selectedVectors) {
+                if (dot(vector, kept) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+                selectedVectors.add(vector);
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Adds a back link from {@code node} to {@code added}. A full node keeps its closest links;
+     * running the selection heuristic here as well would cost quadratic time per insert.
+     */
+    private void link(int node, int added, int level) {
+        int max = level == 0 ? maxLinks0 : m;
+        int[] links = links(node, level);
+        int count = links[0];
+        if (count < max) {
+            int[] updated = new int[count + 1];
+            System.arraycopy(links, 1, updated, 0, count);
+            updated[count] = added;
+            setLinks(node, level, updated);
+            return;
+        }
+        float[] base = readVector(node);
+        int furthest = -1;
+        float furthestSimilarity = similarity(base, added);
+        for (int i = 1; i <= count; i++) {
+            float similarity = similarity(base, links[i]);
+            if (similarity < furthestSimilarity) {
+                furthestSimilarity = similarity;
+                furthest = i;
+            }
+        }
+        if (furthest > 0) {
+            links[furthest] = added;
+            setLinks(node, level, Arrays.copyOfRange(links, 1, count + 1));
+        }
+    }
+
+    /**
+     * Links of a node at a level, as {@code [count, link...]}.
+     */
+    private int[] links(int node, int level) {
+        if (level > 0) {
+            int[][] levels = upperLinks.get(node);
+            return levels != null && level <= levels.length ? levels[level - 1] : new int[1];
+        }
+        ByteBuffer record = nodes.buffer(node);
+        int offset = nodes.offset(node) + 2 * Integer.BYTES;
+        int count = record.getInt(offset);
+        int[] links = new int[count + 1];
+        links[0] = count;
+        for (int i = 1; i <= count; i++) {
+            links[i] = record.getInt(offset + i * Integer.BYTES);
+        }
+        return links;
+    }
+
+    private void setLinks(int node, int level, int[] links) {
+        if (level > 0) {
+            int[] stored = upperLinks.get(node)[level - 1];
+            stored[0] = links.length;
+            System.arraycopy(links, 0, stored, 1, links.length);
+            return;
+        }
+        ByteBuffer record = nodes.buffer(node);
+        int offset = nodes.offset(node) + 2 * Integer.BYTES;
+        record.putInt(offset, links.length);
+        for (int i = 0; i < links.length; i++) {
+            record.putInt(offset + (i + 1) * Integer.BYTES, links[i]);
+        }
+    }
+
+    private float similarity(float[] query, int node) {
+        FloatBuffer buffer = vectors.floats(node);
+        int base = vectors.offset(node) / Float.BYTES;
+        // Four independent sums let the CPU overlap the additions
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimensions; i += 4) {
+            s0 += query[i] * buffer.get(base + i);
+            s1 += query[i + 1] * buffer.get(base + i + 1);
+            s2 += query[i + 2] * buffer.get(base + i + 2);
+            s3 += query[i + 3] * buffer.get(base + i + 3);
+        }
+        for (; i < dimensions; i++) {
+            s0 += query[i] * buffer.get(base + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private float[] readVector(int node) {
+        float[] vector = new float[dimensions];
+        vectors.floats(node).get(vectors.offset(node) / Float.BYTES, vector);
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < a.length; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private void writeVector(int node, float[] vector) {
+        vectors.floats(node).put(vectors.offset(node) / Float.BYTES, vector);
+    }
+
+    private int randomLevel() {
+        return Math.min(MAX_LEVEL, (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier));
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    /**
+     * A node and its cosine similarity to the query.
+     */
+    public record Neighbour(int node, float similarity) {}
+}
@@ -0,0 +1,353 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import com.example.spring_ai_with_local_llm.config.RagProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * {@link VectorStore} kept entirely in-process: an {@link HnswIndex} for the embeddings plus an
+ * append-only file of document texts and metadata, both under one directory. Nothing is loaded
+ * into the heap on startup except the id of every live document.
+ * <p>
+ * Adding a document with an existing id replaces it. Changes are durable once {@link #flush()}
+ * returns; a store reopened after a crash comes back as of the last flush. Filter expressions
+ * are applied to the nearest candidates, so a very selective filter may return fewer than
+ * {@code topK} documents.
+ */
+public class LocalVectorStore implements VectorStore, AutoCloseable {
+
+    private static final String DOCUMENTS_FILE = "documents.bin";
+    private static final TypeReference<Map<String, Object>> BODY = new TypeReference<>() {};
+
+    private final EmbeddingModel embeddingModel;
+    private final Path directory;
+    private final RagProperties.Index settings;
+    private final int embeddingBatch;
+    private final ObjectMapper objectMapper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Timer searchTimer;
+
+    private final FileChannel documents;
+    /** Start of each node's record in the documents file; node {@code i}'s record ends where {@code i + 1}'s starts. */
+    private long[] offsets = new long[1024];
+    private long documentsEnd;
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    /** Created with the first document, once the embedding dimensions are known. */
+    private HnswIndex index;
+
+    public LocalVectorStore(EmbeddingModel embeddingModel, Path directory, RagProperties.Index settings,
+                            int embeddingBatch, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.directory = directory;
+        this.settings = settings;
+        this.embeddingBatch = embeddingBatch;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+            this.documents = FileChannel.open(directory.resolve(DOCUMENTS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.index = HnswIndex.open(directory, settings.efConstruction());
+            loadIds(index != null ? index.size() : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open vector store in " + directory, e);
+        }
+
+        this.searchTimer = Timer.builder("llm.rag.search")
+            .description("Vector index lookups, excluding the query embedding")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge.builder("llm.rag.documents", this, LocalVectorStore::size)
+            .description("Chunks in the local vector store")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Embeds the documents, {@code embeddingBatch} per request to the model, and indexes them.
+     * Embedding happens outside the lock, so concurrent callers embed in parallel.
+     */
+    @Override
+    public void add(List<Document> documents) {
+        for (int from = 0; from < documents.size(); from += embeddingBatch) {
+            List<Document> batch = documents.subList(from, Math.min(documents.size(), from + embeddingBatch));
+            List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getText).toList());
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    put(batch.get(i), embeddings.get(i));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void delete(List<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer node = nodesById.remove(id);
+                if (node != null) {
+                    index.delete(node);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = compile(filterExpression);
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Integer> entry : List.copyOf(nodesById.entrySet())) {
+                if (filter.test(read(entry.getValue(), 0).getMetadata())) {
+                    nodesById.remove(entry.getKey());
+                    index.delete(entry.getValue());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] query = embeddingModel.embed(request.getQuery());
+        Predicate<Map<String, Object>> filter = request.hasFilterExpression() ? compile(request.getFilterExpression()) : null;
+        int topK = request.getTopK();
+        // A filter is checked on the candidates, so look at more of them
+        int ef = Math.max(settings.efSearch(), topK) * (filter != null ? 4 : 1);
+
+        lock.readLock().lock();
+        long start = System.nanoTime();
+        try {
+            if (index == null) {
+                return List.of();
+            }
+            List<Document> results = new ArrayList<>(topK);
+            for (HnswIndex.Neighbour neighbour : index.search(query, filter != null ? ef : topK, ef, node -> true)) {
+                if (neighbour.similarity() < request.getSimilarityThreshold()) {
+                    break;
+                }
+                Document document = read(neighbour.node(), neighbour.similarity());
+                if (filter == null || filter.test(document.getMetadata())) {
+                    results.add(document);
+                    if (results.size() == topK) {
+                        break;
+                    }
+                }
+            }
+            return results;
+        } finally {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live (not deleted) documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes every change so far durable.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            documents.force(false);
+            if (index != null) {
+                index.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot flush vector store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                index.close();
+            }
+            documents.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Document document, float[] embedding) {
+        if (index == null) {
+            index = HnswIndex.create(directory, embedding.length, settings.m(), settings.efConstruction());
+        }
+        // Checked before the record is written: record i must belong to node i
+        if (embedding.length != index.dimensions()) {
+            throw new IllegalArgumentException("The index holds vectors of " + index.dimensions()
+                + " dimensions but the embedding model returned " + embedding.length
+                + "; delete " + directory + " to re-index with the new model");
+        }
+        long offset = documentsEnd;
+        try {
+            byte[] id = document.getId().getBytes(StandardCharsets.UTF_8);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("text", document.getText());
+            body.put("metadata", document.getMetadata());
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + id.length + json.length);
+            record.putInt(Integer.BYTES + id.length + json.length).putInt(id.length).put(id).put(json).flip();
+            while (record.hasRemaining()) {
+                documentsEnd += documents.write(record, documentsEnd);
+            }
+        } catch (IOException e) {
+            truncateDocuments(offset);
+            throw new UncheckedIOException("Cannot write document " + document.getId(), e);
+        }
+        // Written before the node exists, so a flushed node always has its document
+        int node;
+        try {
+            node = index.add(embedding);
+        } catch (RuntimeException e) {
+            truncateDocuments(offset);
+            throw e;
+        }
+        if (node >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[node] = offset;
+        Integer previous = nodesById.put(document.getId(), node);
+        if (previous != null) {
+            index.delete(previous);
+        }
+    }
+
+    /**
+     * Drops a record that has no node, so that the records keep matching the nodes.
+     */
+    private void truncateDocuments(long end) {
+        documentsEnd = end;
+        try {
+            documents.truncate(end);
+        } catch (IOException e) {
+            // The next record overwrites it, and a restart drops records past the last node
+        }
+    }
+
+    private Document read(int node, float similarity) {
+        long start = offsets[node];
+        long end = node + 1 < index.size() ? offsets[node + 1] : documentsEnd;
+        ByteBuffer record = ByteBuffer.allocate((int) (end - start));
+        try {
+            while (record.hasRemaining()) {
+                if (documents.read(record, start + record.position()) < 0) {
+                    throw new EOFException("Truncated document record for node " + node);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        record.flip();
+        record.getInt();
+        byte[] id = new byte[record.getInt()];
+        record.get(id);
+        try {
+            Map<String, Object> body = objectMapper.readValue(record.array(), record.position(), record.remaining(), BODY);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> metadata = (Map<String, Object>) body.get("metadata");
+            return Document.builder()
+                .id(new String(id, StandardCharsets.UTF_8))
+                .text((String) body.get("text"))
+                .metadata(metadata != null ? metadata : Map.of())
+                .score((double) similarity)
+                .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read document of node " + node, e);
+        }
+    }
+
+    /**
+     * Rebuilds the id lookup from the documents file, reading only ids, and drops records written
+     * after the index was last flushed.
+     */
+    private void loadIds(int nodes) throws IOException {
+        offsets = new long[Math.max(1024, Integer.highestOneBit(Math.max(1, nodes)) * 2)];
+        long position = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(documents.position(0)), 1 << 16));
+        for (int node = 0; node < nodes; node++) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                throw new IllegalStateException("Vector store in " + directory + " is missing documents; delete it to re-index");
+            }
+            byte[] id = new byte[in.readInt()];
+            in.readFully(id);
+            in.skipNBytes(length - Integer.BYTES - id.length);
+            offsets[node] = position;
+            position += Integer.BYTES + length;
+            if (!index.isDeleted(node)) {
+                nodesById.put(new String(id, StandardCharsets.UTF_8), node);
+            }
+        }
+        documents.truncate(position);
+        documentsEnd = position;
+    }
+
+    private static Predicate<Map<String, Object>> compile(Filter.Expression filterExpression) {
+        Expression expression = new SpelExpressionParser()
+            .parseExpression(new SimpleVectorStoreFilterExpressionConverter().convertExpression(filterExpression));
+        return metadata -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", metadata);
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file of fixed-size records, memory-mapped one segment at a time. Segments are mapped on
+ * demand, so the file grows without remapping what is already there and can exceed the 2 GB
+ * limit of a single mapping. Reads after open touch only the pages they need; nothing is loaded
+ * up front.
+ */
+final class MappedRecordFile implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final int recordsPerSegment;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final List<FloatBuffer> floatSegments = new ArrayList<>();
+
+    MappedRecordFile(Path file, int recordSize, int recordsPerSegment) {
+        this.recordSize = recordSize;
+        this.recordsPerSegment = recordsPerSegment;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + file, e);
+        }
+    }
+
+    /**
+     * Maps (and so extends the file to) enough segments for {@code records} records. Mapping is
+     * not thread-safe; callers only grow the file while holding their write lock, and map what
+     * already exists before the first read.
+     */
+    void ensureCapacity(int records) {
+        int needed = (records + recordsPerSegment - 1) / recordsPerSegment;
+        try {
+            while (segments.size() < needed) {
+                long position = (long) segments.size() * recordsPerSegment * recordSize;
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) recordsPerSegment * recordSize);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                segments.add(mapped);
+                floatSegments.add(mapped.asFloatBuffer());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map " + records + " records", e);
+        }
+    }
+
+    /**
+     * The buffer holding a record, addressed within it by {@link #offset}.
+     */
+    ByteBuffer buffer(int record) {
+        return segments.get(record / recordsPerSegment);
+    }
+
+    /**
+     * The segment holding a record viewed as floats, for records made of floats only; the record
+     * starts at float index {@code offset(record) / Float.BYTES}.
+     */
+    FloatBuffer floats(int record) {
+        return floatSegments.get(record / recordsPerSegment);
+    }
+
+    int offset(int record) {
+        return (record % recordsPerSegment) * recordSize;
+    }
+
+    /**
+     * Writes modified pages to disk.
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
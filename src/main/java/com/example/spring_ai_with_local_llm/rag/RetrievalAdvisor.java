@@ -0,0 +1,121 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Adds the chunks most similar to the user's message to the prompt. The context is appended to
+ * the user message rather than the system prompt, so the system prompt stays identical between
+ * requests. Retrieval gets a latency budget: if the search (including embedding the question) is
+ * slower, or fails, the question is answered without context rather than delayed.
+ */
+public class RetrievalAdvisor implements BaseAdvisor {
+
+    /** Request/response context key holding the retrieved documents. */
+    public static final String RETRIEVED_DOCUMENTS = "rag_retrieved_documents";
+
+    private static final Logger log = LoggerFactory.getLogger(RetrievalAdvisor.class);
+
+    private final VectorStore vectorStore;
+    private final int topK;
+    private final double minSimilarity;
+    private final Duration latencyBudget;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+
+    public RetrievalAdvisor(VectorStore vectorStore, int topK, double minSimilarity, Duration latencyBudget,
+                            Executor executor, MeterRegistry meterRegistry) {
+        this.vectorStore = vectorStore;
+        this.topK = topK;
+        this.minSimilarity = minSimilarity;
+        this.latencyBudget = latencyBudget;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+        UserMessage userMessage = request.prompt().getUserMessage();
+        if (userMessage == null || userMessage.getText() == null || userMessage.getText().isBlank()) {
+            return request;
+        }
+        SearchRequest search = SearchRequest.builder()
+            .query(userMessage.getText())
+            .topK(topK)
+            .similarityThreshold(minSimilarity)
+            .build();
+
+        long start = System.nanoTime();
+        CompletableFuture<List<Document>> retrieval = CompletableFuture.supplyAsync(() -> vectorStore.similaritySearch(search), executor);
+        List<Document> documents;
+        try {
+            documents = retrieval.get(latencyBudget.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            retrieval.cancel(true);
+            record("timeout", start);
+            return request;
+        } catch (ExecutionException e) {
+            log.warn("Document retrieval failed, answering without context: {}", e.getCause().getMessage());
+            record("error", start);
+            return request;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return request;
+        }
+        record(documents.isEmpty() ? "miss" : "hit", start);
+        if (documents.isEmpty()) {
+            return request;
+        }
+        return request.mutate()
+            .prompt(request.prompt().augmentUserMessage(message -> message.mutate()
+                .text(message.getText() + "\n\n" + context(documents))
+                .build()))
+            .context(RETRIEVED_DOCUMENTS, documents)
+            .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    private void record(String outcome, long start) {
+        Timer.builder("llm.rag.retrieval")
+            .description("Retrieval of document context for a prompt, including embedding the question")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static String context(List<Document> documents) {
+        StringBuilder context = new StringBuilder("Use the following excerpts from our documents if they are relevant:");
+        for (Document document : documents) {
+            context.append("\n\n[").append(document.getMetadata().getOrDefault("source", document.getId())).append("]\n")
+                .append(document.getText());
+        }
+        return context.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.spring_ai_with_local_llm.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends the exchanges with Ollama to a recording file, one JSON line each, gzip-compressed if
+ * the file name ends in {@code .gz}. Exchanges are written by a single background thread once
+ * their response is complete, so neither the request threads nor the event loop touch the disk;
+ * cancelled responses are not recorded.
+ */
+public class OllamaRecorder implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaRecorder.class);
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "ollama-recorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OllamaRecorder(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            OutputStream stream = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            // Each flush completes a gzip block, so the file stays readable if the application stops
+            this.out = isGzip(file) ? new GZIPOutputStream(stream, true) : stream;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the Ollama recording " + file, e);
+        }
+        log.info("Recording Ollama exchanges to {}", file);
+    }
+
+    /**
+     * Starts recording the response to a request.
+     *
+     * @param startNanos when the request was sent
+     */
+    public Recording start(String method, String path, byte[] requestBody, int status, String contentType,
+                           long startNanos) {
+        return new Recording(method, path, requestBody, status, contentType, startNanos);
+    }
+
+    /**
+     * Reads all exchanges of a recording file.
+     */
+    public static List<RecordedExchange> read(Path file, ObjectMapper objectMapper) throws IOException {
+        List<RecordedExchange> exchanges = new ArrayList<>();
+        try (InputStream stream = Files.newInputStream(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                 isGzip(file) ? new GZIPInputStream(stream) : stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    exchanges.add(objectMapper.readValue(line, RecordedExchange.class));
+                }
+            }
+        } catch (EOFException e) {
+            // The last block of a recording that was not closed; the exchanges before it are complete
+            log.warn("Recording {} ends in an incomplete block; read {} exchanges", file, exchanges.size());
+        }
+        return exchanges;
+    }
+
+    private static boolean isGzip(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    private void write(Recording recording) {
+        writer.execute(() -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(recording.toExchange()));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                log.warn("Could not record an exchange with {} to {}: {}", recording.path, file, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Exchanges still being recorded to {} are lost", file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Could not close the Ollama recording {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * The response to one request while it arrives. The body is split into lines, each recorded
+     * with the time it took to complete, so playback reproduces the pace of the stream.
+     * Not thread-safe: the chunks of a response arrive one after the other.
+     */
+    public final class Recording {
+
+        private final String method;
+        private final String path;
+        private final byte[] requestBody;
+        private final int status;
+        private final String contentType;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final List<RecordedExchange.Chunk> chunks = new ArrayList<>();
+        private long lastNanos;
+
+        private Recording(String method, String path, byte[] requestBody, int status, String contentType,
+                          long startNanos) {
+            this.method = method;
+            this.path = path;
+            this.requestBody = requestBody;
+            this.status = status;
+            this.contentType = contentType;
+            this.lastNanos = startNanos;
+        }
+
+        public void accept(byte[] bytes, int offset, int length) {
+            int start = offset;
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] == '\n') {
+                    line.write(bytes, start, i + 1 - start);
+                    completeLine();
+                    start = i + 1;
+                }
+            }
+            line.write(bytes, start, offset + length - start);
+        }
+
+        /**
+         * Records the exchange once the whole response arrived.
+         */
+        public void finish() {
+            if (line.size() > 0) {
+                completeLine();
+            }
+            write(this);
+        }
+
+        private RecordedExchange toExchange() {
+            String model = null;
+            boolean stream = false;
+            try {
+                JsonNode request = requestBody.length > 0 ? objectMapper.readTree(requestBody) : null;
+                if (request != null && request.isObject()) {
+                    model = request.path("model").asText(null);
+                    stream = request.path("stream").asBoolean(false);
+                }
+            } catch (IOException e) {
+                // Not JSON: recorded without model
+            }
+            return new RecordedExchange(method, path, RecordedExchange.key(path, requestBody),
+                RecordedExchange.shape(path, requestBody), model, stream, status, contentType, chunks);
+        }
+
+        private void completeLine() {
+            long now = System.nanoTime();
+            chunks.add(new RecordedExchange.Chunk(TimeUnit.NANOSECONDS.toMicros(now - lastNanos),
+                line.toString(StandardCharsets.UTF_8)));
+            line.reset();
+            lastNanos = now;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.spring_ai_with_local_llm.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for Ollama by replaying recorded exchanges over HTTP, chunk by chunk at the recorded
+ * pace (scaled by {@code timeScale}). The application talks to it as to Ollama, so its clients,
+ * routing, streaming and tool loop run as they would against the real one.
+ * <p>
+ * A request is answered with the recorded exchange of the same request, else with one of the same
+ * request up to its numbers (timestamps in prompts and tool results). Unless {@code strict}, any
+ * other request gets the recorded responses of the same path and stream mode in turn. Requests
+ * with several matches get them in turn as well. Model management requests without a recording
+ * ({@code /api/tags}, {@code /api/ps}, {@code /api/pull}, loading a model) are answered as Ollama
+ * would for the recorded models, so warm-up and health checks pass.
+ */
+public class OllamaReplayServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaReplayServer.class);
+
+    public static final String THREAD_NAME_PREFIX = "ollama-replay-";
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper;
+    private final double timeScale;
+    private final boolean strict;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Candidates> byKey = new LinkedHashMap<>();
+    private final Map<String, Candidates> byShape = new LinkedHashMap<>();
+    private final Map<String, Candidates> byPath = new LinkedHashMap<>();
+    private final Set<String> models = new TreeSet<>();
+
+    /**
+     * @param timeScale factor applied to the recorded delays: {@code 1} replays at the original
+     *                  pace, {@code 0.5} twice as fast, {@code 0} without waiting
+     * @param strict    whether requests without a recording of their own are answered {@code 404}
+     */
+    public OllamaReplayServer(List<RecordedExchange> exchanges, double timeScale, boolean strict,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.timeScale = Math.max(0, timeScale);
+        this.strict = strict;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        for (RecordedExchange exchange : exchanges) {
+            byKey.computeIfAbsent(exchange.key(), key -> new Candidates()).add(exchange);
+            byShape.computeIfAbsent(exchange.shape(), shape -> new Candidates()).add(exchange);
+            byPath.computeIfAbsent(pathKey(exchange.method(), exchange.path(), exchange.stream()), path -> new Candidates())
+                .add(exchange);
+            if (exchange.model() != null) {
+                models.add(exchange.model());
+            }
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 2048);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start the Ollama replay server", e);
+        }
+        // Platform threads, as for the test stub: the JDK HttpServer stalls reading request
+        // bodies on virtual threads when the JVM has a single carrier
+        AtomicInteger threadIds = new AtomicInteger();
+        server.setExecutor(Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, THREAD_NAME_PREFIX + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("Replaying {} recorded Ollama exchanges of {} on {}", exchanges.size(), models, baseUrl());
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            JsonNode request = parse(body);
+
+            RecordedExchange recorded = next(byKey.get(RecordedExchange.key(path, body)), "exact");
+            if (recorded == null) {
+                recorded = next(byShape.get(RecordedExchange.shape(path, body)), "shape");
+            }
+            if (recorded == null && !strict && !isModelLoad(path, request)) {
+                recorded = next(byPath.get(pathKey(method, path, request.path("stream").asBoolean(false))), "path");
+            }
+            if (recorded != null) {
+                replay(exchange, recorded);
+            } else {
+                answerUnrecorded(exchange, method, path, request);
+            }
+        } catch (IOException e) {
+            // The client went away mid-stream
+            log.debug("Replay to {} cut short: {}", exchange.getRemoteAddress(), e.getMessage());
+        }
+    }
+
+    private RecordedExchange next(Candidates candidates, String match) {
+        if (candidates == null) {
+            return null;
+        }
+        count(match);
+        return candidates.next();
+    }
+
+    private void replay(HttpExchange exchange, RecordedExchange recorded) throws IOException {
+        List<RecordedExchange.Chunk> chunks = recorded.chunks();
+        if (!chunks.isEmpty()) {
+            sleep(chunks.getFirst().delayMicros());
+        }
+        if (recorded.contentType() != null) {
+            exchange.getResponseHeaders().add("Content-Type", recorded.contentType());
+        }
+        if (chunks.size() == 1) {
+            byte[] bytes = chunks.getFirst().data().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(recorded.status(), bytes.length);
+            exchange.getResponseBody().write(bytes);
+            return;
+        }
+        exchange.sendResponseHeaders(recorded.status(), chunks.isEmpty() ? -1 : 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i > 0) {
+                sleep(chunks.get(i).delayMicros());
+            }
+            out.write(chunks.get(i).data().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private void answerUnrecorded(HttpExchange exchange, String method, String path, JsonNode request) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        if (path.equals("/api/tags") || path.equals("/api/ps")) {
+            ArrayNode list = response.putArray("models");
+            models.forEach(model -> list.addObject().put("name", model).put("model", model));
+        } else if (path.equals("/api/pull")) {
+            response.put("status", "success");
+        } else if (isModelLoad(path, request)) {
+            response.put("model", request.path("model").asText())
+                .put("created_at", "1970-01-01T00:00:00Z")
+                .put("done", true)
+                .put("done_reason", "load")
+                .putObject("message").put("role", "assistant").put("content", "");
+        } else {
+            count("none");
+            respond(exchange, 404, objectMapper.createObjectNode()
+                .put("error", "No recorded exchange for " + method + " " + path));
+            return;
+        }
+        respond(exchange, 200, response);
+    }
+
+    /**
+     * A chat request without messages only loads the model or keeps it loaded.
+     */
+    private static boolean isModelLoad(String path, JsonNode request) {
+        return path.equals("/api/chat") && request.path("messages").isEmpty();
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private JsonNode parse(byte[] body) {
+        try {
+            JsonNode request = body.length > 0 ? objectMapper.readTree(body) : null;
+            return request != null ? request : objectMapper.createObjectNode();
+        } catch (IOException e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    private void count(String match) {
+        Counter.builder("llm.replay.requests")
+            .description("Requests answered by the Ollama replay server, by how they matched a recording")
+            .tag("match", match)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private void sleep(long recordedMicros) {
+        long nanos = (long) (recordedMicros * 1000 * timeScale);
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String pathKey(String method, String path, boolean stream) {
+        return method + " " + path + (stream ? " stream" : "");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Recorded exchanges matching a request, handed out in turn.
+     */
+    private static final class Candidates {
+
+        private final List<RecordedExchange> exchanges = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        void add(RecordedExchange exchange) {
+            exchanges.add(Objects.requireNonNull(exchange));
+        }
+
+        RecordedExchange next() {
+            return exchanges.get(Math.floorMod(next.getAndIncrement(), exchanges.size()));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.spring_ai_with_local_llm.replay;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * One request to Ollama and its response, as recorded: one line of a recording file.
+ * The request itself is not kept, only hashes of it to find the exchange again on playback.
+ *
+ * @param method      HTTP method
+ * @param path        request path, e.g. {@code /api/chat}
+ * @param key         hash of the request body, see {@link #key(String, byte[])}
+ * @param shape       hash of the request body with numbers masked, see {@link #shape(String, byte[])}
+ * @param model       model requested, if any
+ * @param stream      whether a streamed response was requested
+ * @param status      HTTP status of the response
+ * @param contentType content type of the response
+ * @param chunks      the response body, one chunk per NDJSON line as it arrived
+ */
+public record RecordedExchange(String method, String path, String key, String shape, String model, boolean stream,
+                               int status, String contentType, List<Chunk> chunks) {
+
+    /**
+     * @param delayMicros time since the previous chunk, or since the request for the first one
+     * @param data        the chunk, including its line break
+     */
+    public record Chunk(long delayMicros, String data) {}
+
+    public RecordedExchange {
+        chunks = chunks != null ? List.copyOf(chunks) : List.of();
+    }
+
+    /**
+     * Identifies the exact request.
+     */
+    public static String key(String path, byte[] body) {
+        return hash(path, body);
+    }
+
+    /**
+     * Identifies the request up to its numbers, so that a request whose prompt carries the current
+     * time or a tool result with a timestamp still matches the recorded one.
+     */
+    public static String shape(String path, byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        return hash(path, text.replaceAll("[0-9]+", "#").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hash(String path, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(body);
+            // 128 bits are plenty to tell the requests of a recording apart
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
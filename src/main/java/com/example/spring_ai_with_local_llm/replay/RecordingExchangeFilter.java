@@ -0,0 +1,70 @@
+package com.example.spring_ai_with_local_llm.replay;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Records the streamed exchanges of a {@code WebClient} with the {@link OllamaRecorder}. The
+ * request body is copied as it is written and the response body as it is read, so the stream
+ * reaches the caller without delay.
+ */
+public class RecordingExchangeFilter implements ExchangeFilterFunction {
+
+    private final OllamaRecorder recorder;
+
+    public RecordingExchangeFilter(OllamaRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+        ClientRequest copying = ClientRequest.from(request)
+            .body((outputMessage, context) -> request.body().insert(new ClientHttpRequestDecorator(outputMessage) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    return super.writeWith(Flux.from(body).doOnNext(buffer -> copy(buffer, requestBody)));
+                }
+            }, context))
+            .build();
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return next.exchange(copying).map(response -> {
+                OllamaRecorder.Recording recording = recorder.start(request.method().name(), request.url().getPath(),
+                    requestBody.toByteArray(), response.statusCode().value(),
+                    response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_TYPE), start);
+                return response.mutate()
+                    .body(body -> body
+                        .doOnNext(buffer -> {
+                            byte[] bytes = bytes(buffer);
+                            recording.accept(bytes, 0, bytes.length);
+                        })
+                        .doOnComplete(recording::finish))
+                    .build();
+            });
+        });
+    }
+
+    private static void copy(DataBuffer buffer, ByteArrayOutputStream out) {
+        byte[] bytes = bytes(buffer);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /** The readable bytes of {@code buffer}, which is left as it is. */
+    private static byte[] bytes(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, bytes.length);
+        return bytes;
+    }
+}
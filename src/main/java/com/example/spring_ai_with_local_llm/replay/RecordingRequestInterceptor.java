@@ -0,0 +1,66 @@
+package com.example.spring_ai_with_local_llm.replay;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Records the blocking exchanges of a {@code RestClient} with the {@link OllamaRecorder}. These
+ * answers are not streamed, so the response is read at once and handed on from memory.
+ */
+public class RecordingRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final OllamaRecorder recorder;
+
+    public RecordingRequestInterceptor(OllamaRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        long start = System.nanoTime();
+        ClientHttpResponse response = execution.execute(request, body);
+        byte[] responseBody = response.getBody().readAllBytes();
+        OllamaRecorder.Recording recording = recorder.start(request.getMethod().name(), request.getURI().getPath(),
+            body, response.getStatusCode().value(), response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE), start);
+        recording.accept(responseBody, 0, responseBody.length);
+        recording.finish();
+        return new BufferedResponse(response, responseBody);
+    }
+
+    private record BufferedResponse(ClientHttpResponse response, byte[] body) implements ClientHttpResponse {
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.spring_ai_with_local_llm.service;
+
+import com.example.spring_ai_with_local_llm.backend.AdmissionRejectedException;
+import com.example.spring_ai_with_local_llm.config.BatchProperties;
+import com.example.spring_ai_with_local_llm.dto.BatchChatResult;
+import com.example.spring_ai_with_local_llm.dto.ChatRequest;
+import com.example.spring_ai_with_local_llm.quota.Reservation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs a batch of chat requests concurrently, up to {@code app.batch.max-concurrency} at a time,
+ * and emits each result as soon as it is ready (so out of order). A failed item yields an
+ * {@code error} result instead of failing the batch. Items go through the same cache, coalescing
+ * and admission control as single requests, at batch priority since they run outside the request
+ * thread.
+ */
+@Service
+public class BatchChatService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchChatService.class);
+
+    private final ChatModelService chatModelService;
+    private final BatchProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public BatchChatService(ChatModelService chatModelService, BatchProperties properties, ObjectMapper objectMapper) {
+        this.chatModelService = chatModelService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    public Flux<BatchChatResult> chat(List<ChatRequest> requests) {
+        checkSize(requests.size());
+        return Flux.range(0, requests.size())
+            .flatMap(id -> chat(id, requests.get(id)), properties.maxConcurrency());
+    }
+
+    /**
+     * Same as {@link #chat(List)} for an NDJSON upload: one {@link ChatRequest} per non-blank line.
+     * A line that is not valid JSON yields an {@code error} result for that line only.
+     */
+    public Flux<BatchChatResult> chatNdjson(String body) {
+        List<String> lines = body.lines().filter(line -> !line.isBlank()).toList();
+        checkSize(lines.size());
+        return Flux.range(0, lines.size())
+            .flatMap(id -> {
+                ChatRequest request;
+                try {
+                    request = objectMapper.readValue(lines.get(id), ChatRequest.class);
+                } catch (JsonProcessingException e) {
+                    return Mono.just(BatchChatResult.error(id, "Invalid JSON: " + e.getOriginalMessage()));
+                }
+                return chat(id, request);
+            }, properties.maxConcurrency());
+    }
+
+    private void checkSize(int items) {
+        if (items > properties.maxItems()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Batch has " + items + " items, at most " + properties.maxItems() + " are allowed");
+        }
+    }
+
+    private Mono<BatchChatResult> chat(int id, ChatRequest request) {
+        if (request == null || request.message() == null || request.message().isBlank()) {
+            return Mono.just(BatchChatResult.error(id, "message is required"));
+        }
+        return Mono.deferContextual(context -> {
+                // Items run off the request thread; their usage counts towards the batch request's quota
+                Reservation reservation = Reservation.from(context);
+                return Mono.fromCallable(() -> reservation != null
+                    ? reservation.bind(() -> chatModelService.chat(request.message(), request.conversationId()))
+                    : chatModelService.chat(request.message(), request.conversationId()));
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            // Rejections are about our own queue, not the item, so give them another chance
+            .retryWhen(Retry.backoff(properties.maxAdmissionRetries(), Duration.ofSeconds(1))
+                .filter(AdmissionRejectedException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+            .map(response -> BatchChatResult.ok(id, response))
+            .onErrorResume(e -> {
+                log.debug("Batch item {} failed", id, e);
+                return Mono.just(BatchChatResult.error(id, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            });
+    }
+}
@@ -1,68 +1,302 @@
 package com.example.spring_ai_with_local_llm.service;
 
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.backend.Priority;
+import com.example.spring_ai_with_local_llm.cache.RequestCoalescer;
+import com.example.spring_ai_with_local_llm.cache.ResponseCache;
+import com.example.spring_ai_with_local_llm.cache.ResponseCacheKey;
 import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatStreamEvent;
+import com.example.spring_ai_with_local_llm.dto.PromptCompression;
 import com.example.spring_ai_with_local_llm.function.DateTimeFunction;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.CompressedMessage;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import com.example.spring_ai_with_local_llm.quota.Reservation;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Service
 public class ChatModelService {
 
+    /**
+     * Cache scope of the answers with date/time context. There is no system prompt to tell them
+     * apart from other time-sensitive answers, so they are scoped to their endpoint.
+     */
+    private static final String WITH_FUNCTIONS_ENDPOINT = "/api/chat-model/with-functions";
+
     private final ChatModel chatModel;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final GenerationScheduler scheduler;
+    private final LlmMetrics metrics;
+    private final ChatMemory chatMemory;
+    private final PromptCompressor promptCompressor;
 
-    public ChatModelService(ChatModel chatModel) {
+    public ChatModelService(ChatModel chatModel, ResponseCache responseCache, RequestCoalescer requestCoalescer,
+                            GenerationScheduler scheduler, LlmMetrics metrics, ChatMemory chatMemory,
+                            PromptCompressor promptCompressor) {
         this.chatModel = chatModel;
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.chatMemory = chatMemory;
+        this.promptCompressor = promptCompressor;
     }
 
     public ChatModelResponse chat(String message) {
-        Prompt prompt = new Prompt(new UserMessage(message));
-        ChatResponse response = chatModel.call(prompt);
-        
-        String content = response.getResult().getOutput().getText();
-        String model = response.getMetadata().getModel();
-        Long tokens = response.getMetadata().getUsage() != null ? 
-            response.getMetadata().getUsage().getTotalTokens() : 0L;
-        
-        return new ChatModelResponse(content, model, tokens);
+        return chat(message, null);
+    }
+
+    public ChatModelResponse chat(String message, String conversationId) {
+        Priority priority = Priority.fromCurrentRequest();
+        if (conversationId != null) {
+            return converse("/api/chat-model", priority, conversationId, message, UnaryOperator.identity());
+        }
+        // Compressed only on a cache miss; the key is the message as received
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), null, message, false);
+        return responseCache.getOrCompute(key, () -> requestCoalescer.call(key,
+            () -> call("/api/chat-model", key.model(), priority, promptCompressor.compress(message, key.model()))));
     }
 
     public ChatModelResponse chatWithFunctions(String message) {
+        return chatWithFunctions(message, null);
+    }
+
+    public ChatModelResponse chatWithFunctions(String message, String conversationId) {
         // Note: Function calling with ChatModel directly requires more complex setup
         // For now, this will work the same as regular chat
         // To enable function calling with Ollama, you need models that support it (like mistral, llama3.1, etc.)
+        // The answer depends on the current time, so it is cached under the short time-sensitive TTL.
+        Priority priority = Priority.fromCurrentRequest();
+        if (conversationId != null) {
+            return converse(WITH_FUNCTIONS_ENDPOINT, priority, conversationId, message, ChatModelService::withDateTime);
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), WITH_FUNCTIONS_ENDPOINT, message, true);
+        return responseCache.getOrCompute(key, () -> requestCoalescer.call(key,
+            () -> call(WITH_FUNCTIONS_ENDPOINT, key.model(), priority,
+                promptCompressor.compress(message, key.model()).map(ChatModelService::withDateTime))));
+    }
+
+    /**
+     * Non-blocking variant of {@link #chat(String, String)} for the reactive API. The answer is
+     * streamed from Ollama and collected, so no thread waits for the model; the cache, coalescing
+     * and admission control apply as for blocking requests.
+     */
+    public Mono<ChatModelResponse> chatReactive(String message, String conversationId, Priority priority) {
+        if (conversationId != null) {
+            return converseReactive("/api/chat-model", priority, conversationId, message, UnaryOperator.identity());
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), null, message, false);
+        return responseCache.getOrCompute(key, requestCoalescer.call(key,
+            promptCompressor.compressReactive(message, key.model(), List.of())
+                .flatMap(compressed -> generate("/api/chat-model", key.model(), priority, compressed))));
+    }
+
+    /**
+     * Non-blocking variant of {@link #chatWithFunctions(String, String)}.
+     */
+    public Mono<ChatModelResponse> chatWithFunctionsReactive(String message, String conversationId, Priority priority) {
+        if (conversationId != null) {
+            return converseReactive(WITH_FUNCTIONS_ENDPOINT, priority, conversationId, message, ChatModelService::withDateTime);
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), WITH_FUNCTIONS_ENDPOINT, message, true);
+        return responseCache.getOrCompute(key, requestCoalescer.call(key,
+            promptCompressor.compressReactive(message, key.model(), List.of())
+                .flatMap(compressed -> generate(WITH_FUNCTIONS_ENDPOINT, key.model(), priority,
+                    compressed.map(ChatModelService::withDateTime)))));
+    }
+
+    private static String withDateTime(String message) {
+        // Minute resolution: finer timestamps only make otherwise identical prompts differ
         DateTimeFunction function = new DateTimeFunction();
-        DateTimeFunction.Response dateTimeResponse = function.apply(new DateTimeFunction.Request(null));
-        
-        String enhancedMessage = message + "\n\nCurrent date and time information: " + 
+        DateTimeFunction.Response dateTimeResponse = function.apply(new DateTimeFunction.Request("yyyy-MM-dd HH:mm"));
+
+        return message + "\n\nCurrent date and time information: " +
             dateTimeResponse.formattedDateTime() + " (" + dateTimeResponse.dayOfWeek() + ")";
-        
-        Prompt prompt = new Prompt(new UserMessage(enhancedMessage));
-        ChatResponse response = chatModel.call(prompt);
-        
+    }
+
+    /**
+     * Answers within a conversation: its summary and recent turns, then the new message. Such
+     * answers depend on the history, so they bypass the response cache and coalescing. Only the
+     * user's own message is remembered, as compressed and without added context.
+     */
+    private ChatModelResponse converse(String endpoint, Priority priority, String conversationId,
+                                       String message, UnaryOperator<String> context) {
+        List<Message> history = chatMemory.get(conversationId);
+        CompressedMessage compressed = promptCompressor.compress(message, modelName(), history);
+        ChatModelResponse response = call(endpoint, modelName(), priority,
+            conversationPrompt(history, context.apply(compressed.text())))
+            .withCompression(compressed.compression());
+        chatMemory.add(conversationId, List.of(new UserMessage(compressed.text()), new AssistantMessage(response.response())));
+        return response;
+    }
+
+    /**
+     * Reading and updating the conversation may block (the file store), so it happens on the
+     * bounded elastic scheduler.
+     */
+    private Mono<ChatModelResponse> converseReactive(String endpoint, Priority priority, String conversationId,
+                                                     String message, UnaryOperator<String> context) {
+        return Mono.fromCallable(() -> chatMemory.get(conversationId))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(history -> promptCompressor.compressReactive(message, modelName(), history)
+                .flatMap(compressed -> generate(endpoint, modelName(), priority,
+                        conversationPrompt(history, context.apply(compressed.text())))
+                    .map(response -> response.withCompression(compressed.compression()))
+                    .flatMap(response -> Mono.fromRunnable(() -> chatMemory.add(conversationId,
+                            List.of(new UserMessage(compressed.text()), new AssistantMessage(response.response()))))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(response))));
+    }
+
+    private static Prompt conversationPrompt(List<Message> history, String userMessage) {
+        List<Message> messages = new ArrayList<>(history);
+        messages.add(new UserMessage(userMessage));
+        return new Prompt(messages);
+    }
+
+    private String modelName() {
+        ChatOptions options = chatModel.getDefaultOptions();
+        return options != null ? options.getModel() : null;
+    }
+
+    private ChatModelResponse call(String endpoint, String requestedModel, Priority priority, CompressedMessage message) {
+        return call(endpoint, requestedModel, priority, new Prompt(new UserMessage(message.text())))
+            .withCompression(message.compression());
+    }
+
+    private ChatModelResponse call(String endpoint, String requestedModel, Priority priority, Prompt prompt) {
+        ChatResponse response = scheduler.execute(priority, () -> metrics.record(endpoint, requestedModel, () -> chatModel.call(prompt)));
+
         String content = response.getResult().getOutput().getText();
         String model = response.getMetadata().getModel();
-        Long tokens = response.getMetadata().getUsage() != null ? 
+        Long tokens = response.getMetadata().getUsage() != null ?
             response.getMetadata().getUsage().getTotalTokens() : 0L;
-        
+
         return new ChatModelResponse(content, model, tokens);
     }
 
-    public String chatStream(String message) {
-        Prompt prompt = new Prompt(new UserMessage(message));
-        
-        StringBuilder fullResponse = new StringBuilder();
-        chatModel.stream(prompt)
+    private Mono<ChatModelResponse> generate(String endpoint, String requestedModel, Priority priority, CompressedMessage message) {
+        return generate(endpoint, requestedModel, priority, new Prompt(new UserMessage(message.text())))
+            .map(response -> response.withCompression(message.compression()));
+    }
+
+    private Mono<ChatModelResponse> generate(String endpoint, String requestedModel, Priority priority, Prompt prompt) {
+        return StreamedResponses.collect(
+            scheduler.stream(priority, () -> metrics.record(endpoint, requestedModel, chatModel.stream(prompt))));
+    }
+
+    public Mono<String> chatStream(String message) {
+        return chatStream(message, null);
+    }
+
+    public Mono<String> chatStream(String message, String conversationId) {
+        return chatStream(message, conversationId, Priority.fromCurrentRequest())
+            .contextWrite(Reservation.captureCurrent());
+    }
+
+    public Mono<String> chatStream(String message, String conversationId, Priority priority) {
+        return streamEvents(message, conversationId, priority)
+            .filter(event -> ChatStreamEvent.TOKEN.equals(event.type()))
+            .map(ChatStreamEvent::content)
+            .collect(Collectors.joining());
+    }
+
+    /**
+     * Streams the response token by token. Each content chunk is emitted as soon as Ollama
+     * produces it, followed by a single {@code done} event carrying the model and token usage.
+     * Concurrent identical prompts share one upstream stream; the underlying Ollama request is
+     * cancelled once every subscriber has cancelled (e.g. on client disconnect).
+     * Within a conversation, the answer is remembered once the stream completes.
+     */
+    public Flux<ChatStreamEvent> streamEvents(String message) {
+        return streamEvents(message, null);
+    }
+
+    public Flux<ChatStreamEvent> streamEvents(String message, String conversationId) {
+        // Subscribed after the request thread returns, so the request's quota goes with the stream
+        return streamEvents(message, conversationId, Priority.fromCurrentRequest())
+            .contextWrite(Reservation.captureCurrent());
+    }
+
+    public Flux<ChatStreamEvent> streamEvents(String message, String conversationId, Priority priority) {
+        if (conversationId != null) {
+            return Flux.defer(() -> {
+                List<Message> history = chatMemory.get(conversationId);
+                CompressedMessage compressed = promptCompressor.compress(message, modelName(), history);
+                StringBuilder answer = new StringBuilder();
+                return scheduler.stream(priority, () -> generateEvents(conversationPrompt(history, compressed.text()),
+                        modelName(), compressed.compression()))
+                    .doOnNext(event -> {
+                        if (ChatStreamEvent.TOKEN.equals(event.type())) {
+                            answer.append(event.content());
+                        }
+                    })
+                    .doOnComplete(() -> chatMemory.add(conversationId,
+                        List.of(new UserMessage(compressed.text()), new AssistantMessage(answer.toString()))));
+            });
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), null, message, false);
+        return requestCoalescer.stream(key, () -> promptCompressor.compressReactive(message, key.model(), List.of())
+            .flatMapMany(compressed -> scheduler.stream(priority,
+                () -> generateEvents(new Prompt(new UserMessage(compressed.text())), key.model(), compressed.compression()))));
+    }
+
+    private Flux<ChatStreamEvent> generateEvents(Prompt prompt, String model, PromptCompression compression) {
+        AtomicReference<ChatResponseMetadata> lastMetadata = new AtomicReference<>();
+        Flux<ChatStreamEvent> tokens = metrics.record("/api/chat-model/stream", model, chatModel.stream(prompt))
             .doOnNext(response -> {
-                if (response.getResult() != null && response.getResult().getOutput() != null) {
-                    fullResponse.append(response.getResult().getOutput().getText());
+                if (response.getMetadata() != null) {
+                    lastMetadata.set(response.getMetadata());
                 }
             })
-            .blockLast();
-        
-        return fullResponse.toString();
+            .mapNotNull(ChatModelService::textOf)
+            .filter(text -> !text.isEmpty())
+            .map(ChatStreamEvent::token);
+
+        return tokens.concatWith(Mono.fromSupplier(() -> doneEvent(lastMetadata.get()).withCompression(compression)));
     }
-}
 
+    private static String textOf(ChatResponse response) {
+        if (response.getResult() != null && response.getResult().getOutput() != null) {
+            return response.getResult().getOutput().getText();
+        }
+        return null;
+    }
+
+    private static ChatStreamEvent doneEvent(ChatResponseMetadata metadata) {
+        if (metadata == null) {
+            return ChatStreamEvent.done(null, 0L, 0L, 0L);
+        }
+        Usage usage = metadata.getUsage();
+        if (usage == null) {
+            return ChatStreamEvent.done(metadata.getModel(), 0L, 0L, 0L);
+        }
+        return ChatStreamEvent.done(metadata.getModel(),
+            toLong(usage.getPromptTokens()), toLong(usage.getCompletionTokens()), toLong(usage.getTotalTokens()));
+    }
+
+    private static Long toLong(Integer value) {
+        return value != null ? value.longValue() : 0L;
+    }
+}
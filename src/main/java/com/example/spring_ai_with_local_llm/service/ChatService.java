@@ -1,61 +1,255 @@
 package com.example.spring_ai_with_local_llm.service;
 
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.backend.Priority;
+import com.example.spring_ai_with_local_llm.cache.RequestCoalescer;
+import com.example.spring_ai_with_local_llm.cache.ResponseCache;
+import com.example.spring_ai_with_local_llm.cache.ResponseCacheKey;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
 import com.example.spring_ai_with_local_llm.function.DateTimeFunction;
-import com.example.spring_ai_with_local_llm.tools.DateTimeTools;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.CompressedMessage;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressionAdvisor;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.ai.tool.ToolCallback;
-import org.springframework.ai.tool.method.MethodToolCallback;
-import org.springframework.ai.tool.support.ToolDefinitions;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ReflectionUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
 
 @Service
 public class ChatService {
 
     private final ChatClient chatClient;
-    private ToolCallback dateTimeToolCallback;
-    String systemPromt = """
+    private final ChatModel chatModel;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final GenerationScheduler scheduler;
+    private final LlmMetrics metrics;
+    private final ChatMemory chatMemory;
+    private final ToolCallbackProvider tools;
+    private final PromptCompressor promptCompressor;
+    /** System prompt of the tool-calling chat; the model warm-up sends it too, so Ollama has it cached */
+    public static final String TOOLS_SYSTEM_PROMPT = """
             You have access to a tool called `getCurrentDateTime`. It does not require any parameters.
             
             Use this tool to get the current date and time based on the user's locale
             """;
+    // Static instructions only; the volatile date/time context is appended to the user message
+    static final String DATE_TIME_SYSTEM_PROMPT = """
+            You are a helpful AI assistant. The user's message ends with the current date and time. \
+            Use this information to answer questions about the current date and time.
+            """;
+
+    public ChatService(ChatModel chatModel, ToolCallbackProvider tools, ResponseCache responseCache,
+                       RequestCoalescer requestCoalescer, GenerationScheduler scheduler, LlmMetrics metrics,
+                       ChatMemory chatMemory, PromptCompressor promptCompressor, List<Advisor> advisors) {
+        // Advisors such as document retrieval (app.rag.enabled) apply to every prompt
+        this.chatClient = ChatClient.builder(chatModel).defaultAdvisors(advisors).build();
+        this.chatModel = chatModel;
+        this.tools = tools;
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.chatMemory = chatMemory;
+        this.promptCompressor = promptCompressor;
+    }
 
-    public ChatService(ChatModel chatModel, ToolCallback dateTimeToolCallback) {
-        this.chatClient = ChatClient.builder(chatModel).build();
-        this.dateTimeToolCallback = dateTimeToolCallback;
+    public ChatModelResponse chat(String message) {
+        return chat(message, null);
     }
 
-    public String chat(String message) {
-        return chatClient.prompt()
-                .system(systemPromt)
-                .user(message)
-                .toolCallbacks(dateTimeToolCallback)
-                .call()
-                .content();
+    public ChatModelResponse chat(String message, String conversationId) {
+        // The model may call getCurrentDateTime, so the answer is treated as time-sensitive
+        Priority priority = Priority.fromCurrentRequest();
+        if (conversationId != null) {
+            return converse("/api/chat", priority, conversationId, TOOLS_SYSTEM_PROMPT, message,
+                    UnaryOperator.identity(), true);
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), TOOLS_SYSTEM_PROMPT, message, true);
+        return responseCache.getOrCompute(key, () -> requestCoalescer.call(key, () -> scheduler.execute(priority,
+                () -> toResponse(metrics.record("/api/chat", key.model(), () -> chatClient.prompt()
+                        .system(TOOLS_SYSTEM_PROMPT)
+                        .user(message)
+                        .toolCallbacks(tools.getToolCallbacks())
+                        .call()
+                        .chatResponse())))));
     }
 
+    public ChatModelResponse chatWithFunctions(String message) {
+        return chatWithFunctions(message, null);
+    }
 
+    public ChatModelResponse chatWithFunctions(String message, String conversationId) {
+        Priority priority = Priority.fromCurrentRequest();
+        if (conversationId != null) {
+            return converse("/api/chat/with-functions", priority, conversationId, DATE_TIME_SYSTEM_PROMPT, message,
+                    ChatService::withDateTime, false);
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), DATE_TIME_SYSTEM_PROMPT, message, true);
+        return responseCache.getOrCompute(key, () -> requestCoalescer.call(key, () -> {
+            String userMessage = withDateTime(message);
 
-    public String chatWithFunctions(String message) {
-        DateTimeFunction function = new DateTimeFunction();
-        DateTimeFunction.Response dateTimeResponse = function.apply(new DateTimeFunction.Request(null));
-        
-        String systemPrompt = "You are a helpful AI assistant. You have access to the current date and time information: " +
-            "Date: " + dateTimeResponse.date() + ", " +
-            "Time: " + dateTimeResponse.time() + ", " +
-            "Day: " + dateTimeResponse.dayOfWeek() + ", " +
-            "Month: " + dateTimeResponse.month() + ", " +
-            "Year: " + dateTimeResponse.year() + ". " +
-            "Use this information to answer questions about the current date and time.";
-        
-        return chatClient.prompt()
-                .system(systemPrompt)
-                .user(message)
-                .call()
-                .content();
+            return scheduler.execute(priority, () -> toResponse(
+                    metrics.record("/api/chat/with-functions", key.model(), () -> chatClient.prompt()
+                            .system(DATE_TIME_SYSTEM_PROMPT)
+                            .user(userMessage)
+                            .call()
+                            .chatResponse())));
+        }));
+    }
+
+    /**
+     * Non-blocking variant of {@link #chat(String, String)} for the reactive API. The answer is
+     * streamed from Ollama and collected; tool calls are run off the event loop by Spring AI. The
+     * result is empty if the model produced no text.
+     */
+    public Mono<ChatModelResponse> chatReactive(String message, String conversationId, Priority priority) {
+        if (conversationId != null) {
+            return converseReactive("/api/chat", priority, conversationId, TOOLS_SYSTEM_PROMPT, message,
+                    UnaryOperator.identity(), true);
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), TOOLS_SYSTEM_PROMPT, message, true);
+        return responseCache.getOrCompute(key, requestCoalescer.call(key, generate("/api/chat", key.model(), priority,
+                chatClient.prompt()
+                        .system(TOOLS_SYSTEM_PROMPT)
+                        .user(message)
+                        .toolCallbacks(tools.getToolCallbacks()))))
+                .filter(response -> response.response() != null);
     }
-}
 
+    /**
+     * Non-blocking variant of {@link #chatWithFunctions(String, String)}.
+     */
+    public Mono<ChatModelResponse> chatWithFunctionsReactive(String message, String conversationId, Priority priority) {
+        if (conversationId != null) {
+            return converseReactive("/api/chat/with-functions", priority, conversationId, DATE_TIME_SYSTEM_PROMPT, message,
+                    ChatService::withDateTime, false);
+        }
+        ResponseCacheKey key = ResponseCacheKey.of(chatModel.getDefaultOptions(), DATE_TIME_SYSTEM_PROMPT, message, true);
+        return responseCache.getOrCompute(key, requestCoalescer.call(key, generate("/api/chat/with-functions", key.model(),
+                priority, chatClient.prompt()
+                        .system(DATE_TIME_SYSTEM_PROMPT)
+                        .user(withDateTime(message)))))
+                .filter(response -> response.response() != null);
+    }
+
+    /**
+     * Answers within a conversation: the system prompt, then the conversation's summary and recent
+     * turns, then the new message. Such answers depend on the history, so they bypass the response
+     * cache and coalescing. The message is fitted into what the system prompt and history leave of
+     * the budget here rather than by the advisor, so that the user's own message is remembered as
+     * compressed, and without the {@code context} added to it.
+     */
+    private ChatModelResponse converse(String endpoint, Priority priority, String conversationId, String systemPrompt,
+                                       String message, UnaryOperator<String> context, boolean withTools) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new SystemMessage(systemPrompt));
+        messages.addAll(chatMemory.get(conversationId));
+        CompressedMessage compressed = promptCompressor.compress(message, modelName(), messages);
+        messages.add(new UserMessage(context.apply(compressed.text())));
+
+        ChatClient.ChatClientRequestSpec request = conversationRequest(new Prompt(messages), compressed, withTools);
+        ChatModelResponse response = scheduler.execute(priority, () -> toResponse(
+                metrics.record(endpoint, modelName(), () -> request.call().chatResponse())));
+
+        chatMemory.add(conversationId, List.of(new UserMessage(compressed.text()), new AssistantMessage(response.response())));
+        return response;
+    }
+
+    /**
+     * Reactive counterpart of {@link #converse}; reading and updating the conversation may block
+     * (the file store), so it happens on the bounded elastic scheduler.
+     */
+    private Mono<ChatModelResponse> converseReactive(String endpoint, Priority priority, String conversationId,
+                                                     String systemPrompt, String message, UnaryOperator<String> context,
+                                                     boolean withTools) {
+        return Mono.fromCallable(() -> {
+                    List<Message> messages = new ArrayList<>();
+                    messages.add(new SystemMessage(systemPrompt));
+                    messages.addAll(chatMemory.get(conversationId));
+                    return messages;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(messages -> promptCompressor.compressReactive(message, modelName(), messages)
+                        .flatMap(compressed -> {
+                            List<Message> prompt = new ArrayList<>(messages);
+                            prompt.add(new UserMessage(context.apply(compressed.text())));
+                            return generate(endpoint, modelName(), priority,
+                                    conversationRequest(new Prompt(prompt), compressed, withTools))
+                                    .flatMap(response -> Mono.fromRunnable(() -> chatMemory.add(conversationId,
+                                                    List.of(new UserMessage(compressed.text()),
+                                                            new AssistantMessage(response.response()))))
+                                            .subscribeOn(Schedulers.boundedElastic())
+                                            .thenReturn(response));
+                        }))
+                .filter(response -> response.response() != null);
+    }
+
+    /**
+     * The request of a conversation turn. Its message is compressed already, which the counts
+     * passed to the {@link PromptCompressionAdvisor} tell it.
+     */
+    private ChatClient.ChatClientRequestSpec conversationRequest(Prompt prompt, CompressedMessage compressed,
+                                                                 boolean withTools) {
+        ChatClient.ChatClientRequestSpec request = chatClient.prompt(prompt);
+        if (withTools) {
+            request = request.toolCallbacks(tools.getToolCallbacks());
+        }
+        if (compressed.compression() != null) {
+            request = request.advisors(advisors -> advisors.param(PromptCompressionAdvisor.PROMPT_COMPRESSION,
+                    compressed.compression()));
+        }
+        return request;
+    }
+
+    private Mono<ChatModelResponse> generate(String endpoint, String model, Priority priority,
+                                             ChatClient.ChatClientRequestSpec request) {
+        return StreamedResponses.collect(
+                scheduler.stream(priority, () -> metrics.record(endpoint, model, request.stream().chatResponse())));
+    }
+
+    private String modelName() {
+        ChatOptions options = chatModel.getDefaultOptions();
+        return options != null ? options.getModel() : null;
+    }
+
+    private static String withDateTime(String message) {
+        return message + "\n\n" + dateTimeContext();
+    }
+
+    /**
+     * The current date and time to the minute. It goes after the user message, so that the
+     * system prompt stays byte-identical between requests and Ollama can reuse its evaluation.
+     */
+    static String dateTimeContext() {
+        DateTimeFunction.Response now = new DateTimeFunction().apply(new DateTimeFunction.Request("yyyy-MM-dd HH:mm"));
+        return "Current date and time: " + now.formattedDateTime() + " (" + now.dayOfWeek() + ")";
+    }
+
+    private static ChatModelResponse toResponse(ChatResponse response) {
+        if (response == null || response.getResult() == null) {
+            return new ChatModelResponse(null, null, 0L);
+        }
+        String content = response.getResult().getOutput().getText();
+        String model = response.getMetadata().getModel();
+        Long tokens = response.getMetadata().getUsage() != null ?
+            response.getMetadata().getUsage().getTotalTokens() : 0L;
+        return new ChatModelResponse(content, model, tokens, PromptCompressionAdvisor.compressionOf(response));
+    }
+}
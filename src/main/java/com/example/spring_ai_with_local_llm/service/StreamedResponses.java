@@ -0,0 +1,60 @@
+package com.example.spring_ai_with_local_llm.service;
+
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.PromptCompression;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressionAdvisor;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Collects a streamed generation into one {@link ChatModelResponse}, for non-streaming endpoints
+ * served without blocking: the text of all chunks, and the model and token usage Ollama reports
+ * with the final chunk, and the prompt compression the advisor reports.
+ */
+final class StreamedResponses {
+
+    private StreamedResponses() {
+    }
+
+    static Mono<ChatModelResponse> collect(Flux<ChatResponse> chunks) {
+        return chunks.collect(Collector::new, Collector::add).map(Collector::toResponse);
+    }
+
+    private static final class Collector {
+
+        private final StringBuilder content = new StringBuilder();
+        private boolean hasContent;
+        private String model;
+        private Long tokens = 0L;
+        private PromptCompression compression;
+
+        void add(ChatResponse chunk) {
+            if (chunk.getResult() != null && chunk.getResult().getOutput() != null
+                && chunk.getResult().getOutput().getText() != null) {
+                content.append(chunk.getResult().getOutput().getText());
+                hasContent = true;
+            }
+            ChatResponseMetadata metadata = chunk.getMetadata();
+            if (metadata == null) {
+                return;
+            }
+            if (PromptCompressionAdvisor.compressionOf(chunk) != null) {
+                compression = PromptCompressionAdvisor.compressionOf(chunk);
+            }
+            if (metadata.getModel() != null && !metadata.getModel().isEmpty()) {
+                model = metadata.getModel();
+            }
+            Usage usage = metadata.getUsage();
+            if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+                tokens = usage.getTotalTokens().longValue();
+            }
+        }
+
+        ChatModelResponse toResponse() {
+            return new ChatModelResponse(hasContent ? content.toString() : null, model, tokens, compression);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.spring_ai_with_local_llm.service;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.backend.Priority;
+import com.example.spring_ai_with_local_llm.config.StructuredOutputProperties;
+import com.example.spring_ai_with_local_llm.dto.PromptCompression;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatRequest;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatResponse;
+import com.example.spring_ai_with_local_llm.dto.StructuredStreamEvent;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.CompressedMessage;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import com.example.spring_ai_with_local_llm.quota.Reservation;
+import com.example.spring_ai_with_local_llm.structured.StructuredOutputException;
+import com.example.spring_ai_with_local_llm.structured.StructuredOutputParser;
+import com.example.spring_ai_with_local_llm.structured.StructuredOutputTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Answers as JSON matching a schema. The schema is passed to Ollama as the {@code format}
+ * constraint and also shown to the model, and the answer is parsed while it streams in
+ * ({@link StructuredOutputParser}): fields are available as soon as they are complete, and a
+ * generation that stops matching the schema is cancelled right there instead of running to the
+ * end. Structured answers are not cached, since they are usually extractions from unique input.
+ * Such input is often long (a log to extract fields from), so the message is fitted into the
+ * model's budget by the {@link PromptCompressor} first.
+ */
+@Service
+public class StructuredChatService {
+
+    static final String ENDPOINT = "/api/chat-model/structured";
+
+    private final ChatModel chatModel;
+    private final GenerationScheduler scheduler;
+    private final LlmMetrics metrics;
+    private final StructuredOutputTypes types;
+    private final StructuredOutputProperties properties;
+    private final ObjectMapper objectMapper;
+    private final PromptCompressor promptCompressor;
+    private final Counter validOutputs;
+    private final Counter invalidOutputs;
+
+    public StructuredChatService(ChatModel chatModel, GenerationScheduler scheduler, LlmMetrics metrics,
+                                 StructuredOutputTypes types, StructuredOutputProperties properties,
+                                 ObjectMapper objectMapper, PromptCompressor promptCompressor,
+                                 MeterRegistry meterRegistry) {
+        this.chatModel = chatModel;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.types = types;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.promptCompressor = promptCompressor;
+        this.validOutputs = outputCounter(meterRegistry, "valid");
+        this.invalidOutputs = outputCounter(meterRegistry, "invalid");
+    }
+
+    public Map<String, ? extends JsonNode> types() {
+        return types.schemas();
+    }
+
+    public Mono<StructuredChatResponse> chat(StructuredChatRequest request) {
+        return chat(request, Priority.fromCurrentRequest())
+            .contextWrite(Reservation.captureCurrent());
+    }
+
+    /**
+     * The complete answer. An answer that stops matching the schema is generated again, up to
+     * {@code app.structured.max-attempts} generations.
+     */
+    public Mono<StructuredChatResponse> chat(StructuredChatRequest request, Priority priority) {
+        JsonNode schema = schemaOf(request);
+        AtomicInteger attempts = new AtomicInteger();
+        return compress(request.message(), schema).flatMap(message -> Mono.defer(() -> {
+                attempts.incrementAndGet();
+                return generate(message, schema, priority)
+                    .filter(event -> StructuredStreamEvent.DONE.equals(event.type()))
+                    .last();
+            })
+            .retryWhen(Retry.max(Math.max(0, properties.maxAttempts() - 1))
+                .filter(StructuredOutputException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+            .map(done -> new StructuredChatResponse(done.data(), done.model(), done.totalTokens(), attempts.get(),
+                done.compression())));
+    }
+
+    public Flux<StructuredStreamEvent> stream(StructuredChatRequest request) {
+        return stream(request, Priority.fromCurrentRequest())
+            .contextWrite(Reservation.captureCurrent());
+    }
+
+    /**
+     * A {@code field} event per top-level field as soon as it is complete and valid, then
+     * {@code done} with the whole answer; or an {@code error} event where the answer stopped
+     * matching the schema, after which nothing more is generated. Not retried, since fields may
+     * already have been sent.
+     */
+    public Flux<StructuredStreamEvent> stream(StructuredChatRequest request, Priority priority) {
+        JsonNode schema = schemaOf(request);
+        return compress(request.message(), schema)
+            .flatMapMany(message -> generate(message, schema, priority))
+            .onErrorResume(StructuredOutputException.class, e -> Mono.just(StructuredStreamEvent.error(e.getMessage())));
+    }
+
+    private Mono<CompressedMessage> compress(String message, JsonNode schema) {
+        return promptCompressor.compressReactive(message, modelName(), List.of(systemMessage(schema)));
+    }
+
+    private Flux<StructuredStreamEvent> generate(CompressedMessage message, JsonNode schema, Priority priority) {
+        return scheduler.stream(priority, () -> Flux.defer(() -> {
+                StructuredOutputParser parser = new StructuredOutputParser(schema, objectMapper);
+                AtomicReference<ChatResponseMetadata> lastMetadata = new AtomicReference<>();
+                Flux<StructuredStreamEvent> fields = metrics.record(ENDPOINT, modelName(), chatModel.stream(prompt(message, schema)))
+                    .doOnNext(response -> {
+                        if (response.getMetadata() != null) {
+                            lastMetadata.set(response.getMetadata());
+                        }
+                    })
+                    // Throwing here cancels the generation upstream
+                    .concatMapIterable(response -> parser.feed(textOf(response)).stream()
+                        .map(field -> StructuredStreamEvent.field(field.name(), field.value()))
+                        .toList());
+                return fields.concatWith(Mono.fromSupplier(() -> done(parser.finish(), lastMetadata.get(), message.compression())));
+            }))
+            .doOnComplete(validOutputs::increment)
+            .doOnError(StructuredOutputException.class, e -> invalidOutputs.increment());
+    }
+
+    private Prompt prompt(CompressedMessage message, JsonNode schema) {
+        Object format = objectMapper.convertValue(schema, Object.class);
+        return new Prompt(List.of(systemMessage(schema), new UserMessage(message.text())),
+            OllamaOptions.builder().format(format).build());
+    }
+
+    private static SystemMessage systemMessage(JsonNode schema) {
+        return new SystemMessage("Answer only with JSON matching this JSON schema, without any other text:\n" + schema);
+    }
+
+    private JsonNode schemaOf(StructuredChatRequest request) {
+        if (request.message() == null || request.message().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "message is required");
+        }
+        if ((request.schema() == null) == (request.type() == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Set either schema or type");
+        }
+        if (request.type() != null) {
+            return types.schema(request.type()).orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Unknown type '" + request.type() + "', known types are " + types.schemas().keySet()));
+        }
+        if (!request.schema().isObject()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "schema must be a JSON object");
+        }
+        return request.schema();
+    }
+
+    private String modelName() {
+        ChatOptions options = chatModel.getDefaultOptions();
+        return options != null ? options.getModel() : null;
+    }
+
+    private static String textOf(ChatResponse response) {
+        if (response.getResult() != null && response.getResult().getOutput() != null) {
+            return response.getResult().getOutput().getText();
+        }
+        return null;
+    }
+
+    private static StructuredStreamEvent done(JsonNode data, ChatResponseMetadata metadata, PromptCompression compression) {
+        String model = metadata != null ? metadata.getModel() : null;
+        Long totalTokens = metadata != null && metadata.getUsage() != null && metadata.getUsage().getTotalTokens() != null
+            ? metadata.getUsage().getTotalTokens().longValue() : 0L;
+        return StructuredStreamEvent.done(data, model, totalTokens, compression);
+    }
+
+    private static Counter outputCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("llm.structured.outputs")
+            .description("Structured answers, by whether they matched the schema")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
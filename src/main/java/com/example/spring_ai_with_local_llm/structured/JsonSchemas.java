@@ -0,0 +1,172 @@
+package com.example.spring_ai_with_local_llm.structured;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The part of JSON Schema that structured output relies on: {@code type}, {@code enum},
+ * {@code properties}, {@code required}, {@code additionalProperties: false} and {@code items}.
+ * That covers the schemas generated for records, and what Ollama's {@code format} enforces;
+ * other keywords are ignored.
+ */
+final class JsonSchemas {
+
+    private JsonSchemas() {
+    }
+
+    /**
+     * @return the first violation, or {@code null} if {@code value} matches {@code schema}
+     */
+    static String validate(JsonNode schema, JsonNode value, String path) {
+        if (schema == null || !schema.isObject()) {
+            return null;
+        }
+        JsonNode type = schema.get("type");
+        if (type != null && !matchesType(type, value)) {
+            return path + ": expected " + type + " but got " + typeOf(value);
+        }
+        JsonNode allowed = schema.get("enum");
+        if (allowed != null && allowed.isArray() && !contains(allowed, value)) {
+            return path + ": " + value + " is not one of " + allowed;
+        }
+        if (value.isObject()) {
+            for (Map.Entry<String, JsonNode> field : value.properties()) {
+                if (!allowsProperty(schema, field.getKey())) {
+                    return path + ": unexpected property '" + field.getKey() + "'";
+                }
+                String error = validate(propertySchema(schema, field.getKey()), field.getValue(), path + "." + field.getKey());
+                if (error != null) {
+                    return error;
+                }
+            }
+            String missing = missingRequired(schema, value);
+            if (missing != null) {
+                return path + ": missing required property '" + missing + "'";
+            }
+        }
+        if (value.isArray() && schema.get("items") != null) {
+            for (int i = 0; i < value.size(); i++) {
+                String error = validate(schema.get("items"), value.get(i), path + "[" + i + "]");
+                if (error != null) {
+                    return error;
+                }
+            }
+        }
+        return null;
+    }
+
+    static boolean isObjectSchema(JsonNode schema) {
+        JsonNode type = schema.get("type");
+        return type != null && type.isTextual() && type.asText().equals("object");
+    }
+
+    static boolean allowsProperty(JsonNode schema, String name) {
+        JsonNode additional = schema.get("additionalProperties");
+        boolean closed = additional != null && additional.isBoolean() && !additional.asBoolean();
+        return !closed || propertySchema(schema, name) != null;
+    }
+
+    static JsonNode propertySchema(JsonNode schema, String name) {
+        JsonNode properties = schema.get("properties");
+        return properties != null ? properties.get(name) : null;
+    }
+
+    /**
+     * @return a required property missing from {@code object}, or {@code null}
+     */
+    static String missingRequired(JsonNode schema, JsonNode object) {
+        JsonNode required = schema.get("required");
+        if (required != null && required.isArray()) {
+            for (JsonNode name : required) {
+                if (!object.has(name.asText())) {
+                    return name.asText();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a value starting with {@code token} can match {@code schema}; lets a wrong value be
+     * refused at its first token.
+     */
+    static boolean canStartWith(JsonNode schema, JsonToken token) {
+        JsonNode type = schema != null ? schema.get("type") : null;
+        if (type == null) {
+            return true;
+        }
+        String actual = typeOf(token);
+        if (actual == null) {
+            return true;
+        }
+        for (JsonNode expected : type.isArray() ? type : List.of(type)) {
+            String name = expected.asText();
+            if (name.equals(actual) || name.equals("number") && actual.equals("integer")
+                || name.equals("integer") && actual.equals("number")) {
+                // A float token may still be integral (e.g. 2.0): decided once the value is complete
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the JSON type of a value starting with {@code token}, or {@code null} if it does not start a value
+     */
+    static String typeOf(JsonToken token) {
+        return switch (token) {
+            case START_OBJECT -> "object";
+            case START_ARRAY -> "array";
+            case VALUE_STRING -> "string";
+            case VALUE_NUMBER_INT -> "integer";
+            case VALUE_NUMBER_FLOAT -> "number";
+            case VALUE_TRUE, VALUE_FALSE -> "boolean";
+            case VALUE_NULL -> "null";
+            default -> null;
+        };
+    }
+
+    private static boolean matchesType(JsonNode type, JsonNode value) {
+        if (type.isArray()) {
+            for (JsonNode alternative : type) {
+                if (matchesType(alternative, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return switch (type.asText()) {
+            case "object" -> value.isObject();
+            case "array" -> value.isArray();
+            case "string" -> value.isTextual();
+            case "integer" -> value.isIntegralNumber() || value.isNumber() && value.decimalValue().stripTrailingZeros().scale() <= 0;
+            case "number" -> value.isNumber();
+            case "boolean" -> value.isBoolean();
+            case "null" -> value.isNull();
+            default -> true;
+        };
+    }
+
+    private static boolean contains(JsonNode values, JsonNode value) {
+        for (JsonNode candidate : values) {
+            if (candidate.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String typeOf(JsonNode value) {
+        return switch (value.getNodeType()) {
+            case OBJECT, POJO -> "object";
+            case ARRAY -> "array";
+            case STRING, BINARY -> "string";
+            case NUMBER -> value.isIntegralNumber() ? "integer" : "number";
+            case BOOLEAN -> "boolean";
+            default -> "null";
+        };
+    }
+}
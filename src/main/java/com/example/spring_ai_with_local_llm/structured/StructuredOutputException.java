@@ -0,0 +1,12 @@
+package com.example.spring_ai_with_local_llm.structured;
+
+/**
+ * Thrown as soon as the model's output can no longer match the requested schema: malformed JSON,
+ * an unknown field, a value of the wrong type, or a missing required field at the end.
+ */
+public class StructuredOutputException extends RuntimeException {
+
+    public StructuredOutputException(String message) {
+        super(message);
+    }
+}
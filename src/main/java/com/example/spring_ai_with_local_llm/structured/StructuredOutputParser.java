@@ -0,0 +1,192 @@
+package com.example.spring_ai_with_local_llm.structured;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a JSON answer while it is generated. Chunks go to Jackson's non-blocking parser as they
+ * arrive; for an object schema each top-level field is validated and returned as soon as its value
+ * is complete. Output that can no longer match the schema fails at the chunk that breaks it, so
+ * that the generation can be stopped there.
+ * <p>
+ * Not thread-safe: one parser per generation, fed in order.
+ */
+public class StructuredOutputParser {
+
+    /** Ollama's JSON mode can get stuck emitting whitespace; this much in a row ends the answer. */
+    static final int MAX_WHITESPACE_RUN = 256;
+
+    public record Field(String name, JsonNode value) {}
+
+    private final JsonNode schema;
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final boolean byField;
+    private final ObjectNode fields;
+    private TokenBuffer value;
+    private String field;
+    private int depth;
+    private JsonNode result;
+    private int whitespaceRun;
+
+    public StructuredOutputParser(JsonNode schema, ObjectMapper objectMapper) {
+        this.schema = schema;
+        this.objectMapper = objectMapper;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.byField = JsonSchemas.isObjectSchema(schema);
+        this.fields = objectMapper.createObjectNode();
+    }
+
+    /**
+     * @return the top-level fields completed by this chunk
+     * @throws StructuredOutputException if the output no longer matches the schema
+     */
+    public List<Field> feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return List.of();
+        }
+        whitespaceRun = chunk.isBlank() ? whitespaceRun + chunk.length() : 0;
+        if (whitespaceRun > MAX_WHITESPACE_RUN) {
+            throw new StructuredOutputException("The model produced only whitespace");
+        }
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            throw new StructuredOutputException("Malformed JSON: " + e.getMessage());
+        }
+        return drain();
+    }
+
+    /**
+     * Ends the input.
+     *
+     * @return the complete, validated answer
+     * @throws StructuredOutputException if it is incomplete or does not match the schema
+     */
+    public JsonNode finish() {
+        feeder.endOfInput();
+        drain();
+        if (result == null) {
+            throw new StructuredOutputException(depth == 0 && value == null
+                ? "The model produced no JSON" : "The JSON answer is incomplete");
+        }
+        return result;
+    }
+
+    private List<Field> drain() {
+        List<Field> completed = new ArrayList<>();
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (result != null) {
+                    throw new StructuredOutputException("Unexpected content after the JSON answer");
+                }
+                if (byField) {
+                    onObjectToken(token, completed);
+                } else {
+                    onValueToken(token);
+                }
+            }
+        } catch (JsonEOFException e) {
+            throw new StructuredOutputException("The JSON answer is incomplete");
+        } catch (JsonProcessingException e) {
+            throw new StructuredOutputException("Malformed JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new StructuredOutputException("Malformed JSON: " + e.getMessage());
+        }
+        return completed;
+    }
+
+    private void onObjectToken(JsonToken token, List<Field> completed) throws IOException {
+        if (depth == 0) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new StructuredOutputException("$: expected a JSON object but got " + JsonSchemas.typeOf(token));
+            }
+            depth = 1;
+            return;
+        }
+        if (depth == 1 && value == null) {
+            if (token == JsonToken.END_OBJECT) {
+                depth = 0;
+                String missing = JsonSchemas.missingRequired(schema, fields);
+                if (missing != null) {
+                    throw new StructuredOutputException("$: missing required property '" + missing + "'");
+                }
+                result = fields;
+                return;
+            }
+            field = parser.currentName();
+            if (!JsonSchemas.allowsProperty(schema, field)) {
+                throw new StructuredOutputException("$: unexpected property '" + field + "'");
+            }
+            if (fields.has(field)) {
+                throw new StructuredOutputException("$: duplicate property '" + field + "'");
+            }
+            value = new TokenBuffer(objectMapper, false);
+            return;
+        }
+        JsonNode fieldSchema = JsonSchemas.propertySchema(schema, field);
+        if (value.firstToken() == null && !JsonSchemas.canStartWith(fieldSchema, token)) {
+            throw new StructuredOutputException("$." + field + ": expected " + fieldSchema.get("type")
+                + " but got " + JsonSchemas.typeOf(token));
+        }
+        copy(token);
+        if (depth == 1) {
+            JsonNode node = objectMapper.readTree(value.asParser(objectMapper));
+            String error = JsonSchemas.validate(fieldSchema, node, "$." + field);
+            if (error != null) {
+                throw new StructuredOutputException(error);
+            }
+            fields.set(field, node);
+            completed.add(new Field(field, node));
+            value = null;
+        }
+    }
+
+    private void onValueToken(JsonToken token) throws IOException {
+        if (value == null) {
+            if (!JsonSchemas.canStartWith(schema, token)) {
+                throw new StructuredOutputException("$: expected " + schema.get("type") + " but got " + JsonSchemas.typeOf(token));
+            }
+            value = new TokenBuffer(objectMapper, false);
+        }
+        copy(token);
+        if (depth == 0) {
+            JsonNode node = objectMapper.readTree(value.asParser(objectMapper));
+            String error = JsonSchemas.validate(schema, node, "$");
+            if (error != null) {
+                throw new StructuredOutputException(error);
+            }
+            result = node;
+            value = null;
+        }
+    }
+
+    private void copy(JsonToken token) throws IOException {
+        value.copyCurrentEvent(parser);
+        if (token.isStructStart()) {
+            depth++;
+        } else if (token.isStructEnd()) {
+            depth--;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.spring_ai_with_local_llm.structured;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.util.json.schema.JsonSchemaGenerator;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Types that callers can ask for by name instead of sending a schema, such as
+ * {@code DateTimeFunction.Response}. Their schemas are generated once, from the same annotations
+ * as tool schemas ({@code @JsonPropertyDescription}, {@code @JsonProperty(required = ...)}).
+ */
+public class StructuredOutputTypes {
+
+    private final Map<String, ObjectNode> schemas = new TreeMap<>();
+
+    public StructuredOutputTypes(Map<String, Class<?>> types, ObjectMapper objectMapper) {
+        types.forEach((name, type) -> {
+            try {
+                ObjectNode schema = (ObjectNode) objectMapper.readTree(JsonSchemaGenerator.generateForType(type));
+                schema.remove("$schema");
+                schemas.put(name, schema);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot generate a schema for " + type.getName(), e);
+            }
+        });
+    }
+
+    public Optional<ObjectNode> schema(String name) {
+        return Optional.ofNullable(schemas.get(name));
+    }
+
+    public Map<String, ObjectNode> schemas() {
+        return Collections.unmodifiableMap(schemas);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.spring_ai_with_local_llm.tools;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decorates a {@link ToolCallback} with a small LRU cache of its results, so repeated calls with
+ * the same arguments within {@code ttl} are answered without running the tool. Tools may read the
+ * caller's time zone (as {@link DateTimeTools} does), so it is part of the key. Calls with a
+ * {@link ToolContext} are not cached, as their result may depend on it.
+ * <p>
+ * Hits and misses are counted in {@code llm.tool.cache}, tagged by tool and {@code result}.
+ */
+public class CachingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingToolCallback(ToolCallback delegate, Duration ttl, int maxEntries, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        String tool = delegate.getToolDefinition().name();
+        this.hits = counter(meterRegistry, tool, "hit");
+        this.misses = counter(meterRegistry, tool, "miss");
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        if (toolContext != null && !toolContext.getContext().isEmpty()) {
+            return delegate.call(toolInput, toolContext);
+        }
+        String key = LocaleContextHolder.getTimeZone().getID() + '\n' + toolInput;
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.createdAt() < ttlNanos) {
+                hits.increment();
+                return entry.result();
+            }
+        }
+        misses.increment();
+        String result = delegate.call(toolInput);
+        synchronized (entries) {
+            entries.put(key, new Entry(result, now));
+        }
+        return result;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String tool, String result) {
+        return Counter.builder("llm.tool.cache")
+            .description("Tool calls answered from (hit) or missing (miss) the tool result cache")
+            .tags("tool", tool, "result", result)
+            .register(meterRegistry);
+    }
+
+    private record Entry(String result, long createdAt) {}
+}
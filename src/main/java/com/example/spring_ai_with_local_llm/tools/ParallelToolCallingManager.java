@@ -0,0 +1,186 @@
+package com.example.spring_ai_with_local_llm.tools;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Runs the tool calls of one model turn concurrently instead of one after another, so a turn
+ * asking for several tools takes as long as the slowest rather than the sum. Each call runs on its
+ * own (virtual) thread with the caller's locale context, and gets its own timeout: a tool that
+ * does not answer in time is cancelled and the model is told so, rather than failing the request.
+ * <p>
+ * Otherwise behaves like Spring AI's {@link DefaultToolCallingManager}: tool responses keep the
+ * order of the calls, {@link ToolExecutionException}s are turned into a message for the model by
+ * the {@link ToolExecutionExceptionProcessor}, and other exceptions fail the request.
+ */
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private final ToolCallingManager definitions;
+    private final ToolCallbackResolver resolver;
+    private final ToolExecutionExceptionProcessor exceptionProcessor;
+    private final Function<String, Duration> timeouts;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary callsPerTurn;
+
+    public ParallelToolCallingManager(ToolCallbackResolver resolver, ToolExecutionExceptionProcessor exceptionProcessor,
+                                      Function<String, Duration> timeouts, ExecutorService executor,
+                                      MeterRegistry meterRegistry) {
+        this.definitions = DefaultToolCallingManager.builder()
+            .toolCallbackResolver(resolver)
+            .toolExecutionExceptionProcessor(exceptionProcessor)
+            .build();
+        this.resolver = resolver;
+        this.exceptionProcessor = exceptionProcessor;
+        this.timeouts = timeouts;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.callsPerTurn = DistributionSummary.builder("llm.tool.calls")
+            .description("Tool calls requested by the model in one turn, run concurrently")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return definitions.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+            .map(Generation::getOutput)
+            .filter(AssistantMessage::hasToolCalls)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+        List<AssistantMessage.ToolCall> toolCalls = assistantMessage.getToolCalls();
+        ToolContext toolContext = toolContext(prompt, assistantMessage);
+        callsPerTurn.record(toolCalls.size());
+
+        List<ToolCallback> callbacks = new ArrayList<>(toolCalls.size());
+        boolean returnDirect = true;
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            ToolCallback callback = callback(prompt, toolCall.name());
+            callbacks.add(callback);
+            returnDirect &= callback.getToolMetadata().returnDirect();
+        }
+
+        LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        long start = System.nanoTime();
+        List<Future<String>> results = new ArrayList<>(toolCalls.size());
+        for (int i = 0; i < toolCalls.size(); i++) {
+            ToolCallback callback = callbacks.get(i);
+            String input = StringUtils.hasText(toolCalls.get(i).arguments()) ? toolCalls.get(i).arguments() : "{}";
+            results.add(executor.submit(() -> {
+                LocaleContextHolder.setLocaleContext(localeContext);
+                try {
+                    return callback.call(input, toolContext);
+                } finally {
+                    LocaleContextHolder.resetLocaleContext();
+                }
+            }));
+        }
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(toolCalls.size());
+        try {
+            for (int i = 0; i < toolCalls.size(); i++) {
+                AssistantMessage.ToolCall toolCall = toolCalls.get(i);
+                Duration timeout = timeouts.apply(toolCall.name());
+                String result = await(toolCall.name(), results.get(i), start + timeout.toNanos(), timeout);
+                responses.add(new ToolResponseMessage.ToolResponse(toolCall.id(), toolCall.name(), result != null ? result : ""));
+            }
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(new ToolResponseMessage(responses, Map.of()));
+        return ToolExecutionResult.builder()
+            .conversationHistory(conversationHistory)
+            .returnDirect(returnDirect)
+            .build();
+    }
+
+    private String await(String tool, Future<String> result, long deadline, Duration timeout) {
+        try {
+            return result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Counter.builder("llm.tool.timeouts")
+                .description("Tool calls cancelled for exceeding their timeout")
+                .tag("tool", tool)
+                .register(meterRegistry)
+                .increment();
+            return "Tool '" + tool + "' did not respond within " + timeout.toMillis() + " ms";
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ToolExecutionException toolException) {
+                return exceptionProcessor.process(toolException);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Tool '" + tool + "' failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tool '" + tool + "'", e);
+        }
+    }
+
+    private ToolCallback callback(Prompt prompt, String toolName) {
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options) {
+            for (ToolCallback callback : options.getToolCallbacks()) {
+                if (toolName.equals(callback.getToolDefinition().name())) {
+                    return callback;
+                }
+            }
+        }
+        ToolCallback callback = resolver.resolve(toolName);
+        if (callback == null) {
+            throw new IllegalStateException("No ToolCallback found for tool name: " + toolName);
+        }
+        return callback;
+    }
+
+    private static ToolContext toolContext(Prompt prompt, AssistantMessage assistantMessage) {
+        if (!(prompt.getOptions() instanceof ToolCallingChatOptions options) || CollectionUtils.isEmpty(options.getToolContext())) {
+            return new ToolContext(Map.of());
+        }
+        Map<String, Object> context = new HashMap<>(options.getToolContext());
+        List<Message> history = new ArrayList<>(prompt.getInstructions());
+        history.add(assistantMessage);
+        context.put(ToolContext.TOOL_CALL_HISTORY, history);
+        return new ToolContext(context);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.spring_ai_with_local_llm.tools;
+
+import com.example.spring_ai_with_local_llm.config.ToolProperties;
+import com.example.spring_ai_with_local_llm.metrics.MeteredToolCallback;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The tools offered to the model. Every bean with {@link Tool @Tool} methods is registered once
+ * the application context has started, with its definition (name, description and input schema)
+ * derived from the annotations. Each tool is timed by {@link MeteredToolCallback} and, if
+ * {@code app.tools} gives it a cache TTL, wrapped in a {@link CachingToolCallback}.
+ */
+public class ToolRegistry implements ToolCallbackProvider, ToolCallbackResolver {
+
+    private final ToolProperties properties;
+    private final MeterRegistry meterRegistry;
+    private volatile Map<String, ToolCallback> tools = Map.of();
+    private volatile ToolCallback[] callbacks = new ToolCallback[0];
+
+    public ToolRegistry(ToolProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Registers the {@code @Tool} methods of every singleton bean, without initializing beans
+     * early.
+     */
+    public void registerBeans(ListableBeanFactory beanFactory) {
+        for (String name : beanFactory.getBeanNamesForType(Object.class, false, false)) {
+            if (ScopedProxyUtils.isScopedTarget(name)) {
+                continue;
+            }
+            Class<?> type = beanFactory.getType(name, false);
+            if (type != null && hasToolMethods(ClassUtils.getUserClass(type))) {
+                register(beanFactory.getBean(name));
+            }
+        }
+    }
+
+    /**
+     * Registers the {@code @Tool} methods of {@code toolObject}.
+     */
+    public void register(Object toolObject) {
+        for (ToolCallback callback : ToolCallbacks.from(toolObject)) {
+            register(callback);
+        }
+    }
+
+    /**
+     * Registers a tool defined by hand.
+     *
+     * @throws IllegalStateException if a tool with the same name is already registered
+     */
+    public synchronized void register(ToolCallback callback) {
+        String name = callback.getToolDefinition().name();
+        if (tools.containsKey(name)) {
+            throw new IllegalStateException("A tool named '" + name + "' is already registered");
+        }
+        ToolCallback tool = new MeteredToolCallback(callback, meterRegistry);
+        Duration cacheTtl = properties.cacheTtl(name);
+        if (cacheTtl.isPositive()) {
+            tool = new CachingToolCallback(tool, cacheTtl, properties.cacheEntries(), meterRegistry);
+        }
+        Map<String, ToolCallback> registered = new LinkedHashMap<>(tools);
+        registered.put(name, tool);
+        tools = registered;
+        callbacks = registered.values().toArray(ToolCallback[]::new);
+    }
+
+    @Override
+    public ToolCallback[] getToolCallbacks() {
+        return callbacks.clone();
+    }
+
+    @Override
+    public ToolCallback resolve(String toolName) {
+        return tools.get(toolName);
+    }
+
+    private static boolean hasToolMethods(Class<?> type) {
+        return AnnotationUtils.isCandidateClass(type, Tool.class)
+            && !MethodIntrospector.selectMethods(type,
+                (ReflectionUtils.MethodFilter) method -> AnnotatedElementUtils.hasAnnotation(method, Tool.class)).isEmpty();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.OllamaResilienceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTests {
+
+	private static final long OPEN_NANOS = Duration.ofSeconds(30).toNanos();
+
+	private final CircuitBreaker breaker = new CircuitBreaker(
+		new OllamaResilienceProperties.CircuitBreaker(4, 3, 0.5, Duration.ofNanos(OPEN_NANOS)));
+
+	@Test
+	void opensOnceTheFailureRateOverTheWindowReachesTheThreshold() {
+		breaker.onFailure(0);
+		breaker.onSuccess();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		breaker.onFailure(0);
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquirePermission(1)).isFalse();
+		assertThat(breaker.remainingOpen(0)).isEqualTo(Duration.ofNanos(OPEN_NANOS));
+	}
+
+	@Test
+	void forgetsOutcomesThatLeftTheWindow() {
+		breaker.onFailure(0);
+		for (int i = 0; i < 4; i++) {
+			breaker.onSuccess();
+		}
+		breaker.onFailure(0);
+
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.failureRate()).isEqualTo(0.25);
+	}
+
+	@Test
+	void letsOneTrialCallThroughAfterTheOpenDuration() {
+		open();
+
+		assertThat(breaker.tryAcquirePermission(OPEN_NANOS)).isTrue();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquirePermission(OPEN_NANOS)).isFalse();
+
+		breaker.onSuccess();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.failureRate()).isZero();
+	}
+
+	@Test
+	void reopensWhenTheTrialCallFails() {
+		open();
+		breaker.tryAcquirePermission(OPEN_NANOS);
+
+		breaker.onFailure(OPEN_NANOS);
+
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.isCallPermitted(OPEN_NANOS + 1)).isFalse();
+		assertThat(breaker.isCallPermitted(2 * OPEN_NANOS)).isTrue();
+	}
+
+	@Test
+	void releasingTheTrialCallLetsAnotherOneThrough() {
+		open();
+		breaker.tryAcquirePermission(OPEN_NANOS);
+
+		breaker.release();
+
+		assertThat(breaker.tryAcquirePermission(OPEN_NANOS)).isTrue();
+	}
+
+	private void open() {
+		for (int i = 0; i < 3; i++) {
+			breaker.onFailure(0);
+		}
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+}
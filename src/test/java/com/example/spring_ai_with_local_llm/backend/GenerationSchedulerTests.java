@@ -0,0 +1,107 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.SchedulerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GenerationSchedulerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void admitsWaitingRequestsByPriority() throws Exception {
+		GenerationScheduler scheduler = new GenerationScheduler(new SchedulerProperties(1, 10, Duration.ofSeconds(5)), meterRegistry);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Priority> order = new CopyOnWriteArrayList<>();
+
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			callers.submit(() -> scheduler.execute(Priority.STANDARD, () -> {
+				running.countDown();
+				return await(release);
+			}));
+			running.await();
+			int queued = 0;
+			for (Priority priority : List.of(Priority.BATCH, Priority.STANDARD, Priority.INTERACTIVE)) {
+				callers.submit(() -> scheduler.execute(priority, () -> order.add(priority)));
+				queued++;
+				while (scheduler.queueDepth() < queued) {
+					Thread.sleep(5);
+				}
+			}
+			release.countDown();
+		}
+
+		assertThat(order).containsExactly(Priority.INTERACTIVE, Priority.STANDARD, Priority.BATCH);
+		assertThat(scheduler.inFlight()).isZero();
+	}
+
+	@Test
+	void rejectsWith429WhenQueueIsFullAnd503AfterDeadline() throws Exception {
+		GenerationScheduler scheduler = new GenerationScheduler(new SchedulerProperties(1, 1, Duration.ofMillis(200)), meterRegistry);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			callers.submit(() -> scheduler.execute(Priority.STANDARD, () -> {
+				running.countDown();
+				return await(release);
+			}));
+			running.await();
+			var queued = callers.submit(() -> scheduler.execute(Priority.STANDARD, () -> true));
+			while (scheduler.queueDepth() < 1) {
+				Thread.sleep(5);
+			}
+
+			assertThatThrownBy(() -> scheduler.execute(Priority.INTERACTIVE, () -> true))
+				.isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+					assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+					assertThat(e.getRetryAfter()).isPositive();
+				});
+			assertThatThrownBy(queued::get)
+				.hasCauseInstanceOf(AdmissionRejectedException.class)
+				.cause().satisfies(e -> assertThat(((AdmissionRejectedException) e).getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+			release.countDown();
+		}
+
+		assertThat(scheduler.queueDepth()).isZero();
+		assertThat(meterRegistry.get("llm.scheduler.rejected").tag("reason", "queue_full").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.scheduler.rejected").tag("reason", "queue_timeout").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void releasesTheSlotWhenAStreamingGenerationFailsToStart() {
+		GenerationScheduler scheduler = new GenerationScheduler(new SchedulerProperties(1, 10, Duration.ofSeconds(5)), meterRegistry);
+
+		Flux<String> failing = scheduler.stream(Priority.STANDARD, () -> {
+			throw new IllegalStateException("no backend");
+		});
+
+		assertThatThrownBy(failing::blockLast).hasMessage("no backend");
+		assertThat(scheduler.inFlight()).isZero();
+		assertThat(scheduler.stream(Priority.STANDARD, () -> Flux.just("token")).collectList().block(Duration.ofSeconds(5)))
+			.containsExactly("token");
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyWindowTests {
+
+	@Test
+	void computesPercentilesOverTheMostRecentLatencies() {
+		LatencyWindow window = new LatencyWindow(4);
+		window.record(40);
+		window.record(10);
+		window.record(30);
+
+		assertThat(window.percentile(0.5, 4)).isEmpty();
+		assertThat(window.percentile(0.5, 3)).isEqualTo(OptionalLong.of(30));
+		assertThat(window.percentile(1, 3)).isEqualTo(OptionalLong.of(40));
+
+		window.record(20);
+		window.record(100);
+		window.record(200);
+
+		// 40 and 10 were overwritten
+		assertThat(window.percentile(0, 1)).isEqualTo(OptionalLong.of(20));
+		assertThat(window.percentile(0.5, 1)).isEqualTo(OptionalLong.of(30));
+		assertThat(window.percentile(0.95, 1)).isEqualTo(OptionalLong.of(200));
+	}
+}
@@ -0,0 +1,175 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.OllamaResilienceProperties;
+import com.example.spring_ai_with_local_llm.config.OllamaRoutingProperties;
+import com.example.spring_ai_with_local_llm.config.OllamaWarmupProperties;
+import com.example.spring_ai_with_local_llm.service.ChatService;
+import com.example.spring_ai_with_local_llm.support.OllamaStubServer;
+import com.example.spring_ai_with_local_llm.tools.DateTimeTools;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.ollama.management.PullModelStrategy;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelWarmupTests {
+
+	private static final String MODEL = "stub-model:latest";
+	private static final String FALLBACK_MODEL = "gemma3:1b";
+
+	private final OllamaStubServer first = startOllama();
+	private final OllamaStubServer second = startOllama();
+
+	@AfterEach
+	void stopOllama() {
+		first.close();
+		second.close();
+	}
+
+	@Test
+	void loadsTheModelsOnEveryBackendBeforeReportingReady() {
+		RoutingChatModel routing = routing(first, second);
+		ModelWarmup warmup = warmup(routing, Duration.ofMinutes(1), Duration.ZERO, Duration.ofHours(1));
+		ModelWarmupHealthIndicator health = new ModelWarmupHealthIndicator(warmup);
+		assertThat(health.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+		warmup.warmUp();
+
+		for (OllamaStubServer ollama : List.of(first, second)) {
+			assertThat(ollama.pulledModels()).containsExactly(FALLBACK_MODEL);
+			assertThat(ollama.requestedModels()).containsExactly(MODEL, FALLBACK_MODEL);
+			String prompt = ollama.chatRequestBodies().get(0);
+			assertThat(prompt).contains("getCurrentDateTime", "\"tools\"", "\"num_predict\":1", "\"keep_alive\":\"30m\"");
+			assertThat(prompt.replace("\\n", "\n")).contains(ChatService.TOOLS_SYSTEM_PROMPT.strip());
+			assertThat(ollama.chatRequestBodies().get(1)).contains("\"messages\":[]", "\"keep_alive\":\"30m\"");
+		}
+		Health ready = health.health();
+		assertThat(ready.getStatus()).isEqualTo(Status.UP);
+		assertThat(ready.getDetails()).containsEntry("phase", "warm");
+		assertThat(ready.getDetails().get("backends")).isEqualTo(Map.of(
+			first.baseUrl(), Map.of(MODEL, "warm", FALLBACK_MODEL, "warm"),
+			second.baseUrl(), Map.of(MODEL, "warm", FALLBACK_MODEL, "warm")));
+	}
+
+	@Test
+	void keepsRetryingABackendThatIsDownButReportsReadyAfterTheTimeout() throws Exception {
+		second.failing(true);
+		RoutingChatModel routing = routing(first, second);
+		ModelWarmup warmup = warmup(routing, Duration.ZERO, Duration.ZERO, Duration.ofHours(1));
+		ModelWarmupHealthIndicator health = new ModelWarmupHealthIndicator(warmup);
+
+		warmup.start();
+		try {
+			Thread.sleep(300);
+			assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+			assertThat(health.health().getDetails()).containsEntry("phase", "timed-out");
+			assertThat(first.requestedModels()).containsExactly(MODEL, FALLBACK_MODEL);
+
+			second.failing(false);
+			long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+			while (warmup.phase() != ModelWarmup.Phase.WARM && System.nanoTime() < deadline) {
+				Thread.sleep(20);
+			}
+			assertThat(warmup.phase()).isEqualTo(ModelWarmup.Phase.WARM);
+			assertThat(second.requestedModels()).endsWith(MODEL, FALLBACK_MODEL);
+			// The first backend was warm already and is not warmed up again
+			assertThat(first.requestedModels()).hasSize(2);
+		} finally {
+			warmup.stop();
+		}
+	}
+
+	@Test
+	void pingsIdleModelsAndReloadsOnlyTheUnloadedOnesThatHadRequests() {
+		first.loadedModels(MODEL, FALLBACK_MODEL);
+		RoutingChatModel routing = routing(first);
+		ModelWarmup warmup = warmup(routing, Duration.ofMinutes(1), Duration.ZERO, Duration.ofHours(1));
+		warmup.warmUp();
+		routing.checkHealth();
+
+		warmup.keepAlive();
+
+		// Idle for longer than the idle time (zero): both are pinged, without a prompt
+		assertThat(first.requestedModels()).containsExactly(MODEL, FALLBACK_MODEL, MODEL, FALLBACK_MODEL);
+		assertThat(first.chatRequestBodies().subList(2, 4)).allMatch(body -> body.contains("\"messages\":[]"));
+
+		// Ollama restarted: only the model that answered a request is loaded again, with the prompt
+		routing.call(new Prompt("hello"));
+		first.loadedModels();
+		routing.checkHealth();
+		warmup.keepAlive();
+
+		assertThat(first.requestedModels()).containsExactly(MODEL, FALLBACK_MODEL, MODEL, FALLBACK_MODEL, MODEL, MODEL);
+		assertThat(first.chatRequestBodies().get(5)).contains("getCurrentDateTime", "\"num_predict\":1");
+		assertThat(new ModelWarmupHealthIndicator(warmup).health().getDetails().get("backends"))
+			.isEqualTo(Map.of(first.baseUrl(), Map.of(MODEL, "warm", FALLBACK_MODEL, "cold")));
+	}
+
+	@Test
+	void leavesModelsWithoutRecentTrafficToBeUnloaded() {
+		first.loadedModels(MODEL, FALLBACK_MODEL);
+		RoutingChatModel routing = routing(first);
+		ModelWarmup warmup = warmup(routing, Duration.ofMinutes(1), Duration.ZERO, Duration.ZERO);
+		warmup.warmUp();
+		routing.checkHealth();
+
+		warmup.keepAlive();
+
+		assertThat(first.requestedModels()).containsExactly(MODEL, FALLBACK_MODEL);
+	}
+
+	private static ModelWarmup warmup(RoutingChatModel routing, Duration readinessTimeout, Duration idleTime,
+									  Duration trafficWindow) {
+		OllamaWarmupProperties properties = new OllamaWarmupProperties(true, List.of(), PullModelStrategy.WHEN_MISSING,
+			Duration.ofSeconds(5), Duration.ofMillis(50), readinessTimeout,
+			new OllamaWarmupProperties.KeepAlive(Duration.ofMinutes(1), idleTime, trafficWindow));
+		OllamaResilienceProperties resilience = new OllamaResilienceProperties(Duration.ofSeconds(1),
+			Duration.ofSeconds(5), Duration.ofSeconds(5),
+			new OllamaResilienceProperties.Retry(1, Duration.ofMillis(10), 0, 0),
+			new OllamaResilienceProperties.CircuitBreaker(10, 5, 1.0, Duration.ofMinutes(1)),
+			FALLBACK_MODEL, RoutingChatModelTests.NO_HEDGING);
+		return new ModelWarmup(routing, properties, resilience, ChatService.TOOLS_SYSTEM_PROMPT,
+			MethodToolCallbackProvider.builder().toolObjects(new DateTimeTools()).build(),
+			baseUrl -> OllamaApi.builder().baseUrl(baseUrl).build(), new SimpleMeterRegistry());
+	}
+
+	private static RoutingChatModel routing(OllamaStubServer... servers) {
+		OllamaRoutingProperties properties = new OllamaRoutingProperties(List.of(),
+			OllamaRoutingProperties.Strategy.LEAST_OUTSTANDING, Duration.ofSeconds(1), 2, Duration.ofMillis(200));
+		OllamaResilienceProperties resilience = new OllamaResilienceProperties(Duration.ofSeconds(1),
+			Duration.ofSeconds(5), Duration.ofSeconds(5),
+			new OllamaResilienceProperties.Retry(1, Duration.ofMillis(10), 0, 0),
+			new OllamaResilienceProperties.CircuitBreaker(10, 5, 1.0, Duration.ofMinutes(1)), "",
+			RoutingChatModelTests.NO_HEDGING);
+		List<OllamaBackend> backends = Arrays.stream(servers)
+			.map(server -> new OllamaBackend(server.baseUrl(), OllamaChatModel.builder()
+				.ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+				.defaultOptions(OllamaOptions.builder().model(MODEL).keepAlive("30m").build())
+				.retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+				.build()))
+			.toList();
+		return new RoutingChatModel(backends, properties, resilience, new SimpleMeterRegistry());
+	}
+
+	private static OllamaStubServer startOllama() {
+		try {
+			return new OllamaStubServer().model(MODEL);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriorityTests {
+
+	@Test
+	void headerCanOnlyLowerTheDefaultOfTheMethod() {
+		assertThat(Priority.of("GET", null)).isEqualTo(Priority.INTERACTIVE);
+		assertThat(Priority.of("POST", null)).isEqualTo(Priority.STANDARD);
+
+		assertThat(Priority.of("GET", "batch")).isEqualTo(Priority.BATCH);
+		assertThat(Priority.of("POST", " Batch ")).isEqualTo(Priority.BATCH);
+		assertThat(Priority.of("GET", "standard")).isEqualTo(Priority.STANDARD);
+
+		assertThat(Priority.of("POST", "interactive")).isEqualTo(Priority.STANDARD);
+		assertThat(Priority.of("POST", "urgent")).isEqualTo(Priority.STANDARD);
+	}
+}
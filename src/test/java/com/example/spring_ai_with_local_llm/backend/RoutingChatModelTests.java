@@ -0,0 +1,312 @@
+package com.example.spring_ai_with_local_llm.backend;
+
+import com.example.spring_ai_with_local_llm.config.OllamaResilienceProperties;
+import com.example.spring_ai_with_local_llm.config.OllamaRoutingProperties;
+import com.example.spring_ai_with_local_llm.support.OllamaStubServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class RoutingChatModelTests {
+
+	private static final String MODEL = "stub-model:latest";
+	private static final String FALLBACK_MODEL = "gemma3:1b";
+
+	static final OllamaResilienceProperties.Hedging NO_HEDGING = new OllamaResilienceProperties.Hedging(false, 0.95,
+		Duration.ofMillis(250), Duration.ofSeconds(10), 200, 20, 0.05);
+
+	private final OllamaStubServer first = startOllama();
+	private final OllamaStubServer second = startOllama();
+
+	@AfterEach
+	void stopOllama() {
+		first.close();
+		second.close();
+	}
+
+	@Test
+	void spillsOverToOtherBackendsUnderLoad() throws Exception {
+		first.latency(Duration.ofMillis(300));
+		second.latency(Duration.ofMillis(300));
+		RoutingChatModel routing = routing(first, second);
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> calls = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				calls.add(executor.submit(() -> routing.call(new Prompt("hello"))));
+			}
+			for (Future<?> call : calls) {
+				call.get();
+			}
+		}
+
+		assertThat(first.chatRequests()).isPositive();
+		assertThat(second.chatRequests()).isPositive();
+	}
+
+	@Test
+	void prefersBackendThatHasTheModelLoaded() {
+		second.loadedModels(MODEL);
+		RoutingChatModel routing = routing(first, second);
+		routing.checkHealth();
+
+		for (int i = 0; i < 5; i++) {
+			routing.call(new Prompt("hello"));
+		}
+
+		assertThat(first.chatRequests()).isZero();
+		assertThat(second.chatRequests()).isEqualTo(5);
+	}
+
+	@Test
+	void ejectsBackendAfterConsecutiveFailures() {
+		RoutingChatModel routing = routing(first);
+		first.failing(true);
+
+		for (int i = 0; i < 2; i++) {
+			assertThatThrownBy(() -> routing.call(new Prompt("hello"))).isInstanceOf(RuntimeException.class);
+		}
+
+		assertThat(routing.backends().get(0).isHealthy()).isFalse();
+	}
+
+	@Test
+	void routesAroundBackendThatFailsItsHealthCheckUntilItRecovers() throws Exception {
+		RoutingChatModel routing = routing(first, second);
+		first.failing(true);
+		routing.checkHealth();
+
+		for (int i = 0; i < 5; i++) {
+			routing.call(new Prompt("hello"));
+		}
+		assertThat(first.chatRequests()).isZero();
+		assertThat(second.chatRequests()).isEqualTo(5);
+
+		first.failing(false);
+		Thread.sleep(300);
+		routing.checkHealth();
+		assertThat(routing.backends().get(0).isHealthy()).isTrue();
+	}
+
+	@Test
+	void keepsRoutingWhenEveryBackendIsEjected() {
+		RoutingChatModel routing = routing(first);
+		first.failing(true);
+		routing.checkHealth();
+		first.failing(false);
+
+		assertThat(routing.backends().get(0).isHealthy()).isFalse();
+		assertThat(routing.call(new Prompt("hello")).getResult().getOutput().getText()).isEqualTo("Hello from the stub");
+	}
+
+	@Test
+	void retriesOnAnotherBackendWhenTheConnectionIsRefused() {
+		RoutingChatModel routing = routing(resilience(3, 1, ""), "http://localhost:1", second.baseUrl());
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(routing.call(new Prompt("hello")).getResult().getOutput().getText()).isEqualTo("Hello from the stub");
+		}
+		assertThat(second.chatRequests()).isEqualTo(3);
+	}
+
+	@Test
+	void retriesServerErrorsButNotClientErrors() {
+		RoutingChatModel routing = routing(resilience(3, 1, ""), first.baseUrl());
+
+		first.failNext(1, 503);
+		assertThat(routing.call(new Prompt("hello")).getResult().getOutput().getText()).isEqualTo("Hello from the stub");
+		assertThat(first.chatRequests()).isEqualTo(2);
+
+		first.failNext(1, 400);
+		assertThatThrownBy(() -> routing.call(new Prompt("hello"))).isInstanceOf(NonTransientAiException.class);
+		assertThat(first.chatRequests()).isEqualTo(3);
+	}
+
+	@Test
+	void retriesStopWhenTheBudgetIsSpent() {
+		RoutingChatModel routing = routing(resilience(3, 0, ""), first.baseUrl());
+		first.failNext(100, 503);
+
+		assertThatThrownBy(() -> routing.call(new Prompt("hello"))).isInstanceOf(BackendUnavailableException.class);
+		assertThat(first.chatRequests()).isEqualTo(1);
+	}
+
+	@Test
+	void opensCircuitBreakerAndFailsFast() {
+		RoutingChatModel routing = routing(resilience(1, 1, ""), first.baseUrl());
+		first.failing(true);
+
+		for (int i = 0; i < 4; i++) {
+			assertThatThrownBy(() -> routing.call(new Prompt("hello"))).isInstanceOf(BackendUnavailableException.class);
+		}
+
+		assertThat(first.chatRequests()).isEqualTo(2);
+		assertThat(new CircuitBreakerEndpoint(routing).circuitBreakers())
+			.extracting(CircuitBreakerEndpoint.BreakerState::model, CircuitBreakerEndpoint.BreakerState::state)
+			.containsExactly(tuple(MODEL, "open"));
+	}
+
+	@Test
+	void answersWithTheFallbackModelWhenTheModelFails() {
+		RoutingChatModel routing = routing(resilience(1, 1, FALLBACK_MODEL), first.baseUrl());
+		first.failModel(MODEL);
+
+		ChatResponse response = routing.call(new Prompt("hello"));
+
+		assertThat(response.getResult().getOutput().getText()).isEqualTo("Hello from the stub");
+		assertThat(first.requestedModels()).containsExactly(MODEL, FALLBACK_MODEL);
+	}
+
+	@Test
+	void retriesStreamOnAnotherBackendWhenTheFirstTokenIsLate() {
+		first.latency(Duration.ofSeconds(2));
+		RoutingChatModel routing = routing(resilience(3, 1, ""), first.baseUrl(), second.baseUrl());
+
+		String answer = routing.stream(new Prompt("hello"))
+			.map(response -> response.getResult().getOutput().getText())
+			.collect(Collectors.joining())
+			.block(Duration.ofSeconds(5));
+
+		assertThat(answer).isEqualTo("Hello from the stub");
+		assertThat(second.chatRequests()).isEqualTo(1);
+	}
+
+	@Test
+	void hedgesOnAnotherBackendWhenTheFirstChunkIsLate() {
+		second.loadedModels(MODEL).latency(Duration.ofSeconds(3));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RoutingChatModel routing = routing(resilience(1, 0, "", hedging(1)), meterRegistry, first.baseUrl(), second.baseUrl());
+		routing.checkHealth();
+
+		long start = System.nanoTime();
+		ChatResponse response = routing.call(new Prompt("hello"));
+
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+		assertThat(response.getResult().getOutput().getText()).isEqualTo("Hello from the stub");
+		assertThat(response.getMetadata().getUsage().getTotalTokens()).isEqualTo(20);
+		assertThat(second.chatRequests()).isEqualTo(1);
+		assertThat(first.chatRequests()).isEqualTo(1);
+		assertThat(hedges(meterRegistry, "won")).isEqualTo(1);
+	}
+
+	@Test
+	void keepsTheFirstRequestWhenItAnswersBeforeTheHedge() {
+		second.loadedModels(MODEL).latency(Duration.ofMillis(300));
+		first.latency(Duration.ofSeconds(3));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RoutingChatModel routing = routing(resilience(1, 0, "", hedging(1)), meterRegistry, first.baseUrl(), second.baseUrl());
+		routing.checkHealth();
+
+		String answer = routing.stream(new Prompt("hello"))
+			.map(response -> response.getResult().getOutput().getText())
+			.collect(Collectors.joining())
+			.block(Duration.ofSeconds(2));
+
+		assertThat(answer).isEqualTo("Hello from the stub");
+		assertThat(first.chatRequests()).isEqualTo(1);
+		assertThat(hedges(meterRegistry, "lost")).isEqualTo(1);
+		assertThat(hedges(meterRegistry, "won")).isZero();
+	}
+
+	@Test
+	void hedgesNoMoreThanTheBudgetAllows() {
+		second.loadedModels(MODEL).latency(Duration.ofMillis(300));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RoutingChatModel routing = routing(resilience(1, 0, "", hedging(0)), meterRegistry, first.baseUrl(), second.baseUrl());
+		routing.checkHealth();
+
+		routing.call(new Prompt("hello"));
+
+		assertThat(first.chatRequests()).isZero();
+		assertThat(hedges(meterRegistry, "budget_exhausted")).isEqualTo(1);
+	}
+
+	@Test
+	void reportsAnEmptyHedgedStreamAsUnavailable() {
+		first.emptyStreams(true);
+		second.emptyStreams(true);
+		RoutingChatModel routing = routing(resilience(1, 0, "", hedging(1)), first.baseUrl(), second.baseUrl());
+
+		assertThatThrownBy(() -> routing.call(new Prompt("hello")))
+			.isInstanceOf(BackendUnavailableException.class)
+			.hasMessageContaining("no response");
+	}
+
+	private static double hedges(MeterRegistry meterRegistry, String result) {
+		return meterRegistry.get("llm.backend.hedges").tag("result", result).counter().count();
+	}
+
+	private static RoutingChatModel routing(OllamaStubServer... servers) {
+		return routing(resilience(1, 1, ""), Arrays.stream(servers).map(OllamaStubServer::baseUrl).toArray(String[]::new));
+	}
+
+	private static RoutingChatModel routing(OllamaResilienceProperties resilience, String... baseUrls) {
+		return routing(resilience, new SimpleMeterRegistry(), baseUrls);
+	}
+
+	private static RoutingChatModel routing(OllamaResilienceProperties resilience, MeterRegistry meterRegistry,
+											String... baseUrls) {
+		OllamaRoutingProperties properties = new OllamaRoutingProperties(List.of(),
+			OllamaRoutingProperties.Strategy.LEAST_OUTSTANDING, Duration.ofSeconds(1), 2, Duration.ofMillis(200));
+		List<OllamaBackend> backends = Arrays.stream(baseUrls)
+			.map(baseUrl -> new OllamaBackend(baseUrl, OllamaChatModel.builder()
+				.ollamaApi(OllamaApi.builder().baseUrl(baseUrl).build())
+				.defaultOptions(OllamaOptions.builder().model(MODEL).build())
+				.retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+				.build()))
+			.toList();
+		return new RoutingChatModel(backends, properties, resilience, meterRegistry);
+	}
+
+	/**
+	 * First-token timeout of 500 ms; the breaker opens on 2 failures out of at least 2 calls.
+	 */
+	private static OllamaResilienceProperties resilience(int maxAttempts, double minRetriesPerSecond, String fallbackModel) {
+		return resilience(maxAttempts, minRetriesPerSecond, fallbackModel, NO_HEDGING);
+	}
+
+	private static OllamaResilienceProperties resilience(int maxAttempts, double minRetriesPerSecond, String fallbackModel,
+														 OllamaResilienceProperties.Hedging hedging) {
+		return new OllamaResilienceProperties(Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofMillis(500),
+			new OllamaResilienceProperties.Retry(maxAttempts, Duration.ofMillis(10), 0, minRetriesPerSecond),
+			new OllamaResilienceProperties.CircuitBreaker(10, 2, 1.0, Duration.ofMinutes(1)),
+			fallbackModel, hedging);
+	}
+
+	/**
+	 * Hedges after 100 ms until 3 first-chunk latencies are known, then after their median.
+	 */
+	private static OllamaResilienceProperties.Hedging hedging(double budgetRatio) {
+		return new OllamaResilienceProperties.Hedging(true, 0.5, Duration.ofMillis(20), Duration.ofMillis(100), 10, 3,
+			budgetRatio);
+	}
+
+	private static OllamaStubServer startOllama() {
+		try {
+			return new OllamaStubServer();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.example.spring_ai_with_local_llm.benchmark;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Deterministic in-process {@link ChatModel}: every call answers with the same tokens after a fixed
+ * latency, so that benchmarks measure the application's own overhead around the model.
+ */
+public class FakeChatModel implements ChatModel {
+
+    public static final String MODEL = "fake-model";
+
+    private final List<String> tokens;
+    private final Duration latency;
+    private final ChatResponse response;
+
+    public FakeChatModel(int tokenCount, Duration latency) {
+        List<String> tokens = new ArrayList<>(tokenCount);
+        for (int i = 0; i < tokenCount; i++) {
+            tokens.add(i == 0 ? "token" : " token" + i);
+        }
+        this.tokens = List.copyOf(tokens);
+        this.latency = latency;
+        this.response = chunk(String.join("", this.tokens), true);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        pause();
+        return response;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.range(0, tokens.size())
+            .doOnSubscribe(subscription -> pause())
+            .map(i -> chunk(tokens.get(i), i == tokens.size() - 1));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().model(MODEL).temperature(0.7).build();
+    }
+
+    private ChatResponse chunk(String text, boolean last) {
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder().model(MODEL);
+        if (last) {
+            metadata.usage(new DefaultUsage(32, tokens.size()));
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+    }
+
+    private void pause() {
+        if (!latency.isZero()) {
+            LockSupport.parkNanos(latency.toNanos());
+        }
+    }
+}
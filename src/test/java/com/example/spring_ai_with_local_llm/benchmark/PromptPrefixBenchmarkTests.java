@@ -0,0 +1,79 @@
+package com.example.spring_ai_with_local_llm.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares Ollama's prompt evaluation time for the old date/time prompt layout (system prompt
+ * carrying a nanosecond timestamp, so every prefix is new) with the current one (fixed system
+ * prompt, minute-resolution context after the user message).
+ * <p>
+ * Needs a running Ollama, so it only runs when {@code OLLAMA_BENCHMARK_URL} is set, e.g.
+ * {@code OLLAMA_BENCHMARK_URL=http://localhost:11434 ./mvnw test -Dtest=PromptPrefixBenchmarkTests}.
+ * The model can be overridden with {@code OLLAMA_BENCHMARK_MODEL}.
+ */
+@EnabledIfEnvironmentVariable(named = "OLLAMA_BENCHMARK_URL", matches = ".+")
+class PromptPrefixBenchmarkTests {
+
+	private static final int ROUNDS = 10;
+
+	private static final List<String> QUESTIONS = List.of(
+		"What day of the week is it?", "Which month are we in?", "How many days are left this year?",
+		"Is it morning or evening?", "What year is it?");
+
+	private static final String INSTRUCTIONS = """
+		You are a helpful AI assistant. Answer briefly and precisely. When the question concerns dates or
+		times, reason step by step about calendars, time zones, leap years and daylight saving time before
+		giving the final answer, and state the assumptions you made about the user's locale.
+		""";
+
+	private final OllamaChatModel chatModel = OllamaChatModel.builder()
+		.ollamaApi(OllamaApi.builder().baseUrl(System.getenv("OLLAMA_BENCHMARK_URL")).build())
+		.defaultOptions(OllamaOptions.builder()
+			.model(System.getenv().getOrDefault("OLLAMA_BENCHMARK_MODEL", "gemma3:1b"))
+			.numPredict(1)
+			.keepAlive("30m")
+			.build())
+		.build();
+
+	@Test
+	void stablePrefixReducesPromptEvaluationTime() {
+		// Warm-up: load the model
+		chatModel.call(new Prompt(new UserMessage("Hello")));
+
+		Duration volatilePrefix = averagePromptEval(question -> new Prompt(List.of(
+			new SystemMessage(INSTRUCTIONS + "Current date and time: " + LocalDateTime.now()),
+			new UserMessage(question))));
+		Duration stablePrefix = averagePromptEval(question -> new Prompt(List.of(
+			new SystemMessage(INSTRUCTIONS),
+			new UserMessage(question + "\n\nCurrent date and time: " + LocalDateTime.now().withSecond(0).withNano(0)))));
+
+		System.out.printf("Average prompt eval over %d requests: volatile prefix %d ms, stable prefix %d ms%n",
+			ROUNDS, volatilePrefix.toMillis(), stablePrefix.toMillis());
+		assertThat(stablePrefix).isLessThan(volatilePrefix);
+	}
+
+	private Duration averagePromptEval(Function<String, Prompt> promptFactory) {
+		Duration total = Duration.ZERO;
+		for (int i = 0; i < ROUNDS; i++) {
+			ChatResponse response = chatModel.call(promptFactory.apply(QUESTIONS.get(i % QUESTIONS.size())));
+			Duration promptEval = response.getMetadata().get("prompt-eval-duration");
+			total = total.plus(promptEval != null ? promptEval : Duration.ZERO);
+		}
+		return total.dividedBy(ROUNDS);
+	}
+}
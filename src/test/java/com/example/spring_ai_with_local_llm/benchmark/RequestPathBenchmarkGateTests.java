@@ -0,0 +1,79 @@
+package com.example.spring_ai_with_local_llm.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link RequestPathBenchmarks} and fails when a benchmark got slower than its baseline in
+ * {@code benchmark/request-path-baseline.json} by more than the baseline's tolerance factor.
+ * Scores are compared relative to the calibration benchmark, so a faster or slower machine does
+ * not trip the gate.
+ * <p>
+ * Runs with {@code ./mvnw clean test -Pbenchmark}. The current scores are written to
+ * {@code target/benchmark/request-path.json} in the baseline format; copy that file over the
+ * baseline to accept a change.
+ */
+@EnabledIfSystemProperty(named = "benchmark.gate", matches = "true")
+class RequestPathBenchmarkGateTests {
+
+	private static final String BASELINE = "/benchmark/request-path-baseline.json";
+	private static final String CALIBRATION = "calibration";
+
+	private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+	@Test
+	void requestPathOverheadStaysWithinBaseline() throws Exception {
+		Collection<RunResult> results = new Runner(new OptionsBuilder()
+			.include(RequestPathBenchmarks.class.getName())
+			.build()).run();
+
+		Map<String, Double> scores = new TreeMap<>();
+		for (RunResult result : results) {
+			String label = result.getParams().getBenchmark();
+			scores.put(label.substring(label.lastIndexOf('.') + 1), result.getPrimaryResult().getScore());
+		}
+		double calibration = scores.remove(CALIBRATION);
+		Map<String, Double> relative = new TreeMap<>();
+		scores.forEach((name, score) -> relative.put(name, round(score / calibration)));
+
+		Baseline baseline;
+		try (InputStream in = getClass().getResourceAsStream(BASELINE)) {
+			baseline = objectMapper.readValue(in, Baseline.class);
+		}
+		Path report = Path.of("target", "benchmark", "request-path.json");
+		Files.createDirectories(report.getParent());
+		objectMapper.writeValue(report.toFile(), new Baseline(baseline.tolerance(), relative));
+
+		List<String> regressions = new ArrayList<>();
+		relative.forEach((name, current) -> {
+			Double expected = baseline.benchmarks().get(name);
+			if (expected != null && current > expected * baseline.tolerance()) {
+				regressions.add("%s: %.4f x calibration, baseline %.4f (tolerance %.2f)"
+					.formatted(name, current, expected, baseline.tolerance()));
+			}
+		});
+		assertThat(regressions).as("Benchmarks slower than the baseline, see " + report).isEmpty();
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 10_000) / 10_000.0;
+	}
+
+	record Baseline(double tolerance, Map<String, Double> benchmarks) {}
+}
@@ -0,0 +1,137 @@
+package com.example.spring_ai_with_local_llm.benchmark;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.cache.NoOpResponseCache;
+import com.example.spring_ai_with_local_llm.cache.RequestCoalescer;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties.Strategy;
+import com.example.spring_ai_with_local_llm.config.SchedulerProperties;
+import com.example.spring_ai_with_local_llm.config.ToolProperties;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import com.example.spring_ai_with_local_llm.service.ChatModelService;
+import com.example.spring_ai_with_local_llm.tools.DateTimeTools;
+import com.example.spring_ai_with_local_llm.tools.ToolRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of the application around the model, measured against {@link FakeChatModel}
+ * with no latency. {@link #calibration()} is a fixed CPU workload that the regression gate divides
+ * every score by, so that baselines carry over between machines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class RequestPathBenchmarks {
+
+    private static final String SYSTEM_PROMPT = "You have access to a tool called `getCurrentDateTime`.";
+    private static final String MESSAGE = "What is Spring Boot?";
+    private static final int STREAM_TOKENS = 64;
+
+    private final byte[] calibrationInput = "calibration".repeat(400).getBytes(StandardCharsets.UTF_8);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ChatClient chatClient;
+    private ToolCallback toolCallback;
+    private ToolCallingManager toolCallingManager;
+    private ToolCallingChatOptions toolOptions;
+    private ChatModelService chatModelService;
+    private ChatModelResponse response;
+
+    @Setup
+    public void setUp() {
+        FakeChatModel chatModel = new FakeChatModel(STREAM_TOKENS, Duration.ZERO);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        chatClient = ChatClient.builder(chatModel).build();
+        ToolRegistry tools = new ToolRegistry(new ToolProperties(Duration.ofSeconds(10), Duration.ZERO, 256, null), meterRegistry);
+        tools.register(new DateTimeTools());
+        toolCallback = tools.resolve("getCurrentDateTime");
+        toolCallingManager = DefaultToolCallingManager.builder().build();
+        toolOptions = ToolCallingChatOptions.builder().toolCallbacks(toolCallback).build();
+        chatModelService = new ChatModelService(chatModel, new NoOpResponseCache(), new RequestCoalescer(meterRegistry),
+            new GenerationScheduler(new SchedulerProperties(Integer.MAX_VALUE, 1, Duration.ofMinutes(1)), meterRegistry),
+            new LlmMetrics(meterRegistry), MessageWindowChatMemory.builder().build(),
+            new PromptCompressor(new PromptCompressionProperties(true, 4096, Map.of(), 1024, List.of(Strategy.values()), 3, 0.3),
+                new JTokkitTokenCountEstimator(), meterRegistry));
+        response = chatModelService.chat(MESSAGE);
+    }
+
+    @Benchmark
+    public byte[] calibration() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(calibrationInput);
+    }
+
+    /** ChatClient prompt assembly and advisor chain around a call, as in {@code ChatService.chat}. */
+    @Benchmark
+    public ChatResponse chatClientPrompt() {
+        return chatClient.prompt()
+            .system(SYSTEM_PROMPT)
+            .user(MESSAGE)
+            .toolCallbacks(toolCallback)
+            .call()
+            .chatResponse();
+    }
+
+    /** Turning the registered tool callbacks into the tool definitions sent with each request. */
+    @Benchmark
+    public List<ToolDefinition> toolCallbackResolution() {
+        return toolCallingManager.resolveToolDefinitions(toolOptions);
+    }
+
+    /** Invoking the registered (uncached) {@code getCurrentDateTime} tool as the tool-calling loop does. */
+    @Benchmark
+    public String toolCallbackCall() {
+        return toolCallback.call("{}");
+    }
+
+    /** The full blocking path of {@code ChatModelService.chat}, including mapping to {@link ChatModelResponse}. */
+    @Benchmark
+    public ChatModelResponse chatModelServiceChat() {
+        return chatModelService.chat(MESSAGE);
+    }
+
+    @Benchmark
+    public byte[] responseSerialization() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    /** Aggregating a streamed response of {@value #STREAM_TOKENS} tokens in {@code ChatModelService.chatStream}. */
+    @Benchmark
+    public String streamAggregation() {
+        return chatModelService.chatStream(MESSAGE).block();
+    }
+}
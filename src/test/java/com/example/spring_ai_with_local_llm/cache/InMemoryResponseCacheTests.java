@@ -0,0 +1,99 @@
+package com.example.spring_ai_with_local_llm.cache;
+
+import com.example.spring_ai_with_local_llm.config.ResponseCacheProperties;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.ChatOptions;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryResponseCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void servesStrippedMessageFromExactTier() {
+		InMemoryResponseCache cache = new InMemoryResponseCache(properties(10, Duration.ofMinutes(1), Duration.ZERO), null, meterRegistry);
+		AtomicInteger calls = new AtomicInteger();
+
+		cache.getOrCompute(ResponseCacheKey.of(null, "system", "What is  Spring Boot?", false), () -> answer(calls));
+		ChatModelResponse second = cache.getOrCompute(ResponseCacheKey.of(null, "system", " What is  Spring Boot?\n", false), () -> answer(calls));
+		ChatModelResponse recased = cache.getOrCompute(ResponseCacheKey.of(null, "system", "what is spring boot?", false), () -> answer(calls));
+
+		assertThat(calls).hasValue(2);
+		assertThat(second.response()).isEqualTo("answer 1");
+		assertThat(recased.response()).isEqualTo("answer 2");
+		assertThat(meterRegistry.get("llm.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void keepsTimeSensitiveAnswersOutWhenTheirTtlIsZero() {
+		InMemoryResponseCache cache = new InMemoryResponseCache(properties(10, Duration.ofMinutes(1), Duration.ZERO), null, meterRegistry);
+		AtomicInteger calls = new AtomicInteger();
+		ResponseCacheKey key = ResponseCacheKey.of(null, "system", "What time is it?", true);
+
+		cache.getOrCompute(key, () -> answer(calls));
+		cache.getOrCompute(key, () -> answer(calls));
+
+		assertThat(calls).hasValue(2);
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedEntryWhenFull() {
+		InMemoryResponseCache cache = new InMemoryResponseCache(properties(2, Duration.ofMinutes(1), Duration.ZERO), null, meterRegistry);
+		AtomicInteger calls = new AtomicInteger();
+
+		cache.getOrCompute(ResponseCacheKey.of(null, null, "a", false), () -> answer(calls));
+		cache.getOrCompute(ResponseCacheKey.of(null, null, "b", false), () -> answer(calls));
+		cache.getOrCompute(ResponseCacheKey.of(null, null, "a", false), () -> answer(calls));
+		cache.getOrCompute(ResponseCacheKey.of(null, null, "c", false), () -> answer(calls));
+		cache.getOrCompute(ResponseCacheKey.of(null, null, "a", false), () -> answer(calls));
+		cache.getOrCompute(ResponseCacheKey.of(null, null, "b", false), () -> answer(calls));
+
+		assertThat(calls).hasValue(4);
+	}
+
+	@Test
+	void servesExpiredAnswerWhenGeneratingAFreshOneFails() throws Exception {
+		InMemoryResponseCache cache = new InMemoryResponseCache(properties(10, Duration.ofMillis(50), Duration.ZERO), null, meterRegistry);
+		AtomicInteger calls = new AtomicInteger();
+		ResponseCacheKey key = ResponseCacheKey.of(null, null, "question", false);
+		cache.getOrCompute(key, () -> answer(calls));
+		Thread.sleep(100);
+
+		ChatModelResponse stale = cache.getOrCompute(key, () -> {
+			throw new IllegalStateException("Ollama is down");
+		});
+		ChatModelResponse fresh = cache.getOrCompute(key, () -> answer(calls));
+
+		assertThat(stale.response()).isEqualTo("answer 1");
+		assertThat(fresh.response()).isEqualTo("answer 2");
+		assertThat(meterRegistry.get("llm.cache.requests").tag("result", "stale").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void doesNotCacheAnswersFromAnotherModel() {
+		InMemoryResponseCache cache = new InMemoryResponseCache(properties(10, Duration.ofMinutes(1), Duration.ZERO), null, meterRegistry);
+		ResponseCacheKey key = ResponseCacheKey.of(ChatOptions.builder().model("llama3.1").build(), null, "question", false);
+
+		cache.getOrCompute(key, () -> new ChatModelResponse("from the fallback", "gemma3:1b", 10L));
+		cache.getOrCompute(key, () -> new ChatModelResponse("from the model", "llama3.1:latest", 10L));
+
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.getOrCompute(key, () -> new ChatModelResponse("again", "llama3.1", 10L)).response()).isEqualTo("from the model");
+	}
+
+	private static ChatModelResponse answer(AtomicInteger calls) {
+		return new ChatModelResponse("answer " + calls.incrementAndGet(), "test-model", 10L);
+	}
+
+	private static ResponseCacheProperties properties(int maxEntries, Duration ttl, Duration timeSensitiveTtl) {
+		return new ResponseCacheProperties(true, maxEntries, ttl, timeSensitiveTtl, Duration.ofMinutes(1),
+			new ResponseCacheProperties.Semantic(false, 0.95));
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.spring_ai_with_local_llm.cache;
+
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatStreamEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final RequestCoalescer coalescer = new RequestCoalescer(meterRegistry);
+	private final ResponseCacheKey key = ResponseCacheKey.of(null, null, "What is Spring Boot?", false);
+
+	@Test
+	void concurrentIdenticalCallsShareOneGeneration() throws Exception {
+		AtomicInteger generations = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		List<Future<ChatModelResponse>> results = new ArrayList<>();
+
+		try (ExecutorService callers = Executors.newFixedThreadPool(5)) {
+			for (int i = 0; i < 5; i++) {
+				results.add(callers.submit(() -> coalescer.call(key, () -> {
+					generations.incrementAndGet();
+					await(release);
+					return new ChatModelResponse("shared", "test-model", 10L);
+				})));
+			}
+			Thread.sleep(200);
+			release.countDown();
+		}
+
+		for (Future<ChatModelResponse> result : results) {
+			assertThat(result.get().response()).isEqualTo("shared");
+		}
+		assertThat(generations).hasValue(1);
+		assertThat(meterRegistry.get("llm.requests.coalesced").tag("mode", "call").counter().count()).isEqualTo(4);
+	}
+
+	@Test
+	void lateStreamSubscriberReceivesTheWholeResponse() {
+		AtomicInteger generations = new AtomicInteger();
+		Flux<ChatStreamEvent> upstream = Flux.just("Hello", " world")
+			.map(ChatStreamEvent::token)
+			.delayElements(Duration.ofMillis(100))
+			.doOnSubscribe(subscription -> generations.incrementAndGet());
+
+		Flux<ChatStreamEvent> first = coalescer.stream(key, () -> upstream);
+		Flux<ChatStreamEvent> second = coalescer.stream(key, () -> upstream);
+
+		List<ChatStreamEvent> firstEvents = new ArrayList<>();
+		first.subscribe(firstEvents::add);
+		List<ChatStreamEvent> secondEvents = second.delaySubscription(Duration.ofMillis(150)).collectList().block();
+
+		assertThat(secondEvents).extracting(ChatStreamEvent::content).containsExactly("Hello", " world");
+		assertThat(firstEvents).extracting(ChatStreamEvent::content).containsExactly("Hello", " world");
+		assertThat(generations).hasValue(1);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.cache.NoOpResponseCache;
+import com.example.spring_ai_with_local_llm.cache.RequestCoalescer;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties.Strategy;
+import com.example.spring_ai_with_local_llm.config.SchedulerProperties;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import com.example.spring_ai_with_local_llm.service.ChatModelService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class ChatModelControllerTests {
+
+	private final Sinks.Many<ChatResponse> upstream = Sinks.many().unicast().onBackpressureBuffer();
+	private final AtomicBoolean cancelled = new AtomicBoolean();
+
+	private final ChatModel chatModel = new ChatModel() {
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Flux<ChatResponse> stream(Prompt prompt) {
+			return upstream.asFlux().doOnCancel(() -> cancelled.set(true));
+		}
+
+		@Override
+		public ChatOptions getDefaultOptions() {
+			return ChatOptions.builder().model("stub-model").build();
+		}
+	};
+
+	private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+		new ChatModelController(chatModelService(), null, null, null)).build();
+
+	@Test
+	void streamsEachTokenBeforeTheGenerationCompletes() throws Exception {
+		MvcResult result = startStream();
+
+		upstream.tryEmitNext(chunk("Hello", null));
+		awaitContent(result, "\"content\":\"Hello\"");
+		assertThat(result.getResponse().getContentAsString()).startsWith("event:token").doesNotContain("event:done");
+
+		upstream.tryEmitNext(chunk(" world", new DefaultUsage(12, 2)));
+		upstream.tryEmitComplete();
+		awaitContent(result, "\"totalTokens\":14");
+
+		String body = result.getResponse().getContentAsString();
+		assertThat(body.indexOf("\"content\":\" world\"")).isLessThan(body.indexOf("event:done"));
+		String done = body.substring(body.indexOf("event:done"));
+		assertThat(done).contains("\"model\":\"stub-model\"", "\"promptTokens\":12", "\"completionTokens\":2",
+			"\"totalTokens\":14");
+	}
+
+	@Test
+	void cancelsTheGenerationWhenTheClientDisconnectsBeforeTheFirstToken() throws Exception {
+		MvcResult result = startStream();
+		await(() -> upstream.currentSubscriberCount() == 1);
+
+		MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+		}
+
+		await(cancelled::get);
+		assertThat(result.getResponse().getContentAsString()).isEmpty();
+	}
+
+	private MvcResult startStream() throws Exception {
+		return mockMvc.perform(get("/api/chat-model/stream").param("message", "hi").accept(MediaType.TEXT_EVENT_STREAM))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+	}
+
+	private ChatModelService chatModelService() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		return new ChatModelService(chatModel, new NoOpResponseCache(), new RequestCoalescer(registry),
+			new GenerationScheduler(new SchedulerProperties(1, 10, Duration.ofSeconds(5)), registry),
+			new LlmMetrics(registry), MessageWindowChatMemory.builder().build(),
+			new PromptCompressor(new PromptCompressionProperties(true, 4096, Map.of(), 1024, List.of(Strategy.values()), 3, 0.3),
+				new JTokkitTokenCountEstimator(), registry));
+	}
+
+	private static ChatResponse chunk(String text, DefaultUsage usage) {
+		ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder().model("stub-model");
+		if (usage != null) {
+			metadata.usage(usage);
+		}
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+	}
+
+	private static void awaitContent(MvcResult result, String expected) {
+		await(() -> {
+			try {
+				return result.getResponse().getContentAsString().contains(expected);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("waited 5 seconds").isLessThan(deadline);
+			Thread.onSpinWait();
+		}
+	}
+}
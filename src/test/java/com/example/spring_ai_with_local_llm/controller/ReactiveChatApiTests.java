@@ -0,0 +1,211 @@
+package com.example.spring_ai_with_local_llm.controller;
+
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatResponse;
+import com.example.spring_ai_with_local_llm.dto.ChatStreamEvent;
+import com.example.spring_ai_with_local_llm.dto.ClientUsage;
+import com.example.spring_ai_with_local_llm.dto.EmbeddingResponse;
+import com.example.spring_ai_with_local_llm.dto.StructuredStreamEvent;
+import com.example.spring_ai_with_local_llm.support.OllamaStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.main.web-application-type=reactive",
+	"app.cache.enabled=false",
+	"app.ollama.warmup.enabled=false",
+	"app.quota.enabled=true",
+	"app.quota.unknown-keys=reject",
+	"app.quota.clients.limited.api-key=secret",
+	"app.quota.clients.limited.requests-per-second=0.01",
+	"app.quota.clients.limited.request-burst=1"
+})
+class ReactiveChatApiTests {
+
+	private static final OllamaStubServer ollama = startOllama();
+
+	@Autowired
+	private ReactiveWebServerApplicationContext context;
+
+	@Autowired
+	private WebTestClient client;
+
+	@DynamicPropertySource
+	static void ollamaProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.ai.ollama.base-url", ollama::baseUrl);
+	}
+
+	@AfterAll
+	static void stopOllama() {
+		ollama.close();
+	}
+
+	@Test
+	void servesTheChatApiOnNetty() {
+		assertThat(context.getWebServer()).isInstanceOf(NettyWebServer.class);
+
+		ChatModelResponse chatModel = client.get().uri("/api/chat-model?message=hello")
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody(ChatModelResponse.class)
+			.returnResult().getResponseBody();
+		assertThat(chatModel.response()).isEqualTo("Hello from the reactive stub");
+		assertThat(chatModel.model()).isEqualTo("stub-model");
+		assertThat(chatModel.totalTokens()).isEqualTo(20L);
+		assertThat(chatModel.compression()).isNull();
+
+		client.post().uri("/api/chat")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"message\":\"hello\"}")
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody(ChatResponse.class)
+			.value(response -> assertThat(response.response()).isEqualTo("Hello from the reactive stub"));
+	}
+
+	@Test
+	void streamsServerSentEvents() {
+		List<ServerSentEvent<ChatStreamEvent>> events = client.get().uri("/api/chat-model/stream?message=stream")
+			.accept(MediaType.TEXT_EVENT_STREAM)
+			.exchange()
+			.expectStatus().isOk()
+			.returnResult(new ParameterizedTypeReference<ServerSentEvent<ChatStreamEvent>>() {})
+			.getResponseBody()
+			.collectList()
+			.block();
+
+		assertThat(events).extracting(ServerSentEvent::event)
+			.containsExactly("token", "token", "token", "token", "token", "done");
+		assertThat(events.getLast().data().totalTokens()).isEqualTo(20L);
+		assertThat(events.getLast().data().compression()).isNull();
+	}
+
+	@Test
+	void limitsEachClientAndReportsItsUsage() {
+		client.get().uri("/api/chat-model?message=hello")
+			.header("X-API-Key", "secret")
+			.exchange()
+			.expectStatus().isOk();
+
+		client.get().uri("/api/chat-model?message=hello")
+			.header("X-API-Key", "secret")
+			.exchange()
+			.expectStatus().isEqualTo(429)
+			.expectHeader().valueEquals("Retry-After", "100");
+
+		ClientUsage usage = client.get().uri("/api/usage/limited")
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody(ClientUsage.class)
+			.returnResult().getResponseBody();
+		assertThat(usage.requests()).isEqualTo(1);
+		assertThat(usage.rejected()).isEqualTo(1);
+		assertThat(usage.totalTokens()).isEqualTo(20L);
+		assertThat(usage.estimatedTokens()).isEqualTo(1);
+		assertThat(usage.lastRequest()).isNotNull();
+
+		client.get().uri("/api/chat-model?message=hello")
+			.header("X-API-Key", "made-up")
+			.exchange()
+			.expectStatus().isUnauthorized();
+	}
+
+	@Test
+	void streamsStructuredFieldsAndRejectsInvalidAnswers() {
+		String request = """
+			{"message": "Where is Lyon?",
+			 "schema": {"type": "object", "properties": {"city": {"type": "string"}, "country": {"type": "string"}},
+			            "required": ["city", "country"], "additionalProperties": false}}
+			""";
+		try {
+			ollama.reply("{\"city\": \"Lyon\", \"country\": \"France\"}");
+			List<ServerSentEvent<StructuredStreamEvent>> events = client.post().uri("/api/chat-model/structured/stream")
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.bodyValue(request)
+				.exchange()
+				.expectStatus().isOk()
+				.returnResult(new ParameterizedTypeReference<ServerSentEvent<StructuredStreamEvent>>() {})
+				.getResponseBody()
+				.collectList()
+				.block();
+
+			assertThat(events).extracting(ServerSentEvent::event).containsExactly("field", "field", "done");
+			assertThat(events.getFirst().data().value().asText()).isEqualTo("Lyon");
+			assertThat(events.getLast().data().totalTokens()).isEqualTo(20L);
+			assertThat(ollama.chatRequestBodies().getLast()).contains("\"format\":{\"type\":\"object\"");
+
+			ollama.reply("{\"town\": \"Lyon\"}");
+			client.post().uri("/api/chat-model/structured")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(request)
+				.exchange()
+				.expectStatus().isEqualTo(422)
+				.expectBody()
+				.jsonPath("$.detail").isEqualTo("The model did not answer with JSON matching the schema: $: unexpected property 'town'");
+		} finally {
+			ollama.reply("Hello from the reactive stub");
+		}
+	}
+
+	@Test
+	void servesEmbeddingsAsJsonAndBinary() {
+		EmbeddingResponse json = client.post().uri("/api/embeddings")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"texts\":[\"Spring Boot\",\"Ollama\"]}")
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody(EmbeddingResponse.class)
+			.returnResult().getResponseBody();
+		assertThat(json.model()).isEqualTo("mxbai-embed-large");
+		assertThat(json.dimensions()).isEqualTo(4);
+		assertThat(json.embeddings().get(1)).containsExactly(OllamaStubServer.embedding("Ollama"));
+
+		byte[] binary = client.get().uri("/api/embeddings?text=Ollama")
+			.accept(MediaType.APPLICATION_OCTET_STREAM)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+			.expectHeader().valueEquals(EmbeddingController.MODEL_HEADER, "mxbai-embed-large")
+			.expectBody(byte[].class)
+			.returnResult().getResponseBody();
+		ByteBuffer buffer = ByteBuffer.wrap(binary).order(ByteOrder.LITTLE_ENDIAN);
+		assertThat(buffer.getInt()).isEqualTo(1);
+		assertThat(buffer.getInt()).isEqualTo(4);
+		float[] vector = new float[4];
+		buffer.asFloatBuffer().get(vector);
+		assertThat(vector).containsExactly(OllamaStubServer.embedding("Ollama"));
+		// The second request was served from the cache
+		assertThat(ollama.embedBatchSizes()).containsExactly(2);
+
+		client.post().uri("/api/embeddings")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"texts\":[]}")
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+
+	private static OllamaStubServer startOllama() {
+		try {
+			return new OllamaStubServer().reply("Hello from the reactive stub");
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
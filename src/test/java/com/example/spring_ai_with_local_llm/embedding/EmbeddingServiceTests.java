@@ -0,0 +1,148 @@
+package com.example.spring_ai_with_local_llm.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddingServiceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CountingEmbeddingModel model = new CountingEmbeddingModel();
+	private EmbeddingBatcher batcher;
+
+	@AfterEach
+	void closeBatcher() {
+		batcher.close();
+	}
+
+	@Test
+	void embedsConcurrentRequestsInOneBatch() {
+		EmbeddingService service = service(Duration.ofMillis(50), 64, 100);
+
+		List<CompletableFuture<EmbeddingService.Embeddings>> requests = IntStream.range(0, 10)
+			.mapToObj(i -> service.embed(List.of("text " + i)))
+			.toList();
+
+		for (int i = 0; i < requests.size(); i++) {
+			assertThat(requests.get(i).join().vectors().getFirst()).containsExactly(CountingEmbeddingModel.vector("text " + i));
+		}
+		assertThat(model.batchSizes).containsExactly(10);
+		assertThat(meterRegistry.get("llm.embedding.batch.size").summary().max()).isEqualTo(10);
+	}
+
+	@Test
+	void sendsFullBatchesAtOnce() {
+		EmbeddingService service = service(Duration.ofMinutes(1), 4, 100);
+
+		List<String> texts = IntStream.range(0, 8).mapToObj(i -> "text " + i).toList();
+		EmbeddingService.Embeddings embeddings = service.embed(texts).join();
+
+		assertThat(embeddings.model()).isEqualTo("embed-model");
+		assertThat(embeddings.vectors()).hasSize(8);
+		assertThat(embeddings.vectors().get(5)).containsExactly(CountingEmbeddingModel.vector("text 5"));
+		assertThat(model.batchSizes).containsExactly(4, 4);
+	}
+
+	@Test
+	void servesRepeatedAndConcurrentIdenticalTextsOnce() throws Exception {
+		EmbeddingService service = service(Duration.ZERO, 64, 100);
+		model.gate = new CountDownLatch(1);
+
+		CompletableFuture<EmbeddingService.Embeddings> first = service.embed(List.of("same"));
+		CompletableFuture<EmbeddingService.Embeddings> second = service.embed(List.of("same", "same"));
+		model.gate.countDown();
+		assertThat(first.join().vectors().getFirst()).isSameAs(second.join().vectors().get(1));
+
+		assertThat(service.embed(List.of("same")).join().vectors().getFirst()).containsExactly(CountingEmbeddingModel.vector("same"));
+		assertThat(model.embedded).containsExactly("same");
+		assertThat(meterRegistry.get("llm.embedding.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.embedding.cache.requests").tag("result", "coalesced").counter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("llm.embedding.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.embedding.cache.bytes").gauge().value()).isEqualTo(4.0 * 3);
+	}
+
+	@Test
+	void failsTheWholeBatchAndCachesNothing() {
+		EmbeddingService service = service(Duration.ofMillis(20), 64, 100);
+		model.failing = true;
+
+		CompletableFuture<EmbeddingService.Embeddings> first = service.embed(List.of("a"));
+		CompletableFuture<EmbeddingService.Embeddings> second = service.embed(List.of("b"));
+
+		assertThat(first).failsWithin(Duration.ofSeconds(5));
+		assertThat(second).failsWithin(Duration.ofSeconds(5));
+		model.failing = false;
+		assertThat(service.embed(List.of("a")).join().vectors()).hasSize(1);
+	}
+
+	@Test
+	void rejectsEmptyAndOversizedRequests() {
+		EmbeddingService service = service(Duration.ZERO, 64, 2);
+
+		assertThatThrownBy(() -> service.embed(List.of())).isInstanceOf(ResponseStatusException.class);
+		assertThatThrownBy(() -> service.embed(List.of("a", "b", "c"))).isInstanceOf(ResponseStatusException.class);
+		assertThatThrownBy(() -> service.embed(Collections.singletonList(null))).isInstanceOf(ResponseStatusException.class);
+		assertThat(model.batchSizes).isEmpty();
+	}
+
+	private EmbeddingService service(Duration window, int maxBatchSize, int maxTexts) {
+		batcher = new EmbeddingBatcher(model, window, maxBatchSize, meterRegistry);
+		return new EmbeddingService(batcher, new EmbeddingCache(100, meterRegistry), "embed-model", maxTexts, meterRegistry);
+	}
+
+	private static class CountingEmbeddingModel implements EmbeddingModel {
+
+		final List<String> embedded = new CopyOnWriteArrayList<>();
+		final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+		volatile CountDownLatch gate;
+		volatile boolean failing;
+
+		@Override
+		public EmbeddingResponse call(EmbeddingRequest request) {
+			if (gate != null) {
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failing) {
+				throw new IllegalStateException("embedding model down");
+			}
+			batchSizes.add(request.getInstructions().size());
+			List<Embedding> embeddings = new ArrayList<>();
+			for (String text : request.getInstructions()) {
+				embedded.add(text);
+				embeddings.add(new Embedding(vector(text), embeddings.size()));
+			}
+			return new EmbeddingResponse(embeddings);
+		}
+
+		@Override
+		public float[] embed(Document document) {
+			return vector(document.getText());
+		}
+
+		static float[] vector(String text) {
+			return new float[] {text.length(), text.hashCode(), 1};
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.example.spring_ai_with_local_llm.load;
+
+import com.example.spring_ai_with_local_llm.support.OllamaStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires 1,000 concurrent blocking chat requests at the application, backed by a stub Ollama with
+ * 100 ms latency, and reports the platform thread peak and p50/p99 latency. 200 requests are sent
+ * first so that the measured ones run on compiled code. Fails if the platform threads grow by 200
+ * or more, or if the p99 latency exceeds {@code load.max-p99}. Its default of 20s is a measured
+ * p99 of 14-15 s on a single CPU plus a third; the latency mostly depends on the CPUs available to
+ * the client, the application and the stub, so set it from a measurement on other hardware.
+ * <p>
+ * Not part of the regular build; run with
+ * {@code mvn test -Dtest=VirtualThreadLoadTests -Dload.virtual-threads=true [-Dload.max-p99=20s]}.
+ */
+@EnabledIfSystemProperty(named = "load.virtual-threads", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.threads.virtual.enabled=true",
+	"app.cache.enabled=false",
+	"app.ollama.warmup.enabled=false",
+	"app.scheduler.max-in-flight=64",
+	"app.scheduler.queue-capacity=1000",
+	"app.scheduler.max-queue-time=2m"
+})
+class VirtualThreadLoadTests {
+
+	private static final int CONCURRENT_REQUESTS = 1000;
+	private static final int WARMUP_REQUESTS = 200;
+
+	private static final OllamaStubServer ollama = startOllama();
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void ollamaProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.ai.ollama.base-url", ollama::baseUrl);
+	}
+
+	@AfterAll
+	static void stopOllama() {
+		ollama.close();
+	}
+
+	@Test
+	void servesThousandConcurrentRequestsWithoutGrowingThePlatformThreadPool() throws Exception {
+		HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.executor(Executors.newVirtualThreadPerTaskExecutor())
+			.build();
+		send(client, WARMUP_REQUESTS);
+		int threadsBefore = applicationPlatformThreads();
+		AtomicInteger peakThreads = new AtomicInteger(threadsBefore);
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+		sampler.scheduleAtFixedRate(() -> peakThreads.accumulateAndGet(applicationPlatformThreads(), Math::max),
+			0, 20, TimeUnit.MILLISECONDS);
+
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+		List<Future<Integer>> statuses = new ArrayList<>();
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+				HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/chat-model?message=question-" + i))
+					.timeout(Duration.ofMinutes(1))
+					.build();
+				statuses.add(callers.submit(() -> {
+					long start = System.nanoTime();
+					HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+					latencies.add(System.nanoTime() - start);
+					return response.statusCode();
+				}));
+			}
+		} finally {
+			sampler.shutdownNow();
+		}
+
+		for (Future<Integer> status : statuses) {
+			assertThat(status.get()).isEqualTo(200);
+		}
+		Duration p99 = Duration.ofNanos(percentile(latencies, 0.99));
+		System.out.printf("%d concurrent requests: application platform threads %d -> peak %d, p50 %d ms, p99 %d ms, stub max in-flight %d%n",
+			CONCURRENT_REQUESTS, threadsBefore, peakThreads.get(),
+			Duration.ofNanos(percentile(latencies, 0.50)).toMillis(), p99.toMillis(), ollama.maxInFlight());
+
+		// Requests wait on virtual threads, not on the 200 platform threads a Tomcat pool would need
+		assertThat(peakThreads.get() - threadsBefore).isLessThan(200);
+		assertThat(ollama.maxInFlight()).isLessThanOrEqualTo(64);
+		assertThat(p99).isLessThanOrEqualTo(DurationStyle.detectAndParse(System.getProperty("load.max-p99", "20s")));
+	}
+
+	/**
+	 * Sends {@code count} concurrent requests and waits for their answers.
+	 */
+	private void send(HttpClient client, int count) throws Exception {
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < count; i++) {
+				HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/chat-model?message=warmup-" + i))
+					.timeout(Duration.ofMinutes(1))
+					.build();
+				callers.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding()));
+			}
+		}
+	}
+
+	/**
+	 * Live platform threads, excluding the stub Ollama's worker threads (virtual threads are not
+	 * reported by the thread MXBean).
+	 */
+	private static int applicationPlatformThreads() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int count = 0;
+		for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+			if (info != null && !info.getThreadName().startsWith(OllamaStubServer.THREAD_NAME_PREFIX)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static long percentile(List<Long> values, double percentile) {
+		List<Long> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+		return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+	}
+
+	private static OllamaStubServer startOllama() {
+		try {
+			return new OllamaStubServer().latency(Duration.ofMillis(100));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
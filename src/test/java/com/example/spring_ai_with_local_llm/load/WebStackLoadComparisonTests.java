@@ -0,0 +1,172 @@
+package com.example.spring_ai_with_local_llm.load;
+
+import com.example.spring_ai_with_local_llm.SpringAiWithLocalLlmApplication;
+import com.example.spring_ai_with_local_llm.support.OllamaStubServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Side-by-side comparison of the servlet stack (Tomcat on virtual threads) and the reactive stack
+ * (Netty) under many concurrent, mostly idle streaming connections: every client opens an SSE
+ * stream at once, and most of them wait in admission control until a backend slot frees up. The
+ * stub Ollama streams 20 tokens 10 ms apart. Reports, per stack, the platform thread and heap
+ * peaks, time to the response headers and to the end of the stream.
+ * <p>
+ * Not part of the regular build; run with
+ * {@code mvn test -Dtest=WebStackLoadComparisonTests -Dload.comparison=true [-Dload.connections=1000]}.
+ */
+@EnabledIfSystemProperty(named = "load.comparison", matches = "true")
+class WebStackLoadComparisonTests {
+
+	private static final int MAX_IN_FLIGHT = 16;
+
+	@Test
+	void comparesStreamingConnectionsOnTheServletAndReactiveStacks() throws Exception {
+		int connections = Integer.getInteger("load.connections", 1000);
+		String reply = IntStream.range(0, 20).mapToObj(i -> "token" + i).collect(Collectors.joining(" "));
+		try (OllamaStubServer ollama = new OllamaStubServer().reply(reply).tokenInterval(Duration.ofMillis(10))) {
+			Result servlet = run(WebApplicationType.SERVLET, ollama, connections);
+			Result reactive = run(WebApplicationType.REACTIVE, ollama, connections);
+
+			System.out.printf("%d concurrent SSE streams, %d generating at a time%n", connections, MAX_IN_FLIGHT);
+			System.out.printf("%-10s %12s %12s %14s %14s %14s %8s%n",
+				"stack", "threads", "heap MB", "headers p99", "stream p50", "stream p99", "errors");
+			Stream.of(servlet, reactive).forEach(result -> System.out.printf("%-10s %5d->%-6d %5d->%-6d %11d ms %11d ms %11d ms %8d%n",
+				result.stack(), result.threadsBefore(), result.peakThreads(), result.heapBeforeMb(), result.peakHeapMb(),
+				result.headersP99Millis(), result.streamP50Millis(), result.streamP99Millis(), result.errors()));
+
+			assertThat(servlet.errors()).isZero();
+			assertThat(reactive.errors()).isZero();
+		}
+	}
+
+	private static Result run(WebApplicationType type, OllamaStubServer ollama, int connections) throws Exception {
+		try (ConfigurableApplicationContext app = new SpringApplicationBuilder(SpringAiWithLocalLlmApplication.class)
+			.web(type)
+			.run(
+				"--server.port=0",
+				"--spring.ai.ollama.base-url=" + ollama.baseUrl(),
+				"--spring.threads.virtual.enabled=true",
+				"--app.cache.enabled=false",
+				"--app.ollama.warmup.enabled=false",
+				"--app.scheduler.max-in-flight=" + MAX_IN_FLIGHT,
+				"--app.scheduler.queue-capacity=" + connections,
+				"--app.scheduler.max-queue-time=5m")) {
+			int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+			HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.executor(Executors.newVirtualThreadPerTaskExecutor())
+				.build();
+
+			MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+			System.gc();
+			int threadsBefore = applicationPlatformThreads();
+			long heapBefore = memory.getHeapMemoryUsage().getUsed();
+			AtomicInteger peakThreads = new AtomicInteger(threadsBefore);
+			AtomicLong peakHeap = new AtomicLong(heapBefore);
+			ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+			sampler.scheduleAtFixedRate(() -> {
+				peakThreads.accumulateAndGet(applicationPlatformThreads(), Math::max);
+				peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+			}, 0, 20, TimeUnit.MILLISECONDS);
+
+			List<Long> headers = Collections.synchronizedList(new ArrayList<>());
+			List<Long> streams = Collections.synchronizedList(new ArrayList<>());
+			AtomicInteger errors = new AtomicInteger();
+			List<Future<?>> clients = new ArrayList<>();
+			try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int i = 0; i < connections; i++) {
+					HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/chat-model/stream?message=question-" + i))
+						.header("Accept", "text/event-stream")
+						.timeout(Duration.ofMinutes(5))
+						.build();
+					clients.add(callers.submit(() -> {
+						long start = System.nanoTime();
+						try {
+							HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+							headers.add(System.nanoTime() - start);
+							boolean done;
+							try (Stream<String> lines = response.body()) {
+								done = lines.anyMatch(line -> line.equals("event:done"));
+							}
+							if (response.statusCode() != 200 || !done) {
+								errors.incrementAndGet();
+							}
+							streams.add(System.nanoTime() - start);
+						} catch (Exception e) {
+							errors.incrementAndGet();
+						}
+						return null;
+					}));
+				}
+			} finally {
+				sampler.shutdownNow();
+			}
+			for (Future<?> future : clients) {
+				future.get();
+			}
+			return new Result(type.name().toLowerCase(), threadsBefore, peakThreads.get(), heapBefore >> 20, peakHeap.get() >> 20,
+				millis(percentile(headers, 0.99)), millis(percentile(streams, 0.50)), millis(percentile(streams, 0.99)),
+				errors.get());
+		}
+	}
+
+	/**
+	 * Live platform threads, excluding the stub Ollama's worker threads.
+	 */
+	private static int applicationPlatformThreads() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int count = 0;
+		for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+			if (info != null && !info.getThreadName().startsWith(OllamaStubServer.THREAD_NAME_PREFIX)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static long percentile(List<Long> values, double percentile) {
+		if (values.isEmpty()) {
+			return 0;
+		}
+		List<Long> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+		return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+	}
+
+	private static long millis(long nanos) {
+		return Duration.ofNanos(nanos).toMillis();
+	}
+
+	private record Result(String stack, int threadsBefore, int peakThreads, long heapBeforeMb, long peakHeapMb,
+						  long headersP99Millis, long streamP50Millis, long streamP99Millis, int errors) {}
+}
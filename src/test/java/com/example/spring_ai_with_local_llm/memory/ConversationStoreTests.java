@@ -0,0 +1,104 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationStoreTests {
+
+	private static final Conversation.Turn HELLO = new Conversation.Turn(Conversation.Role.USER, "hello", 1);
+	private static final Conversation.Turn HI = new Conversation.Turn(Conversation.Role.ASSISTANT, "hi", 1);
+
+	@Test
+	void inMemoryStoreDropsTheLeastRecentlyUsedConversation() {
+		InMemoryConversationStore store = new InMemoryConversationStore(2, Duration.ofMinutes(5));
+		store.update("a", conversation -> conversation.append(List.of(HELLO)));
+		store.update("b", conversation -> conversation.append(List.of(HELLO)));
+		store.find("a");
+		store.update("c", conversation -> conversation.append(List.of(HELLO)));
+
+		assertThat(store.find("a")).isPresent();
+		assertThat(store.find("b")).isEmpty();
+		assertThat(store.size()).isEqualTo(2);
+	}
+
+	@Test
+	void inMemoryStoreExpiresIdleConversations() throws Exception {
+		InMemoryConversationStore store = new InMemoryConversationStore(10, Duration.ofMillis(50));
+		store.update("a", conversation -> conversation.append(List.of(HELLO)));
+		Thread.sleep(100);
+
+		assertThat(store.evictExpired()).isEqualTo(1);
+		assertThat(store.find("a")).isEmpty();
+	}
+
+	@Test
+	void fileStoreKeepsConversationsAcrossInstances(@TempDir Path directory) {
+		ObjectMapper objectMapper = new ObjectMapper();
+		FileConversationStore store = new FileConversationStore(directory, Duration.ofMinutes(5), objectMapper);
+		store.update("user:42/chat", conversation -> conversation.append(List.of(HELLO, HI)).summarize(1, "greeted", 1));
+
+		Conversation reloaded = new FileConversationStore(directory, Duration.ofMinutes(5), objectMapper)
+			.find("user:42/chat").orElseThrow();
+
+		assertThat(reloaded.summary()).isEqualTo("greeted");
+		assertThat(reloaded.turns()).containsExactly(HI);
+		assertThat(reloaded.totalTokens()).isEqualTo(2);
+	}
+
+	@Test
+	void fileStoreExpiresIdleConversations(@TempDir Path directory) throws Exception {
+		FileConversationStore store = new FileConversationStore(directory, Duration.ofMinutes(5), new ObjectMapper());
+		store.update("a", conversation -> conversation.append(List.of(HELLO)));
+		store.update("b", conversation -> conversation.append(List.of(HELLO)));
+		try (var files = Files.list(directory)) {
+			Path first = files.findFirst().orElseThrow();
+			Files.setLastModifiedTime(first, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+		}
+
+		assertThat(store.evictExpired()).isEqualTo(1);
+		assertThat(store.size()).isEqualTo(1);
+	}
+
+	@Test
+	void fileStoreCountsItsConversationsWithoutListingThem(@TempDir Path directory) throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		FileConversationStore store = new FileConversationStore(directory, Duration.ofMinutes(5), objectMapper);
+		store.update("a", conversation -> conversation.append(List.of(HELLO)));
+		store.update("a", conversation -> conversation.append(List.of(HI)));
+		store.update("b", conversation -> conversation.append(List.of(HELLO)));
+		assertThat(store.size()).isEqualTo(2);
+
+		store.delete("b");
+		store.delete("b");
+		assertThat(store.size()).isEqualTo(1);
+		assertThat(new FileConversationStore(directory, Duration.ofMinutes(5), objectMapper).size()).isEqualTo(1);
+
+		try (var files = Files.list(directory)) {
+			Files.setLastModifiedTime(files.findFirst().orElseThrow(), FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+		}
+		assertThat(store.find("a")).isEmpty();
+		assertThat(store.size()).isZero();
+	}
+
+	@Test
+	void fileStoreKeepsTheTextOfEachTurnAsWritten(@TempDir Path directory) throws Exception {
+		Conversation.Turn answer = new Conversation.Turn(Conversation.Role.ASSISTANT, "It\u2019s 20\u00b0C \u2014 \uD83C\uDF24", 9);
+		FileConversationStore store = new FileConversationStore(directory, Duration.ofMinutes(5), new ObjectMapper());
+		store.update("a", conversation -> conversation.append(List.of(HELLO, answer)));
+
+		assertThat(store.find("a").orElseThrow().turns()).containsExactly(HELLO, answer);
+		try (var files = Files.list(directory)) {
+			assertThat(Files.readString(files.findFirst().orElseThrow())).contains("\"text\":\"It\u2019s 20\u00b0C");
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.spring_ai_with_local_llm.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenWindowChatMemoryTests {
+
+	/** One token per word keeps the budgets in these tests easy to follow. */
+	private static final TokenCountEstimator WORDS = new TokenCountEstimator() {
+		@Override
+		public int estimate(String text) {
+			return text.isBlank() ? 0 : text.strip().split("\\s+").length;
+		}
+
+		@Override
+		public int estimate(MediaContent content) {
+			return estimate(content.getText());
+		}
+
+		@Override
+		public int estimate(Iterable<MediaContent> contents) {
+			int total = 0;
+			for (MediaContent content : contents) {
+				total += estimate(content);
+			}
+			return total;
+		}
+	};
+
+	private final InMemoryConversationStore store = new InMemoryConversationStore(100, Duration.ofMinutes(5));
+	private final List<String> previousSummaries = new ArrayList<>();
+
+	@Test
+	void returnsTheMostRecentTurnsThatFitTheTokenBudget() {
+		TokenWindowChatMemory memory = memory(20, (summary, turns) -> {
+			throw new IllegalStateException("summarizer unavailable");
+		});
+
+		memory.add("c1", List.of(new UserMessage("zero one two three four five"), new AssistantMessage("six seven eight nine ten")));
+		memory.add("c1", List.of(new UserMessage("eleven twelve thirteen"), new AssistantMessage("fourteen fifteen")));
+		memory.add("c1", List.of(new UserMessage("sixteen seventeen eighteen nineteen"), new AssistantMessage("twenty")));
+
+		// 21 tokens stored, the window keeps the newest 19 even though summarizing failed
+		assertThat(memory.get("c1")).extracting(Message::getText).containsExactly(
+			"six seven eight nine ten", "eleven twelve thirteen", "fourteen fifteen",
+			"sixteen seventeen eighteen nineteen", "twenty");
+		assertThat(memory.get("other")).isEmpty();
+	}
+
+	@Test
+	void foldsOldTurnsIntoTheSummaryOnceOverBudget() {
+		TokenWindowChatMemory memory = memory(20, (summary, turns) -> {
+			previousSummaries.add(summary);
+			return "summary of " + turns.size() + " turns";
+		});
+
+		for (int i = 0; i < 10; i++) {
+			memory.add("c1", List.of(new UserMessage("question number " + i), new AssistantMessage("answer number " + i)));
+		}
+
+		Conversation stored = store.find("c1").orElseThrow();
+		// Later summaries build on the earlier ones, and the stored history stays within the budget
+		assertThat(previousSummaries).hasSizeGreaterThan(1);
+		assertThat(previousSummaries.get(0)).isNull();
+		assertThat(previousSummaries.get(1)).startsWith("summary of");
+		assertThat(stored.totalTokens()).isLessThanOrEqualTo(20);
+		assertThat(stored.turns().get(stored.turns().size() - 1).text()).isEqualTo("answer number 9");
+
+		List<Message> window = memory.get("c1");
+		assertThat(window.get(0).getMessageType()).isEqualTo(MessageType.SYSTEM);
+		assertThat(window.get(0).getText()).contains("summary of");
+		assertThat(window.get(window.size() - 1).getText()).isEqualTo("answer number 9");
+	}
+
+	@Test
+	void clearForgetsTheConversation() {
+		TokenWindowChatMemory memory = memory(100, (summary, turns) -> "unused");
+		memory.add("c1", new UserMessage("hello there"));
+
+		memory.clear("c1");
+
+		assertThat(memory.get("c1")).isEmpty();
+	}
+
+	private TokenWindowChatMemory memory(int tokenBudget, ConversationSummarizer summarizer) {
+		return new TokenWindowChatMemory(store, summarizer, WORDS, tokenBudget, Runnable::run, new SimpleMeterRegistry());
+	}
+}
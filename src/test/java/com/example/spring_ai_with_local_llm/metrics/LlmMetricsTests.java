@@ -0,0 +1,72 @@
+package com.example.spring_ai_with_local_llm.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmMetricsTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final LlmMetrics metrics = new LlmMetrics(registry);
+
+	@Test
+	void recordsDurationTokensAndThroughputOfACall() {
+		metrics.record("/api/chat", "requested", () -> response("Hi", "gemma3", 12, 30));
+
+		assertThat(registry.get("llm.generation.duration")
+			.tags("endpoint", "/api/chat", "model", "gemma3", "outcome", "success").timer().count()).isEqualTo(1);
+		assertThat(registry.get("llm.tokens").tags("model", "gemma3", "type", "prompt").counter().count()).isEqualTo(12);
+		assertThat(registry.get("llm.tokens").tags("model", "gemma3", "type", "completion").counter().count()).isEqualTo(30);
+		assertThat(registry.get("llm.generation.throughput").tags("endpoint", "/api/chat").summary().mean()).isPositive();
+	}
+
+	@Test
+	void recordsTimeToFirstTokenOfAStream() {
+		Flux<ChatResponse> chunks = Flux.just(response("", null, null, null), response("Hel", null, null, null),
+			response("lo", "gemma3", 5, 2));
+
+		assertThat(metrics.record("/api/chat-model/stream", "gemma3", chunks).collectList().block()).hasSize(3);
+
+		assertThat(registry.get("llm.generation.ttft").tags("model", "gemma3").timer().count()).isEqualTo(1);
+		assertThat(registry.get("llm.generation.duration").tags("outcome", "success").timer().count()).isEqualTo(1);
+		assertThat(registry.get("llm.tokens").tags("type", "completion").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void countsTimeoutsSeparatelyFromOtherErrors() {
+		assertThatThrownBy(() -> metrics.record("/api/chat", "gemma3", () -> {
+			throw new IllegalStateException("I/O error", new HttpTimeoutException("request timed out"));
+		})).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> metrics.record("/api/chat", "gemma3", () -> {
+			throw new IllegalStateException("boom");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(registry.get("llm.generation.errors").tags("reason", "timeout").counter().count()).isEqualTo(1);
+		assertThat(registry.get("llm.generation.errors").tags("reason", "error").counter().count()).isEqualTo(1);
+		assertThat(registry.get("llm.generation.duration").tags("outcome", "timeout").timer().totalTime(TimeUnit.NANOSECONDS))
+			.isPositive();
+	}
+
+	private static ChatResponse response(String text, String model, Integer promptTokens, Integer completionTokens) {
+		ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+		if (model != null) {
+			metadata.model(model);
+		}
+		if (promptTokens != null) {
+			metadata.usage(new DefaultUsage(promptTokens, completionTokens));
+		}
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+	}
+}
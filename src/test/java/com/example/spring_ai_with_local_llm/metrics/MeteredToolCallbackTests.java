@@ -0,0 +1,36 @@
+package com.example.spring_ai_with_local_llm.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeteredToolCallbackTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void timesEachCallByToolAndOutcome() {
+		ToolCallback tool = new MeteredToolCallback(FunctionToolCallback
+			.builder("getCurrentDateTime", (String input) -> {
+				if (input.contains("fail")) {
+					throw new IllegalStateException("tool failed");
+				}
+				return "2025-01-01T00:00";
+			})
+			.inputType(String.class)
+			.build(), registry);
+
+		tool.call("\"now\"");
+		tool.call("\"now\"");
+		assertThatThrownBy(() -> tool.call("\"fail\"")).isInstanceOf(RuntimeException.class);
+
+		assertThat(registry.get("llm.tool.duration")
+			.tags("tool", "getCurrentDateTime", "outcome", "success").timer().count()).isEqualTo(2);
+		assertThat(registry.get("llm.tool.duration")
+			.tags("tool", "getCurrentDateTime", "outcome", "error").timer().count()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.spring_ai_with_local_llm.prompt;
+
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties.Strategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PromptCompressorTests {
+
+	private final TokenCountEstimator tokenizer = new JTokkitTokenCountEstimator();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void sendsAMessageWithinItsBudgetUnchanged() {
+		String message = "Why   is the sky blue?  ";
+
+		CompressedMessage compressed = compressor(1000, Strategy.values()).compress(message, "llama3.2");
+
+		assertThat(compressed.text()).isSameAs(message);
+		assertThat(compressed.compression()).isNull();
+	}
+
+	@Test
+	void countsAMessageOnlyWhenItsBytesExceedTheBudget() {
+		String message = "Why is the sky blue? Why is the sea blue?";
+		assertThat(PromptCompressor.utf8Length("Grüße, 世界 😀")).isEqualTo("Grüße, 世界 😀".getBytes(StandardCharsets.UTF_8).length);
+
+		CompressedMessage compressed = compressor(20, Strategy.values()).compress(message, "llama3.2");
+
+		assertThat(compressed.text()).isSameAs(message);
+		assertThat(compressed.compression().originalTokens()).isEqualTo(tokenizer.estimate(message))
+			.isEqualTo(compressed.compression().compressedTokens());
+		assertThat(compressed.compression().tokenBudget()).isEqualTo(20);
+		assertThat(compressed.compression().strategies()).isEmpty();
+	}
+
+	@Test
+	void collapsesWhitespaceAndRepeatedLines() {
+		String message = "Summarize:  \n\n\n\nsame\tline   here\n" + "same line here\n".repeat(50) + "the end";
+
+		CompressedMessage compressed = compressor(40, Strategy.WHITESPACE, Strategy.DUPLICATE_LINES).compress(message, null);
+
+		assertThat(compressed.text()).isEqualTo("Summarize:\n\nsame line here\n[previous line repeated 50 more times]\nthe end");
+		assertThat(compressed.compression().strategies()).containsExactly("whitespace", "duplicate-lines");
+		assertThat(compressed.compression().compressedTokens()).isEqualTo(tokenizer.estimate(compressed.text()));
+		assertThat(meterRegistry.get("llm.prompt.compressions").tag("strategy", "duplicate-lines").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.prompt.tokens.removed").counter().count())
+			.isEqualTo(compressed.compression().originalTokens() - compressed.compression().compressedTokens());
+	}
+
+	@Test
+	void keepsAFewLinesOfEachLogPattern() {
+		String log = IntStream.range(0, 200)
+			.mapToObj(i -> "2025-01-01 10:00:%02d INFO request %d took %d ms".formatted(i % 60, i, i * 7))
+			.collect(Collectors.joining("\n")) + "\nERROR connection refused";
+
+		CompressedMessage compressed = compressor(100, Strategy.LOG_DEDUP).compress(log, null);
+
+		assertThat(compressed.text().lines()).containsExactly(
+			"2025-01-01 10:00:00 INFO request 0 took 0 ms",
+			"2025-01-01 10:00:01 INFO request 1 took 7 ms",
+			"2025-01-01 10:00:02 INFO request 2 took 14 ms",
+			"[197 similar lines omitted]",
+			"ERROR connection refused");
+		assertThat(compressed.compression().strategies()).containsExactly("log-dedup");
+	}
+
+	@Test
+	void keepsTheStartAndTheEndOfAMessageThatIsStillTooLong() {
+		String message = IntStream.range(0, 500).mapToObj(i -> "line " + i + " says something different: " + Integer.toHexString(i * 7919))
+			.collect(Collectors.joining("\n"));
+
+		CompressedMessage compressed = compressor(200, Strategy.WHITESPACE, Strategy.HEAD_TAIL).compress(message, "llama3.2");
+
+		assertThat(compressed.compression().compressedTokens()).isLessThanOrEqualTo(200);
+		assertThat(compressed.compression().strategies()).containsExactly("head-tail");
+		assertThat(compressed.text()).startsWith("line 0 says").endsWith(message.substring(message.lastIndexOf('\n') + 1))
+			.containsPattern("\\[\\.\\.\\. \\d+ lines omitted \\.\\.\\.]");
+	}
+
+	@Test
+	void leavesRoomForTheHistoryButKeepsAQuarterOfTheBudget() {
+		String message = "word ".repeat(150);
+		AssistantMessage history = new AssistantMessage("history ".repeat(1000));
+
+		CompressedMessage compressed = compressor(400, Strategy.HEAD_TAIL).compress(message, null, List.of(history));
+
+		assertThat(compressed.compression().tokenBudget()).isEqualTo(100);
+		assertThat(compressed.compression().compressedTokens()).isLessThanOrEqualTo(100);
+	}
+
+	@Test
+	void rejectsAMessageThatCannotBeFittedWithoutHeadTail() {
+		String message = "all different words in this message ".repeat(100);
+
+		assertThatThrownBy(() -> compressor(50, Strategy.WHITESPACE, Strategy.LOG_DEDUP).compress(message, "llama3.2"))
+			.isInstanceOf(ResponseStatusException.class)
+			.hasMessageContaining("413")
+			.hasMessageContaining("model llama3.2 allows 50");
+	}
+
+	/** A compressor whose budget is {@code budget} tokens for every model. */
+	private PromptCompressor compressor(int budget, Strategy... strategies) {
+		PromptCompressionProperties properties = new PromptCompressionProperties(true, budget + 1024, Map.of(), 1024,
+			List.of(strategies), 3, 0.3);
+		return new PromptCompressor(properties, tokenizer, meterRegistry);
+	}
+}
@@ -0,0 +1,126 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import com.example.spring_ai_with_local_llm.config.QuotaProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientQuotasTests {
+
+	private final AtomicLong now = new AtomicLong();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final UsageLedger ledger = new UsageLedger(new QuotaProperties.Ledger(null, Duration.ofSeconds(5), 500, 100),
+		new ObjectMapper(), meterRegistry);
+	private final ClientQuotas quotas = quotas(QuotaProperties.UnknownKeys.ANONYMOUS);
+
+	@Test
+	void identifiesClientsByApiKey() {
+		assertThat(quotas.clientOf("secret")).isEqualTo("reporting");
+		assertThat(quotas.clientOf(null)).isEqualTo(ClientQuotas.ANONYMOUS);
+		assertThat(quotas.clientOf("other")).isEqualTo(ClientQuotas.ANONYMOUS);
+		assertThat(quotas.limits("reporting").tokensPerMinute()).isEqualTo(6000);
+		assertThat(quotas.limits("reporting").requestBurst()).isEqualTo(2);
+	}
+
+	@Test
+	void rejectsUnknownApiKeysWhenConfiguredTo() {
+		ClientQuotas rejecting = quotas(QuotaProperties.UnknownKeys.REJECT);
+
+		assertThat(rejecting.clientOf("secret")).isEqualTo("reporting");
+		assertThat(rejecting.clientOf(null)).isEqualTo(ClientQuotas.ANONYMOUS);
+		assertThatThrownBy(() -> rejecting.clientOf("other")).isInstanceOf(UnknownApiKeyException.class);
+		assertThatThrownBy(() -> rejecting.reserve("key-other", 1)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void rejectsRequestsBeyondTheBurstUntilTheRateAllowsMore() {
+		quotas.reserve("a", 1).settle();
+		quotas.reserve("a", 1).settle();
+
+		assertThatThrownBy(() -> quotas.reserve("a", 1))
+			.isInstanceOfSatisfying(QuotaExceededException.class, e -> {
+				assertThat(e.getLimit()).isEqualTo(QuotaExceededException.Limit.REQUESTS);
+				assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1));
+			});
+		// Other clients have their own quota
+		quotas.reserve("b", 1).settle();
+
+		now.addAndGet(Duration.ofSeconds(1).toNanos());
+		quotas.reserve("a", 1).settle();
+		assertThat(ledger.totals("a").rejected()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.quota.rejected").tag("limit", "requests").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void chargesTheReportedUsageInsteadOfTheEstimate() {
+		Reservation reservation = quotas.reserve("a", 100);
+		assertThat(quotas.availableTokens("a")).isEqualTo(500);
+
+		reservation.recordUsage(120, 380);
+		reservation.settle();
+		reservation.settle();
+
+		assertThat(quotas.availableTokens("a")).isEqualTo(100);
+		UsageLedger.Totals totals = ledger.totals("a");
+		assertThat(totals.requests()).isEqualTo(1);
+		assertThat(totals.estimatedTokens()).isEqualTo(100);
+		assertThat(totals.promptTokens()).isEqualTo(120);
+		assertThat(totals.completionTokens()).isEqualTo(380);
+	}
+
+	@Test
+	void rejectsOnTheTokenQuotaWithoutUsingUpARequest() {
+		Reservation reservation = quotas.reserve("a", 10);
+		reservation.recordUsage(100, 600);
+		reservation.settle();
+
+		assertThatThrownBy(() -> quotas.reserve("a", 10))
+			.isInstanceOfSatisfying(QuotaExceededException.class, e -> {
+				assertThat(e.getLimit()).isEqualTo(QuotaExceededException.Limit.TOKENS);
+				// 100 tokens of debt plus the 10 requested, at 10 tokens per second
+				assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(11));
+			});
+
+		now.addAndGet(Duration.ofSeconds(11).toNanos());
+		quotas.reserve("a", 10);
+	}
+
+	@Test
+	void aCancelledGenerationPaysAtLeastTheEstimate() {
+		Reservation reservation = quotas.reserve("a", 300);
+		reservation.recordUnreported();
+		reservation.settle();
+
+		assertThat(quotas.availableTokens("a")).isEqualTo(300);
+	}
+
+	@Test
+	void aCacheHitCostsNothing() {
+		quotas.reserve("a", 300).settle();
+
+		assertThat(quotas.availableTokens("a")).isEqualTo(600);
+	}
+
+	private ClientQuotas quotas(QuotaProperties.UnknownKeys unknownKeys) {
+		return new ClientQuotas(new QuotaProperties(true, "X-API-Key",
+			new QuotaProperties.Limits(600, 1, 2),
+			Map.of("reporting", new QuotaProperties.Client("secret", 6000L, null, null),
+				"a", new QuotaProperties.Client("key-a", null, null, null),
+				"b", new QuotaProperties.Client("key-b", null, null, null)),
+			unknownKeys, 4, new QuotaProperties.Ledger(null, Duration.ofSeconds(5), 500, 100)), ledger, meterRegistry, now::get);
+	}
+
+	@Test
+	void estimatesFromTheMessageOrTheBody() {
+		assertThat(quotas.estimateTokens("a".repeat(400), 0)).isEqualTo(100);
+		assertThat(quotas.estimateTokens(null, 2000)).isEqualTo(500);
+		assertThat(quotas.estimateTokens(null, -1)).isEqualTo(1);
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+	private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+	@Test
+	void grantsUpToTheCapacityAndRefillsAtTheRate() {
+		TokenBucket bucket = new TokenBucket(10, 10, 0);
+
+		assertThat(bucket.tryAcquire(6, 0)).isZero();
+		assertThat(bucket.tryAcquire(4, 0)).isZero();
+		assertThat(bucket.available(0)).isZero();
+		assertThat(bucket.tryAcquire(1, 0)).isEqualTo(SECOND / 10);
+
+		assertThat(bucket.tryAcquire(5, SECOND / 2)).isZero();
+		assertThat(bucket.available(10 * SECOND)).isEqualTo(10);
+	}
+
+	@Test
+	void doesNotSaveUpMoreThanTheCapacity() {
+		TokenBucket bucket = new TokenBucket(10, 10, 0);
+
+		assertThat(bucket.tryAcquire(10, 60 * SECOND)).isZero();
+		assertThat(bucket.tryAcquire(1, 60 * SECOND)).isPositive();
+	}
+
+	@Test
+	void chargesTheActualUsageAfterwards() {
+		TokenBucket bucket = new TokenBucket(100, 100, 0);
+		bucket.tryAcquire(10, 0);
+
+		// Used 160 instead of 10: in debt until it is paid off
+		bucket.adjust(150, 0);
+		assertThat(bucket.available(0)).isEqualTo(-60);
+		assertThat(bucket.tryAcquire(1, 0)).isEqualTo(61 * SECOND / 100);
+
+		// Used less than estimated: the rest is given back, up to the capacity
+		bucket.adjust(-1000, 0);
+		assertThat(bucket.available(0)).isEqualTo(100);
+	}
+
+	@Test
+	void grantsARequestLargerThanTheCapacityOnceFull() {
+		TokenBucket bucket = new TokenBucket(100, 100, 0);
+		bucket.tryAcquire(1, 0);
+
+		assertThat(bucket.tryAcquire(500, 0)).isEqualTo(SECOND / 100);
+		assertThat(bucket.tryAcquire(500, SECOND / 100)).isZero();
+		assertThat(bucket.available(SECOND / 100)).isEqualTo(-400);
+	}
+
+	@Test
+	void neverGrantsMoreThanTheCapacityToConcurrentCallers() throws Exception {
+		TokenBucket bucket = new TokenBucket(1000, 1e-3, 0);
+		AtomicInteger granted = new AtomicInteger();
+		try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+			for (int i = 0; i < 8; i++) {
+				executor.execute(() -> {
+					for (int j = 0; j < 500; j++) {
+						if (bucket.tryAcquire(1, 0) == 0) {
+							granted.incrementAndGet();
+						}
+					}
+				});
+			}
+		}
+		assertThat(granted).hasValue(1000);
+	}
+}
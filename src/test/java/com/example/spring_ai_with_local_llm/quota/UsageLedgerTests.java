@@ -0,0 +1,70 @@
+package com.example.spring_ai_with_local_llm.quota;
+
+import com.example.spring_ai_with_local_llm.config.QuotaProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsageLedgerTests {
+
+	@TempDir
+	Path directory;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void writesQueuedRecordsOnFlushAndRestoresTheTotals() throws Exception {
+		Path file = directory.resolve("usage/ledger.ndjson");
+		UsageLedger ledger = ledger(file, 100);
+		ledger.record(UsageLedger.UsageRecord.completed("a", 10, 12, 30));
+		ledger.record(UsageLedger.UsageRecord.completed("a", 10, 8, 20));
+		ledger.record(UsageLedger.UsageRecord.rejected("b", 5));
+
+		// Nothing is written on the request path
+		assertThat(file).doesNotExist();
+		assertThat(ledger.totals("a").promptTokens()).isEqualTo(20);
+
+		ledger.flush();
+		assertThat(Files.readAllLines(file)).hasSize(3);
+
+		ledger.record(UsageLedger.UsageRecord.completed("b", 1, 2, 3));
+		ledger.close();
+		assertThat(Files.readAllLines(file)).hasSize(4);
+
+		// A record cut short by a crash is skipped
+		Files.writeString(file, "{\"client\":\"a\",\"timest", StandardOpenOption.APPEND);
+		UsageLedger restored = ledger(file, 100);
+		assertThat(restored.totals()).containsOnlyKeys("a", "b");
+		assertThat(restored.totals("a")).isEqualTo(ledger.totals("a"));
+		assertThat(restored.totals("b").requests()).isEqualTo(1);
+		assertThat(restored.totals("b").rejected()).isEqualTo(1);
+		assertThat(restored.totals("b").completionTokens()).isEqualTo(3);
+	}
+
+	@Test
+	void keepsCountingWhenTheQueueIsFull() throws Exception {
+		Path file = directory.resolve("ledger.ndjson");
+		UsageLedger ledger = ledger(file, 2);
+		for (int i = 0; i < 5; i++) {
+			ledger.record(UsageLedger.UsageRecord.completed("a", 1, 1, 1));
+		}
+		ledger.flush();
+
+		assertThat(ledger.totals("a").requests()).isEqualTo(5);
+		assertThat(Files.readAllLines(file)).hasSize(2);
+		assertThat(meterRegistry.get("llm.quota.ledger.dropped").counter().count()).isEqualTo(3);
+	}
+
+	private UsageLedger ledger(Path file, int queueCapacity) {
+		return new UsageLedger(new QuotaProperties.Ledger(file, Duration.ofSeconds(5), 2, queueCapacity),
+			new ObjectMapper(), meterRegistry);
+	}
+}
@@ -0,0 +1,156 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import com.example.spring_ai_with_local_llm.cache.InMemoryResponseCache;
+import com.example.spring_ai_with_local_llm.cache.ResponseCacheKey;
+import com.example.spring_ai_with_local_llm.config.RagProperties;
+import com.example.spring_ai_with_local_llm.config.ResponseCacheProperties;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.dto.IngestionReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentIngestionServiceTests {
+
+	@TempDir
+	Path documents;
+
+	@TempDir
+	Path index;
+
+	private final HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final InMemoryResponseCache responseCache = new InMemoryResponseCache(new ResponseCacheProperties(true, 10,
+		Duration.ofMinutes(1), Duration.ZERO, Duration.ofHours(1), new ResponseCacheProperties.Semantic(false, 0.95)),
+		null, new SimpleMeterRegistry());
+	private RagProperties properties;
+	private LocalVectorStore store;
+	private DocumentIngestionService ingestion;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		properties = new RagProperties(true, documents, List.of("md", "txt"), index, Duration.ZERO,
+			20, 4, 2, 4, 0.1, Duration.ofSeconds(1), new RagProperties.Index(8, 50, 32));
+		Files.writeString(documents.resolve("setup.md"), "Install Ollama and pull the gemma model before starting.");
+		Files.createDirectories(documents.resolve("guides"));
+		Files.writeString(documents.resolve("guides/deploy.md"), paragraphs("Deploy with docker compose", 6));
+		Files.writeString(documents.resolve("image.png"), "not a document");
+		open();
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.close();
+	}
+
+	@Test
+	void indexesOnlyNewAndChangedFiles() throws IOException {
+		IngestionReport first = ingestion.ingest();
+		assertThat(first.filesScanned()).isEqualTo(2);
+		assertThat(first.filesIndexed()).isEqualTo(2);
+		assertThat(first.chunksIndexed()).isEqualTo(store.size()).isGreaterThan(2);
+		assertThat(embeddingModel.batchSizes).allMatch(size -> size <= 4);
+
+		embeddingModel.embedded.clear();
+		assertThat(ingestion.ingest().filesIndexed()).isZero();
+		assertThat(embeddingModel.embedded).isEmpty();
+
+		Files.writeString(documents.resolve("setup.md"), "Install Ollama, then pull the llama model.");
+		IngestionReport changed = ingestion.ingest();
+		assertThat(changed.filesIndexed()).isEqualTo(1);
+		assertThat(embeddingModel.embedded).containsExactly("Install Ollama, then pull the llama model.");
+		assertThat(search("pull the llama model")).extracting(Document::getText)
+			.containsExactly("Install Ollama, then pull the llama model.");
+	}
+
+	@Test
+	void poolsChunksOfSmallFilesIntoFullBatches() throws IOException {
+		Files.delete(documents.resolve("guides/deploy.md"));
+		for (int i = 0; i < 9; i++) {
+			Files.writeString(documents.resolve("note-" + i + ".txt"), "Note number " + i + ".");
+		}
+
+		IngestionReport report = ingestion.ingest();
+
+		assertThat(report.filesIndexed()).isEqualTo(10);
+		assertThat(report.chunksIndexed()).isEqualTo(10);
+		assertThat(embeddingModel.batchSizes).containsExactlyInAnyOrder(4, 4, 2);
+	}
+
+	@Test
+	void removesChunksOfDeletedAndShrunkFiles() throws IOException {
+		ingestion.ingest();
+		int chunks = store.size();
+
+		Files.delete(documents.resolve("setup.md"));
+		Files.writeString(documents.resolve("guides/deploy.md"), "Deploy with docker compose.");
+		IngestionReport report = ingestion.ingest();
+
+		assertThat(report.filesRemoved()).isEqualTo(1);
+		assertThat(chunks).isGreaterThan(2);
+		assertThat(store.size()).isEqualTo(1);
+		assertThat(search("Ollama gemma")).extracting(document -> document.getMetadata().get("source"))
+			.containsOnly("guides/deploy.md");
+	}
+
+	@Test
+	void resumesFromTheManifestAfterARestart() throws IOException {
+		ingestion.ingest();
+		int chunks = store.size();
+		store.close();
+
+		open();
+		embeddingModel.embedded.clear();
+		Files.writeString(documents.resolve("notes.txt"), "Remember to rotate the API keys.");
+		IngestionReport report = ingestion.ingest();
+
+		assertThat(report.filesIndexed()).isEqualTo(1);
+		assertThat(embeddingModel.embedded).containsExactly("Remember to rotate the API keys.");
+		assertThat(store.size()).isEqualTo(chunks + 1);
+	}
+
+	@Test
+	void clearsCachedAnswersWhenTheIndexChanges() throws IOException {
+		ResponseCacheKey key = ResponseCacheKey.of(null, "system", "How do I deploy?", false);
+		ingestion.ingest();
+		responseCache.getOrCompute(key, () -> new ChatModelResponse("Use docker compose", "test-model", 10L));
+
+		ingestion.ingest();
+		assertThat(responseCache.size()).isEqualTo(1);
+
+		Files.writeString(documents.resolve("guides/deploy.md"), "Deploy with helm.");
+		ingestion.ingest();
+		assertThat(responseCache.size()).isZero();
+	}
+
+	private void open() {
+		store = new LocalVectorStore(embeddingModel, index, properties.index(), properties.embeddingBatch(),
+			objectMapper, new SimpleMeterRegistry());
+		ingestion = new DocumentIngestionService(store, responseCache, properties, objectMapper, new SimpleMeterRegistry());
+	}
+
+	private List<Document> search(String query) {
+		return store.similaritySearch(SearchRequest.builder().query(query).topK(1).build());
+	}
+
+	private static String paragraphs(String topic, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			text.append(topic).append(", step ").append(i).append(": check the logs, restart the containers and verify the health endpoint.\n\n");
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Embeds text as hashed word counts, so texts sharing words are similar. Records every text it
+ * embeds.
+ */
+class HashingEmbeddingModel implements EmbeddingModel {
+
+    static final int DIMENSIONS = 256;
+
+    final List<String> embedded = new CopyOnWriteArrayList<>();
+    final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        batchSizes.add(request.getInstructions().size());
+        List<Embedding> embeddings = new ArrayList<>();
+        for (String text : request.getInstructions()) {
+            embedded.add(text);
+            embeddings.add(new Embedding(vector(text), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return vector(document.getText());
+    }
+
+    static float[] vector(String text) {
+        float[] vector = new float[DIMENSIONS];
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (!word.isEmpty()) {
+                vector[Math.floorMod(word.hashCode(), DIMENSIONS)] += 1;
+            }
+        }
+        return vector;
+    }
+}
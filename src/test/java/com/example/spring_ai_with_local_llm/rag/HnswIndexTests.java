@@ -0,0 +1,118 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTests {
+
+	private static final int DIMENSIONS = 32;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void findsNearlyAllTrueNearestNeighbours() {
+		Random random = new Random(42);
+		float[][] vectors = randomVectors(random, 3000);
+		try (HnswIndex index = HnswIndex.create(directory, DIMENSIONS, 16, 100)) {
+			for (float[] vector : vectors) {
+				index.add(vector);
+			}
+
+			int found = 0;
+			int queries = 100;
+			for (int q = 0; q < queries; q++) {
+				float[] query = randomVectors(random, 1)[0];
+				Set<Integer> expected = exactNearest(vectors, query, 10);
+				for (HnswIndex.Neighbour neighbour : index.search(query, 10, 64, node -> true)) {
+					if (expected.contains(neighbour.node())) {
+						found++;
+					}
+				}
+			}
+			assertThat(found / (double) (queries * 10)).isGreaterThan(0.9);
+		}
+	}
+
+	@Test
+	void leavesDeletedAndFilteredNodesOutOfResults() {
+		float[][] vectors = randomVectors(new Random(7), 200);
+		try (HnswIndex index = HnswIndex.create(directory, DIMENSIONS, 8, 50)) {
+			for (float[] vector : vectors) {
+				index.add(vector);
+			}
+			index.delete(5);
+
+			assertThat(index.search(vectors[5], 1, 32, node -> true).get(0).node()).isNotEqualTo(5);
+			assertThat(index.search(vectors[6], 10, 32, node -> node % 2 == 0))
+				.extracting(HnswIndex.Neighbour::node)
+				.allMatch(node -> node % 2 == 0);
+			assertThat(index.liveSize()).isEqualTo(199);
+		}
+	}
+
+	@Test
+	void reopensAsOfTheLastFlush() {
+		float[][] vectors = randomVectors(new Random(3), 500);
+		List<HnswIndex.Neighbour> before;
+		try (HnswIndex index = HnswIndex.create(directory, DIMENSIONS, 16, 100)) {
+			for (int i = 0; i < 400; i++) {
+				index.add(vectors[i]);
+			}
+			index.delete(17);
+			index.flush();
+			before = index.search(vectors[0], 5, 64, node -> true);
+		}
+
+		try (HnswIndex reopened = HnswIndex.open(directory, 100)) {
+			assertThat(reopened.size()).isEqualTo(400);
+			assertThat(reopened.isDeleted(17)).isTrue();
+			assertThat(reopened.search(vectors[0], 5, 64, node -> true)).isEqualTo(before);
+
+			// Keeps growing where it left off
+			for (int i = 400; i < 500; i++) {
+				reopened.add(vectors[i]);
+			}
+			assertThat(reopened.search(vectors[450], 1, 64, node -> true).get(0).node()).isEqualTo(450);
+		}
+	}
+
+	private static float[][] randomVectors(Random random, int count) {
+		float[][] vectors = new float[count][DIMENSIONS];
+		for (float[] vector : vectors) {
+			for (int i = 0; i < DIMENSIONS; i++) {
+				vector[i] = (float) random.nextGaussian();
+			}
+		}
+		return vectors;
+	}
+
+	private static Set<Integer> exactNearest(float[][] vectors, float[] query, int k) {
+		return new HashSet<>(IntStream.range(0, vectors.length).boxed()
+			.sorted(Comparator.comparingDouble(i -> -cosine(vectors[i], query)))
+			.limit(k)
+			.toList());
+	}
+
+	private static double cosine(float[] a, float[] b) {
+		double dot = 0;
+		double normA = 0;
+		double normB = 0;
+		for (int i = 0; i < a.length; i++) {
+			dot += a[i] * b[i];
+			normA += a[i] * a[i];
+			normB += b[i] * b[i];
+		}
+		return dot / Math.sqrt(normA * normB);
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import com.example.spring_ai_with_local_llm.config.RagProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LocalVectorStoreTests {
+
+	@TempDir
+	Path directory;
+
+	private final HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel();
+
+	@Test
+	void returnsTheMostSimilarDocumentsWithTheirScores() {
+		try (LocalVectorStore store = store()) {
+			store.add(documents());
+
+			List<Document> results = store.similaritySearch(SearchRequest.builder().query("how do I deploy with docker").topK(2).build());
+
+			assertThat(results).extracting(Document::getId).containsExactly("docker", "kubernetes");
+			assertThat(results.get(0).getScore()).isGreaterThan(results.get(1).getScore());
+			assertThat(results.get(0).getMetadata()).containsEntry("source", "ops.md");
+			assertThat(embeddingModel.batchSizes).startsWith(2, 1);
+		}
+	}
+
+	@Test
+	void replacesDeletesAndFiltersDocuments() {
+		try (LocalVectorStore store = store()) {
+			store.add(documents());
+			store.add(List.of(new Document("docker", "Tomatoes grow well in greenhouses", Map.of("source", "garden.md"))));
+			store.delete(List.of("kubernetes"));
+
+			assertThat(store.size()).isEqualTo(2);
+			assertThat(store.similaritySearch(SearchRequest.builder().query("deploy docker").topK(3).build()))
+				.extracting(Document::getId).doesNotContain("kubernetes");
+			assertThat(store.similaritySearch(SearchRequest.builder().query("tomatoes").topK(1).build()))
+				.extracting(Document::getText).containsExactly("Tomatoes grow well in greenhouses");
+			assertThat(store.similaritySearch(SearchRequest.builder().query("deploy docker").topK(3)
+					.filterExpression("source == 'api.md'").build()))
+				.extracting(Document::getId).containsExactly("api");
+		}
+	}
+
+	@Test
+	void keepsDocumentsAcrossRestarts() {
+		try (LocalVectorStore store = store()) {
+			store.add(documents());
+		}
+		try (LocalVectorStore reopened = store()) {
+			assertThat(reopened.size()).isEqualTo(3);
+			assertThat(reopened.similaritySearch(SearchRequest.builder().query("rest api endpoints").topK(1).build()))
+				.extracting(Document::getId).containsExactly("api");
+
+			reopened.add(List.of(new Document("backup", "Back up the database nightly", Map.of("source", "ops.md"))));
+			assertThat(reopened.similaritySearch(SearchRequest.builder().query("back up the database").topK(1).build()))
+				.extracting(Document::getId).containsExactly("backup");
+		}
+	}
+
+	@Test
+	void rejectsVectorsOfOtherDimensionsWithoutWritingTheirDocuments() {
+		AtomicInteger dimensions = new AtomicInteger(HashingEmbeddingModel.DIMENSIONS);
+		HashingEmbeddingModel resizing = new HashingEmbeddingModel() {
+			@Override
+			public EmbeddingResponse call(EmbeddingRequest request) {
+				List<Embedding> embeddings = new ArrayList<>();
+				for (String text : request.getInstructions()) {
+					embeddings.add(new Embedding(Arrays.copyOf(vector(text), dimensions.get()), embeddings.size()));
+				}
+				return new EmbeddingResponse(embeddings);
+			}
+		};
+		try (LocalVectorStore store = store(resizing)) {
+			store.add(documents());
+			dimensions.set(8);
+			assertThatThrownBy(() -> store.add(List.of(new Document("orphan", "Written by another model", Map.of()))))
+				.isInstanceOf(IllegalArgumentException.class);
+			dimensions.set(HashingEmbeddingModel.DIMENSIONS);
+			store.add(List.of(new Document("backup", "Back up the database nightly", Map.of("source", "ops.md"))));
+		}
+		try (LocalVectorStore reopened = store(resizing)) {
+			assertThat(reopened.size()).isEqualTo(4);
+			assertThat(reopened.similaritySearch(SearchRequest.builder().query("back up the database").topK(1).build()))
+				.extracting(Document::getId, Document::getText)
+				.containsExactly(tuple("backup", "Back up the database nightly"));
+		}
+	}
+
+	private LocalVectorStore store() {
+		return store(embeddingModel);
+	}
+
+	private LocalVectorStore store(HashingEmbeddingModel embeddingModel) {
+		return new LocalVectorStore(embeddingModel, directory, new RagProperties.Index(8, 50, 32), 2,
+			new ObjectMapper(), new SimpleMeterRegistry());
+	}
+
+	private static List<Document> documents() {
+		return List.of(
+			new Document("docker", "Deploy the service with docker compose up", Map.of("source", "ops.md")),
+			new Document("kubernetes", "Deploy to kubernetes with helm", Map.of("source", "ops.md")),
+			new Document("api", "The REST API exposes chat endpoints", Map.of("source", "api.md")));
+	}
+}
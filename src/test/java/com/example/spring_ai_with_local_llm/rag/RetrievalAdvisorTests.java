@@ -0,0 +1,85 @@
+package com.example.spring_ai_with_local_llm.rag;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetrievalAdvisorTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ChatClientRequest request = ChatClientRequest.builder()
+		.prompt(new Prompt(List.of(new SystemMessage("You are helpful."), new UserMessage("How do I deploy?"))))
+		.build();
+
+	@Test
+	void appendsRetrievedChunksToTheUserMessage() {
+		RetrievalAdvisor advisor = advisor(search -> List.of(
+			new Document("1", "Run docker compose up.", Map.of("source", "ops.md"))));
+
+		ChatClientRequest advised = advisor.before(request, null);
+
+		assertThat(advised.prompt().getSystemMessage().getText()).isEqualTo("You are helpful.");
+		assertThat(advised.prompt().getUserMessage().getText())
+			.startsWith("How do I deploy?\n\n")
+			.contains("[ops.md]\nRun docker compose up.");
+		assertThat(registry.get("llm.rag.retrieval").tag("outcome", "hit").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void answersWithoutContextWhenRetrievalIsOverBudget() {
+		RetrievalAdvisor advisor = advisor(search -> {
+			try {
+				Thread.sleep(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return List.of(new Document("late"));
+		});
+
+		long start = System.nanoTime();
+		ChatClientRequest advised = advisor.before(request, null);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+		assertThat(advised).isSameAs(request);
+		assertThat(registry.get("llm.rag.retrieval").tag("outcome", "timeout").timer().count()).isEqualTo(1);
+	}
+
+	private RetrievalAdvisor advisor(Function<SearchRequest, List<Document>> search) {
+		VectorStore store = new VectorStore() {
+			@Override
+			public void add(List<Document> documents) {
+			}
+
+			@Override
+			public void delete(List<String> idList) {
+			}
+
+			@Override
+			public void delete(Filter.Expression filterExpression) {
+			}
+
+			@Override
+			public List<Document> similaritySearch(SearchRequest request) {
+				return search.apply(request);
+			}
+		};
+		return new RetrievalAdvisor(store, 4, 0.5, Duration.ofMillis(100), executor, registry);
+	}
+}
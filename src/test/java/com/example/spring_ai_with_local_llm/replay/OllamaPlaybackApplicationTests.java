@@ -0,0 +1,95 @@
+package com.example.spring_ai_with_local_llm.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the application against a recording instead of Ollama, as a load test in CI would.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"app.cache.enabled=false",
+	"app.ollama.warmup.enabled=false",
+	"app.ollama.replay.mode=playback",
+	"app.ollama.replay.time-scale=0"
+})
+class OllamaPlaybackApplicationTests {
+
+	private static final Path RECORDING = writeRecording();
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+
+	@DynamicPropertySource
+	static void recordingProperties(DynamicPropertyRegistry registry) {
+		registry.add("app.ollama.replay.file", RECORDING::toString);
+	}
+
+	@Test
+	void answersTheChatApiFromTheRecording() throws Exception {
+		HttpResponse<String> chat = get("/api/chat-model?message=hello");
+		assertThat(chat.statusCode()).isEqualTo(200);
+		assertThat(chat.body()).contains("\"response\":\"Recorded answer\"", "\"model\":\"recorded-model\"", "\"totalTokens\":20");
+
+		HttpResponse<String> stream = get("/api/chat-model/stream?message=hello");
+		assertThat(stream.body()).contains("\"content\":\"Recorded\"", "\"content\":\" stream\"", "event:done");
+
+		assertThat(meterRegistry.get("llm.replay.requests").tag("match", "path").counter().count()).isEqualTo(2);
+	}
+
+	private HttpResponse<String> get(String path) throws Exception {
+		return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+			HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static Path writeRecording() {
+		List<RecordedExchange> exchanges = List.of(
+			new RecordedExchange("POST", "/api/chat", "call", "call", "recorded-model", false, 200, "application/json",
+				List.of(new RecordedExchange.Chunk(1_000, chunk("Recorded answer", true)))),
+			new RecordedExchange("POST", "/api/chat", "stream", "stream", "recorded-model", true, 200, "application/x-ndjson",
+				List.of(
+					new RecordedExchange.Chunk(1_000, chunk("Recorded", false) + "\n"),
+					new RecordedExchange.Chunk(1_000, chunk(" stream", false) + "\n"),
+					new RecordedExchange.Chunk(1_000, chunk("", true) + "\n"))));
+		try {
+			Path file = Files.createTempFile("ollama-recording", ".ndjson");
+			file.toFile().deleteOnExit();
+			ObjectMapper objectMapper = new ObjectMapper();
+			StringBuilder lines = new StringBuilder();
+			for (RecordedExchange exchange : exchanges) {
+				lines.append(objectMapper.writeValueAsString(exchange)).append('\n');
+			}
+			return Files.writeString(file, lines);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String chunk(String content, boolean done) {
+		return "{\"model\":\"recorded-model\",\"created_at\":\"2025-01-01T00:00:00Z\","
+			+ "\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"},\"done\":" + done
+			+ (done ? ",\"done_reason\":\"stop\",\"prompt_eval_count\":12,\"eval_count\":8}" : "}");
+	}
+}
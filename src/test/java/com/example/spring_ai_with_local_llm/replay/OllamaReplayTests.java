@@ -0,0 +1,137 @@
+package com.example.spring_ai_with_local_llm.replay;
+
+import com.example.spring_ai_with_local_llm.support.OllamaStubServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OllamaReplayTests {
+
+	private static final String REPLY = "one two three four five";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void recordsExchangesAndReplaysThemAtTheRecordedPace() throws Exception {
+		Path file = directory.resolve("ollama.ndjson.gz");
+		String streamed;
+		String called;
+		try (OllamaStubServer ollama = new OllamaStubServer().reply(REPLY).model("stub-model")
+				.latency(Duration.ofMillis(100)).tokenInterval(Duration.ofMillis(50));
+			 OllamaRecorder recorder = new OllamaRecorder(file, objectMapper)) {
+			OllamaChatModel recording = chatModel(OllamaApi.builder()
+				.baseUrl(ollama.baseUrl())
+				.restClientBuilder(RestClient.builder().requestInterceptor(new RecordingRequestInterceptor(recorder)))
+				.webClientBuilder(WebClient.builder().filter(new RecordingExchangeFilter(recorder)))
+				.build());
+			streamed = text(recording.stream(new Prompt("Count to five")).collectList().block());
+			called = recording.call(new Prompt("Count again")).getResult().getOutput().getText();
+		}
+
+		List<RecordedExchange> exchanges = OllamaRecorder.read(file, objectMapper);
+		assertThat(exchanges).extracting(RecordedExchange::path).containsExactly("/api/chat", "/api/chat");
+		RecordedExchange stream = exchanges.getFirst();
+		assertThat(stream.stream()).isTrue();
+		assertThat(stream.model()).isEqualTo("stub-model");
+		assertThat(stream.chunks()).hasSize(6);
+		assertThat(stream.chunks().getFirst().delayMicros()).isGreaterThanOrEqualTo(100_000);
+		// 100 ms to the first word, then 4 x 50 ms between the words
+		assertThat(stream.chunks().stream().mapToLong(RecordedExchange.Chunk::delayMicros).sum())
+			.isGreaterThanOrEqualTo(300_000);
+		assertThat(exchanges.get(1).stream()).isFalse();
+		assertThat(exchanges.get(1).chunks()).hasSize(1);
+
+		try (OllamaReplayServer replay = new OllamaReplayServer(exchanges, 0.5, true, objectMapper, meterRegistry)) {
+			OllamaChatModel playback = chatModel(OllamaApi.builder().baseUrl(replay.baseUrl()).build());
+
+			long start = System.nanoTime();
+			List<ChatResponse> chunks = playback.stream(new Prompt("Count to five")).collectList().block();
+			Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+			assertThat(text(chunks)).isEqualTo(streamed).isEqualTo(REPLY);
+			// Half of 100 ms to the first chunk and 4 x 50 ms between them
+			assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(140));
+			assertThat(chunks.getLast().getMetadata().getUsage().getTotalTokens()).isEqualTo(20);
+			assertThat(playback.call(new Prompt("Count again")).getResult().getOutput().getText()).isEqualTo(called);
+			assertThat(meterRegistry.get("llm.replay.requests").tag("match", "exact").counter().count()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	void matchesRequestsUpToTheirNumbersAndAnswersModelManagement() throws Exception {
+		String recordedRequest = "{\"model\":\"m\",\"messages\":[{\"role\":\"user\",\"content\":\"It is 10:15\"}],\"stream\":false}";
+		RecordedExchange exchange = exchange(recordedRequest, "{\"done\":true,\"message\":{\"content\":\"recorded\"}}\n");
+
+		try (OllamaReplayServer replay = new OllamaReplayServer(List.of(exchange), 1, false, objectMapper, meterRegistry);
+			 OllamaReplayServer strict = new OllamaReplayServer(List.of(exchange), 1, true, objectMapper, meterRegistry)) {
+			HttpResponse<String> sameShape = post(replay, "/api/chat", recordedRequest.replace("10:15", "9:42"));
+			assertThat(sameShape.body()).contains("recorded");
+
+			String otherPrompt = "{\"model\":\"m\",\"messages\":[{\"role\":\"user\",\"content\":\"Hi\"}],\"stream\":false}";
+			assertThat(post(replay, "/api/chat", otherPrompt).body()).contains("recorded");
+			assertThat(post(strict, "/api/chat", otherPrompt).statusCode()).isEqualTo(404);
+
+			assertThat(post(replay, "/api/chat", "{\"model\":\"m\",\"messages\":[],\"stream\":false}").body())
+				.contains("\"done_reason\":\"load\"");
+			assertThat(httpClient.send(HttpRequest.newBuilder(URI.create(replay.baseUrl() + "/api/ps")).build(),
+				HttpResponse.BodyHandlers.ofString()).body()).isEqualTo("{\"models\":[{\"name\":\"m\",\"model\":\"m\"}]}");
+		}
+		assertThat(meterRegistry.get("llm.replay.requests").tag("match", "shape").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.replay.requests").tag("match", "path").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.replay.requests").tag("match", "none").counter().count()).isEqualTo(1);
+	}
+
+	private static RecordedExchange exchange(String request, String response) {
+		byte[] body = request.getBytes(StandardCharsets.UTF_8);
+		return new RecordedExchange("POST", "/api/chat", RecordedExchange.key("/api/chat", body),
+			RecordedExchange.shape("/api/chat", body), "m", false, 200, "application/json",
+			List.of(new RecordedExchange.Chunk(1_000, response)));
+	}
+
+	private HttpResponse<String> post(OllamaReplayServer server, String path, String body) throws Exception {
+		return httpClient.send(HttpRequest.newBuilder(URI.create(server.baseUrl() + path))
+			.POST(HttpRequest.BodyPublishers.ofString(body))
+			.header("Content-Type", "application/json")
+			.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static OllamaChatModel chatModel(OllamaApi api) {
+		return OllamaChatModel.builder()
+			.ollamaApi(api)
+			.defaultOptions(OllamaOptions.builder().model("stub-model").build())
+			.retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+			.build();
+	}
+
+	private static String text(List<ChatResponse> chunks) {
+		return chunks.stream()
+			.map(chunk -> chunk.getResult().getOutput().getText())
+			.collect(Collectors.joining());
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.spring_ai_with_local_llm.service;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.cache.NoOpResponseCache;
+import com.example.spring_ai_with_local_llm.cache.RequestCoalescer;
+import com.example.spring_ai_with_local_llm.config.BatchProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties.Strategy;
+import com.example.spring_ai_with_local_llm.config.SchedulerProperties;
+import com.example.spring_ai_with_local_llm.dto.BatchChatResult;
+import com.example.spring_ai_with_local_llm.dto.ChatRequest;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchChatServiceTests {
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	private final ChatModel chatModel = prompt -> {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			Thread.sleep(20);
+			String text = prompt.getUserMessage().getText();
+			if (text.contains("fail")) {
+				throw new IllegalStateException("model failed on " + text);
+			}
+			return new ChatResponse(List.of(new Generation(new AssistantMessage("answer to " + text))));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	};
+
+	private final BatchChatService batchChatService = batchChatService(3);
+
+	@Test
+	void answersEveryItemWithBoundedConcurrencyAndReportsFailuresPerItem() {
+		List<ChatRequest> requests = IntStream.range(0, 12)
+			.mapToObj(i -> new ChatRequest(i == 5 ? "please fail" : "question " + i))
+			.toList();
+
+		List<BatchChatResult> results = batchChatService.chat(requests).collectList().block();
+
+		assertThat(results).hasSize(12);
+		assertThat(results).extracting(BatchChatResult::id).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 12).boxed().toList());
+		assertThat(results).filteredOn(result -> result.id() == 5).singleElement()
+			.satisfies(result -> {
+				assertThat(result.status()).isEqualTo(BatchChatResult.ERROR);
+				assertThat(result.error()).contains("model failed");
+			});
+		assertThat(results).filteredOn(result -> result.id() == 7).singleElement()
+			.extracting(BatchChatResult::response).isEqualTo("answer to question 7");
+		assertThat(maxInFlight.get()).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	void reportsMalformedNdjsonLinesAsItemErrors() {
+		String body = """
+			{"message":"first"}
+			not json
+
+			{"message":""}
+			""";
+
+		List<BatchChatResult> results = batchChatService.chatNdjson(body).collectList().block();
+
+		assertThat(results).hasSize(3);
+		assertThat(results).filteredOn(result -> result.id() == 0).singleElement()
+			.extracting(BatchChatResult::status).isEqualTo(BatchChatResult.OK);
+		assertThat(results).filteredOn(result -> result.id() == 1).singleElement()
+			.extracting(BatchChatResult::error).asString().startsWith("Invalid JSON");
+		assertThat(results).filteredOn(result -> result.id() == 2).singleElement()
+			.extracting(BatchChatResult::error).isEqualTo("message is required");
+	}
+
+	@Test
+	void rejectsBatchesAboveTheLimit() {
+		List<ChatRequest> requests = IntStream.range(0, 21).mapToObj(i -> new ChatRequest("q" + i)).toList();
+
+		assertThatThrownBy(() -> batchChatService.chat(requests)).isInstanceOf(ResponseStatusException.class);
+	}
+
+	private BatchChatService batchChatService(int maxConcurrency) {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		GenerationScheduler scheduler = new GenerationScheduler(
+			new SchedulerProperties(maxConcurrency, 100, Duration.ofSeconds(30)), registry);
+		ChatModelService chatModelService = new ChatModelService(chatModel, new NoOpResponseCache(),
+			new RequestCoalescer(registry), scheduler, new LlmMetrics(registry), MessageWindowChatMemory.builder().build(),
+			new PromptCompressor(new PromptCompressionProperties(true, 4096, Map.of(), 1024, List.of(Strategy.values()), 3, 0.3),
+				new JTokkitTokenCountEstimator(), registry));
+		return new BatchChatService(chatModelService,
+			new BatchProperties(maxConcurrency, 20, 3, Duration.ofHours(1)), new ObjectMapper());
+	}
+}
@@ -0,0 +1,114 @@
+package com.example.spring_ai_with_local_llm.service;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.cache.NoOpResponseCache;
+import com.example.spring_ai_with_local_llm.cache.RequestCoalescer;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties.Strategy;
+import com.example.spring_ai_with_local_llm.config.SchedulerProperties;
+import com.example.spring_ai_with_local_llm.dto.ChatModelResponse;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressionAdvisor;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatServiceTests {
+
+	private final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+
+	private final ChatModel chatModel = prompt -> {
+		prompts.add(prompt);
+		return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+	};
+
+	@Test
+	void keepsTheSystemPromptStableAndPutsTheDateTimeContextLast() throws Exception {
+		ChatService chatService = chatService();
+
+		chatService.chatWithFunctions("What day is it?");
+		Thread.sleep(5);
+		chatService.chatWithFunctions("What time is it?");
+
+		assertThat(prompts).hasSize(2);
+		Message firstSystem = prompts.get(0).getInstructions().get(0);
+		Message secondSystem = prompts.get(1).getInstructions().get(0);
+		assertThat(firstSystem.getMessageType()).isEqualTo(MessageType.SYSTEM);
+		assertThat(firstSystem.getText()).isEqualTo(secondSystem.getText()).doesNotContainPattern("\\d{2}:\\d{2}");
+
+		Message lastMessage = prompts.get(1).getInstructions().get(prompts.get(1).getInstructions().size() - 1);
+		assertThat(lastMessage.getText())
+			.startsWith("What time is it?")
+			.containsPattern("Current date and time: \\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2} \\(\\w+\\)$");
+	}
+
+	@Test
+	void sendsTheConversationHistoryBetweenTheSystemPromptAndTheNewMessage() {
+		ChatService chatService = chatService();
+
+		chatService.chat("My name is Ada.", "c1");
+		chatService.chat("What is my name?", "c1");
+		chatService.chat("What is my name?", "c2");
+
+		assertThat(prompts.get(1).getInstructions()).extracting(Message::getText).containsExactly(
+			ChatService.TOOLS_SYSTEM_PROMPT, "My name is Ada.", "ok", "What is my name?");
+		assertThat(prompts.get(2).getInstructions()).extracting(Message::getText).containsExactly(
+			ChatService.TOOLS_SYSTEM_PROMPT, "What is my name?");
+	}
+
+	@Test
+	void remembersTheCompressedMessageAndReportsItsCompression() {
+		ChatMemory chatMemory = MessageWindowChatMemory.builder().build();
+		ChatService chatService = chatService(chatMemory);
+		StringBuilder log = new StringBuilder("Why does the connection fail? Log:\n");
+		for (int i = 0; i < 2000; i++) {
+			log.append("2025-01-01 10:").append(i % 60).append(" WARN retrying connection to 10.0.0.").append(i % 250).append('\n');
+		}
+
+		ChatModelResponse response = chatService.chat(log.toString(), "c1");
+		ChatModelResponse stateless = chatService.chat(log.toString());
+
+		assertThat(response.compression().originalTokens()).isGreaterThan(response.compression().tokenBudget());
+		assertThat(response.compression().compressedTokens()).isLessThanOrEqualTo(response.compression().tokenBudget());
+		assertThat(stateless.compression()).isEqualTo(response.compression());
+		String sent = prompts.get(0).getUserMessage().getText();
+		assertThat(sent).startsWith("Why does the connection fail?").hasSizeLessThan(log.length());
+		assertThat(chatMemory.get("c1")).extracting(Message::getText).containsExactly(sent, "ok");
+	}
+
+	private ChatService chatService() {
+		return chatService(MessageWindowChatMemory.builder().build());
+	}
+
+	private ChatService chatService(ChatMemory chatMemory) {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		PromptCompressor promptCompressor = new PromptCompressor(
+			new PromptCompressionProperties(true, 4096, Map.of(), 1024, List.of(Strategy.values()), 3, 0.3),
+			new JTokkitTokenCountEstimator(), registry);
+		return new ChatService(chatModel,
+			ToolCallbackProvider.from(FunctionToolCallback.builder("getCurrentDateTime", () -> "now").build()),
+			new NoOpResponseCache(), new RequestCoalescer(registry),
+			new GenerationScheduler(new SchedulerProperties(1, 10, Duration.ofSeconds(5)), registry),
+			new LlmMetrics(registry), chatMemory, promptCompressor,
+			List.of(new PromptCompressionAdvisor(promptCompressor, null)));
+	}
+}
@@ -0,0 +1,181 @@
+package com.example.spring_ai_with_local_llm.service;
+
+import com.example.spring_ai_with_local_llm.backend.GenerationScheduler;
+import com.example.spring_ai_with_local_llm.backend.Priority;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties;
+import com.example.spring_ai_with_local_llm.config.PromptCompressionProperties.Strategy;
+import com.example.spring_ai_with_local_llm.config.SchedulerProperties;
+import com.example.spring_ai_with_local_llm.config.StructuredOutputProperties;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatRequest;
+import com.example.spring_ai_with_local_llm.dto.StructuredChatResponse;
+import com.example.spring_ai_with_local_llm.dto.StructuredStreamEvent;
+import com.example.spring_ai_with_local_llm.function.DateTimeFunction;
+import com.example.spring_ai_with_local_llm.metrics.LlmMetrics;
+import com.example.spring_ai_with_local_llm.prompt.PromptCompressor;
+import com.example.spring_ai_with_local_llm.structured.StructuredOutputException;
+import com.example.spring_ai_with_local_llm.structured.StructuredOutputTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StructuredChatServiceTests {
+
+	private static final String SCHEMA = """
+		{"type":"object","properties":{"city":{"type":"string"},"country":{"type":"string"}},
+		 "required":["city","country"],"additionalProperties":false}
+		""";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final Deque<String> answers = new ArrayDeque<>();
+	private final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+	private final AtomicInteger chunksSent = new AtomicInteger();
+
+	/** Streams the next answer, one chunk per 4 characters. */
+	private final ChatModel chatModel = new ChatModel() {
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Flux<ChatResponse> stream(Prompt prompt) {
+			prompts.add(prompt);
+			String answer = answers.removeFirst();
+			List<String> chunks = Arrays.asList(answer.split("(?<=\\G.{4})"));
+			return Flux.fromIterable(chunks)
+				.doOnNext(chunk -> chunksSent.incrementAndGet())
+				.map(chunk -> new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))));
+		}
+	};
+
+	private final StructuredChatService service = new StructuredChatService(chatModel,
+		new GenerationScheduler(new SchedulerProperties(2, 10, Duration.ofSeconds(5)), meterRegistry),
+		new LlmMetrics(meterRegistry),
+		new StructuredOutputTypes(Map.of("date-time", DateTimeFunction.Response.class), objectMapper),
+		new StructuredOutputProperties(2, Map.of()), objectMapper,
+		new PromptCompressor(new PromptCompressionProperties(true, 4096, Map.of(), 1024, List.of(Strategy.values()), 3, 0.3),
+			new JTokkitTokenCountEstimator(), meterRegistry),
+		meterRegistry);
+
+	@Test
+	void streamsValidatedFieldsAndPassesTheSchemaAsFormat() {
+		answers.add("{\"city\": \"Lyon\", \"country\": \"France\"}");
+
+		List<StructuredStreamEvent> events = service.stream(request(), Priority.STANDARD).collectList().block();
+
+		assertThat(events).extracting(StructuredStreamEvent::type).containsExactly("field", "field", "done");
+		assertThat(events.get(0).name()).isEqualTo("city");
+		assertThat(events.get(0).value().asText()).isEqualTo("Lyon");
+		assertThat(events.get(2).data()).isEqualTo(json("{\"city\":\"Lyon\",\"country\":\"France\"}"));
+
+		Prompt prompt = prompts.get(0);
+		assertThat(((OllamaOptions) prompt.getOptions()).getFormat()).isEqualTo(objectMapper.convertValue(json(SCHEMA), Object.class));
+		assertThat(prompt.getSystemMessage().getText()).contains("\"additionalProperties\":false");
+		assertThat(meterRegistry.get("llm.structured.outputs").tag("result", "valid").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void stopsTheGenerationWhereTheAnswerBecomesInvalid() {
+		String invalid = "{\"city\": \"Lyon\", \"region\": \"Auvergne-Rhone-Alpes\", \"country\": \"France\", \"population\": 522000}";
+		answers.add(invalid);
+
+		List<StructuredStreamEvent> events = service.stream(request(), Priority.STANDARD).collectList().block();
+
+		assertThat(events).extracting(StructuredStreamEvent::type).containsExactly("field", "error");
+		assertThat(events.get(1).error()).contains("unexpected property 'region'");
+		// Cancelled right after the unknown field name, not at the end of the answer
+		assertThat(chunksSent.get()).isLessThan(invalid.length() / 4 / 2);
+		assertThat(meterRegistry.get("llm.structured.outputs").tag("result", "invalid").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void generatesAnInvalidAnswerAgain() {
+		answers.add("{\"city\": 42}");
+		answers.add("{\"city\": \"Lyon\", \"country\": \"France\"}");
+
+		StructuredChatResponse response = service.chat(request(), Priority.STANDARD).block();
+
+		assertThat(response.attempts()).isEqualTo(2);
+		assertThat(response.data().get("country").asText()).isEqualTo("France");
+
+		answers.add("not json");
+		answers.add("{\"city\": \"Lyon\"}");
+		assertThatThrownBy(() -> service.chat(request(), Priority.STANDARD).block())
+			.isInstanceOf(StructuredOutputException.class)
+			.hasMessageContaining("missing required property 'country'");
+	}
+
+	@Test
+	void fitsALongMessageIntoTheBudget() {
+		StringBuilder log = new StringBuilder("Which city is the server in? Log:\n");
+		for (int i = 0; i < 2000; i++) {
+			log.append("2025-01-01 10:").append(i % 60).append(" WARN retrying connection to 10.0.0.").append(i % 250).append('\n');
+		}
+		answers.add("{\"city\": \"Lyon\", \"country\": \"France\"}");
+		answers.add("{\"city\": \"Lyon\", \"country\": \"France\"}");
+
+		StructuredChatResponse response = service.chat(new StructuredChatRequest(log.toString(), json(SCHEMA), null),
+			Priority.STANDARD).block();
+
+		assertThat(response.compression().originalTokens()).isGreaterThan(response.compression().tokenBudget());
+		assertThat(response.compression().compressedTokens()).isLessThanOrEqualTo(response.compression().tokenBudget());
+		assertThat(response.compression().strategies()).contains("log-dedup");
+		assertThat(prompts.getLast().getUserMessage().getText()).startsWith("Which city").hasSizeLessThan(log.length());
+
+		List<StructuredStreamEvent> events = service.stream(new StructuredChatRequest(log.toString(), json(SCHEMA), null),
+			Priority.STANDARD).collectList().block();
+		assertThat(events.getLast().compression()).isEqualTo(response.compression());
+	}
+
+	@Test
+	void acceptsARegisteredTypeInsteadOfASchema() {
+		answers.add("{\"formattedDateTime\":\"x\",\"date\":\"2025-01-01\",\"time\":\"10:00\",\"dayOfWeek\":\"WEDNESDAY\","
+			+ "\"month\":\"JANUARY\",\"year\":2025}");
+
+		StructuredChatResponse response = service.chat(new StructuredChatRequest("What day is it?", null, "date-time"),
+			Priority.STANDARD).block();
+
+		assertThat(response.data().get("year").asInt()).isEqualTo(2025);
+		assertThatThrownBy(() -> service.chat(new StructuredChatRequest("hi", null, "unknown"), Priority.STANDARD))
+			.isInstanceOf(ResponseStatusException.class)
+			.hasMessageContaining("known types are [date-time]");
+		assertThatThrownBy(() -> service.chat(new StructuredChatRequest("hi", json(SCHEMA), "date-time"), Priority.STANDARD))
+			.isInstanceOf(ResponseStatusException.class);
+	}
+
+	private StructuredChatRequest request() {
+		return new StructuredChatRequest("Where is Lyon?", json(SCHEMA), null);
+	}
+
+	private JsonNode json(String json) {
+		try {
+			return objectMapper.readTree(json);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.spring_ai_with_local_llm.structured;
+
+import com.example.spring_ai_with_local_llm.function.DateTimeFunction;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StructuredOutputParserTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final JsonNode schema = json("""
+		{"type": "object",
+		 "properties": {
+		   "city": {"type": "string"},
+		   "population": {"type": "integer"},
+		   "tags": {"type": "array", "items": {"type": "string"}},
+		   "size": {"type": "string", "enum": ["small", "large"]}
+		 },
+		 "required": ["city", "population"],
+		 "additionalProperties": false}
+		""");
+
+	@Test
+	void returnsEachFieldAsSoonAsItIsComplete() {
+		StructuredOutputParser parser = new StructuredOutputParser(schema, objectMapper);
+		List<String> completed = new ArrayList<>();
+
+		for (String chunk : List.of("{\"ci", "ty\": \"Ly", "on\", \"popul", "ation\": 52", "2000, \"tags\": [\"old", "\"]", "}")) {
+			parser.feed(chunk).forEach(field -> completed.add(field.name() + "=" + field.value()));
+			if (chunk.startsWith("on")) {
+				assertThat(completed).containsExactly("city=\"Lyon\"");
+			}
+		}
+
+		// The number is only complete once something follows it
+		assertThat(completed).containsExactly("city=\"Lyon\"", "population=522000", "tags=[\"old\"]");
+		assertThat(parser.finish()).isEqualTo(json("{\"city\":\"Lyon\",\"population\":522000,\"tags\":[\"old\"]}"));
+	}
+
+	@Test
+	void failsAtTheFirstTokenThatCannotMatch() {
+		StructuredOutputParser unknownField = new StructuredOutputParser(schema, objectMapper);
+		unknownField.feed("{\"city\": \"Lyon\", ");
+		assertThatThrownBy(() -> unknownField.feed("\"country\":"))
+			.isInstanceOf(StructuredOutputException.class)
+			.hasMessageContaining("unexpected property 'country'");
+
+		StructuredOutputParser wrongType = new StructuredOutputParser(schema, objectMapper);
+		assertThatThrownBy(() -> wrongType.feed("{\"population\": \"lots\""))
+			.hasMessageContaining("$.population: expected \"integer\" but got string");
+
+		StructuredOutputParser notInEnum = new StructuredOutputParser(schema, objectMapper);
+		assertThatThrownBy(() -> notInEnum.feed("{\"size\": \"medium\""))
+			.hasMessageContaining("\"medium\" is not one of");
+
+		StructuredOutputParser malformed = new StructuredOutputParser(schema, objectMapper);
+		assertThatThrownBy(() -> malformed.feed("{\"city\" \"Lyon\""))
+			.hasMessageStartingWith("Malformed JSON");
+
+		StructuredOutputParser notAnObject = new StructuredOutputParser(schema, objectMapper);
+		assertThatThrownBy(() -> notAnObject.feed("Sure! Here"))
+			.hasMessageStartingWith("Malformed JSON");
+	}
+
+	@Test
+	void checksTheAnswerIsCompleteAtTheEnd() {
+		StructuredOutputParser missing = new StructuredOutputParser(schema, objectMapper);
+		assertThatThrownBy(() -> missing.feed("{\"city\": \"Lyon\"}"))
+			.hasMessageContaining("missing required property 'population'");
+
+		StructuredOutputParser cutShort = new StructuredOutputParser(schema, objectMapper);
+		cutShort.feed("{\"city\": \"Lyon\", \"population\": 1");
+		assertThatThrownBy(cutShort::finish).hasMessage("The JSON answer is incomplete");
+
+		StructuredOutputParser trailing = new StructuredOutputParser(schema, objectMapper);
+		assertThatThrownBy(() -> trailing.feed("{\"city\": \"Lyon\", \"population\": 1} {"))
+			.hasMessage("Unexpected content after the JSON answer");
+
+		StructuredOutputParser whitespace = new StructuredOutputParser(schema, objectMapper);
+		whitespace.feed("{");
+		assertThatThrownBy(() -> {
+			for (int i = 0; i < 100; i++) {
+				whitespace.feed("\n\n\n");
+			}
+		}).hasMessage("The model produced only whitespace");
+	}
+
+	@Test
+	void validatesNonObjectAnswersWhenComplete() {
+		StructuredOutputParser parser = new StructuredOutputParser(json("{\"type\":\"array\",\"items\":{\"type\":\"integer\"}}"), objectMapper);
+
+		assertThat(parser.feed("[1, 2")).isEmpty();
+		assertThat(parser.feed(", 3]")).isEmpty();
+		assertThat(parser.finish()).isEqualTo(json("[1,2,3]"));
+	}
+
+	@Test
+	void parsesRegisteredTypes() throws Exception {
+		StructuredOutputTypes types = new StructuredOutputTypes(Map.of("date-time", DateTimeFunction.Response.class), objectMapper);
+		JsonNode dateTime = types.schema("date-time").orElseThrow();
+		assertThat(dateTime.has("$schema")).isFalse();
+
+		StructuredOutputParser parser = new StructuredOutputParser(dateTime, objectMapper);
+		DateTimeFunction.Response response = new DateTimeFunction.Response("2025-01-01 10:00", "2025-01-01", "10:00",
+			"WEDNESDAY", "JANUARY", 2025);
+		parser.feed(objectMapper.writeValueAsString(response));
+
+		assertThat(objectMapper.treeToValue(parser.finish(), DateTimeFunction.Response.class)).isEqualTo(response);
+		assertThatThrownBy(() -> new StructuredOutputParser(dateTime, objectMapper).feed("{\"year\": \"2025\""))
+			.isInstanceOf(StructuredOutputException.class);
+	}
+
+	private JsonNode json(String json) {
+		try {
+			return objectMapper.readTree(json);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package com.example.spring_ai_with_local_llm.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process stand-in for the Ollama HTTP API. {@code /api/chat} answers with a fixed reply after a
+ * configurable latency, either as a single JSON document or, for {@code "stream": true}, as NDJSON
+ * chunks (one per word). {@code /api/pull} succeeds at once and adds the model to {@code /api/tags}.
+ * {@code /api/embed} answers every input with a 4-dimension vector derived from its text.
+ * Faults can be injected: every request failing, the next few failing with
+ * a given status, or requests for one model failing.
+ */
+public class OllamaStubServer implements AutoCloseable {
+
+    public static final String THREAD_NAME_PREFIX = "ollama-stub-";
+
+    private static final Pattern MODEL = Pattern.compile("\"model\"\\s*:\\s*\"([^\"]*)\"");
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer server;
+    private final AtomicInteger chatRequests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final List<String> requestedModels = new CopyOnWriteArrayList<>();
+    private final List<String> chatRequestBodies = new CopyOnWriteArrayList<>();
+    private final List<String> pulledModels = new CopyOnWriteArrayList<>();
+    private final List<Integer> embedBatchSizes = new CopyOnWriteArrayList<>();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration tokenInterval = Duration.ZERO;
+    private volatile String reply = "Hello from the stub";
+    private volatile String model = "stub-model";
+    private volatile List<String> loadedModels = List.of();
+    private volatile boolean failing;
+    private volatile boolean emptyStreams;
+    private volatile int failureStatus;
+    private volatile String failingModel;
+
+    public OllamaStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 2048);
+        // Platform threads: the JDK HttpServer stalls reading request bodies on virtual threads
+        // when the JVM has a single carrier
+        AtomicInteger threadIds = new AtomicInteger();
+        server.setExecutor(Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, THREAD_NAME_PREFIX + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/api/chat", this::chat);
+        server.createContext("/api/tags", this::tags);
+        server.createContext("/api/pull", this::pull);
+        server.createContext("/api/ps", this::runningModels);
+        server.createContext("/api/embed", this::embed);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public OllamaStubServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Pause between streamed chunks, to keep streams open (and mostly idle) for longer.
+     */
+    public OllamaStubServer tokenInterval(Duration tokenInterval) {
+        this.tokenInterval = tokenInterval;
+        return this;
+    }
+
+    public OllamaStubServer reply(String reply) {
+        this.reply = reply;
+        return this;
+    }
+
+    public OllamaStubServer model(String model) {
+        this.model = model;
+        return this;
+    }
+
+    /**
+     * Models reported as loaded by {@code /api/ps}.
+     */
+    public OllamaStubServer loadedModels(String... models) {
+        this.loadedModels = List.of(models);
+        return this;
+    }
+
+    /**
+     * While failing, every endpoint answers {@code 500}.
+     */
+    public OllamaStubServer failing(boolean failing) {
+        this.failing = failing;
+        return this;
+    }
+
+    /**
+     * While set, streamed chat requests answer {@code 200} without a single chunk.
+     */
+    public OllamaStubServer emptyStreams(boolean emptyStreams) {
+        this.emptyStreams = emptyStreams;
+        return this;
+    }
+
+    /**
+     * The next {@code requests} chat requests answer with {@code status}.
+     */
+    public OllamaStubServer failNext(int requests, int status) {
+        this.failureStatus = status;
+        this.failuresLeft.set(requests);
+        return this;
+    }
+
+    /**
+     * Chat requests for {@code model} answer {@code 500}, as when a model fails to load.
+     */
+    public OllamaStubServer failModel(String model) {
+        this.failingModel = model;
+        return this;
+    }
+
+    /**
+     * Model of every chat request received, in order.
+     */
+    public List<String> requestedModels() {
+        return List.copyOf(requestedModels);
+    }
+
+    /**
+     * Body of every chat request received, in order.
+     */
+    public List<String> chatRequestBodies() {
+        return List.copyOf(chatRequestBodies);
+    }
+
+    public List<String> pulledModels() {
+        return List.copyOf(pulledModels);
+    }
+
+    /**
+     * Number of texts in every embed request received, in order.
+     */
+    public List<Integer> embedBatchSizes() {
+        return List.copyOf(embedBatchSizes);
+    }
+
+    /**
+     * The vector {@code /api/embed} answers for {@code text}.
+     */
+    public static float[] embedding(String text) {
+        return new float[] {text.length(), text.isEmpty() ? 0 : text.charAt(0), Math.floorMod(text.hashCode(), 1000), 1};
+    }
+
+    public int chatRequests() {
+        return chatRequests.get();
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        chatRequests.incrementAndGet();
+        Matcher model = MODEL.matcher(request);
+        String requestedModel = model.find() ? model.group(1) : null;
+        requestedModels.add(String.valueOf(requestedModel));
+        chatRequestBodies.add(request);
+        if (failing || (requestedModel != null && requestedModel.equals(failingModel))) {
+            respond(exchange, 500, "{\"error\":\"stub failure\"}");
+            return;
+        }
+        if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+            respond(exchange, failureStatus, "{\"error\":\"injected failure\"}");
+            return;
+        }
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            sleep(latency);
+            if (request.replace(" ", "").contains("\"stream\":true")) {
+                streamChat(exchange);
+            } else {
+                respond(exchange, 200, chunk(reply, true));
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void tags(HttpExchange exchange) throws IOException {
+        String models = Stream.concat(Stream.of(model), pulledModels.stream())
+            .map(name -> "{\"name\":\"" + name + "\",\"model\":\"" + name + "\"}")
+            .collect(Collectors.joining(","));
+        respond(exchange, 200, "{\"models\":[" + models + "]}");
+    }
+
+    private void pull(HttpExchange exchange) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Matcher model = MODEL.matcher(request);
+        if (failing || !model.find()) {
+            respond(exchange, 500, "{\"error\":\"stub failure\"}");
+            return;
+        }
+        pulledModels.add(model.group(1));
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write("{\"status\":\"pulling manifest\"}\n{\"status\":\"success\"}\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void runningModels(HttpExchange exchange) throws IOException {
+        if (failing) {
+            respond(exchange, 500, "{\"error\":\"stub failure\"}");
+            return;
+        }
+        String models = loadedModels.stream()
+            .map(name -> "{\"name\":\"" + name + "\",\"model\":\"" + name + "\"}")
+            .collect(Collectors.joining(","));
+        respond(exchange, 200, "{\"models\":[" + models + "]}");
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        JsonNode request = JSON.readTree(exchange.getRequestBody());
+        if (failing) {
+            respond(exchange, 500, "{\"error\":\"stub failure\"}");
+            return;
+        }
+        List<String> texts = new ArrayList<>();
+        request.path("input").forEach(text -> texts.add(text.asText()));
+        embedBatchSizes.add(texts.size());
+        sleep(latency);
+        ObjectNode response = JSON.createObjectNode().put("model", request.path("model").asText());
+        ArrayNode embeddings = response.putArray("embeddings");
+        for (String text : texts) {
+            ArrayNode vector = embeddings.addArray();
+            for (float value : embedding(text)) {
+                vector.add(value);
+            }
+        }
+        respond(exchange, 200, JSON.writeValueAsString(response));
+    }
+
+    private void streamChat(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (emptyStreams) {
+                return;
+            }
+            String[] words = reply.split(" ");
+            for (int i = 0; i < words.length; i++) {
+                if (i > 0) {
+                    sleep(tokenInterval);
+                }
+                String content = i == 0 ? words[i] : " " + words[i];
+                out.write((chunk(content, false) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            out.write((chunk("", true) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String chunk(String content, boolean done) {
+        String json = "{\"model\":\"" + model + "\",\"created_at\":\"2025-01-01T00:00:00Z\","
+            + "\"message\":{\"role\":\"assistant\",\"content\":\"" + content.replace("\"", "\\\"") + "\"},"
+            + "\"done\":" + done;
+        if (done) {
+            json += ",\"done_reason\":\"stop\",\"total_duration\":1000,\"load_duration\":10,"
+                + "\"prompt_eval_count\":12,\"prompt_eval_duration\":100,\"eval_count\":8,\"eval_duration\":800";
+        }
+        return json + "}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
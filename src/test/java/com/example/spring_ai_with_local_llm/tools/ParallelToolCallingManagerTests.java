@@ -0,0 +1,96 @@
+package com.example.spring_ai_with_local_llm.tools;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.execution.DefaultToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelToolCallingManagerTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final ParallelToolCallingManager manager = new ParallelToolCallingManager(name -> null,
+		DefaultToolExecutionExceptionProcessor.builder().build(),
+		name -> name.equals("stuck") ? Duration.ofMillis(200) : Duration.ofSeconds(5), executor, registry);
+
+	@AfterEach
+	void tearDown() {
+		executor.close();
+	}
+
+	@Test
+	void runsTheToolCallsOfOneTurnConcurrentlyInOrder() {
+		Prompt prompt = prompt(sleeping("first", 400), sleeping("second", 400), sleeping("third", 400));
+
+		long start = System.nanoTime();
+		ToolExecutionResult result = manager.executeToolCalls(prompt, toolCalls("first", "second", "third"));
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+		assertThat(elapsed).isLessThan(Duration.ofMillis(1000));
+		assertThat(responses(result)).extracting(ToolResponseMessage.ToolResponse::responseData)
+			.containsExactly("\"first done\"", "\"second done\"", "\"third done\"");
+		assertThat(result.conversationHistory()).hasSize(3);
+		assertThat(registry.get("llm.tool.calls").summary().totalAmount()).isEqualTo(3);
+	}
+
+	@Test
+	void answersTheModelWhenAToolTimesOut() {
+		Prompt prompt = prompt(sleeping("stuck", 10_000), sleeping("quick", 0));
+
+		long start = System.nanoTime();
+		ToolExecutionResult result = manager.executeToolCalls(prompt, toolCalls("stuck", "quick"));
+
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+		assertThat(responses(result)).extracting(ToolResponseMessage.ToolResponse::responseData)
+			.containsExactly("Tool 'stuck' did not respond within 200 ms", "\"quick done\"");
+		assertThat(registry.get("llm.tool.timeouts").tag("tool", "stuck").counter().count()).isEqualTo(1);
+	}
+
+	private static ToolCallback sleeping(String name, long millis) {
+		return FunctionToolCallback.builder(name, () -> {
+				try {
+					Thread.sleep(millis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return name + " done";
+			})
+			.build();
+	}
+
+	private static Prompt prompt(ToolCallback... tools) {
+		return new Prompt(List.of(new UserMessage("question")), ToolCallingChatOptions.builder().toolCallbacks(tools).build());
+	}
+
+	private static ChatResponse toolCalls(String... names) {
+		List<AssistantMessage.ToolCall> calls = Arrays.stream(names)
+			.map(name -> new AssistantMessage.ToolCall(name + "-id", "function", name, "{}"))
+			.toList();
+		return new ChatResponse(List.of(new Generation(new AssistantMessage("", Map.of(), calls))));
+	}
+
+	private static List<ToolResponseMessage.ToolResponse> responses(ToolExecutionResult result) {
+		return ((ToolResponseMessage) result.conversationHistory().getLast()).getResponses();
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.spring_ai_with_local_llm.tools;
+
+import com.example.spring_ai_with_local_llm.config.ToolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ToolRegistryTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void registersTheToolMethodsOfBeans() {
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("dateTimeTools", new DateTimeTools());
+		beanFactory.addBean("notATool", new Object());
+		ToolRegistry tools = new ToolRegistry(properties(Map.of()), registry);
+
+		tools.registerBeans(beanFactory);
+
+		assertThat(tools.getToolCallbacks()).extracting(callback -> callback.getToolDefinition().name())
+			.containsExactly("getCurrentDateTime");
+		ToolCallback dateTime = tools.resolve("getCurrentDateTime");
+		assertThat(dateTime.getToolDefinition().description()).contains("current date and time");
+		assertThat(dateTime.getToolDefinition().inputSchema()).contains("\"type\" : \"object\"");
+		assertThat(dateTime.call("{}")).isNotBlank();
+		assertThat(registry.get("llm.tool.duration").tag("tool", "getCurrentDateTime").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void reusesResultsWithinTheToolsCacheTtl() throws InterruptedException {
+		ToolRegistry tools = new ToolRegistry(
+			properties(Map.of("cached", new ToolProperties.Policy(null, Duration.ofMillis(300)))), registry);
+		CountingTools counting = new CountingTools();
+		tools.register(counting);
+		ToolCallback cached = tools.resolve("cached");
+		ToolCallback uncached = tools.resolve("uncached");
+
+		assertThat(cached.call("{}")).isEqualTo(cached.call("{}"));
+		assertThat(uncached.call("{}")).isNotEqualTo(uncached.call("{}"));
+		Thread.sleep(400);
+		cached.call("{}");
+
+		assertThat(counting.cachedCalls).hasValue(2);
+		assertThat(registry.get("llm.tool.cache").tags("tool", "cached", "result", "hit").counter().count()).isEqualTo(1);
+		assertThat(registry.get("llm.tool.cache").tags("tool", "cached", "result", "miss").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void rejectsToolsWithTheSameName() {
+		ToolRegistry tools = new ToolRegistry(properties(Map.of()), registry);
+		tools.register(new DateTimeTools());
+
+		assertThatThrownBy(() -> tools.register(new DateTimeTools()))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("getCurrentDateTime");
+	}
+
+	private static ToolProperties properties(Map<String, ToolProperties.Policy> policies) {
+		return new ToolProperties(Duration.ofSeconds(10), Duration.ZERO, 16, policies);
+	}
+
+	static class CountingTools {
+
+		final AtomicInteger cachedCalls = new AtomicInteger();
+		final AtomicInteger uncachedCalls = new AtomicInteger();
+
+		@Tool(name = "cached", description = "Counts its calls, cached")
+		public String cached() {
+			return "call " + cachedCalls.incrementAndGet();
+		}
+
+		@Tool(name = "uncached", description = "Counts its calls")
+		public String uncached() {
+			return "call " + uncachedCalls.incrementAndGet();
+		}
+	}
+}